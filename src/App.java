@@ -18,24 +18,52 @@ import model.Flat;
 import model.Flat.FlatType;
 import repository.ProjectRepository;
 import repository.ApplicationRepository;
+import repository.BookingRequestRepository;
 import repository.OfficerRepository;
 import repository.EnquiryRepository;
 import repository.ApplicantRepository;
 import repository.ManagerRepository;
+import repository.ReferenceLinker;
+import repository.Repository;
 import view.LoginView;
 import view.DashboardFactory;
 import view.Dashboard;
+import view.SessionServer;
+import view.Terminal;
+import api.ApiServer;
+import service.BookingDedupeService;
+import service.ProjectExecutor;
+import service.UnitHoldService;
 
 import java.util.Scanner;
 import java.util.List;
 import java.util.Date;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Main application entry point with mock data for testing
+ * 
+ * Run with no arguments to serve one user on the console, or with
+ * "--server [port]" to serve many users at once over a local TCP port
+ * (e.g. with "nc localhost 5050"), one session per connection, or with
+ * "--api [port]" to serve the JSON API over HTTP on a local port.
  */
 public class App {
     
+    // Port used by server mode when none is given
+    private static final int DEFAULT_SERVER_PORT = 5050;
+    
+    // Port used by API mode when none is given
+    private static final int DEFAULT_API_PORT = 8080;
+    
+    // How long a unit stays held for a booking request before an officer completes it
+    private static final long BOOKING_HOLD_MINUTES = 30;
+    
+    // How many booking outcomes are kept in memory, and for how long repeats of a request get its outcome
+    private static final int BOOKING_DEDUPE_CACHE_SIZE = 10_000;
+    private static final long BOOKING_DEDUPE_HOURS = 24;
+    
     // Repositories
     private static ProjectRepository projectRepository;
     private static ApplicationRepository applicationRepository;
@@ -43,12 +71,25 @@ public class App {
     private static EnquiryRepository enquiryRepository;
     private static ApplicantRepository applicantRepository;
     private static ManagerRepository managerRepository;
+    private static BookingRequestRepository bookingRequestRepository;
     
     private static DashboardFactory dashboardFactory;
     
+    // Runs each project's bookings and decisions one at a time, and releases expired unit holds in turn with them
+    private static ProjectExecutor projectExecutor;
+    
+    // Holds a unit for each booking request until it is completed or the hold runs out
+    private static UnitHoldService unitHoldService;
+    
+    // Answers repeated API booking requests with their first outcome
+    private static BookingDedupeService bookingDedupeService;
+    
     public static void main(String[] args) {
         System.out.println("Starting HDB Housing System...");
         
+        // Even a single console session needs it, since unit holds expire on a timer thread
+        projectExecutor = new ProjectExecutor();
+        
         // Create data directories if they don't exist
         createDataDirectories();
         
@@ -65,6 +106,63 @@ public class App {
             managerRepository
         );
         
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT;
+            serve(port, authController);
+            return;
+        }
+        
+        if (args.length > 0 && args[0].equals("--api")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_API_PORT;
+            serveApi(port, authController);
+            return;
+        }
+        
+        runSession(authController, dashboardFactory);
+    }
+    
+    /**
+     * Serves concurrent sessions over a local TCP port until the process is stopped.
+     * Each session gets its own dashboard factory, since the controllers it
+     * creates remember the logged-in user.
+     * 
+     * @param port The port to listen on
+     * @param authController Controller for authenticating users
+     */
+    private static void serve(int port, AuthenticationController authController) {
+        try (SessionServer server = new SessionServer(port, () -> runSession(authController, createDashboardFactory()))) {
+            System.out.println("Serving sessions on localhost:" + server.getPort());
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("Error starting session server on port " + port + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Starts the JSON API on a local port. The server keeps the process
+     * running after main returns, until the process is stopped.
+     * 
+     * @param port The port to listen on
+     * @param authController Controller for authenticating users
+     */
+    private static void serveApi(int port, AuthenticationController authController) {
+        try {
+            ApiServer server = new ApiServer(port, authController, projectRepository, applicationRepository, enquiryRepository,
+                    projectExecutor, unitHoldService, bookingDedupeService);
+            server.start();
+            System.out.println("Serving the API on http://localhost:" + server.getPort() + "/api");
+        } catch (IOException e) {
+            System.err.println("Error starting API server on port " + port + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Runs one user's session: login, dashboard and logout, until the user exits
+     * 
+     * @param authController Controller for authenticating users
+     * @param dashboardFactory Factory for the session's dashboards
+     */
+    private static void runSession(AuthenticationController authController, DashboardFactory dashboardFactory) {
         boolean systemRunning = true;
         
         while (systemRunning) {
@@ -84,7 +182,7 @@ public class App {
                 }
                 
                 // After returning from the dashboard, prompt if the user wants to log out or exit
-                Scanner scanner = new Scanner(System.in);
+                Scanner scanner = Terminal.scanner();
                 System.out.println("\n===== LOGOUT OPTIONS =====");
                 System.out.println("1. Return to Login Screen");
                 System.out.println("2. Exit the system");
@@ -128,25 +226,66 @@ public class App {
         enquiryRepository = new EnquiryRepository("data/enquiries.ser");
         applicantRepository = new ApplicantRepository("data/applicants.ser");
         managerRepository = new ManagerRepository("data/managers.ser");
+        bookingRequestRepository = new BookingRequestRepository("data/booking_requests.ser");
+        
+        // Applications and projects take most writes during a launch, so let
+        // concurrent writes share a single flush instead of one each
+        applicationRepository.setDurability(Repository.Durability.GROUP);
+        projectRepository.setDurability(Repository.Durability.GROUP);
+        bookingRequestRepository.setDurability(Repository.Durability.GROUP);
+        
+        // Stored entities refer to each other by key; the linker restores
+        // the references once every repository has loaded
+        ReferenceLinker referenceLinker = new ReferenceLinker(projectRepository, applicationRepository,
+                applicantRepository, officerRepository, managerRepository);
+        projectRepository.setReferenceLinker(referenceLinker);
+        applicationRepository.setReferenceLinker(referenceLinker);
+        officerRepository.setReferenceLinker(referenceLinker);
+        enquiryRepository.setReferenceLinker(referenceLinker);
+        applicantRepository.setReferenceLinker(referenceLinker);
+        managerRepository.setReferenceLinker(referenceLinker);
         
         // Load existing data if any
-        // projectRepository.loadData();
-        // applicationRepository.loadData();
-        // officerRepository.loadData();
-        // enquiryRepository.loadData();
-        // applicantRepository.loadData();
-        // managerRepository.loadData();
+        projectRepository.loadData();
+        applicationRepository.loadData();
+        officerRepository.loadData();
+        enquiryRepository.loadData();
+        applicantRepository.loadData();
+        managerRepository.loadData();
+        bookingRequestRepository.loadData();
+        referenceLinker.link();
         
         System.out.println("Repositories initialized");
         
+        // Re-arm the unit holds of booking requests still waiting for an officer
+        unitHoldService = new UnitHoldService(applicationRepository, projectRepository, projectExecutor,
+                BOOKING_HOLD_MINUTES * 60 * 1000);
+        unitHoldService.recover();
+        
+        // Forget booking outcomes too old for any client to still be retrying
+        bookingDedupeService = new BookingDedupeService(bookingRequestRepository, BOOKING_DEDUPE_CACHE_SIZE,
+                BOOKING_DEDUPE_HOURS * 60 * 60 * 1000);
+        bookingDedupeService.purgeExpired();
+        
         // Initialize the dashboard factory
-        dashboardFactory = new DashboardFactory(
+        dashboardFactory = createDashboardFactory();
+    }
+    
+    /**
+     * Creates a dashboard factory over the repositories
+     * 
+     * @return The new factory
+     */
+    private static DashboardFactory createDashboardFactory() {
+        return new DashboardFactory(
             projectRepository,
             applicationRepository,
             enquiryRepository,
             applicantRepository,
             officerRepository,
-            managerRepository
+            managerRepository,
+            projectExecutor,
+            unitHoldService
         );
     }
     
@@ -0,0 +1,868 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controller.AuthenticationController;
+import controller.AuthenticationController.UserType;
+import exception.HDBException;
+import model.Applicant;
+import model.Application;
+import model.Enquiry;
+import model.Flat;
+import model.HDBManager;
+import model.HDBOfficer;
+import model.Project;
+import model.User;
+import repository.ApplicationRepository;
+import repository.EnquiryRepository;
+import repository.ProjectRepository;
+import service.ApplicantEnquiryService;
+import service.ApplicantProjectService;
+import service.BookingDedupeService;
+import service.BookingReceipt;
+import service.HDBManagerApplicationService;
+import service.HDBManagerEnquiryService;
+import service.OfficerEnquiryService;
+import service.OfficerFlatBookingService;
+import service.ProjectExecutor;
+import service.UnitHoldService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that serves the applicant, officer and manager operations as a JSON
+ * API over HTTP on the local machine, for clients other than the terminal.
+ * 
+ * Clients log in with POST /api/login and send the returned token as
+ * "Authorization: Bearer &lt;token&gt;" on every other request. A token
+ * expires after {@value #SESSION_IDLE_MINUTES} minutes without a request,
+ * or straight away on POST /api/logout. Each request
+ * runs on its own virtual thread and calls the same services the views use,
+ * and responses are streamed to the client as they are written rather than
+ * built in memory first. Errors are returned as {"error": "..."} with a
+ * matching status code.
+ * 
+ * Booking requests may carry an "Idempotency-Key" header. A request
+ * repeated with the same key by the same user is answered with the first
+ * request's outcome instead of being carried out again, so clients can
+ * safely retry a booking whose response they never received.
+ */
+public class ApiServer implements Closeable {
+    
+    // Largest request body accepted; every request the API takes is a handful of fields
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    
+    // Longest idempotency key accepted; keys are meant to be UUIDs or similar
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+    
+    // How long a session token stays valid without a request
+    private static final long SESSION_IDLE_MINUTES = 30;
+    private static final long SESSION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(SESSION_IDLE_MINUTES);
+    
+    // How often logins sweep out the sessions that expired without being used again
+    private static final long SESSION_SWEEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
+    // The JDK server's switch for TCP_NODELAY, read once when the first server is created
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    
+    private final HttpServer server;
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Route> routes = new ArrayList<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionSweep = new AtomicLong();
+    private final SecureRandom tokenSource = new SecureRandom();
+    
+    private final AuthenticationController authController;
+    private final ProjectRepository projectRepository;
+    private final ApplicantProjectService applicantProjectService;
+    private final ApplicantEnquiryService applicantEnquiryService;
+    private final HDBManagerApplicationService managerApplicationService;
+    private final HDBManagerEnquiryService managerEnquiryService;
+    private final OfficerFlatBookingService officerFlatBookingService;
+    private final OfficerEnquiryService officerEnquiryService;
+    
+    /**
+     * Constructor for ApiServer. The server does not accept requests until
+     * {@link #start()} is called.
+     * 
+     * @param port The local port to listen on, or 0 for any free port
+     * @param authController Controller for authenticating users
+     * @param projectRepository Repository for project data
+     * @param applicationRepository Repository for application data
+     * @param enquiryRepository Repository for enquiry data
+     * @param projectExecutor Executor that runs each project's bookings and decisions one at a time, or null
+     * @param unitHoldService Service holding units for pending bookings, or null
+     * @param bookingDedupeService Service answering repeated booking requests with their first outcome, or null
+     * @throws IOException If the port could not be opened
+     */
+    public ApiServer(int port, AuthenticationController authController, ProjectRepository projectRepository,
+            ApplicationRepository applicationRepository, EnquiryRepository enquiryRepository,
+            ProjectExecutor projectExecutor, UnitHoldService unitHoldService,
+            BookingDedupeService bookingDedupeService) throws IOException {
+        this.authController = authController;
+        this.projectRepository = projectRepository;
+        this.applicantProjectService = new ApplicantProjectService(projectRepository, applicationRepository,
+                projectExecutor, unitHoldService, bookingDedupeService);
+        this.applicantEnquiryService = new ApplicantEnquiryService(enquiryRepository, projectRepository);
+        this.managerApplicationService = new HDBManagerApplicationService(applicationRepository, projectRepository,
+                projectExecutor, unitHoldService);
+        this.managerEnquiryService = new HDBManagerEnquiryService(enquiryRepository);
+        this.officerFlatBookingService = new OfficerFlatBookingService(applicationRepository, projectRepository,
+                projectExecutor, unitHoldService, bookingDedupeService);
+        this.officerEnquiryService = new OfficerEnquiryService(enquiryRepository, projectRepository);
+        
+        // Streamed responses go out as headers, chunks and a terminator in
+        // separate writes; with Nagle's algorithm on, each of those waits for
+        // the client's delayed ACK, adding about 40 ms to every request
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(requests);
+        this.server.createContext("/", this::handle);
+        registerRoutes();
+    }
+    
+    /**
+     * Gets the port the server listens on
+     * 
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Starts accepting requests in the background
+     */
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stops accepting requests and logs every client out; requests already
+     * running are given a moment to finish
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        requests.shutdown();
+        sessions.clear();
+    }
+    
+    /**
+     * Declares every endpoint, with the kind of user allowed to call it
+     */
+    private void registerRoutes() {
+        route("POST", "/api/login", null, this::login);
+        route("POST", "/api/logout", User.class, this::logout);
+        
+        // Applicants (officers may also act as applicants)
+        route("GET", "/api/projects", Applicant.class, this::listVisibleProjects);
+        route("GET", "/api/projects/open", Applicant.class, this::listOpeningProjects);
+        route("GET", "/api/application", Applicant.class, this::getApplication);
+        route("POST", "/api/applications", Applicant.class, this::createApplication);
+        route("POST", "/api/application/withdrawal", Applicant.class, this::requestWithdrawal);
+        route("POST", "/api/application/booking", Applicant.class, this::requestBooking);
+        route("GET", "/api/enquiries", Applicant.class, this::listOwnEnquiries);
+        route("POST", "/api/enquiries", Applicant.class, this::submitEnquiry);
+        route("GET", "/api/enquiries/{id}", Applicant.class, this::getOwnEnquiry);
+        route("PUT", "/api/enquiries/{id}", Applicant.class, this::updateEnquiry);
+        route("DELETE", "/api/enquiries/{id}", Applicant.class, this::deleteEnquiry);
+        
+        // Managers, for the projects they created
+        route("GET", "/api/manager/projects/{project}/applications", HDBManager.class, this::listApplications);
+        route("POST", "/api/manager/projects/{project}/applications/{nric}/approve", HDBManager.class, this::approveApplication);
+        route("POST", "/api/manager/projects/{project}/applications/{nric}/reject", HDBManager.class, this::rejectApplication);
+        route("GET", "/api/manager/projects/{project}/withdrawals", HDBManager.class, this::listWithdrawals);
+        route("POST", "/api/manager/projects/{project}/withdrawals/{nric}/approve", HDBManager.class, this::approveWithdrawal);
+        route("POST", "/api/manager/projects/{project}/withdrawals/{nric}/reject", HDBManager.class, this::rejectWithdrawal);
+        route("GET", "/api/manager/projects/{project}/enquiries", HDBManager.class, this::listProjectEnquiries);
+        route("POST", "/api/manager/enquiries/{id}/reply", HDBManager.class, this::managerReply);
+        
+        // Officers, for the project they are handling
+        route("GET", "/api/officer/bookings", HDBOfficer.class, this::listBookingRequests);
+        route("POST", "/api/officer/bookings/{nric}/complete", HDBOfficer.class, this::completeBooking);
+        route("GET", "/api/officer/bookings/{nric}/receipt", HDBOfficer.class, this::getBookingReceipt);
+        route("GET", "/api/officer/enquiries", HDBOfficer.class, this::listHandledEnquiries);
+        route("POST", "/api/officer/enquiries/{id}/reply", HDBOfficer.class, this::officerReply);
+    }
+    
+    // ----- Authentication -----
+    
+    private void login(Call call) throws IOException {
+        Map<String, String> body = call.body();
+        UserType userType = parseEnum(UserType.class, call.require(body, "userType"));
+        User user = authController.authenticate(userType, call.require(body, "nric"), call.require(body, "password"));
+        if (user == null) {
+            throw new ApiError(401, "Invalid NRIC or password");
+        }
+        
+        byte[] tokenBytes = new byte[24];
+        tokenSource.nextBytes(tokenBytes);
+        String token = HexFormat.of().formatHex(tokenBytes);
+        sweepExpiredSessions();
+        sessions.put(token, new Session(user));
+        
+        call.respond(200, json -> {
+            json.beginObject();
+            json.name("token").value(token);
+            json.name("userType").value(userType);
+            json.name("nric").value(user.getNRIC());
+            json.name("name").value(user.getName());
+            json.endObject();
+        });
+    }
+    
+    private void logout(Call call) throws IOException {
+        sessions.remove(call.token);
+        call.respondOutcome(true, null);
+    }
+    
+    // ----- Applicant endpoints -----
+    
+    private void listVisibleProjects(Call call) throws IOException {
+        List<Project> projects = applicantProjectService.getVisibleProjects(call.user(Applicant.class));
+        call.respond(200, json -> writeArray(json, projects, this::writeProject));
+    }
+    
+    private void listOpeningProjects(Call call) throws IOException {
+        List<Project> projects = applicantProjectService.getOpeningProjects(call.user(Applicant.class));
+        call.respond(200, json -> writeArray(json, projects, this::writeProject));
+    }
+    
+    private void getApplication(Call call) throws IOException {
+        Application application = applicantProjectService.getApplicantApplication(call.user(Applicant.class));
+        if (application == null) {
+            throw new ApiError(404, "No application found");
+        }
+        call.respond(200, json -> writeApplication(json, application));
+    }
+    
+    private void createApplication(Call call) throws IOException {
+        Map<String, String> body = call.body();
+        Applicant applicant = call.user(Applicant.class);
+        Flat.FlatType flatType = parseEnum(Flat.FlatType.class, call.require(body, "flatType"));
+        Application application;
+        try {
+            application = applicantProjectService.submitApplication(applicant, call.require(body, "projectName"), flatType);
+        } catch (HDBException e) {
+            throw refused(e);
+        }
+        call.respond(201, json -> writeApplication(json, application));
+    }
+    
+    private void requestWithdrawal(Call call) throws IOException {
+        try {
+            applicantProjectService.submitWithdrawal(call.user(Applicant.class));
+        } catch (HDBException e) {
+            throw refused(e);
+        }
+        call.respondOutcome(true, null);
+    }
+    
+    private void requestBooking(Call call) throws IOException {
+        Applicant applicant = call.user(Applicant.class);
+        Application application = applicantProjectService.getApplicantApplication(applicant);
+        if (application == null) {
+            throw new ApiError(404, "No application found");
+        }
+        String message = applicantProjectService.initiateBooking(call.requestId(), applicant.getNRIC(),
+                application.getProject().getName());
+        call.respondMessage(message);
+    }
+    
+    private void listOwnEnquiries(Call call) throws IOException {
+        List<Enquiry> enquiries = applicantEnquiryService.getEnquiriesByApplicant(call.user(Applicant.class));
+        call.respond(200, json -> writeArray(json, enquiries, this::writeEnquiry));
+    }
+    
+    private void submitEnquiry(Call call) throws IOException {
+        Map<String, String> body = call.body();
+        Enquiry enquiry = applicantEnquiryService.submitEnquiry(call.user(Applicant.class),
+                call.require(body, "projectName"), call.require(body, "question"));
+        if (enquiry == null) {
+            throw new ApiError(409, "Enquiry could not be submitted");
+        }
+        call.respond(201, json -> writeEnquiry(json, enquiry));
+    }
+    
+    private void getOwnEnquiry(Call call) throws IOException {
+        Enquiry enquiry = applicantEnquiryService.getEnquiryById(call.param("id"), call.user(Applicant.class));
+        if (enquiry == null) {
+            throw new ApiError(404, "Enquiry not found");
+        }
+        call.respond(200, json -> writeEnquiry(json, enquiry));
+    }
+    
+    private void updateEnquiry(Call call) throws IOException {
+        String question = call.require(call.body(), "question");
+        call.respondOutcome(applicantEnquiryService.updateEnquiry(call.param("id"), call.user(Applicant.class), question),
+                "Enquiry could not be updated");
+    }
+    
+    private void deleteEnquiry(Call call) throws IOException {
+        call.respondOutcome(applicantEnquiryService.deleteEnquiry(call.param("id"), call.user(Applicant.class)),
+                "Enquiry could not be deleted");
+    }
+    
+    // ----- Manager endpoints -----
+    
+    private void listApplications(Call call) throws IOException {
+        String projectName = managedProjectName(call);
+        String status = call.query("status");
+        List<Application> applications = status == null
+                ? managerApplicationService.getPendingApplications(projectName)
+                : managerApplicationService.getApplicationsByStatus(projectName,
+                        parseEnum(Application.ApplicationStatus.class, status));
+        call.respond(200, json -> writeArray(json, applications, this::writeApplication));
+    }
+    
+    private void approveApplication(Call call) throws IOException {
+        call.respondOutcome(managerApplicationService.approveApplication(call.param("nric"), managedProjectName(call)),
+                "Application could not be approved");
+    }
+    
+    private void rejectApplication(Call call) throws IOException {
+        call.respondOutcome(managerApplicationService.rejectApplication(call.param("nric"), managedProjectName(call)),
+                "Application could not be rejected");
+    }
+    
+    private void listWithdrawals(Call call) throws IOException {
+        List<Application> applications = managerApplicationService.getWithdrawalRequests(managedProjectName(call));
+        call.respond(200, json -> writeArray(json, applications, this::writeApplication));
+    }
+    
+    private void approveWithdrawal(Call call) throws IOException {
+        call.respondOutcome(managerApplicationService.approveWithdrawal(call.param("nric"), managedProjectName(call)),
+                "Withdrawal could not be approved");
+    }
+    
+    private void rejectWithdrawal(Call call) throws IOException {
+        call.respondOutcome(managerApplicationService.rejectWithdrawal(call.param("nric"), managedProjectName(call)),
+                "Withdrawal could not be rejected");
+    }
+    
+    private void listProjectEnquiries(Call call) throws IOException {
+        String projectName = managedProjectName(call);
+        List<Enquiry> enquiries = Boolean.parseBoolean(call.query("pending"))
+                ? managerEnquiryService.getPendingEnquiries(projectName)
+                : managerEnquiryService.getEnquiriesByProject(projectName);
+        call.respond(200, json -> writeArray(json, enquiries, this::writeEnquiry));
+    }
+    
+    private void managerReply(Call call) throws IOException {
+        String content = call.require(call.body(), "content");
+        call.respondOutcome(managerEnquiryService.addReply(call.param("id"), call.user(HDBManager.class), content),
+                "Reply could not be added");
+    }
+    
+    /**
+     * Gets the project named in the path, checking that the calling manager created it
+     */
+    private String managedProjectName(Call call) {
+        String projectName = call.param("project");
+        HDBManager manager = call.user(HDBManager.class);
+        if (projectRepository.findById(projectName) == null) {
+            throw new ApiError(404, "Project not found");
+        }
+        boolean ownsProject = manager.getCreatedProjects().stream()
+                .anyMatch(project -> project.getName().equals(projectName));
+        if (!ownsProject) {
+            throw new ApiError(403, "Project is managed by another manager");
+        }
+        return projectName;
+    }
+    
+    // ----- Officer endpoints -----
+    
+    private void listBookingRequests(Call call) throws IOException {
+        List<Application> applications = officerFlatBookingService.getPendingBookingRequests(handledProjectName(call));
+        call.respond(200, json -> writeArray(json, applications, this::writeApplication));
+    }
+    
+    private void completeBooking(Call call) throws IOException {
+        String message = officerFlatBookingService.completeBooking(call.requestId(), call.param("nric"),
+                handledProjectName(call), call.user(HDBOfficer.class));
+        call.respondMessage(message);
+    }
+    
+    private void getBookingReceipt(Call call) throws IOException {
+        BookingReceipt receipt = officerFlatBookingService.generateBookingReceipt(call.param("nric"), handledProjectName(call));
+        if (receipt == null) {
+            throw new ApiError(404, "No completed booking found");
+        }
+        call.respond(200, json -> {
+            json.beginObject();
+            json.name("applicantName").value(receipt.applicantName());
+            json.name("nric").value(receipt.nric());
+            json.name("age").value(receipt.age());
+            json.name("maritalStatus").value(receipt.maritalStatus());
+            json.name("flatType").value(receipt.flatType().getDisplayName());
+            json.name("projectName").value(receipt.projectName());
+            json.name("neighborhood").value(receipt.neighborhood());
+            json.name("bookingDate").value(receipt.getBookingDate());
+            if (receipt.hasPrice()) {
+                json.name("price").value(receipt.price());
+            } else {
+                json.name("price").value("Unknown");
+            }
+            json.endObject();
+        });
+    }
+    
+    private void listHandledEnquiries(Call call) throws IOException {
+        HDBOfficer officer = call.user(HDBOfficer.class);
+        handledProjectName(call);
+        List<Enquiry> enquiries = Boolean.parseBoolean(call.query("pending"))
+                ? officerEnquiryService.getPendingEnquiriesByOfficerProject(officer)
+                : officerEnquiryService.getEnquiriesByOfficerProject(officer);
+        call.respond(200, json -> writeArray(json, enquiries, this::writeEnquiry));
+    }
+    
+    private void officerReply(Call call) throws IOException {
+        String content = call.require(call.body(), "content");
+        call.respondOutcome(officerEnquiryService.addReply(call.param("id"), call.user(HDBOfficer.class), content),
+                "Reply could not be added");
+    }
+    
+    /**
+     * Gets the name of the project the calling officer is handling
+     */
+    private String handledProjectName(Call call) {
+        Project project = call.user(HDBOfficer.class).getHandlingProject();
+        if (project == null) {
+            throw new ApiError(409, "Officer is not handling any project");
+        }
+        return project.getName();
+    }
+    
+    // ----- JSON representations -----
+    
+    private void writeProject(JsonWriter json, Project project) throws IOException {
+        json.beginObject();
+        json.name("name").value(project.getName());
+        json.name("neighborhood").value(project.getNeighborhood());
+        json.name("applicationOpenDate").value(project.getApplicationOpenDate());
+        json.name("applicationCloseDate").value(project.getApplicationCloseDate());
+        json.name("visible").value(project.isVisible());
+        json.name("availableOfficerSlots").value(project.getAvailableOfficerSlots());
+        json.name("manager");
+        writeUser(json, project.getManager());
+        json.name("flats").beginArray();
+        for (Flat flat : project.getFlats()) {
+            Flat.Inventory inventory = flat.getInventory();
+            json.beginObject();
+            json.name("flatType").value(flat.getFlatType());
+            json.name("totalUnits").value(inventory.getTotalUnits());
+            json.name("availableUnits").value(inventory.getAvailableUnits());
+            json.name("sellingPrice").value(flat.getSellingPrice());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+    
+    private void writeApplication(JsonWriter json, Application application) throws IOException {
+        Applicant applicant = application.getApplicant();
+        json.beginObject();
+        json.name("applicant").beginObject();
+        json.name("nric").value(applicant.getNRIC());
+        json.name("name").value(applicant.getName());
+        json.name("age").value(applicant.getAge());
+        json.name("maritalStatus").value(applicant.getMaritalStatus());
+        json.endObject();
+        json.name("projectName").value(application.getProject().getName());
+        json.name("flatType").value(application.getFlatType());
+        json.name("status").value(application.getStatus());
+        json.name("applicationDate").value(application.getApplicationDate());
+        json.name("withdrawalRequestStatus").value(application.getWithdrawalRequestStatus());
+        json.name("bookingStatus").value(application.getBookingStatus());
+        json.name("bookingDate").value(application.getBookingDate());
+        json.endObject();
+    }
+    
+    private void writeEnquiry(JsonWriter json, Enquiry enquiry) throws IOException {
+        json.beginObject();
+        json.name("id").value(enquiry.getId());
+        json.name("applicantNric").value(enquiry.getApplicant().getNRIC());
+        json.name("projectName").value(enquiry.getProject() == null ? null : enquiry.getProject().getName());
+        json.name("question").value(enquiry.getQuestion());
+        json.name("status").value(enquiry.getStatus());
+        json.name("dateSubmitted").value(enquiry.getDateSubmitted());
+        json.name("replies").beginArray();
+        for (Enquiry.Reply reply : enquiry.getReplies()) {
+            json.beginObject();
+            json.name("content").value(reply.getContent());
+            json.name("respondedBy");
+            writeUser(json, reply.getRespondedBy());
+            json.name("dateResponded").value(reply.getDateResponded());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+    
+    private void writeUser(JsonWriter json, User user) throws IOException {
+        if (user == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        json.name("nric").value(user.getNRIC());
+        json.name("name").value(user.getName());
+        json.endObject();
+    }
+    
+    private static <T> void writeArray(JsonWriter json, List<T> items, ElementWriter<T> writer) throws IOException {
+        json.beginArray();
+        for (T item : items) {
+            writer.write(json, item);
+        }
+        json.endArray();
+    }
+    
+    /**
+     * Parses an enum constant by name, ignoring case
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ApiError(400, "Invalid " + type.getSimpleName() + ": " + name);
+        }
+    }
+    
+    /**
+     * Converts a request refused by a service to the matching status: 404
+     * for something missing, 422 for a request that can never succeed and
+     * 409 for one refused by the current state
+     */
+    private static ApiError refused(HDBException e) {
+        int status = switch (e.getErrorType()) {
+            case NOT_FOUND_ERROR -> 404;
+            case VALIDATION_ERROR -> 422;
+            case AUTHORIZATION_ERROR -> 403;
+            case BUSINESS_RULE_ERROR -> 409;
+            case SYSTEM_ERROR -> 500;
+        };
+        return new ApiError(status, e.getMessage());
+    }
+    
+    // ----- Request dispatch -----
+    
+    private void route(String method, String pattern, Class<? extends User> role, Handler handler) {
+        routes.add(new Route(method, pattern.substring(1).split("/"), role, handler));
+    }
+    
+    /**
+     * Finds the route for a request, checks the caller may use it and runs it
+     * 
+     * @param exchange The request
+     */
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            Call call = new Call(exchange);
+            try {
+                dispatch(call);
+            } catch (ApiError e) {
+                call.respondError(e.status, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error handling " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI() + ": " + e.getMessage());
+                call.respondError(500, "Internal server error");
+            }
+        } catch (IOException e) {
+            // The client went away before the response was sent
+        }
+    }
+    
+    private void dispatch(Call call) throws IOException {
+        String[] segments = call.exchange.getRequestURI().getRawPath().substring(1).split("/");
+        boolean pathMatched = false;
+        for (Route route : routes) {
+            Map<String, String> params = route.match(segments);
+            if (params == null) {
+                continue;
+            }
+            pathMatched = true;
+            if (!route.method.equals(call.exchange.getRequestMethod())) {
+                continue;
+            }
+            call.params = params;
+            if (route.role != null) {
+                call.authenticate(route.role);
+            }
+            route.handler.handle(call);
+            return;
+        }
+        throw pathMatched ? new ApiError(405, "Method not allowed") : new ApiError(404, "No such endpoint");
+    }
+    
+    /**
+     * Checks a bearer token and returns its user, or fails with 401. Using
+     * a token keeps its session alive; an expired one is evicted.
+     */
+    private User userForToken(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            throw new ApiError(401, "Missing or expired session token");
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            throw new ApiError(401, "Missing or expired session token");
+        }
+        session.lastUsedMillis = now;
+        return session.user;
+    }
+    
+    /**
+     * Evicts the sessions whose tokens expired without being used again, at
+     * most once per sweep interval so logins stay cheap
+     */
+    private void sweepExpiredSessions() {
+        long now = System.currentTimeMillis();
+        long due = nextSessionSweep.get();
+        if (now < due || !nextSessionSweep.compareAndSet(due, now + SESSION_SWEEP_MILLIS)) {
+            return;
+        }
+        sessions.values().removeIf(session -> session.isExpired(now));
+    }
+    
+    /**
+     * A logged-in user and when their token was last used
+     */
+    private static final class Session {
+        
+        private final User user;
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+        
+        Session(User user) {
+            this.user = user;
+        }
+        
+        boolean isExpired(long now) {
+            return now - lastUsedMillis > SESSION_IDLE_MILLIS;
+        }
+    }
+    
+    /**
+     * One request being handled: its exchange, path parameters and caller
+     */
+    private final class Call {
+        
+        private final HttpExchange exchange;
+        private Map<String, String> params = Collections.emptyMap();
+        private String token;
+        private User user;
+        private boolean responded;
+        
+        Call(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+        
+        void authenticate(Class<? extends User> role) {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            token = header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+            user = userForToken(token);
+            if (!role.isInstance(user)) {
+                throw new ApiError(403, "Not permitted for " + user.getClass().getSimpleName());
+            }
+        }
+        
+        <U extends User> U user(Class<U> role) {
+            return role.cast(user);
+        }
+        
+        String param(String name) {
+            return params.get(name);
+        }
+        
+        /**
+         * Gets a query string parameter
+         * 
+         * @param name The parameter name
+         * @return The decoded value, or null if absent
+         */
+        String query(String name) {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query == null) {
+                return null;
+            }
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                if (key.equals(name)) {
+                    return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Gets the request's idempotency key, scoped to the caller so one
+         * user's keys never collide with another's
+         * 
+         * @return The caller's NRIC and the key, or null if the request has no key
+         */
+        String requestId() {
+            String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            if (key == null || key.isBlank()) {
+                return null;
+            }
+            if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new ApiError(400, "Idempotency-Key longer than " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            }
+            return user.getNRIC() + "/" + key.trim();
+        }
+        
+        /**
+         * Reads the request body as a flat JSON object
+         * 
+         * @return The body's fields
+         * @throws IOException If the body could not be read
+         */
+        Map<String, String> body() throws IOException {
+            InputStream in = exchange.getRequestBody();
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiError(413, "Request body too large");
+            }
+            if (bytes.length == 0) {
+                return new HashMap<>();
+            }
+            try {
+                return JsonReader.readObject(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ApiError(400, "Malformed JSON: " + e.getMessage());
+            }
+        }
+        
+        String require(Map<String, String> body, String field) {
+            String value = body.get(field);
+            if (value == null || value.isBlank()) {
+                throw new ApiError(400, "Missing field: " + field);
+            }
+            return value;
+        }
+        
+        /**
+         * Sends a status and streams a JSON body to the client
+         * 
+         * @param status The HTTP status
+         * @param body Writes the response body
+         * @throws IOException If the client could not be written to
+         */
+        void respond(int status, JsonBody body) throws IOException {
+            responded = true;
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, 0);
+            JsonWriter json = new JsonWriter(exchange.getResponseBody());
+            body.write(json);
+            json.close();
+        }
+        
+        void respondOutcome(boolean success, String failure) throws IOException {
+            respond(success ? 200 : 409, json -> {
+                json.beginObject();
+                json.name("success").value(success);
+                if (!success) {
+                    json.name("error").value(failure);
+                }
+                json.endObject();
+            });
+        }
+        
+        void respondMessage(String message) throws IOException {
+            respond(200, json -> json.beginObject().name("message").value(message).endObject());
+        }
+        
+        void respondError(int status, String message) throws IOException {
+            if (responded) {
+                return; // Headers already went out; the client sees a truncated body
+            }
+            respond(status, json -> json.beginObject().name("error").value(message).endObject());
+        }
+    }
+    
+    /**
+     * An endpoint: method, path pattern with {named} segments, allowed caller and handler
+     */
+    private record Route(String method, String[] pattern, Class<? extends User> role, Handler handler) {
+        
+        /**
+         * Matches a request path against the pattern
+         * 
+         * @param segments The path's segments
+         * @return The named segments' decoded values, or null if the path does not match
+         */
+        Map<String, String> match(String[] segments) {
+            if (segments.length != pattern.length) {
+                return null;
+            }
+            Map<String, String> params = null;
+            for (int i = 0; i < pattern.length; i++) {
+                String part = pattern[i];
+                if (part.startsWith("{")) {
+                    if (params == null) {
+                        params = new HashMap<>(4);
+                    }
+                    params.put(part.substring(1, part.length() - 1), URLDecoder.decode(segments[i], StandardCharsets.UTF_8));
+                } else if (!part.equals(segments[i])) {
+                    return null;
+                }
+            }
+            return params == null ? Collections.emptyMap() : params;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Handler {
+        void handle(Call call) throws IOException;
+    }
+    
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+    
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(JsonWriter json, T item) throws IOException;
+    }
+    
+    /**
+     * A request failure to report to the client with the given status
+     */
+    private static final class ApiError extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int status;
+        
+        ApiError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+} 
\ No newline at end of file
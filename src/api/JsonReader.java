@@ -0,0 +1,157 @@
+package api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class that parses the small JSON request bodies the API accepts: a single
+ * object whose members are strings, numbers, booleans or null.
+ * 
+ * Values are returned as strings (null for JSON null), since every request
+ * field is ultimately handed to a service as text or parsed by the handler.
+ * Nested objects and arrays are rejected.
+ */
+public final class JsonReader {
+    
+    private final String text;
+    private int pos;
+    
+    private JsonReader(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * Parses a flat JSON object
+     * 
+     * @param text The JSON text
+     * @return The object's members, in no particular order
+     * @throws IllegalArgumentException If the text is not a flat JSON object
+     */
+    public static Map<String, String> readObject(String text) {
+        JsonReader reader = new JsonReader(text);
+        Map<String, String> members = reader.object();
+        reader.skipWhitespace();
+        if (reader.pos != text.length()) {
+            throw reader.error("Unexpected content after object");
+        }
+        return members;
+    }
+    
+    private Map<String, String> object() {
+        Map<String, String> members = new HashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = string();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            members.put(name, scalar());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return members;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+    
+    private String scalar() {
+        char c = peek();
+        if (c == '"') {
+            return string();
+        }
+        if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+        if (text.startsWith("true", pos)) {
+            pos += 4;
+            return "true";
+        }
+        if (text.startsWith("false", pos)) {
+            pos += 5;
+            return "false";
+        }
+        int start = pos;
+        while (pos < text.length() && "+-.0123456789eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error("Expected a string, number, boolean or null");
+        }
+        return text.substring(start, pos);
+    }
+    
+    private String string() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) {
+                        throw error("Truncated escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Invalid escape");
+            }
+        }
+    }
+    
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+    
+    private char peek() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(pos);
+    }
+    
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+    
+    private void expect(char c) {
+        if (next() != c) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+} 
\ No newline at end of file
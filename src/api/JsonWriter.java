@@ -0,0 +1,280 @@
+package api;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Class that writes JSON straight to a byte stream as UTF-8, one token at a
+ * time, so a response never has to be built in memory first.
+ * 
+ * Callers open and close objects and arrays and write names and values in
+ * order; the writer adds the commas and colons and escapes strings.
+ * Dates are written as ISO-8601 instants, and null references as null.
+ * The writer encodes into a single small buffer of its own rather than
+ * going through a Writer and charset encoder, which for the short
+ * responses the API sends cost more than the JSON itself.
+ */
+public class JsonWriter implements Closeable, Flushable {
+    
+    private static final int BUFFER_SIZE = 2048;
+    
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+    private boolean[] hasElements = new boolean[16]; // Per open scope: whether a comma is due before the next element
+    private int depth;
+    private boolean afterName;
+    
+    /**
+     * Constructor for JsonWriter
+     * 
+     * @param out The stream to write to
+     */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+    
+    /**
+     * Opens an object
+     * 
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+    
+    /**
+     * Closes the innermost object
+     * 
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+    
+    /**
+     * Opens an array
+     * 
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+    
+    /**
+     * Closes the innermost array
+     * 
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+    
+    /**
+     * Writes the name of the next member of the innermost object
+     * 
+     * @param name The member name
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        write(':');
+        afterName = true;
+        return this;
+    }
+    
+    /**
+     * Writes a string value
+     * 
+     * @param value The value, or null
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+    
+    /**
+     * Writes a number value
+     * 
+     * @param value The value
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        return this;
+    }
+    
+    /**
+     * Writes a boolean value
+     * 
+     * @param value The value
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+    
+    /**
+     * Writes a date value as an ISO-8601 instant
+     * 
+     * @param value The value, or null
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter value(Date value) throws IOException {
+        return value == null ? nullValue() : value(value.toInstant().toString());
+    }
+    
+    /**
+     * Writes an enum value by name
+     * 
+     * @param value The value, or null
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter value(Enum<?> value) throws IOException {
+        return value == null ? nullValue() : value(value.name());
+    }
+    
+    /**
+     * Writes a null value
+     * 
+     * @return This writer
+     * @throws IOException If the stream could not be written
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        writeAscii("null");
+        return this;
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        drain();
+        out.close();
+    }
+    
+    private JsonWriter open(char bracket) throws IOException {
+        beforeValue();
+        write(bracket);
+        if (depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        hasElements[depth++] = false;
+        return this;
+    }
+    
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        write(bracket);
+        return this;
+    }
+    
+    /**
+     * Writes the comma that separates an element from the one before it
+     */
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth - 1]) {
+                write(',');
+            }
+            hasElements[depth - 1] = true;
+        }
+    }
+    
+    private void writeString(String value) throws IOException {
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writeAscii("\\\"");
+            } else if (c == '\\') {
+                writeAscii("\\\\");
+            } else if (c == '\n') {
+                writeAscii("\\n");
+            } else if (c == '\r') {
+                writeAscii("\\r");
+            } else if (c == '\t') {
+                writeAscii("\\t");
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                writeAscii(String.format("\\u%04x", (int) c));
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                write('?'); // Unpaired surrogate, as the standard UTF-8 encoder replaces it
+            } else {
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+        write('"');
+    }
+    
+    /**
+     * Writes text known to be ASCII, one byte per character
+     */
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+    }
+    
+    private void write(int b) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+    
+    /**
+     * Passes the buffered bytes on to the stream
+     */
+    private void drain() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+} 
\ No newline at end of file
@@ -151,4 +151,12 @@ public class ApplicantEnquiryController implements IEnquiryController {
         // For applicants, this returns their own pending enquiry count for a project
         return enquiryService.getPendingEnquiryCountByApplicantAndProject(currentApplicant, projectName);
     }
+    
+    @Override
+    public List<Enquiry> searchEnquiries(String projectName, String query) {
+        validateInputString(query, "Search query");
+        // Applicants can only search their own enquiries, in every project if none is given
+        String project = projectName == null || projectName.trim().isEmpty() ? null : projectName;
+        return enquiryService.searchEnquiries(currentApplicant, project, query);
+    }
 } 
\ No newline at end of file
@@ -5,7 +5,6 @@ import model.Applicant;
 import model.Application;
 import model.Flat;
 import model.Project;
-import model.User;
 import service.ApplicantProjectService;
 
 import java.util.Date;
@@ -93,48 +92,9 @@ public class ApplicantProjectController implements IApplicantProjectController {
                 return "Error: Invalid flat type: " + flatTypeStr;
             }
             
-            // Check if applicant already has an application
-            if (projectService.hasExistingApplication(applicant)) {
-                return "Error: You already have an existing application. You cannot apply for multiple projects.";
-            }
-            
-            // Validate eligibility based on age and marital status
-            if (!isEligibleForFlatType(applicant, flatType)) {
-                if (applicant.getMaritalStatus() == User.MaritalStatus.SINGLE) {
-                    return "Error: Singles, 35 years old and above, can ONLY apply for 2-Room flats";
-                } else {
-                    return "Error: Married applicants must be 21 years old or above to apply";
-                }
-            }
-            
-            // Check if project exists and is visible to the applicant
-            Project project = projectService.getProjectByName(projectName);
-            if (project == null) {
-                return "Error: Project not found";
-            }
-            
-            if (!projectService.isProjectVisibleToApplicant(project, applicant)) {
-                return "Error: This project is not available for your application type";
-            }
-            
-            // Check if flat type is available in the project
-            if (!projectService.isFlatTypeAvailable(project, flatType)) {
-                return "Error: This flat type is not available in the selected project";
-            }
-            
-            // Check if units of this flat type are available
-            if (!projectService.hasAvailableUnits(project, flatType)) {
-                return "Error: No available units for this flat type";
-            }
-            
-            // Create application
-            boolean result = projectService.createApplication(applicant, projectName, flatType);
-            
-            if (result) {
-                return "Your application for " + projectName + " has been submitted successfully!";
-            } else {
-                return "Failed to submit application. Please try again later.";
-            }
+            // Create the application; the service checks the applicant may apply
+            projectService.submitApplication(applicant, projectName, flatType);
+            return "Your application for " + projectName + " has been submitted successfully!";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
@@ -153,25 +113,9 @@ public class ApplicantProjectController implements IApplicantProjectController {
                 return "Error: No applicant information provided";
             }
             
-            // Check if applicant has an application
-            if (!projectService.hasExistingApplication(applicant)) {
-                return "Error: You don't have any active applications to withdraw";
-            }
-            
-            // Get the current application
-            Application application = projectService.getApplicantApplication(applicant);
-            
-            if (application.getStatus() == Application.ApplicationStatus.BOOKED) {
-                return "Error: Cannot withdraw an application that has already been booked";
-            }
-            
-            boolean result = projectService.requestWithdrawal(applicant);
-            
-            if (result) {
-                return "Your withdrawal request has been submitted and is pending approval by HDB Manager";
-            } else {
-                return "Failed to submit withdrawal request. Please try again later.";
-            }
+            // Request the withdrawal; the service checks the application may be withdrawn
+            projectService.submitWithdrawal(applicant);
+            return "Your withdrawal request has been submitted and is pending approval by HDB Manager";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
@@ -213,32 +157,6 @@ public class ApplicantProjectController implements IApplicantProjectController {
         }
     }
     
-    /**
-     * Check if the applicant is eligible for the given flat type
-     *
-     * @param applicant The applicant
-     * @param flatType The flat type
-     * @return true if eligible, false otherwise
-     */
-    private boolean isEligibleForFlatType(Applicant applicant, Flat.FlatType flatType) {
-        // Singles, 35 years old and above, can ONLY apply for 2-Room
-        if (applicant.getMaritalStatus() == User.MaritalStatus.SINGLE) {
-            if (applicant.getAge() < 35) {
-                return false; // Singles must be 35 or above
-            }
-            return flatType == Flat.FlatType.TWO_ROOM; // Singles can only apply for 2-Room
-        } 
-        // Married, 21 years old and above, can apply for any flat types (2-Room or 3-Room)
-        else if (applicant.getMaritalStatus() == User.MaritalStatus.MARRIED) {
-            if (applicant.getAge() < 21) {
-                return false; // Married must be 21 or above
-            }
-            return true; // Married can apply for any flat type
-        }
-        
-        return false; // Other marital statuses are not eligible (if any)
-    }
-    
     /**
      * Initiates a booking request for an applicant
      * 
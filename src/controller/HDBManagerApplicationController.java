@@ -2,10 +2,15 @@ package controller;
 
 import controller.interfaces.IHDBManagerApplicationController;
 import model.Application;
+import model.Flat;
 import model.HDBManager;
+import model.User;
+import service.BallotService;
 import service.HDBManagerApplicationService;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller for handling HDB Manager's application approval operations
@@ -92,7 +97,7 @@ public class HDBManagerApplicationController implements IHDBManagerApplicationCo
             if (result) {
                 return "Application approved successfully. The applicant can proceed with flat booking through an HDB Officer.";
             } else {
-                return "Failed to approve application. Check if the application is pending and flat type has available units.";
+                return "Failed to approve application. Check if the application is pending and flat type has units not yet offered to other applicants.";
             }
         } catch (Exception e) {
             return "Error: " + e.getMessage();
@@ -219,6 +224,245 @@ public class HDBManagerApplicationController implements IHDBManagerApplicationCo
         }
     }
     
+    /**
+     * Approve several applications to a project at once
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @param manager The manager approving the applications
+     * @return A message summarizing how many were approved and which were not
+     */
+    public String approveApplications(List<String> applicantNRICs, String projectName, HDBManager manager) {
+        try {
+            String error = validateBatch(applicantNRICs, projectName, manager);
+            if (error != null) {
+                return error;
+            }
+            
+            return summarize(applicationService.approveApplications(applicantNRICs, projectName),
+                    "applications approved", "Check that they are pending and units are left to offer.");
+        } catch (Exception e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * Reject several applications to a project at once
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @param manager The manager rejecting the applications
+     * @return A message summarizing how many were rejected and which were not
+     */
+    public String rejectApplications(List<String> applicantNRICs, String projectName, HDBManager manager) {
+        try {
+            String error = validateBatch(applicantNRICs, projectName, manager);
+            if (error != null) {
+                return error;
+            }
+            
+            return summarize(applicationService.rejectApplications(applicantNRICs, projectName),
+                    "applications rejected", "Check that they are pending.");
+        } catch (Exception e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * Approve every pending application to a project matching the given filters
+     * 
+     * @param projectName The name of the project
+     * @param flatTypeStr The flat type applied for, or null for any
+     * @param maritalStatusStr The applicant's marital status, or null for any
+     * @param minAge The minimum applicant age, or null for no minimum
+     * @param maxAge The maximum applicant age, or null for no maximum
+     * @param manager The manager approving the applications
+     * @return A message summarizing how many were approved and which were not
+     */
+    public String approveMatchingApplications(String projectName, String flatTypeStr, String maritalStatusStr,
+            Integer minAge, Integer maxAge, HDBManager manager) {
+        try {
+            // Validate inputs
+            if (projectName == null || projectName.isEmpty()) {
+                return "Error: Invalid project name provided";
+            }
+            
+            if (manager == null) {
+                return "Error: No manager provided";
+            }
+            
+            Flat.FlatType flatType = null;
+            if (flatTypeStr != null && !flatTypeStr.isEmpty()) {
+                flatType = Flat.FlatType.fromDisplayName(flatTypeStr);
+                if (flatType == null) {
+                    try {
+                        flatType = Flat.FlatType.valueOf(flatTypeStr.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        return "Error: Invalid flat type " + flatTypeStr;
+                    }
+                }
+            }
+            
+            User.MaritalStatus maritalStatus = null;
+            if (maritalStatusStr != null && !maritalStatusStr.isEmpty()) {
+                try {
+                    maritalStatus = User.MaritalStatus.valueOf(maritalStatusStr.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return "Error: Invalid marital status " + maritalStatusStr;
+                }
+            }
+            
+            if (minAge != null && maxAge != null && minAge > maxAge) {
+                return "Error: Minimum age cannot exceed maximum age";
+            }
+            
+            // Verify manager is authorized to approve applications
+            if (!isManagerAuthorized(manager, projectName)) {
+                return "Error: You are not authorized to manage this project";
+            }
+            
+            Map<String, Boolean> results = applicationService.approveMatchingApplications(projectName,
+                    flatType, maritalStatus, minAge, maxAge);
+            
+            if (results.isEmpty()) {
+                return "No pending applications match the given filters.";
+            }
+            return summarize(results, "applications approved", "Check that units are left to offer.");
+        } catch (Exception e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * Approve or reject several withdrawal requests for a project at once
+     * 
+     * @param decisions For each applicant NRIC, true to approve the withdrawal or false to reject it
+     * @param projectName The name of the project
+     * @param manager The manager deciding the withdrawals
+     * @return A message summarizing how many were decided and which were not
+     */
+    public String decideWithdrawals(Map<String, Boolean> decisions, String projectName, HDBManager manager) {
+        try {
+            String error = validateBatch(decisions == null ? null : new ArrayList<>(decisions.keySet()),
+                    projectName, manager);
+            if (error != null) {
+                return error;
+            }
+            
+            return summarize(applicationService.decideWithdrawals(decisions, projectName),
+                    "withdrawal requests decided", "Check if a withdrawal was requested.");
+        } catch (Exception e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * Ballot the pending applications of projects, marking them SUCCESSFUL
+     * or UNSUCCESSFUL in one batch
+     * 
+     * @param projectNames The names of the projects to ballot
+     * @param seed The seed of the ballot; the same seed gives the same outcome
+     * @param reservePercent Extra applicants to mark successful, as a percentage of the unallocated units
+     * @param manager The manager running the ballot
+     * @return A message summarizing the outcome, or the reason it failed
+     */
+    public String runBallot(List<String> projectNames, long seed, int reservePercent, HDBManager manager) {
+        try {
+            // Validate inputs
+            if (projectNames == null || projectNames.isEmpty()) {
+                return "Error: No projects selected";
+            }
+            
+            if (reservePercent < 0) {
+                return "Error: Reserve cannot be negative";
+            }
+            
+            if (manager == null) {
+                return "Error: No manager provided";
+            }
+            
+            // Verify manager is authorized for every project balloted
+            for (String projectName : projectNames) {
+                if (!isManagerAuthorized(manager, projectName)) {
+                    return "Error: You are not authorized to manage project " + projectName;
+                }
+            }
+            
+            List<BallotService.Draw> draws = applicationService.runBallot(projectNames, seed, reservePercent);
+            
+            if (draws.isEmpty()) {
+                return "No pending applications to ballot.";
+            }
+            
+            StringBuilder result = new StringBuilder("Ballot completed with seed " + seed + ":");
+            for (BallotService.Draw draw : draws) {
+                result.append(String.format("%n  %s, %s: %d applicants, %d successful, %d unsuccessful",
+                        draw.getProjectName(), draw.getFlatType().getDisplayName(),
+                        draw.getEntrants(), draw.getSuccessful(), draw.getUnsuccessful()));
+            }
+            return result.toString();
+        } catch (Exception e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * Validate the inputs common to the batch decisions
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @param manager The manager making the decisions
+     * @return An error message, or null if the inputs are valid
+     */
+    private String validateBatch(List<String> applicantNRICs, String projectName, HDBManager manager) {
+        if (applicantNRICs == null || applicantNRICs.isEmpty()) {
+            return "Error: No NRICs provided";
+        }
+        
+        for (String applicantNRIC : applicantNRICs) {
+            if (applicantNRIC == null || applicantNRIC.isEmpty()) {
+                return "Error: Invalid NRIC provided";
+            }
+        }
+        
+        if (projectName == null || projectName.isEmpty()) {
+            return "Error: Invalid project name provided";
+        }
+        
+        if (manager == null) {
+            return "Error: No manager provided";
+        }
+        
+        // Verify manager is authorized to manage the project
+        if (!isManagerAuthorized(manager, projectName)) {
+            return "Error: You are not authorized to manage this project";
+        }
+        return null;
+    }
+    
+    /**
+     * Summarize the results of a batch decision
+     * 
+     * @param results For each NRIC, whether its decision was applied
+     * @param decided What was decided, e.g. "applications approved"
+     * @param hint What to check for the NRICs whose decision was not applied
+     * @return A message with the number decided and the NRICs that were not
+     */
+    private String summarize(Map<String, Boolean> results, String decided, String hint) {
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, Boolean> result : results.entrySet()) {
+            if (!result.getValue()) {
+                failed.add(result.getKey());
+            }
+        }
+        
+        String message = (results.size() - failed.size()) + " of " + results.size() + " " + decided + ".";
+        if (!failed.isEmpty()) {
+            message += " Failed for " + String.join(", ", failed) + ". " + hint;
+        }
+        return message;
+    }
+    
     /**
      * Check if the manager is authorized to manage the project
      * 
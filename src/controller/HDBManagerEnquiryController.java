@@ -151,4 +151,19 @@ public class HDBManagerEnquiryController implements IEnquiryController {
         }
         return enquiryService.getPendingEnquiryCount(projectName);
     }
+    
+    /**
+     * Searches the questions and replies of a project's enquiries
+     * 
+     * @param projectName The name of the project
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    @Override
+    public List<Enquiry> searchEnquiries(String projectName, String query) {
+        if (projectName == null || projectName.isEmpty()) {
+            return List.of();
+        }
+        return enquiryService.searchEnquiries(projectName, query);
+    }
 } 
\ No newline at end of file
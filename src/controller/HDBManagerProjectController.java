@@ -1,11 +1,19 @@
 package controller;
 
 import controller.interfaces.IHDBManagerProjectController;
+import model.Application;
 import model.HDBManager;
 import model.Project;
 import model.Flat;
+import model.User;
+import repository.ApplicationRepository;
+import service.ApplicantReportRow;
 import service.HDBManagerProjectService;
+import service.ReportWriter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -278,9 +286,9 @@ public class HDBManagerProjectController implements IHDBManagerProjectController
      * Generates a report of applicants for a specific project
      * 
      * @param projectName Name of the project
-     * @return List of applicant reports
+     * @return List of applicant report rows
      */
-    public List<Map<String, Object>> generateProjectApplicantsReport(String projectName) {
+    public List<ApplicantReportRow> generateProjectApplicantsReport(String projectName) {
         try {
             validateInputString(projectName, "Project name");
             return projectService.generateProjectApplicantsReport(projectName);
@@ -299,70 +307,124 @@ public class HDBManagerProjectController implements IHDBManagerProjectController
      * @param maritalStatus Optional marital status filter
      * @param minAgeStr Optional minimum age filter
      * @param maxAgeStr Optional maximum age filter
-     * @return List of applicant reports matching the filters
+     * @return List of applicant report rows matching the filters
      */
-    public List<Map<String, Object>> generateFilteredApplicantsReport(
+    public List<ApplicantReportRow> generateFilteredApplicantsReport(
             String projectName, String flatType, String maritalStatus, 
             String minAgeStr, String maxAgeStr) {
-        
-        Map<String, String> filters = new HashMap<>();
-        
         try {
-            // Add filters if provided
-            if (projectName != null && !projectName.trim().isEmpty()) {
-                validateInputString(projectName, "Project name");
-                filters.put("projectName", projectName);
+            Map<String, String> filters = buildReportFilters(projectName, flatType, maritalStatus, minAgeStr, maxAgeStr);
+            return projectService.generateFilteredApplicantsReport(filters);
+        } catch (IllegalArgumentException e) {
+            // Log the error and return empty list
+            System.err.println("Error generating filtered applicants report: " + e.getMessage());
+            return List.of();
+        }
+    }
+    
+    /**
+     * Exports a report of applicants filtered by various criteria to a file
+     * 
+     * @param projectName Optional project name filter
+     * @param flatType Optional flat type filter
+     * @param maritalStatus Optional marital status filter
+     * @param minAgeStr Optional minimum age filter
+     * @param maxAgeStr Optional maximum age filter
+     * @param formatName The layout to write: "csv", "tsv" or "fixed"
+     * @param filePath The file to write, replaced if it exists
+     * @return A message indicating success or failure
+     */
+    public String exportApplicantsReport(
+            String projectName, String flatType, String maritalStatus,
+            String minAgeStr, String maxAgeStr, String formatName, String filePath) {
+        try {
+            Map<String, String> filters = buildReportFilters(projectName, flatType, maritalStatus, minAgeStr, maxAgeStr);
+            ReportWriter.Format format = ReportWriter.Format.fromName(formatName);
+            if (format == null) {
+                throw new IllegalArgumentException("Format must be 'csv', 'tsv' or 'fixed'");
             }
+            validateInputString(filePath, "File path");
+            Path file = Paths.get(filePath.trim());
             
-            if (flatType != null && !flatType.trim().isEmpty()) {
-                validateInputString(flatType, "Flat type");
-                // Validate that it's a valid flat type
-                if (Flat.FlatType.fromDisplayName(flatType) == null) {
-                    throw new IllegalArgumentException("Flat type must be either '2-Room' or '3-Room'");
-                }
-                filters.put("flatType", flatType);
+            long start = System.nanoTime();
+            long rows = projectService.exportApplicantsReport(filters, file, format);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return "Exported " + rows + " applicant(s) to " + file.toAbsolutePath() + " in " + millis + " ms.";
+        } catch (IllegalArgumentException e) {
+            return "Error exporting applicants report: " + e.getMessage();
+        } catch (IOException e) {
+            return "Error exporting applicants report: Could not write the file (" + e.getMessage() + ").";
+        } catch (Exception e) {
+            return "Error exporting applicants report: An unexpected error occurred.";
+        }
+    }
+    
+    /**
+     * Validates the filters of an applicants report and puts them in the
+     * form the service expects
+     * 
+     * @param projectName Optional project name filter
+     * @param flatType Optional flat type filter
+     * @param maritalStatus Optional marital status filter
+     * @param minAgeStr Optional minimum age filter
+     * @param maxAgeStr Optional maximum age filter
+     * @return The filters, keyed by name
+     * @throws IllegalArgumentException If a filter is invalid
+     */
+    private Map<String, String> buildReportFilters(String projectName, String flatType, String maritalStatus,
+                                                   String minAgeStr, String maxAgeStr) {
+        Map<String, String> filters = new HashMap<>();
+        
+        // Add filters if provided
+        if (projectName != null && !projectName.trim().isEmpty()) {
+            validateInputString(projectName, "Project name");
+            filters.put("projectName", projectName);
+        }
+        
+        if (flatType != null && !flatType.trim().isEmpty()) {
+            validateInputString(flatType, "Flat type");
+            // Validate that it's a valid flat type
+            if (Flat.FlatType.fromDisplayName(flatType) == null) {
+                throw new IllegalArgumentException("Flat type must be either '2-Room' or '3-Room'");
             }
-            
-            if (maritalStatus != null && !maritalStatus.trim().isEmpty()) {
-                if (!maritalStatus.equalsIgnoreCase("married") && !maritalStatus.equalsIgnoreCase("single")) {
-                    throw new IllegalArgumentException("Marital status must be 'married' or 'single'");
-                }
-                boolean isMarried = maritalStatus.equalsIgnoreCase("married");
-                filters.put("maritalStatus", Boolean.toString(isMarried));
+            filters.put("flatType", flatType);
+        }
+        
+        if (maritalStatus != null && !maritalStatus.trim().isEmpty()) {
+            if (!maritalStatus.equalsIgnoreCase("married") && !maritalStatus.equalsIgnoreCase("single")) {
+                throw new IllegalArgumentException("Marital status must be 'married' or 'single'");
             }
-            
-            if (minAgeStr != null && !minAgeStr.trim().isEmpty()) {
-                int minAge = parseIntString(minAgeStr);
-                if (minAge < 0) {
-                    throw new IllegalArgumentException("Minimum age cannot be negative");
-                }
-                filters.put("minAge", Integer.toString(minAge));
-                
-                // If max age is not provided, set it to a high value
-                if (maxAgeStr == null || maxAgeStr.trim().isEmpty()) {
-                    filters.put("maxAge", "150");
-                }
+            boolean isMarried = maritalStatus.equalsIgnoreCase("married");
+            filters.put("maritalStatus", Boolean.toString(isMarried));
+        }
+        
+        if (minAgeStr != null && !minAgeStr.trim().isEmpty()) {
+            int minAge = parseIntString(minAgeStr);
+            if (minAge < 0) {
+                throw new IllegalArgumentException("Minimum age cannot be negative");
             }
+            filters.put("minAge", Integer.toString(minAge));
             
-            if (maxAgeStr != null && !maxAgeStr.trim().isEmpty()) {
-                int maxAge = parseIntString(maxAgeStr);
-                if (maxAge < 0) {
-                    throw new IllegalArgumentException("Maximum age cannot be negative");
-                }
-                filters.put("maxAge", Integer.toString(maxAge));
-                
-                // If min age is not provided, set it to 0
-                if (minAgeStr == null || minAgeStr.trim().isEmpty()) {
-                    filters.put("minAge", "0");
-                }
+            // If max age is not provided, set it to a high value
+            if (maxAgeStr == null || maxAgeStr.trim().isEmpty()) {
+                filters.put("maxAge", "150");
             }
+        }
+        
+        if (maxAgeStr != null && !maxAgeStr.trim().isEmpty()) {
+            int maxAge = parseIntString(maxAgeStr);
+            if (maxAge < 0) {
+                throw new IllegalArgumentException("Maximum age cannot be negative");
+            }
+            filters.put("maxAge", Integer.toString(maxAge));
             
-            return projectService.generateFilteredApplicantsReport(filters);
-        } catch (IllegalArgumentException e) {
-            // Log the error and return empty list
-            System.err.println("Error generating filtered applicants report: " + e.getMessage());
-            return List.of();
+            // If min age is not provided, set it to 0
+            if (minAgeStr == null || minAgeStr.trim().isEmpty()) {
+                filters.put("minAge", "0");
+            }
         }
+        
+        return filters;
     }
     
     /**
@@ -412,6 +474,21 @@ public class HDBManagerProjectController implements IHDBManagerProjectController
         }
     }
     
+    /**
+     * Counts applications with a combination of attributes, for the statistics screens
+     * 
+     * @param projectName Project name, or null for any project
+     * @param flatType Flat type, or null for any flat type
+     * @param maritalStatus Applicant's marital status, or null for any
+     * @param status Application status, or null for any status
+     * @param ageBand Applicant's age band, or null for any age
+     * @return The number of applications with those attributes
+     */
+    public long countApplications(String projectName, Flat.FlatType flatType, User.MaritalStatus maritalStatus,
+                                  Application.ApplicationStatus status, ApplicationRepository.AgeBand ageBand) {
+        return projectService.countApplications(projectName, flatType, maritalStatus, status, ageBand);
+    }
+    
     /**
      * Gets all deleted projects created by a manager
      * 
@@ -43,6 +43,21 @@ public class HDBManagerRegistrationController {
         }
     }
     
+    /**
+     * Gets the number of pending officer registrations for a project
+     * 
+     * @param projectName The name of the project
+     * @return The number of pending officers
+     */
+    public int getPendingOfficerRegistrationCount(String projectName) {
+        try {
+            validateProjectName(projectName);
+            return registrationService.getPendingOfficerRegistrationCount(projectName);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+    
     /**
      * Gets approved officer registrations for a project
      * 
@@ -189,4 +189,37 @@ public class OfficerEnquiryController implements IEnquiryController {
         
         return enquiryService.getPendingEnquiryCount(officer);
     }
+    
+    /**
+     * Searches the questions and replies of a project's enquiries
+     * 
+     * @param projectName The name of the project
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    @Override
+    public List<Enquiry> searchEnquiries(String projectName, String query) {
+        if (projectName == null || projectName.isEmpty()) {
+            return List.of();
+        }
+        
+        HDBOfficer dummyOfficer = new HDBOfficer("", "", "", 0, null);
+        dummyOfficer.setHandlingProject(new model.Project(projectName, "", null, null, 0));
+        return enquiryService.searchEnquiries(dummyOfficer, query);
+    }
+    
+    /**
+     * Searches the questions and replies of enquiries for the project being handled by the officer
+     * 
+     * @param officer The HDB officer handling the project
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    public List<Enquiry> searchEnquiriesForHandlingProject(HDBOfficer officer, String query) {
+        if (officer == null || officer.getHandlingProject() == null) {
+            throw new IllegalStateException("Officer is not handling any project");
+        }
+        
+        return enquiryService.searchEnquiries(officer, query);
+    }
 } 
\ No newline at end of file
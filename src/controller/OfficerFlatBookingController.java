@@ -3,13 +3,12 @@ package controller;
 import controller.interfaces.IOfficerFlatBookingController;
 import model.Application;
 import model.HDBOfficer;
+import service.BookingReceipt;
 import service.OfficerFlatBookingService;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 
 /**
  * Controller for handling flat booking operations by HDB Officers
@@ -73,26 +72,16 @@ public class OfficerFlatBookingController implements IOfficerFlatBookingControll
      * 
      * @param applicantNRIC The NRIC of the applicant
      * @param projectName The name of the project
-     * @return A map containing the receipt details or error message
+     * @return The receipt, or null if the inputs are missing or there is no completed booking
      */
-    public Map<String, Object> generateBookingReceipt(String applicantNRIC, String projectName) {
+    public BookingReceipt generateBookingReceipt(String applicantNRIC, String projectName) {
         // Validate inputs
         if (applicantNRIC == null || applicantNRIC.trim().isEmpty() ||
             projectName == null || projectName.trim().isEmpty()) {
-            Map<String, Object> errorResult = new HashMap<>();
-            errorResult.put("error", "Applicant NRIC and project name are required.");
-            return errorResult;
+            return null;
         }
         
         // Call the service
-        Map<String, Object> receipt = bookingService.generateBookingReceipt(applicantNRIC, projectName);
-        
-        if (receipt == null) {
-            Map<String, Object> errorResult = new HashMap<>();
-            errorResult.put("error", "No completed booking found for this applicant and project.");
-            return errorResult;
-        }
-        
-        return receipt;
+        return bookingService.generateBookingReceipt(applicantNRIC, projectName);
     }
 } 
\ No newline at end of file
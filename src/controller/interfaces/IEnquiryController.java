@@ -62,4 +62,15 @@ public interface IEnquiryController {
      * @return The number of pending enquiries
      */
     int getPendingEnquiryCount(String projectName);
+    
+    /**
+     * Searches the questions and replies of a project's enquiries. Words
+     * must all appear unless separated by OR; "quoted phrases" must appear
+     * as written and -words must not appear.
+     * 
+     * @param projectName The name of the project
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    List<Enquiry> searchEnquiries(String projectName, String query);
 } 
\ No newline at end of file
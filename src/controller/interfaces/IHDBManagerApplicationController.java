@@ -4,6 +4,7 @@ import model.Application;
 import model.HDBManager;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for HDBManagerApplicationController defining methods for HDB manager application operations
@@ -76,4 +77,59 @@ public interface IHDBManagerApplicationController {
      * @return Result message
      */
     String rejectWithdrawal(String applicantNRIC, String projectName, HDBManager manager);
+    
+    /**
+     * Approves several applications at once
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @param manager The manager approving the applications
+     * @return Result message
+     */
+    String approveApplications(List<String> applicantNRICs, String projectName, HDBManager manager);
+    
+    /**
+     * Rejects several applications at once
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @param manager The manager rejecting the applications
+     * @return Result message
+     */
+    String rejectApplications(List<String> applicantNRICs, String projectName, HDBManager manager);
+    
+    /**
+     * Approves every pending application matching the given filters
+     * 
+     * @param projectName The name of the project
+     * @param flatType The flat type, or null for any
+     * @param maritalStatus The marital status, or null for any
+     * @param minAge The minimum age, or null for no minimum
+     * @param maxAge The maximum age, or null for no maximum
+     * @param manager The manager approving the applications
+     * @return Result message
+     */
+    String approveMatchingApplications(String projectName, String flatType, String maritalStatus,
+            Integer minAge, Integer maxAge, HDBManager manager);
+    
+    /**
+     * Approves or rejects several withdrawal requests at once
+     * 
+     * @param decisions For each applicant NRIC, true to approve or false to reject
+     * @param projectName The name of the project
+     * @param manager The manager deciding the withdrawals
+     * @return Result message
+     */
+    String decideWithdrawals(Map<String, Boolean> decisions, String projectName, HDBManager manager);
+    
+    /**
+     * Ballots the pending applications of projects
+     * 
+     * @param projectNames The names of the projects
+     * @param seed The seed of the ballot
+     * @param reservePercent Extra applicants to mark successful, as a percentage of the unallocated units
+     * @param manager The manager running the ballot
+     * @return Result message
+     */
+    String runBallot(List<String> projectNames, long seed, int reservePercent, HDBManager manager);
 } 
\ No newline at end of file
@@ -1,10 +1,14 @@
 package controller.interfaces;
 
+import model.Application;
+import model.Flat;
 import model.HDBManager;
 import model.Project;
+import model.User;
+import repository.ApplicationRepository;
+import service.ApplicantReportRow;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * Interface for HDBManagerProjectController defining methods for HDB manager project operations
@@ -92,9 +96,9 @@ public interface IHDBManagerProjectController {
      * Generates a report of all applicants for a project
      * 
      * @param projectName The name of the project
-     * @return List of applicant data for the report
+     * @return List of applicant rows for the report
      */
-    List<Map<String, Object>> generateProjectApplicantsReport(String projectName);
+    List<ApplicantReportRow> generateProjectApplicantsReport(String projectName);
     
     /**
      * Generates a filtered report of applicants for a project
@@ -104,9 +108,40 @@ public interface IHDBManagerProjectController {
      * @param maritalStatus The marital status filter
      * @param minAgeStr The minimum age filter
      * @param maxAgeStr The maximum age filter
-     * @return List of filtered applicant data for the report
+     * @return List of filtered applicant rows for the report
      */
-    List<Map<String, Object>> generateFilteredApplicantsReport(
+    List<ApplicantReportRow> generateFilteredApplicantsReport(
         String projectName, String flatType, String maritalStatus, 
         String minAgeStr, String maxAgeStr);
+    
+    /**
+     * Exports a filtered report of applicants to a file, without holding
+     * the whole report in memory
+     * 
+     * @param projectName The project name filter
+     * @param flatType The flat type filter
+     * @param maritalStatus The marital status filter
+     * @param minAgeStr The minimum age filter
+     * @param maxAgeStr The maximum age filter
+     * @param formatName The layout to write: "csv", "tsv" or "fixed"
+     * @param filePath The file to write
+     * @return A message indicating success or failure
+     */
+    String exportApplicantsReport(
+        String projectName, String flatType, String maritalStatus,
+        String minAgeStr, String maxAgeStr, String formatName, String filePath);
+    
+    /**
+     * Counts applications with a combination of attributes, without
+     * scanning them
+     * 
+     * @param projectName The project name, or null for any project
+     * @param flatType The flat type, or null for any flat type
+     * @param maritalStatus The applicant's marital status, or null for any
+     * @param status The application status, or null for any status
+     * @param ageBand The applicant's age band, or null for any age
+     * @return The number of applications with those attributes
+     */
+    long countApplications(String projectName, Flat.FlatType flatType, User.MaritalStatus maritalStatus,
+                           Application.ApplicationStatus status, ApplicationRepository.AgeBand ageBand);
 } 
\ No newline at end of file
@@ -2,9 +2,9 @@ package controller.interfaces;
 
 import model.Application;
 import model.HDBOfficer;
+import service.BookingReceipt;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * Interface for OfficerFlatBookingController defining methods for flat booking operations
@@ -36,7 +36,7 @@ public interface IOfficerFlatBookingController {
      * 
      * @param applicantNRIC The NRIC of the applicant
      * @param projectName The name of the project
-     * @return Map containing receipt details, or an error message
+     * @return The receipt, or null if there is no completed booking
      */
-    Map<String, Object> generateBookingReceipt(String applicantNRIC, String projectName);
+    BookingReceipt generateBookingReceipt(String applicantNRIC, String projectName);
 } 
\ No newline at end of file
@@ -18,6 +18,8 @@ public class Application implements Serializable {
     private WithdrawalRequestStatus withdrawalRequestStatus;
     private BookingFlatStatus bookingStatus;
     private Date bookingDate;
+    private int waitlistRank; // Place among the entrants a ballot left unsuccessful, or 0
+    private Date holdExpiry; // When the unit held for a pending booking is released, or null
     
     /**
      * Enum representing the status of an application
@@ -76,6 +78,15 @@ public class Application implements Serializable {
         return applicant;
     }
     
+    /**
+     * Sets the applicant, when restoring a stored application
+     * 
+     * @param applicant The applicant
+     */
+    public void setApplicant(Applicant applicant) {
+        this.applicant = applicant;
+    }
+    
     /**
      * Gets the project associated with this application
      * 
@@ -85,6 +96,15 @@ public class Application implements Serializable {
         return project;
     }
     
+    /**
+     * Sets the project, when restoring a stored application
+     * 
+     * @param project The project
+     */
+    public void setProject(Project project) {
+        this.project = project;
+    }
+    
     /**
      * Gets the status of this application
      * 
@@ -113,6 +133,15 @@ public class Application implements Serializable {
         return applicationDate;
     }
     
+    /**
+     * Sets the application date, when restoring a stored application
+     * 
+     * @param applicationDate The application date
+     */
+    public void setApplicationDate(Date applicationDate) {
+        this.applicationDate = applicationDate;
+    }
+    
     /**
      * Gets the flat type for this application
      * 
@@ -131,6 +160,44 @@ public class Application implements Serializable {
         this.flatType = flatType;
     }
         /**
+     * Gets this application's place on its flat type's waitlist, as drawn
+     * by the ballot it lost
+     * 
+     * @return The waitlist rank, starting from 1, or 0 if not waitlisted by a ballot
+     */
+    public int getWaitlistRank() {
+        return waitlistRank;
+    }
+    
+    /**
+     * Sets this application's place on its flat type's waitlist
+     * 
+     * @param waitlistRank The waitlist rank, starting from 1, or 0 to take it off the waitlist
+     */
+    public void setWaitlistRank(int waitlistRank) {
+        this.waitlistRank = waitlistRank;
+    }
+    
+    /**
+     * Gets when the unit held for this application's pending booking is
+     * released if the booking is not completed first
+     * 
+     * @return The expiry of the hold, or null if no unit is held
+     */
+    public Date getHoldExpiry() {
+        return holdExpiry;
+    }
+    
+    /**
+     * Sets when the unit held for this application's pending booking is released
+     * 
+     * @param holdExpiry The expiry of the hold, or null if no unit is held
+     */
+    public void setHoldExpiry(Date holdExpiry) {
+        this.holdExpiry = holdExpiry;
+    }
+    
+    /**
      * Checks if a withdrawal has been requested for this application
      * 
      * @return true if withdrawal has been requested, false otherwise
@@ -178,6 +245,15 @@ public class Application implements Serializable {
         return bookingDate;
     }
     
+    /**
+     * Sets the booking date, when restoring a stored application
+     * 
+     * @param bookingDate The booking date, or null if not booked
+     */
+    public void setBookingDate(Date bookingDate) {
+        this.bookingDate = bookingDate;
+    }
+    
     /**
      * Updates the booking status for this application
      * 
@@ -231,6 +307,7 @@ public class Application implements Serializable {
         this.status = ApplicationStatus.UNSUCCESSFUL;
         this.withdrawalRequested = false;
         this.withdrawalRequestStatus = WithdrawalRequestStatus.NONE;
+        this.waitlistRank = 0;
     }
     
     @Override
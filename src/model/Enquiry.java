@@ -49,6 +49,19 @@ public class Enquiry implements Serializable {
             this.dateResponded = new Date();
         }
         
+        /**
+         * Constructor for restoring a stored reply
+         * 
+         * @param content The reply content
+         * @param respondedBy The user who provided the reply
+         * @param dateResponded The date the reply was submitted
+         */
+        public Reply(String content, User respondedBy, Date dateResponded) {
+            this.content = content;
+            this.respondedBy = respondedBy;
+            this.dateResponded = dateResponded;
+        }
+        
         /**
          * Gets the content of the reply
          * 
@@ -67,6 +80,15 @@ public class Enquiry implements Serializable {
             return respondedBy;
         }
         
+        /**
+         * Sets the user who provided the reply, when restoring a stored reply
+         * 
+         * @param respondedBy The user who responded
+         */
+        public void setRespondedBy(User respondedBy) {
+            this.respondedBy = respondedBy;
+        }
+        
         /**
          * Gets the date the reply was submitted
          * 
@@ -127,6 +149,15 @@ public class Enquiry implements Serializable {
         return applicant;
     }
     
+    /**
+     * Sets the applicant, when restoring a stored enquiry
+     * 
+     * @param applicant The applicant
+     */
+    public void setApplicant(Applicant applicant) {
+        this.applicant = applicant;
+    }
+    
     /**
      * Gets the project the enquiry is about
      * 
@@ -136,6 +167,15 @@ public class Enquiry implements Serializable {
         return project;
     }
     
+    /**
+     * Sets the project, when restoring a stored enquiry
+     * 
+     * @param project The project
+     */
+    public void setProject(Project project) {
+        this.project = project;
+    }
+    
     /**
      * Gets the enquiry question
      * 
@@ -184,6 +224,15 @@ public class Enquiry implements Serializable {
         return dateSubmitted;
     }
     
+    /**
+     * Sets the submission date, when restoring a stored enquiry
+     * 
+     * @param dateSubmitted The submission date
+     */
+    public void setDateSubmitted(Date dateSubmitted) {
+        this.dateSubmitted = dateSubmitted;
+    }
+    
     /**
      * Gets the status of the enquiry
      * 
@@ -210,7 +259,16 @@ public class Enquiry implements Serializable {
      * @return The created reply
      */
     public Reply addReply(String content, User respondedBy) {
-        Reply reply = new Reply(content, respondedBy);
+        return addReply(new Reply(content, respondedBy));
+    }
+    
+    /**
+     * Adds an existing reply to the enquiry
+     * 
+     * @param reply The reply to add
+     * @return The added reply
+     */
+    public Reply addReply(Reply reply) {
         replies.add(reply);
         
         // Update status to RESPONDED if this is the first reply
@@ -1,12 +1,28 @@
 package model;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * Represents a specific flat type in a project.
+ * 
+ * The number of available units may be changed by several officers at
+ * once, so units are reserved and released with compare-and-set rather
+ * than a check followed by a decrement, and can never go below zero or
+ * above the total.
  */
 public class Flat implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final VarHandle AVAILABLE_UNITS;
+    
+    static {
+        try {
+            AVAILABLE_UNITS = MethodHandles.lookup().findVarHandle(Flat.class, "availableUnits", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     
     /**
      * Enum representing the types of flats available
@@ -42,8 +58,8 @@ public class Flat implements Serializable {
     }
     
     private FlatType flatType;
-    private int totalUnits;
-    private int availableUnits;
+    private volatile int totalUnits;
+    private volatile int availableUnits;
     private long sellingPrice;
     
     /**
@@ -141,17 +157,62 @@ public class Flat implements Serializable {
         return availableUnits > 0;
     }
     
+    /**
+     * Reserves a unit if one is available, atomically with respect to
+     * other reservations and releases
+     * 
+     * @return true if a unit was reserved, false if no units available
+     */
+    public boolean tryReserve() {
+        int available;
+        do {
+            available = availableUnits;
+            if (available <= 0) {
+                return false;
+            }
+        } while (!AVAILABLE_UNITS.weakCompareAndSet(this, available, available - 1));
+        return true;
+    }
+    
+    /**
+     * Returns a reserved unit, atomically with respect to other
+     * reservations and releases
+     * 
+     * @return true if a unit was returned, false if all units were already available
+     */
+    public boolean release() {
+        int available;
+        do {
+            available = availableUnits;
+            if (available >= totalUnits) {
+                return false;
+            }
+        } while (!AVAILABLE_UNITS.weakCompareAndSet(this, available, available + 1));
+        return true;
+    }
+    
+    /**
+     * Gets the total and available units as of a single point in time
+     * 
+     * @return The unit counts
+     */
+    public Inventory getInventory() {
+        int total;
+        int available;
+        do {
+            total = totalUnits;
+            available = availableUnits;
+        } while (total != totalUnits); // Retry if the total changed in between
+        return new Inventory(total, available);
+    }
+    
     /**
      * Books a unit, decreasing the number of available units
      * 
      * @return true if booking was successful, false if no units available
      */
     public boolean bookUnit() {
-        if (isAvailable()) {
-            availableUnits--;
-            return true;
-        }
-        return false;
+        return tryReserve();
     }
     
     /**
@@ -165,9 +226,50 @@ public class Flat implements Serializable {
     
     @Override
     public String toString() {
+        Inventory inventory = getInventory();
         return "Flat Type: " + flatType.getDisplayName() +
-               "\nTotal Units: " + totalUnits +
-               "\nAvailable Units: " + availableUnits +
+               "\nTotal Units: " + inventory.getTotalUnits() +
+               "\nAvailable Units: " + inventory.getAvailableUnits() +
                "\nSelling Price: $" + sellingPrice;
     }
+    
+    /**
+     * The unit counts of a flat type at one point in time
+     */
+    public static final class Inventory {
+        private final int totalUnits;
+        private final int availableUnits;
+        
+        private Inventory(int totalUnits, int availableUnits) {
+            this.totalUnits = totalUnits;
+            this.availableUnits = availableUnits;
+        }
+        
+        /**
+         * Gets the total number of units
+         * 
+         * @return The total number of units
+         */
+        public int getTotalUnits() {
+            return totalUnits;
+        }
+        
+        /**
+         * Gets the number of available units
+         * 
+         * @return The number of available units
+         */
+        public int getAvailableUnits() {
+            return availableUnits;
+        }
+        
+        /**
+         * Gets the number of booked units
+         * 
+         * @return The number of booked units
+         */
+        public int getBookedUnits() {
+            return totalUnits - availableUnits;
+        }
+    }
 } 
\ No newline at end of file
@@ -57,6 +57,15 @@ public abstract class User implements Serializable {
         return name;
     }
     
+    /**
+     * Gets the password of the user, for persisting the account
+     * 
+     * @return The password of the user
+     */
+    public String getPassword() {
+        return password;
+    }
+    
     /**
      * Sets the name of the user
      * 
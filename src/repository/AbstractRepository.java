@@ -1,48 +1,237 @@
 package repository;
 
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Abstract repository implementation that provides common functionality
  * for serializing and deserializing objects to/from files.
  * 
+ * Entities are persisted as a snapshot file plus an append-only log of
+ * the saves and deletes made since that snapshot, so each mutation only
+ * costs one small record instead of rewriting the whole file.
+ * Once the log grows past a record or size threshold, a background
+ * compactor folds it into a fresh snapshot and deletes the old segments.
+ * How soon each record reaches the disk is set by the repository's
+ * {@link Repository.Durability} level, which defaults to SYNC.
+ * 
+ * Entities are held in a primary index keyed by the string form of their
+ * ID, so lookups, saves and deletes take constant time; the index keeps
+ * insertion order for findAll and the subclasses' scans over entities.
+ * Subclasses can declare {@link SecondaryIndex secondary indexes} on
+ * derived keys, which are kept in step with every save and delete.
+ * 
+ * Repositories are safe for use by several sessions at once. Writes lock
+ * one of a fixed set of stripes chosen by entity key, so writes to
+ * different entities rarely wait for each other, and writes to the same
+ * entity reach memory and the log in the same order. findById, findAll
+ * and scans over entities take no lock and see each entity as of its
+ * last completed save. Secondary indexes are read under a shared lock and
+ * updated under an exclusive one, held only while the index entries move.
+ * saveAll takes every stripe, so a batch is never interleaved with single
+ * writes, and logs the batch as one record.
+ * 
+ * Repositories that provide an {@link EntityCodec} store snapshots and log
+ * records in a compact versioned binary format, with references to other
+ * entities written by key and restored through a {@link ReferenceLinker}.
+ * Files written with java.io serialization are still read, and are
+ * rewritten in the binary format by the next compaction.
+ * 
  * @param <T> The type of entity this repository works with
  * @param <ID> The type of the entity's identifier
  */
 public abstract class AbstractRepository<T, ID> implements Repository<T, ID> {
     
-    protected List<T> entities;
+    /**
+     * Default number of log records that triggers a compaction
+     */
+    public static final long DEFAULT_MAX_LOG_RECORDS = 10_000;
+    
+    /**
+     * Default log size in bytes that triggers a compaction
+     */
+    public static final long DEFAULT_MAX_LOG_BYTES = 8L * 1024 * 1024;
+    
+    // "HDBR" - marks a binary snapshot; java.io serialization streams start with 0xACED
+    private static final int SNAPSHOT_MAGIC = 0x48444252;
+    
+    // Suffix an unreadable snapshot is moved aside to, so it is kept for repair
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    
+    // Shared by all repositories; compactions are short and rarely overlap
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "repository-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Number of write lock stripes; a power of two
+    private static final int LOCK_STRIPES = 64;
+    
+    protected volatile Collection<T> entities; // Values of entitiesInOrder
     protected String filePath;
     
+    private volatile Map<String, Entry<T>> primaryIndex;
+    private volatile Map<Long, T> entitiesInOrder; // Keyed by the sequence each entity was first saved at
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<RepositoryIndex<T>> secondaryIndexes = new ArrayList<>(); // Only added to during construction
+    private volatile boolean secondaryIndexesStale; // Set under indexLock; keys may depend on references linked after loading
+    
+    private final WriteAheadLog log;
+    private final Lock[] writeLocks = new Lock[LOCK_STRIPES];
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private volatile boolean logSynced; // Whether the snapshot and log on disk reflect the entities in memory
+    private volatile boolean loadFailed; // Whether the last load could not read the files; they must not be compacted
+    private volatile long maxLogRecords = DEFAULT_MAX_LOG_RECORDS;
+    private volatile long maxLogBytes = DEFAULT_MAX_LOG_BYTES;
+    private volatile ReferenceLinker referenceLinker;
+    
     /**
      * Constructor for AbstractRepository
      * 
      * @param filePath Path to the file where entities are stored
      */
     public AbstractRepository(String filePath) {
-        this.entities = new ArrayList<>();
+        this.primaryIndex = new ConcurrentHashMap<>();
+        this.entitiesInOrder = new ConcurrentSkipListMap<>();
+        this.entities = entitiesInOrder.values();
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
         this.filePath = filePath;
+        this.log = new WriteAheadLog(new File(filePath + ".log"));
+        this.logSynced = false;
     }
     
     @Override
     public T save(T entity) {
-        if (!entities.contains(entity)) {
-            entities.add(entity);
-        } else {
-            // If entity exists, update it
-            int index = entities.indexOf(entity);
-            entities.set(index, entity);
+        long ticket;
+        String key = keyOf(getEntityId(entity));
+        Lock writeLock = writeLockFor(key);
+        writeLock.lock();
+        try {
+            boolean replaced = putInPrimaryIndex(key, entity);
+            
+            if (!secondaryIndexes.isEmpty()) {
+                indexLock.writeLock().lock();
+                try {
+                    if (!secondaryIndexesStale) {
+                        for (RepositoryIndex<T> index : secondaryIndexes) {
+                            fileInIndex(index, key, entity, replaced);
+                        }
+                    }
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            ticket = appendToLog(WriteAheadLog.PUT, entity);
+        } finally {
+            writeLock.unlock();
         }
-        saveData();
+        awaitDurable(ticket);
         return entity;
     }
     
+    @Override
+    public List<T> saveAll(Collection<T> batch) {
+        List<T> saved = new ArrayList<>(batch);
+        if (saved.isEmpty()) {
+            return saved;
+        }
+        
+        long ticket;
+        for (Lock writeLock : writeLocks) {
+            writeLock.lock();
+        }
+        try {
+            String[] keys = new String[saved.size()];
+            boolean[] replaced = new boolean[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keyOf(getEntityId(saved.get(i)));
+                replaced[i] = putInPrimaryIndex(keys[i], saved.get(i));
+            }
+            
+            if (!secondaryIndexes.isEmpty()) {
+                indexLock.writeLock().lock();
+                try {
+                    if (!secondaryIndexesStale) {
+                        for (RepositoryIndex<T> index : secondaryIndexes) {
+                            for (int i = 0; i < keys.length; i++) {
+                                fileInIndex(index, keys[i], saved.get(i), replaced[i]);
+                            }
+                        }
+                    }
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            ticket = appendBatchToLog(saved);
+        } finally {
+            for (int i = writeLocks.length - 1; i >= 0; i--) {
+                writeLocks[i].unlock();
+            }
+        }
+        awaitDurable(ticket);
+        return saved;
+    }
+    
     @Override
     public void delete(T entity) {
-        entities.remove(entity);
-        saveData();
+        long ticket;
+        String key = keyOf(getEntityId(entity));
+        Lock writeLock = writeLockFor(key);
+        writeLock.lock();
+        try {
+            Entry<T> previous = primaryIndex.remove(key);
+            if (previous != null) {
+                entitiesInOrder.remove(previous.sequence);
+            }
+            
+            if (!secondaryIndexes.isEmpty()) {
+                indexLock.writeLock().lock();
+                try {
+                    for (RepositoryIndex<T> index : secondaryIndexes) {
+                        index.remove(key);
+                    }
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            ticket = appendToLog(WriteAheadLog.DELETE, entity);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(ticket);
+    }
+    
+    @Override
+    public T findById(ID id) {
+        if (id == null) {
+            return null;
+        }
+        Entry<T> entry = primaryIndex.get(keyOf(id));
+        return entry == null ? null : entry.entity;
     }
     
     @Override
@@ -52,40 +241,717 @@ public abstract class AbstractRepository<T, ID> implements Repository<T, ID> {
     
     @Override
     public void loadData() {
+        Map<String, T> loaded = new LinkedHashMap<>();
+        EntityCodec<T> codec = getCodec();
+        ReferenceLinker linker = referenceLinker != null ? referenceLinker : new ReferenceLinker();
+        long firstSegment = 0;
+        loadFailed = false;
+        
         File file = new File(filePath);
-        if (!file.exists()) {
-            entities = new ArrayList<>();
-            return;
+        File corrupt = new File(filePath + CORRUPT_SUFFIX);
+        if (!file.exists() && corrupt.exists()) {
+            loadFailed = true;
+            throw new IllegalStateException("Snapshot " + filePath + " was moved to " + corrupt.getName()
+                    + " after failing to load; restore or remove it before starting");
         }
-        
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            Object obj = ois.readObject();
-            if (obj instanceof List) {
-                entities = (List<T>) obj;
+        if (file.exists()) {
+            IOException snapshotError = null;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                in.mark(4);
+                if (in.readInt() == SNAPSHOT_MAGIC) {
+                    requireCodec(codec);
+                    int version = readVersion(in);
+                    firstSegment = in.readLong();
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        String id = EntityCodecs.readString(in);
+                        loaded.put(id, codec.read(in, version, linker));
+                    }
+                } else {
+                    in.reset();
+                    firstSegment = readLegacySnapshot(in, loaded, codec, linker);
+                }
+            } catch (IOException e) {
+                snapshotError = e;
+            } catch (ClassNotFoundException e) {
+                snapshotError = new IOException(e.getMessage(), e);
+            }
+            
+            // Carrying on would compact the partial entities over the snapshot and delete the segments it needs
+            if (snapshotError != null) {
+                loadFailed = true;
+                try {
+                    Files.move(file.toPath(), corrupt.toPath());
+                } catch (IOException e) {
+                    snapshotError.addSuppressed(e);
+                }
+                throw new UncheckedIOException("Error loading data from " + filePath + " (moved to "
+                        + corrupt.getName() + ", log kept): " + snapshotError, snapshotError);
             }
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading data from " + filePath + ": " + e.getMessage());
-            entities = new ArrayList<>();
         }
+        
+        // Replay the saves and deletes made since the snapshot was written
+        try {
+            log.replay(firstSegment, (operation, payload) -> {
+                if (isJavaSerialized(payload)) {
+                    Object record = fromBytes(payload);
+                    if (operation == WriteAheadLog.PUT) {
+                        // Only this repository appends to its log, and it only ever put its own entities
+                        @SuppressWarnings("unchecked")
+                        T entity = (T) record;
+                        loaded.put(keyOf(getEntityId(entity)), relink(entity, codec, linker));
+                    } else if (operation == WriteAheadLog.DELETE) {
+                        loaded.remove(keyOf(record));
+                    }
+                    return;
+                }
+                
+                requireCodec(codec);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                int version = readVersion(in);
+                String id = EntityCodecs.readString(in);
+                if (operation == WriteAheadLog.PUT) {
+                    loaded.put(id, codec.read(in, version, linker));
+                } else if (operation == WriteAheadLog.DELETE) {
+                    loaded.remove(id);
+                }
+            });
+            log.deleteSegmentsBefore(firstSegment);
+            logSynced = true;
+        } catch (IOException e) {
+            loadFailed = true;
+            throw new UncheckedIOException("Error replaying log for " + filePath + ": " + e.getMessage(), e);
+        }
+        
+        // Loading runs before any session writes, so the new maps can simply replace the old ones
+        Map<String, Entry<T>> newPrimaryIndex = new ConcurrentHashMap<>();
+        Map<Long, T> newEntitiesInOrder = new ConcurrentSkipListMap<>();
+        for (Map.Entry<String, T> entry : loaded.entrySet()) {
+            long sequence = nextSequence.getAndIncrement();
+            newPrimaryIndex.put(entry.getKey(), new Entry<>(sequence, entry.getValue()));
+            newEntitiesInOrder.put(sequence, entry.getValue());
+        }
+        indexLock.writeLock().lock();
+        try {
+            primaryIndex = newPrimaryIndex;
+            entitiesInOrder = newEntitiesInOrder;
+            entities = newEntitiesInOrder.values();
+            secondaryIndexesStale = true;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        scheduleCompactionIfNeeded();
     }
     
     @Override
     public void saveData() {
         try {
-            File file = new File(filePath);
-            
-            // Create parent directories if they don't exist
-            File parentDir = file.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                parentDir.mkdirs();
+            compact();
+        } catch (IOException e) {
+            System.err.println("Error saving data to " + filePath + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Folds the log into a fresh snapshot and deletes the log segments it covers.
+     * Writers are not held up: the active segment is sealed first and the
+     * entities copied after, and since a write reaches memory before the
+     * log, any write missing from the copy is in a segment the snapshot
+     * does not cover. The snapshot itself is written to a temporary file
+     * and atomically renamed over the previous one.
+     * 
+     * @throws IOException If the snapshot could not be written, or the last load failed
+     */
+    public void compact() throws IOException {
+        compactionLock.lock();
+        try {
+            if (loadFailed) {
+                throw new IOException("Refusing to compact " + filePath + " since it failed to load");
             }
+            long firstSegment = log.roll();
+            List<T> snapshot = new ArrayList<>(entities);
             
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-                oos.writeObject(entities);
+            writeSnapshot(snapshot, firstSegment);
+            log.deleteSegmentsBefore(firstSegment);
+            logSynced = true;
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+    
+    @Override
+    public void setDurability(Durability durability) {
+        try {
+            log.setDurability(durability);
+        } catch (IOException e) {
+            System.err.println("Error flushing log for " + filePath + ": " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public Durability getDurability() {
+        return log.getDurability();
+    }
+    
+    @Override
+    public void flush() {
+        try {
+            log.flush();
+        } catch (IOException e) {
+            System.err.println("Error flushing log for " + filePath + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Sets the time window over which writes are coalesced under GROUP durability
+     * 
+     * @param groupWindowMillis The window in milliseconds
+     */
+    public void setGroupWindowMillis(long groupWindowMillis) {
+        log.setGroupWindowMillis(groupWindowMillis);
+    }
+    
+    /**
+     * Declares a secondary index; to be called while the subclass is constructed
+     * 
+     * @param keyFunction Derives the index key from an entity
+     * @return The index, to pass to findByIndex
+     */
+    protected final <K> SecondaryIndex<K, T> addIndex(Function<T, K> keyFunction) {
+        return register(new SecondaryIndex<>(keyFunction));
+    }
+    
+    /**
+     * Declares a secondary index with ordered keys, for range queries
+     * 
+     * @param keyFunction Derives the index key from an entity
+     * @return The index, to query through readIndexes
+     */
+    protected final <K extends Comparable<? super K>> SortedIndex<K, T> addSortedIndex(Function<T, K> keyFunction) {
+        return register(new SortedIndex<>(keyFunction));
+    }
+    
+    /**
+     * Declares an index over a date interval of each entity, for containment
+     * and overlap queries
+     * 
+     * @param startFunction Derives the start of an entity's interval
+     * @param endFunction Derives the end of an entity's interval
+     * @return The index, to query through readIndexes
+     */
+    protected final IntervalIndex<T> addIntervalIndex(Function<T, Date> startFunction, Function<T, Date> endFunction) {
+        return register(new IntervalIndex<>(startFunction, endFunction));
+    }
+    
+    /**
+     * Declares a bitmap index, for queries combining several low-cardinality
+     * attributes; its attributes must be added before the subclass is constructed
+     * 
+     * @return The index, to add attributes to and query through readIndexes
+     */
+    protected final BitmapIndex<T> addBitmapIndex() {
+        return register(new BitmapIndex<>());
+    }
+    
+    /**
+     * Declares a full-text index over some text fields of each entity
+     * 
+     * @param fieldsFunction Derives the text fields to index from an entity
+     * @param scopeFunction Derives the scope an entity is searched in, or null if entities have no scopes
+     * @return The index, to query through readIndexes
+     */
+    protected final TextIndex<T> addTextIndex(Function<T, List<String>> fieldsFunction, Function<T, String> scopeFunction) {
+        return register(new TextIndex<>(fieldsFunction, scopeFunction));
+    }
+    
+    /**
+     * Declares a cube of counters, for aggregate counts over combinations of
+     * several low-cardinality keys; its dimensions must be added before the
+     * subclass is constructed
+     * 
+     * @return The cube, to add dimensions to and query through readCounters
+     */
+    protected final CounterCube<T> addCounterCube() {
+        return register(new CounterCube<>());
+    }
+    
+    /**
+     * Runs a query against the secondary indexes while no writer can change them.
+     * The indexes are rebuilt on first use after loading, once the
+     * references their keys are derived from have been linked.
+     * 
+     * @param query The query to run
+     * @return The query's result
+     */
+    protected <R> R readIndexes(Supplier<R> query) {
+        indexLock.readLock().lock();
+        try {
+            if (!secondaryIndexesStale) {
+                return query.get();
             }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        
+        // The read lock cannot be upgraded, so rebuild under the write lock and query there
+        indexLock.writeLock().lock();
+        try {
+            rebuildSecondaryIndexesIfStale();
+            return query.get();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Runs a query against a {@link CounterCube}, whose counts can be read
+     * while writers change them, without waiting for the index lock. The
+     * lock is only taken when the indexes need rebuilding after loading.
+     * 
+     * @param query The query to run
+     * @return The query's result
+     */
+    protected <R> R readCounters(Supplier<R> query) {
+        return secondaryIndexesStale ? readIndexes(query) : query.get();
+    }
+    
+    /**
+     * Finds the entities filed under a key in a secondary index
+     * 
+     * @param index The index to search
+     * @param key The key to search for
+     * @return A list of the matching entities
+     */
+    protected <K> List<T> findByIndex(SecondaryIndex<K, T> index, K key) {
+        return readIndexes(() -> index.get(key));
+    }
+    
+    /**
+     * Counts the entities filed under a key in a secondary index
+     * 
+     * @param index The index to search
+     * @param key The key to count
+     * @return The number of matching entities
+     */
+    protected <K> int countByIndex(SecondaryIndex<K, T> index, K key) {
+        return readIndexes(() -> index.count(key));
+    }
+    
+    /**
+     * Sets the linker that restores references when entities are loaded.
+     * The same linker should be shared by every repository, and its link
+     * method called once all of them have loaded their data.
+     * 
+     * @param referenceLinker The linker to use
+     */
+    public void setReferenceLinker(ReferenceLinker referenceLinker) {
+        this.referenceLinker = referenceLinker;
+    }
+    
+    /**
+     * Sets the log thresholds that trigger a background compaction
+     * 
+     * @param maxLogRecords Number of records after which the log is compacted
+     * @param maxLogBytes Log size in bytes after which the log is compacted
+     */
+    public void setCompactionThresholds(long maxLogRecords, long maxLogBytes) {
+        this.maxLogRecords = maxLogRecords;
+        this.maxLogBytes = maxLogBytes;
+    }
+    
+    /**
+     * Writes a snapshot to a temporary file and renames it over the snapshot file
+     * 
+     * @param snapshot The entities to write
+     * @param firstSegment The first log segment not covered by the snapshot
+     * @throws IOException If the snapshot could not be written
+     */
+    private void writeSnapshot(List<T> snapshot, long firstSegment) throws IOException {
+        File file = new File(filePath);
+        
+        // Create parent directories if they don't exist
+        File parentDir = file.getAbsoluteFile().getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        
+        File tempFile = new File(filePath + ".tmp");
+        EntityCodec<T> codec = getCodec();
+        if (codec == null) {
+            try (FileOutputStream fos = new FileOutputStream(tempFile);
+                 ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))) {
+                oos.writeObject(firstSegment);
+                oos.writeObject(snapshot);
+                oos.flush();
+                fos.getFD().sync();
+            }
+        } else {
+            try (FileOutputStream fos = new FileOutputStream(tempFile);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeByte(EntityCodecs.VERSION);
+                out.writeLong(firstSegment);
+                out.writeInt(snapshot.size());
+                for (T entity : snapshot) {
+                    EntityCodecs.writeString(out, keyOf(getEntityId(entity)));
+                    codec.write(out, entity);
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+        }
+        
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Adds an index to those maintained by save, delete and loadData
+     * 
+     * @param index The new, empty index
+     * @return The index
+     */
+    private <I extends RepositoryIndex<T>> I register(I index) {
+        indexLock.writeLock().lock();
+        try {
+            secondaryIndexes.add(index);
+            secondaryIndexesStale = true;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return index;
+    }
+    
+    /**
+     * Refiles every entity in the secondary indexes if they are out of date,
+     * in the order they were first saved so each key lists its entities the
+     * way the loaded file did. A save racing with the rebuild files its
+     * entity again afterwards. Caller must hold the write lock of indexLock.
+     */
+    private void rebuildSecondaryIndexesIfStale() {
+        if (!secondaryIndexesStale) {
+            return;
+        }
+        for (RepositoryIndex<T> index : secondaryIndexes) {
+            index.clear();
+            for (T entity : entitiesInOrder.values()) {
+                index.put(keyOf(getEntityId(entity)), entity);
+            }
+        }
+        secondaryIndexesStale = false;
+    }
+    
+    /**
+     * Stores an entity in the primary index, replacing any entity stored
+     * under the same key but keeping its place in insertion order.
+     * Caller must hold the write lock stripe of the key.
+     * 
+     * @param key The entity key
+     * @param entity The entity
+     * @return true if a different instance, or none, was stored under the key
+     */
+    private boolean putInPrimaryIndex(String key, T entity) {
+        Entry<T> previous = primaryIndex.get(key);
+        if (previous == null || previous.entity != entity) {
+            long sequence = previous != null ? previous.sequence : nextSequence.getAndIncrement();
+            primaryIndex.put(key, new Entry<>(sequence, entity));
+            entitiesInOrder.put(sequence, entity);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Files a saved entity in a secondary index. Caller must hold the write lock of indexLock.
+     * 
+     * @param index The index
+     * @param key The entity key
+     * @param entity The entity
+     * @param replaced Whether the save stored a new instance under the key
+     */
+    private static <T> void fileInIndex(RepositoryIndex<T> index, String key, T entity, boolean replaced) {
+        if (replaced) {
+            index.put(key, entity);
+        } else {
+            index.refile(key, entity);
+        }
+    }
+    
+    /**
+     * Gets the write lock stripe that guards an entity key
+     * 
+     * @param key The entity key
+     * @return The lock
+     */
+    private Lock writeLockFor(String key) {
+        int hash = key.hashCode();
+        return writeLocks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+    
+    /**
+     * Hands a compaction to the background compactor once the log has
+     * grown past either threshold
+     */
+    private void scheduleCompactionIfNeeded() {
+        if (log.getRecordCount() < maxLogRecords && log.getByteCount() < maxLogBytes) {
+            return;
+        }
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        
+        COMPACTOR.execute(() -> {
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                // The log is left in place, so nothing is lost; the next threshold crossing retries
+                System.err.println("Error compacting log for " + filePath + ": " + e.getMessage());
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Appends a save or delete record to the log.
+     * If the files on disk have not been synchronised with memory yet in this
+     * session (no loadData or saveData call), a full snapshot is written instead.
+     * Caller must hold the write lock stripe of the entity's key.
+     * 
+     * @param operation The log operation
+     * @param entity The entity saved or deleted
+     * @return The ticket to pass to awaitDurable
+     */
+    private long appendToLog(byte operation, T entity) {
+        if (!logSynced) {
+            saveData();
+            return 0;
+        }
+        
+        long ticket = 0;
+        try {
+            ticket = log.append(operation, encodeRecord(operation, entity));
         } catch (IOException e) {
-            System.err.println("Error saving data to " + filePath + ": " + e.getMessage());
+            System.err.println("Error appending to log for " + filePath + ": " + e.getMessage());
+        }
+        scheduleCompactionIfNeeded();
+        return ticket;
+    }
+    
+    /**
+     * Appends save records for a batch of entities to the log as one record.
+     * As with appendToLog, a full snapshot is written instead if the files
+     * on disk have not been synchronised with memory yet.
+     * Caller must hold every write lock stripe.
+     * 
+     * @param batch The entities saved
+     * @return The ticket to pass to awaitDurable
+     */
+    private long appendBatchToLog(List<T> batch) {
+        if (!logSynced) {
+            saveData();
+            return 0;
+        }
+        
+        long ticket = 0;
+        try {
+            byte[] operations = new byte[batch.size()];
+            List<byte[]> payloads = new ArrayList<>(batch.size());
+            for (int i = 0; i < operations.length; i++) {
+                operations[i] = WriteAheadLog.PUT;
+                payloads.add(encodeRecord(WriteAheadLog.PUT, batch.get(i)));
+            }
+            ticket = log.appendBatch(operations, payloads);
+        } catch (IOException e) {
+            System.err.println("Error appending to log for " + filePath + ": " + e.getMessage());
+        }
+        scheduleCompactionIfNeeded();
+        return ticket;
+    }
+    
+    /**
+     * Waits, outside the write lock, until an appended record is on disk as
+     * required by the durability level
+     * 
+     * @param ticket The ticket returned by appendToLog
+     */
+    private void awaitDurable(long ticket) {
+        try {
+            log.awaitDurable(ticket);
+        } catch (IOException e) {
+            System.err.println("Error flushing log for " + filePath + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Encodes a log record: the format version, the entity ID and, for a
+     * save, the entity. Without a codec the entity, or the entity ID for a
+     * delete, is serialized with java.io serialization instead.
+     * 
+     * @param operation The log operation
+     * @param entity The entity saved or deleted
+     * @return The encoded bytes
+     * @throws IOException If the record could not be encoded
+     */
+    private byte[] encodeRecord(byte operation, T entity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EntityCodec<T> codec = getCodec();
+        if (codec == null) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(operation == WriteAheadLog.PUT ? entity : getEntityId(entity));
+            }
+            return bytes.toByteArray();
         }
+        
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(EntityCodecs.VERSION);
+        EntityCodecs.writeString(out, keyOf(getEntityId(entity)));
+        if (operation == WriteAheadLog.PUT) {
+            codec.write(out, entity);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Deserializes a log record
+     * 
+     * @param payload The serialized bytes
+     * @return The deserialized record
+     * @throws IOException If the record could not be deserialized
+     */
+    private static Object fromBytes(byte[] payload) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown record type in log", e);
+        }
+    }
+    
+    /**
+     * Reads a snapshot written with java.io serialization
+     * 
+     * @param in The snapshot input
+     * @param loaded Receives the entities, keyed by ID
+     * @param codec The repository's codec, or null
+     * @param linker The linker that restores references
+     * @return The first log segment not covered by the snapshot
+     * @throws IOException If the snapshot could not be read
+     * @throws ClassNotFoundException If the snapshot holds an unknown class
+     */
+    private long readLegacySnapshot(InputStream in, Map<String, T> loaded, EntityCodec<T> codec,
+                                    ReferenceLinker linker) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        long firstSegment = 0;
+        Object obj = ois.readObject();
+        
+        // Snapshots start with the first log segment they do not cover;
+        // older snapshot files hold only the entity list
+        if (obj instanceof Long) {
+            firstSegment = (Long) obj;
+            obj = ois.readObject();
+        }
+        if (obj instanceof List) {
+            for (T entity : (List<T>) obj) {
+                loaded.put(keyOf(getEntityId(entity)), relink(entity, codec, linker));
+            }
+        }
+        return firstSegment;
+    }
+    
+    /**
+     * Rebuilds an entity read with java.io serialization so that it refers to
+     * other entities through the linker. Each serialized file carries its own
+     * copy of every entity reachable from the ones it stores; passing the
+     * entity through its codec swaps those copies for the instances held by
+     * the owning repositories, so one entity has one instance in memory.
+     * 
+     * @param entity The deserialized entity
+     * @param codec The repository's codec, or null to keep the entity as read
+     * @param linker The linker that restores references
+     * @return The rebuilt entity
+     * @throws IOException If the entity could not be encoded
+     */
+    private static <T> T relink(T entity, EntityCodec<T> codec, ReferenceLinker linker) throws IOException {
+        if (codec == null) {
+            return entity;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), entity);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return codec.read(in, EntityCodecs.VERSION, linker);
+    }
+    
+    /**
+     * Fails a binary read in a repository without a codec
+     * 
+     * @param codec The repository's codec
+     * @throws IOException If there is no codec
+     */
+    private void requireCodec(EntityCodec<T> codec) throws IOException {
+        if (codec == null) {
+            throw new IOException("No codec to read binary data in " + filePath);
+        }
+    }
+    
+    /**
+     * Reads a binary format version, rejecting versions newer than this build
+     * 
+     * @param in The input to read from
+     * @return The version
+     * @throws IOException If the version is not supported
+     */
+    private static int readVersion(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > EntityCodecs.VERSION) {
+            throw new IOException("Unsupported format version " + version);
+        }
+        return version;
+    }
+    
+    /**
+     * Checks whether a log record was written with java.io serialization
+     * 
+     * @param payload The record bytes
+     * @return true if the record starts with the serialization stream magic
+     */
+    private static boolean isJavaSerialized(byte[] payload) {
+        return payload.length >= 2 && payload[0] == (byte) 0xAC && payload[1] == (byte) 0xED;
+    }
+    
+    /**
+     * Converts an ID to its key in the primary index and in stored files
+     * 
+     * @param id The entity ID
+     * @return The key
+     */
+    private static String keyOf(Object id) {
+        return String.valueOf(id);
+    }
+    
+    /**
+     * An entity in the primary index, with its place in insertion order
+     */
+    private static final class Entry<T> {
+        final long sequence;
+        final T entity;
+        
+        Entry(long sequence, T entity) {
+            this.sequence = sequence;
+            this.entity = entity;
+        }
+    }
+    
+    /**
+     * Gets the codec used to store entities in the binary format
+     * 
+     * @return The codec, or null to store entities with java.io serialization
+     */
+    protected EntityCodec<T> getCodec() {
+        return null;
     }
     
     /**
@@ -19,16 +19,13 @@ public class ApplicantRepository extends AbstractRepository<Applicant, String> {
     }
     
     @Override
-    public Applicant findById(String nric) {
-        return entities.stream()
-                      .filter(applicant -> applicant.getNRIC().equals(nric))
-                      .findFirst()
-                      .orElse(null);
+    protected String getEntityId(Applicant applicant) {
+        return applicant.getNRIC();
     }
     
     @Override
-    protected String getEntityId(Applicant applicant) {
-        return applicant.getNRIC();
+    protected EntityCodec<Applicant> getCodec() {
+        return EntityCodecs.user();
     }
     
     /**
@@ -2,16 +2,131 @@ package repository;
 
 import model.Application;
 import model.Applicant;
+import model.Flat;
 import model.Project;
+import model.User;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Repository for managing Application entities
  */
-public class ApplicationRepository extends AbstractRepository<Application, String> {
+public final class ApplicationRepository extends AbstractRepository<Application, String> {
+    
+    private static final int AGE_BUCKET_YEARS = 5;
+    private static final int MAX_AGE_BUCKETS = 40; // Wider age ranges are checked exactly instead
+    
+    // Secondary indexes, kept current on every save so queue screens avoid full scans
+    private final SecondaryIndex<String, Application> byApplicant = addIndex(application -> application.getApplicant().getNRIC());
+    private final SecondaryIndex<String, Application> byProject = addIndex(application -> application.getProject().getName());
+    private final SecondaryIndex<Application.ApplicationStatus, Application> byStatus = addIndex(Application::getStatus);
+    private final SecondaryIndex<Application.WithdrawalRequestStatus, Application> byWithdrawalStatus =
+            addIndex(Application::getWithdrawalRequestStatus);
+    private final SecondaryIndex<Application.BookingFlatStatus, Application> byBookingStatus =
+            addIndex(Application::getBookingStatus);
+    private final SortedIndex<Date, Application> byApplicationDate = addSortedIndex(Application::getApplicationDate);
+    private final SortedIndex<Date, Application> byBookingDate = addSortedIndex(Application::getBookingDate);
+    private final SortedIndex<WaitlistPosition, Application> byWaitlistPosition =
+            addSortedIndex(ApplicationRepository::waitlistPosition);
+    
+    // Bitmap index for reports that filter on any combination of these attributes
+    private final BitmapIndex<Application> byAttributes = addBitmapIndex();
+    private final BitmapIndex.Attribute<Application, String> projectAttribute =
+            byAttributes.addAttribute(application -> application.getProject().getName());
+    private final BitmapIndex.Attribute<Application, Flat.FlatType> flatTypeAttribute =
+            byAttributes.addAttribute(Application::getFlatType);
+    private final BitmapIndex.Attribute<Application, User.MaritalStatus> maritalStatusAttribute =
+            byAttributes.addAttribute(application -> application.getApplicant().getMaritalStatus());
+    private final BitmapIndex.Attribute<Application, Application.ApplicationStatus> statusAttribute =
+            byAttributes.addAttribute(Application::getStatus);
+    private final BitmapIndex.Attribute<Application, Integer> ageBucketAttribute =
+            byAttributes.addAttribute(application -> application.getApplicant().getAge() / AGE_BUCKET_YEARS);
+    
+    // Counts for the statistics screens, moved between cells as applications are created, decided, booked or withdrawn
+    private final CounterCube<Application> statistics = addStatisticsCube();
+    
+    /**
+     * Age bands that application statistics are broken down by
+     */
+    public enum AgeBand {
+        UNDER_21("Under 21", 0),
+        AGE_21_TO_34("21-34", 21),
+        AGE_35_TO_44("35-44", 35),
+        AGE_45_TO_54("45-54", 45),
+        AGE_55_AND_ABOVE("55 and above", 55);
+        
+        private final String displayName;
+        private final int minAge;
+        
+        AgeBand(String displayName, int minAge) {
+            this.displayName = displayName;
+            this.minAge = minAge;
+        }
+        
+        /**
+         * Gets the display name of the age band
+         * 
+         * @return The display name
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+        
+        /**
+         * Finds the age band of an age
+         * 
+         * @param age The age
+         * @return The band containing the age
+         */
+        public static AgeBand of(int age) {
+            AgeBand[] bands = values();
+            for (int i = bands.length - 1; i > 0; i--) {
+                if (age >= bands[i].minAge) {
+                    return bands[i];
+                }
+            }
+            return bands[0];
+        }
+    }
+    
+    /**
+     * Place of an application on the waitlist of its project and flat type:
+     * ballot entrants by the rank they drew, then pending applications by
+     * submission time, with ties broken by NRIC
+     */
+    private record WaitlistPosition(String projectName, int flatType, long rank, long submitted, String nric)
+            implements Comparable<WaitlistPosition> {
+        
+        @Override
+        public int compareTo(WaitlistPosition other) {
+            int result = projectName.compareTo(other.projectName);
+            if (result == 0) {
+                result = Integer.compare(flatType, other.flatType);
+            }
+            if (result == 0) {
+                result = Long.compare(rank, other.rank);
+            }
+            if (result == 0) {
+                result = Long.compare(submitted, other.submitted);
+            }
+            if (result == 0) {
+                result = nric.compareTo(other.nric);
+            }
+            return result;
+        }
+    }
     
     /**
      * Constructor for ApplicationRepository
@@ -31,19 +146,27 @@ public class ApplicationRepository extends AbstractRepository<Application, Strin
         return "APP-" + UUID.randomUUID().toString().substring(0, 8);
     }
     
-    @Override
-    public Application findById(String id) {
-        return entities.stream()
-                      .filter(application -> getEntityId(application).equals(id))
-                      .findFirst()
-                      .orElse(null);
-    }
-    
     @Override
     protected String getEntityId(Application application) {
         // Since Application doesn't have an ID field in its current form,
         // we're creating an ID based on applicant's NRIC and project's name
-        return application.getApplicant().getNRIC() + "-" + application.getProject().getName();
+        return applicationId(application.getApplicant().getNRIC(), application.getProject().getName());
+    }
+    
+    @Override
+    protected EntityCodec<Application> getCodec() {
+        return EntityCodecs.APPLICATION;
+    }
+    
+    /**
+     * Builds the ID of an application from its applicant and project
+     * 
+     * @param applicantNric The applicant's NRIC
+     * @param projectName The project's name
+     * @return The application ID
+     */
+    public static String applicationId(String applicantNric, String projectName) {
+        return applicantNric + "-" + projectName;
     }
     
     /**
@@ -53,9 +176,7 @@ public class ApplicationRepository extends AbstractRepository<Application, Strin
      * @return A list of applications from the specified applicant
      */
     public List<Application> findByApplicant(Applicant applicant) {
-        return entities.stream()
-                      .filter(application -> application.getApplicant().getNRIC().equals(applicant.getNRIC()))
-                      .collect(Collectors.toList());
+        return findByIndex(byApplicant, applicant.getNRIC());
     }
     
     /**
@@ -65,9 +186,17 @@ public class ApplicationRepository extends AbstractRepository<Application, Strin
      * @return A list of applications for the specified project
      */
     public List<Application> findByProject(Project project) {
-        return entities.stream()
-                      .filter(application -> application.getProject().getName().equals(project.getName()))
-                      .collect(Collectors.toList());
+        return findByProject(project.getName());
+    }
+    
+    /**
+     * Finds applications for a specific project
+     * 
+     * @param projectName The name of the project to search for
+     * @return A list of applications for the specified project
+     */
+    public List<Application> findByProject(String projectName) {
+        return findByIndex(byProject, projectName);
     }
     
     /**
@@ -77,25 +206,310 @@ public class ApplicationRepository extends AbstractRepository<Application, Strin
      * @return A list of applications with the specified status
      */
     public List<Application> findByStatus(Application.ApplicationStatus status) {
-        return entities.stream()
+        return findByIndex(byStatus, status);
+    }
+    
+    /**
+     * Finds applications by withdrawal request status
+     * 
+     * @param status The withdrawal request status to search for
+     * @return A list of applications with the specified withdrawal request status
+     */
+    public List<Application> findByWithdrawalStatus(Application.WithdrawalRequestStatus status) {
+        return findByIndex(byWithdrawalStatus, status);
+    }
+    
+    /**
+     * Finds applications by booking status
+     * 
+     * @param status The booking status to search for
+     * @return A list of applications with the specified booking status
+     */
+    public List<Application> findByBookingStatus(Application.BookingFlatStatus status) {
+        return findByIndex(byBookingStatus, status);
+    }
+    
+    /**
+     * Finds applications for a project with a specific status.
+     * Only the project's own applications are examined.
+     * 
+     * @param projectName The name of the project
+     * @param status The status to search for
+     * @return A list of the project's applications with the specified status
+     */
+    public List<Application> findByProjectAndStatus(String projectName, Application.ApplicationStatus status) {
+        return findByProject(projectName).stream()
                       .filter(application -> application.getStatus() == status)
                       .collect(Collectors.toList());
     }
     
+    /**
+     * Finds applications for a project with a specific withdrawal request status.
+     * Only the project's own applications are examined.
+     * 
+     * @param projectName The name of the project
+     * @param status The withdrawal request status to search for
+     * @return A list of the project's applications with the specified withdrawal request status
+     */
+    public List<Application> findByProjectAndWithdrawalStatus(String projectName,
+                                                              Application.WithdrawalRequestStatus status) {
+        return findByProject(projectName).stream()
+                      .filter(application -> application.getWithdrawalRequestStatus() == status)
+                      .collect(Collectors.toList());
+    }
+    
     /**
      * Finds applications submitted within a date range
      * 
      * @param startDate The start of the date range
      * @param endDate The end of the date range
-     * @return A list of applications submitted within the date range
+     * @return A list of applications submitted within the date range, oldest first
      */
     public List<Application> findByDateRange(Date startDate, Date endDate) {
-        return entities.stream()
-                      .filter(application -> {
-                          Date applicationDate = application.getApplicationDate();
-                          return applicationDate.after(startDate) && applicationDate.before(endDate);
-                      })
-                      .collect(Collectors.toList());
+        return readIndexes(() -> byApplicationDate.range(startDate, false, endDate, false, false));
+    }
+    
+    /**
+     * Finds applications booked within a date range
+     * 
+     * @param startDate The start of the date range
+     * @param endDate The end of the date range
+     * @return A list of applications booked within the date range, oldest booking first
+     */
+    public List<Application> findByBookingDateRange(Date startDate, Date endDate) {
+        return readIndexes(() -> byBookingDate.range(startDate, false, endDate, false, false));
+    }
+    
+    /**
+     * Finds the most recently submitted applications
+     * 
+     * @param limit The maximum number of applications to return
+     * @return A list of at most limit applications, newest first
+     */
+    public List<Application> findMostRecent(int limit) {
+        return readIndexes(() -> byApplicationDate.first(limit, true));
+    }
+    
+    /**
+     * Counts applications submitted on each day of a date range
+     * 
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @return A map from each day with applications to the number submitted, in date order
+     */
+    public SortedMap<LocalDate, Integer> countByApplicationDay(LocalDate startDate, LocalDate endDate) {
+        return countByDay(byApplicationDate, startDate, endDate);
+    }
+    
+    /**
+     * Counts applications booked on each day of a date range
+     * 
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @return A map from each day with bookings to the number booked, in date order
+     */
+    public SortedMap<LocalDate, Integer> countByBookingDay(LocalDate startDate, LocalDate endDate) {
+        return countByDay(byBookingDate, startDate, endDate);
+    }
+    
+    /**
+     * Groups the counts of a date index within a range of days by day
+     * 
+     * @param index The date index
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @return A map from each day to its count
+     */
+    private SortedMap<LocalDate, Integer> countByDay(SortedIndex<Date, Application> index,
+                                                     LocalDate startDate, LocalDate endDate) {
+        ZoneId zone = ZoneId.systemDefault();
+        Date from = Date.from(startDate.atStartOfDay(zone).toInstant());
+        Date to = Date.from(endDate.plusDays(1).atStartOfDay(zone).toInstant());
+        
+        SortedMap<LocalDate, Integer> counts = new TreeMap<>();
+        readIndexes(() -> index.countsInRange(from, true, to, false)).forEach((date, count) ->
+            counts.merge(date.toInstant().atZone(zone).toLocalDate(), count, Integer::sum));
+        return counts;
+    }
+    
+    /**
+     * Finds applications matching every given criterion, for filtered reports.
+     * The criteria are combined on the bitmap index, and the applicant's
+     * age is checked exactly only for the applications that remain.
+     * 
+     * @param projectName The project name, or null for any project
+     * @param flatType The flat type, or null for any flat type
+     * @param maritalStatus The applicant's marital status, or null for any
+     * @param status The application status, or null for any status
+     * @param minAge The minimum applicant age, or null for no minimum
+     * @param maxAge The maximum applicant age, or null for no maximum
+     * @return A list of the matching applications
+     */
+    public List<Application> findByAttributes(String projectName, Flat.FlatType flatType,
+                                              User.MaritalStatus maritalStatus,
+                                              Application.ApplicationStatus status,
+                                              Integer minAge, Integer maxAge) {
+        Map<BitmapIndex.Attribute<Application, ?>, Collection<?>> criteria =
+                attributeCriteria(projectName, flatType, maritalStatus, status, minAge, maxAge);
+        List<Application> matches = readIndexes(() -> byAttributes.select(criteria));
+        if (minAge != null || maxAge != null) {
+            matches.removeIf(application -> !isInAgeRange(application, minAge, maxAge));
+        }
+        return matches;
+    }
+    
+    /**
+     * Passes the applications matching a combination of attributes to an
+     * action, as {@link #findByAttributes} would list them, without
+     * collecting them first. The matching rows are found once; their
+     * applications are then looked up one group of at most 65536 at a time,
+     * so memory stays bounded however many match, and writers only wait
+     * while a group is looked up, never while the action runs.
+     * 
+     * @param projectName The project name, or null for any project
+     * @param flatType The flat type, or null for any flat type
+     * @param maritalStatus The applicant's marital status, or null for any
+     * @param status The application status, or null for any status
+     * @param minAge The minimum applicant age, or null for no minimum
+     * @param maxAge The maximum applicant age, or null for no maximum
+     * @param action The action to pass each matching application to
+     * @return The number of applications passed to the action
+     */
+    public int forEachByAttributes(String projectName, Flat.FlatType flatType,
+                                   User.MaritalStatus maritalStatus,
+                                   Application.ApplicationStatus status,
+                                   Integer minAge, Integer maxAge,
+                                   Consumer<Application> action) {
+        Map<BitmapIndex.Attribute<Application, ?>, Collection<?>> criteria =
+                attributeCriteria(projectName, flatType, maritalStatus, status, minAge, maxAge);
+        CompressedBitmap rows = readIndexes(() -> byAttributes.selectRows(criteria));
+        int count = 0;
+        for (int group = 0; group < rows.groupCount(); group++) {
+            int position = group;
+            for (Application application : readIndexes(() -> byAttributes.entitiesInGroup(rows, position))) {
+                if (isInAgeRange(application, minAge, maxAge)) {
+                    action.accept(application);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Builds the bitmap index criteria for a combination of attributes
+     */
+    private Map<BitmapIndex.Attribute<Application, ?>, Collection<?>> attributeCriteria(
+            String projectName, Flat.FlatType flatType, User.MaritalStatus maritalStatus,
+            Application.ApplicationStatus status, Integer minAge, Integer maxAge) {
+        Map<BitmapIndex.Attribute<Application, ?>, Collection<?>> criteria = new HashMap<>();
+        if (projectName != null) {
+            criteria.put(projectAttribute, List.of(projectName));
+        }
+        if (flatType != null) {
+            criteria.put(flatTypeAttribute, List.of(flatType));
+        }
+        if (maritalStatus != null) {
+            criteria.put(maritalStatusAttribute, List.of(maritalStatus));
+        }
+        if (status != null) {
+            criteria.put(statusAttribute, List.of(status));
+        }
+        
+        // An age range becomes the union of the buckets it touches, unless it is too wide to narrow anything
+        int fromAge = minAge == null ? 0 : Math.max(0, minAge);
+        if (maxAge != null && maxAge / AGE_BUCKET_YEARS - fromAge / AGE_BUCKET_YEARS < MAX_AGE_BUCKETS) {
+            List<Integer> buckets = new ArrayList<>();
+            for (int bucket = fromAge / AGE_BUCKET_YEARS; bucket <= maxAge / AGE_BUCKET_YEARS; bucket++) {
+                buckets.add(bucket);
+            }
+            criteria.put(ageBucketAttribute, buckets);
+        }
+        return criteria;
+    }
+    
+    /**
+     * Counts applications with a combination of attributes, for the
+     * statistics screens. Any combination is read from its own counter, so
+     * this takes constant time however many applications there are, and
+     * never waits for writers.
+     * 
+     * @param projectName The project name, or null for any project
+     * @param flatType The flat type, or null for any flat type
+     * @param maritalStatus The applicant's marital status, or null for any
+     * @param status The application status, or null for any status
+     * @param ageBand The applicant's age band, or null for any age
+     * @return The number of applications with those attributes
+     */
+    public long countByAttributes(String projectName, Flat.FlatType flatType,
+                                  User.MaritalStatus maritalStatus,
+                                  Application.ApplicationStatus status, AgeBand ageBand) {
+        return readCounters(() -> statistics.count(projectName, flatType, maritalStatus, status, ageBand));
+    }
+    
+    /**
+     * Declares the statistics cube and its dimensions, in the order countByAttributes passes them
+     */
+    private CounterCube<Application> addStatisticsCube() {
+        CounterCube<Application> cube = addCounterCube();
+        cube.addDimension(application -> application.getProject().getName());
+        cube.addDimension(Application::getFlatType);
+        cube.addDimension(application -> application.getApplicant().getMaritalStatus());
+        cube.addDimension(Application::getStatus);
+        cube.addDimension(application -> AgeBand.of(application.getApplicant().getAge()));
+        return cube;
+    }
+    
+    /**
+     * Checks an applicant's exact age, which the age buckets only narrow down
+     */
+    private static boolean isInAgeRange(Application application, Integer minAge, Integer maxAge) {
+        int age = application.getApplicant().getAge();
+        return (minAge == null || age >= minAge) && (maxAge == null || age <= maxAge);
+    }
+    
+    /**
+     * Finds the next application on the waitlist of a project's flat type
+     * that passes a check: the best-ranked entrant a ballot left
+     * unsuccessful or, once those run out, the earliest pending
+     * application. Applications with a withdrawal request are not
+     * waitlisted. The head of the waitlist is found in O(log n).
+     * 
+     * @param projectName The name of the project
+     * @param flatType The flat type
+     * @param eligible The check, e.g. that the applicant has not moved on to another project
+     * @return The next waitlisted application, or null if there is none
+     */
+    public Application findNextWaitlisted(String projectName, Flat.FlatType flatType,
+                                          Predicate<Application> eligible) {
+        WaitlistPosition first = new WaitlistPosition(projectName, flatType.ordinal(), Long.MIN_VALUE, Long.MIN_VALUE, "");
+        WaitlistPosition last = new WaitlistPosition(projectName, flatType.ordinal(), Long.MAX_VALUE, Long.MAX_VALUE,
+                "\uffff");
+        return readIndexes(() -> byWaitlistPosition.firstMatching(first, last, eligible));
+    }
+    
+    /**
+     * Derives an application's waitlist position
+     * 
+     * @param application The application
+     * @return The position, or null if the application is not waitlisted
+     */
+    private static WaitlistPosition waitlistPosition(Application application) {
+        if (application.isWithdrawalRequested()) {
+            return null;
+        }
+        long rank;
+        if (application.getStatus() == Application.ApplicationStatus.PENDING) {
+            rank = Long.MAX_VALUE; // After every ballot entrant
+        } else if (application.getStatus() == Application.ApplicationStatus.UNSUCCESSFUL
+                && application.getWaitlistRank() > 0) {
+            rank = application.getWaitlistRank();
+        } else {
+            return null;
+        }
+        Date submitted = application.getApplicationDate();
+        return new WaitlistPosition(application.getProject().getName(), application.getFlatType().ordinal(),
+                rank, submitted == null ? Long.MIN_VALUE : submitted.getTime(), application.getApplicant().getNRIC());
     }
     
     /**
@@ -106,12 +520,18 @@ public class ApplicationRepository extends AbstractRepository<Application, Strin
      * @return The matching application, or null if not found
      */
     public Application findByApplicantAndProject(Applicant applicant, Project project) {
-        return entities.stream()
-                      .filter(application -> 
-                          application.getApplicant().getNRIC().equals(applicant.getNRIC()) &&
-                          application.getProject().getName().equals(project.getName())
-                      )
-                      .findFirst()
-                      .orElse(null);
+        return findByApplicantAndProject(applicant.getNRIC(), project.getName());
+    }
+    
+    /**
+     * Finds an application for a specific applicant and project.
+     * The pair is the application's ID, so this is a primary key lookup.
+     * 
+     * @param applicantNric The applicant's NRIC
+     * @param projectName The name of the project
+     * @return The matching application, or null if not found
+     */
+    public Application findByApplicantAndProject(String applicantNric, String projectName) {
+        return findById(applicationId(applicantNric, projectName));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,231 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Class representing a bitmap index over several low-cardinality attributes
+ * of an entity (e.g. flat type, marital status, application status), for
+ * queries that filter on any combination of them.
+ * 
+ * Each entity is given a dense row number, and each attribute keeps one
+ * {@link CompressedBitmap} of rows per value. A query unites the bitmaps of
+ * the values accepted for each attribute, intersects those unions across
+ * attributes, and only then looks up the entities in the surviving rows,
+ * so entities that fail any criterion are never touched. Like the other
+ * indexes, it reflects each entity as it was last saved. Entities whose
+ * value for an attribute is null are not filed under that attribute.
+ * Results are listed in the order entities were first filed.
+ * 
+ * @param <T> The type of entity indexed
+ */
+public class BitmapIndex<T> extends RepositoryIndex<T> {
+    
+    private final List<Attribute<T, ?>> attributes = new ArrayList<>();
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final List<T> entitiesByRow = new ArrayList<>();
+    private final List<Object[]> valuesByRow = new ArrayList<>();
+    private CompressedBitmap liveRows = new CompressedBitmap();
+    
+    /**
+     * Constructor for BitmapIndex
+     */
+    BitmapIndex() {
+    }
+    
+    /**
+     * Adds an attribute to index, before any entity is filed
+     * 
+     * @param valueFunction Derives the attribute's value from an entity
+     * @return The attribute, for use in queries
+     */
+    <V> Attribute<T, V> addAttribute(Function<T, V> valueFunction) {
+        if (!rowsById.isEmpty()) {
+            throw new IllegalStateException("Attributes must be added before entities are indexed");
+        }
+        Attribute<T, V> attribute = new Attribute<>(attributes.size(), valueFunction);
+        attributes.add(attribute);
+        return attribute;
+    }
+    
+    @Override
+    void put(String id, T entity) {
+        Integer row = rowsById.get(id);
+        Object[] previousValues;
+        if (row == null) {
+            row = entitiesByRow.size();
+            rowsById.put(id, row);
+            entitiesByRow.add(entity);
+            valuesByRow.add(new Object[attributes.size()]);
+            liveRows.add(row);
+            previousValues = null;
+        } else {
+            entitiesByRow.set(row, entity);
+            previousValues = valuesByRow.get(row);
+        }
+        
+        Object[] values = valuesByRow.get(row);
+        for (Attribute<T, ?> attribute : attributes) {
+            Object value = attribute.valueFunction.apply(entity);
+            Object previous = previousValues == null ? null : previousValues[attribute.position];
+            if (previousValues != null && Objects.equals(previous, value)) {
+                continue;
+            }
+            attribute.unfile(previous, row);
+            attribute.file(value, row);
+            values[attribute.position] = value;
+        }
+    }
+    
+    @Override
+    void remove(String id) {
+        Integer row = rowsById.remove(id);
+        if (row == null) {
+            return;
+        }
+        Object[] values = valuesByRow.get(row);
+        for (Attribute<T, ?> attribute : attributes) {
+            attribute.unfile(values[attribute.position], row);
+        }
+        
+        // Rows are not reused, so results stay in filing order until the next rebuild
+        liveRows.remove(row);
+        entitiesByRow.set(row, null);
+        valuesByRow.set(row, null);
+    }
+    
+    @Override
+    void clear() {
+        for (Attribute<T, ?> attribute : attributes) {
+            attribute.bitmaps.clear();
+        }
+        liveRows = new CompressedBitmap();
+        rowsById.clear();
+        entitiesByRow.clear();
+        valuesByRow.clear();
+    }
+    
+    /**
+     * Gets the entities matching every criterion
+     * 
+     * @param criteria For each attribute to filter on, the values accepted;
+     *                 attributes left out are not filtered on
+     * @return A new list of the matching entities
+     */
+    List<T> select(Map<Attribute<T, ?>, ? extends Collection<?>> criteria) {
+        CompressedBitmap rows = match(criteria);
+        List<T> result = new ArrayList<>(rows.cardinality());
+        rows.forEach(row -> result.add(entitiesByRow.get(row)));
+        return result;
+    }
+    
+    /**
+     * Gets the rows of the entities matching every criterion, without
+     * looking the entities up. The bitmap belongs to the caller, so it can
+     * still be read once the index has changed.
+     * 
+     * @param criteria For each attribute to filter on, the values accepted
+     * @return A new bitmap of the matching rows
+     */
+    CompressedBitmap selectRows(Map<Attribute<T, ?>, ? extends Collection<?>> criteria) {
+        CompressedBitmap rows = match(criteria);
+        return rows == liveRows ? rows.copy() : rows;
+    }
+    
+    /**
+     * Looks up the entities in one group of rows from {@link #selectRows},
+     * skipping rows whose entity has since been removed
+     * 
+     * @param rows The rows
+     * @param group The group's position in the rows
+     * @return A new list of the group's entities, in filing order
+     */
+    List<T> entitiesInGroup(CompressedBitmap rows, int group) {
+        List<T> result = new ArrayList<>();
+        rows.forEachInGroup(group, row -> {
+            T entity = row < entitiesByRow.size() ? entitiesByRow.get(row) : null;
+            if (entity != null) {
+                result.add(entity);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Counts the entities matching every criterion, without looking them up
+     * 
+     * @param criteria For each attribute to filter on, the values accepted
+     * @return The number of matching entities
+     */
+    int count(Map<Attribute<T, ?>, ? extends Collection<?>> criteria) {
+        return match(criteria).cardinality();
+    }
+    
+    private CompressedBitmap match(Map<Attribute<T, ?>, ? extends Collection<?>> criteria) {
+        List<CompressedBitmap> unions = new ArrayList<>();
+        for (Map.Entry<Attribute<T, ?>, ? extends Collection<?>> criterion : criteria.entrySet()) {
+            unions.add(criterion.getKey().union(criterion.getValue()));
+        }
+        
+        // Intersect the smallest first, so the running result shrinks as fast as possible
+        unions.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap rows = liveRows;
+        for (CompressedBitmap union : unions) {
+            rows = CompressedBitmap.and(rows, union);
+            if (rows.isEmpty()) {
+                break;
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * An indexed attribute, with the rows holding each of its values
+     * 
+     * @param <T> The type of entity indexed
+     * @param <V> The type of the attribute's values
+     */
+    public static final class Attribute<T, V> {
+        private final int position;
+        private final Function<T, V> valueFunction;
+        private final Map<Object, CompressedBitmap> bitmaps = new HashMap<>();
+        
+        private Attribute(int position, Function<T, V> valueFunction) {
+            this.position = position;
+            this.valueFunction = valueFunction;
+        }
+        
+        private void file(Object value, int row) {
+            if (value != null) {
+                bitmaps.computeIfAbsent(value, v -> new CompressedBitmap()).add(row);
+            }
+        }
+        
+        private void unfile(Object value, int row) {
+            CompressedBitmap bitmap = value == null ? null : bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.remove(row);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(value);
+                }
+            }
+        }
+        
+        private CompressedBitmap union(Collection<?> values) {
+            CompressedBitmap union = new CompressedBitmap();
+            for (Object value : values) {
+                CompressedBitmap bitmap = bitmaps.get(value);
+                if (bitmap != null) {
+                    union = CompressedBitmap.or(union, bitmap);
+                }
+            }
+            return union;
+        }
+    }
+} 
\ No newline at end of file
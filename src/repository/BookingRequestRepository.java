@@ -0,0 +1,138 @@
+package repository;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository for the outcomes of booking requests that carried a request
+ * ID, so a request repeated after a restart still gets its first outcome
+ */
+public final class BookingRequestRepository extends AbstractRepository<BookingRequestRepository.BookingRequest, String> {
+    
+    private final SortedIndex<Date, BookingRequest> byDateProcessed;
+    
+    /**
+     * Constructor for BookingRequestRepository
+     * 
+     * @param filePath Path to the file where booking requests are stored
+     */
+    public BookingRequestRepository(String filePath) {
+        super(filePath);
+        this.byDateProcessed = addSortedIndex(BookingRequest::getDateProcessed);
+    }
+    
+    @Override
+    protected String getEntityId(BookingRequest request) {
+        return request.getRequestId();
+    }
+    
+    @Override
+    protected EntityCodec<BookingRequest> getCodec() {
+        return EntityCodecs.BOOKING_REQUEST;
+    }
+    
+    /**
+     * Finds the requests processed before a cutoff, oldest first
+     * 
+     * @param cutoff The cutoff date, exclusive
+     * @return A list of the requests processed before the cutoff
+     */
+    public List<BookingRequest> findProcessedBefore(Date cutoff) {
+        return readIndexes(() -> byDateProcessed.range(null, true, cutoff, false, false));
+    }
+    
+    /**
+     * Class representing a booking request and the outcome it was given
+     */
+    public static class BookingRequest implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * Enum representing the booking operation a request asked for
+         */
+        public enum Operation {
+            INITIATE,
+            COMPLETE
+        }
+        
+        private final String requestId;
+        private final Operation operation;
+        private final String applicantNRIC;
+        private final String projectName;
+        private final String outcome;
+        private final Date dateProcessed;
+        
+        /**
+         * Constructor for BookingRequest
+         * 
+         * @param requestId The ID the caller gave the request
+         * @param operation The booking operation requested
+         * @param applicantNRIC The NRIC of the applicant whose booking it is
+         * @param projectName The name of the project
+         * @param outcome The message the request was answered with
+         * @param dateProcessed The date the request was processed
+         */
+        public BookingRequest(String requestId, Operation operation, String applicantNRIC, String projectName,
+                              String outcome, Date dateProcessed) {
+            this.requestId = requestId;
+            this.operation = operation;
+            this.applicantNRIC = applicantNRIC;
+            this.projectName = projectName;
+            this.outcome = outcome;
+            this.dateProcessed = dateProcessed;
+        }
+        
+        public String getRequestId() {
+            return requestId;
+        }
+        
+        public Operation getOperation() {
+            return operation;
+        }
+        
+        public String getApplicantNRIC() {
+            return applicantNRIC;
+        }
+        
+        public String getProjectName() {
+            return projectName;
+        }
+        
+        public String getOutcome() {
+            return outcome;
+        }
+        
+        public Date getDateProcessed() {
+            return dateProcessed;
+        }
+        
+        /**
+         * Checks whether another request with this ID asked for the same thing
+         * 
+         * @param operation The booking operation requested
+         * @param applicantNRIC The NRIC of the applicant
+         * @param projectName The name of the project
+         * @return true if the operation, applicant and project all match
+         */
+        public boolean matches(Operation operation, String applicantNRIC, String projectName) {
+            return this.operation == operation
+                    && this.applicantNRIC.equals(applicantNRIC)
+                    && this.projectName.equals(projectName);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            
+            BookingRequest that = (BookingRequest) o;
+            return requestId.equals(that.requestId);
+        }
+        
+        @Override
+        public int hashCode() {
+            return requestId.hashCode();
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,390 @@
+package repository;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Class representing a compressed set of non-negative ints, laid out like a
+ * roaring bitmap: values are grouped by their high 16 bits, and each group
+ * is stored as a sorted array while sparse or as a 65536-bit bitset once
+ * dense. Intersections and unions work a group at a time, so they cost in
+ * proportion to the groups present rather than to the largest value.
+ */
+final class CompressedBitmap {
+    
+    // A group switches to a bitset above this many values and back below half of it
+    private static final int ARRAY_LIMIT = 4096;
+    
+    private int[] keys = new int[0];
+    private Container[] containers = new Container[0];
+    private int size;
+    
+    /**
+     * Adds a value
+     * 
+     * @param value The value, which must not be negative
+     */
+    void add(int value) {
+        int key = value >>> 16;
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        if (position < 0) {
+            position = -position - 1;
+            insertContainer(position, key, new Container());
+        }
+        containers[position].add((char) value);
+    }
+    
+    /**
+     * Removes a value
+     * 
+     * @param value The value
+     */
+    void remove(int value) {
+        int position = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        if (position >= 0) {
+            Container container = containers[position];
+            container.remove((char) value);
+            if (container.cardinality == 0) {
+                removeContainer(position);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether a value is present
+     * 
+     * @param value The value
+     * @return true if the value is present
+     */
+    boolean contains(int value) {
+        int position = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        return position >= 0 && containers[position].contains((char) value);
+    }
+    
+    /**
+     * Counts the values present
+     * 
+     * @return The number of values
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+    
+    /**
+     * Checks whether no values are present
+     * 
+     * @return true if the bitmap is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Passes every value to an action, in ascending order
+     * 
+     * @param action The action
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+    
+    /**
+     * Counts the groups the values are stored in, each holding the values
+     * that share their high 16 bits
+     * 
+     * @return The number of groups
+     */
+    int groupCount() {
+        return size;
+    }
+    
+    /**
+     * Passes every value in one group to an action, in ascending order
+     * 
+     * @param group The group's position, from 0 to {@link #groupCount()} - 1
+     * @param action The action
+     */
+    void forEachInGroup(int group, IntConsumer action) {
+        containers[group].forEach(keys[group] << 16, action);
+    }
+    
+    /**
+     * Copies the bitmap
+     * 
+     * @return A new bitmap of the same values
+     */
+    CompressedBitmap copy() {
+        CompressedBitmap result = new CompressedBitmap();
+        for (int i = 0; i < size; i++) {
+            result.insertContainer(i, keys[i], containers[i].copy());
+        }
+        return result;
+    }
+    
+    /**
+     * Intersects two bitmaps
+     * 
+     * @param a The first bitmap
+     * @param b The second bitmap
+     * @return A new bitmap of the values in both
+     */
+    static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = Container.and(a.containers[i], b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.insertContainer(result.size, a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Unites two bitmaps
+     * 
+     * @param a The first bitmap
+     * @param b The second bitmap
+     * @return A new bitmap of the values in either
+     */
+    static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j >= b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.insertContainer(result.size, a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i >= a.size || a.keys[i] > b.keys[j]) {
+                result.insertContainer(result.size, b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.insertContainer(result.size, a.keys[i], Container.or(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    private void insertContainer(int position, int key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = key;
+        containers[position] = container;
+        size++;
+    }
+    
+    private void removeContainer(int position) {
+        System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+        System.arraycopy(containers, position + 1, containers, position, size - position - 1);
+        size--;
+        containers[size] = null;
+    }
+    
+    /**
+     * The low 16 bits of the values sharing one high 16 bits
+     */
+    private static final class Container {
+        char[] array = new char[4]; // Sorted values while sparse
+        long[] bits;                // Bitset once dense; array is null then
+        int cardinality;
+        
+        void add(char value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                if ((bits[value >>> 6] & mask) == 0) {
+                    bits[value >>> 6] |= mask;
+                    cardinality++;
+                }
+                return;
+            }
+            int position = Arrays.binarySearch(array, 0, cardinality, value);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT + 1, cardinality * 2));
+            }
+            System.arraycopy(array, position, array, position + 1, cardinality - position);
+            array[position] = value;
+            cardinality++;
+            if (cardinality > ARRAY_LIMIT) {
+                toBits();
+            }
+        }
+        
+        void remove(char value) {
+            if (bits != null) {
+                long mask = 1L << value;
+                if ((bits[value >>> 6] & mask) != 0) {
+                    bits[value >>> 6] &= ~mask;
+                    cardinality--;
+                    if (cardinality < ARRAY_LIMIT / 2) {
+                        toArray();
+                    }
+                }
+                return;
+            }
+            int position = Arrays.binarySearch(array, 0, cardinality, value);
+            if (position >= 0) {
+                System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+                cardinality--;
+            }
+        }
+        
+        boolean contains(char value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+        }
+        
+        void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | array[i]);
+                }
+                return;
+            }
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    action.accept(high | (word << 6) | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+        }
+        
+        Container copy() {
+            Container copy = new Container();
+            copy.array = array == null ? null : array.clone();
+            copy.bits = bits == null ? null : bits.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+        
+        static Container and(Container a, Container b) {
+            Container result = new Container();
+            if (a.bits != null && b.bits != null) {
+                long[] bits = new long[1024];
+                int cardinality = 0;
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = a.bits[i] & b.bits[i];
+                    cardinality += Long.bitCount(bits[i]);
+                }
+                result.bits = bits;
+                result.array = null;
+                result.cardinality = cardinality;
+                if (cardinality <= ARRAY_LIMIT) {
+                    result.toArray();
+                }
+                return result;
+            }
+            
+            // At least one side is sparse; probe the other with its values
+            Container sparse = a.bits == null ? a : b;
+            Container other = sparse == a ? b : a;
+            char[] array = new char[sparse.cardinality];
+            int cardinality = 0;
+            for (int i = 0; i < sparse.cardinality; i++) {
+                if (other.contains(sparse.array[i])) {
+                    array[cardinality++] = sparse.array[i];
+                }
+            }
+            result.array = array;
+            result.cardinality = cardinality;
+            return result;
+        }
+        
+        static Container or(Container a, Container b) {
+            Container result;
+            if (a.bits != null || b.bits != null) {
+                Container dense = a.bits != null ? a : b;
+                Container other = dense == a ? b : a;
+                result = dense.copy();
+                if (other.bits != null) {
+                    int cardinality = 0;
+                    for (int i = 0; i < result.bits.length; i++) {
+                        result.bits[i] |= other.bits[i];
+                        cardinality += Long.bitCount(result.bits[i]);
+                    }
+                    result.cardinality = cardinality;
+                } else {
+                    for (int i = 0; i < other.cardinality; i++) {
+                        result.add(other.array[i]);
+                    }
+                }
+                return result;
+            }
+            
+            // Merge two sorted arrays
+            char[] array = new char[a.cardinality + b.cardinality];
+            int i = 0;
+            int j = 0;
+            int cardinality = 0;
+            while (i < a.cardinality || j < b.cardinality) {
+                char next;
+                if (j >= b.cardinality || (i < a.cardinality && a.array[i] < b.array[j])) {
+                    next = a.array[i++];
+                } else if (i >= a.cardinality || a.array[i] > b.array[j]) {
+                    next = b.array[j++];
+                } else {
+                    next = a.array[i++];
+                    j++;
+                }
+                array[cardinality++] = next;
+            }
+            result = new Container();
+            result.array = array;
+            result.cardinality = cardinality;
+            if (cardinality > ARRAY_LIMIT) {
+                result.toBits();
+            }
+            return result;
+        }
+        
+        private void toBits() {
+            bits = new long[1024];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+        
+        private void toArray() {
+            char[] values = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    values[count++] = (char) ((word << 6) | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+            array = values;
+            bits = null;
+        }
+    }
+} 
\ No newline at end of file
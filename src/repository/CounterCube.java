@@ -0,0 +1,166 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Class representing a cube of counters over several low-cardinality
+ * dimensions of an entity (e.g. project, flat type, application status),
+ * for aggregate counts that are read far more often than entities change.
+ * 
+ * Every combination of dimension values, with any of the dimensions rolled
+ * up, has its own {@link LongAdder} cell, so a count for any combination
+ * of fixed and "any" dimensions is a single lookup however many entities
+ * there are. Filing an entity whose values changed moves it out of the
+ * cells of its old values and into those of its new ones, at most
+ * 2^dimensions cells each. Like the other indexes, it reflects each entity
+ * as it was last saved; counts may be read without any lock, and a read
+ * racing with a save may see that entity in neither or both of its old and
+ * new cells.
+ * 
+ * @param <T> The type of entity counted
+ */
+public class CounterCube<T> extends RepositoryIndex<T> {
+    
+    // Each dimension's value is packed into its own bits of a cell key; 0 stands for any value
+    private static final int COORDINATE_BITS = 12;
+    private static final int MAX_DIMENSIONS = Long.SIZE / COORDINATE_BITS;
+    private static final int MAX_COORDINATE = (1 << COORDINATE_BITS) - 1;
+    private static final Object NULL_VALUE = new Object();
+    
+    private final List<Dimension<T>> dimensions = new ArrayList<>();
+    private final Map<String, Long> cellsById = new HashMap<>(); // Key of the cell each entity was last counted in
+    private final Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+    private long[] rollupMasks = {0};
+    
+    /**
+     * Constructor for CounterCube
+     */
+    CounterCube() {
+    }
+    
+    /**
+     * Adds a dimension to count by, before any entity is filed
+     * 
+     * @param valueFunction Derives the dimension's value from an entity
+     */
+    void addDimension(Function<T, ?> valueFunction) {
+        if (!cellsById.isEmpty()) {
+            throw new IllegalStateException("Dimensions must be added before entities are counted");
+        }
+        if (dimensions.size() == MAX_DIMENSIONS) {
+            throw new IllegalStateException("A counter cube has at most " + MAX_DIMENSIONS + " dimensions");
+        }
+        Dimension<T> dimension = new Dimension<>(dimensions.size() * COORDINATE_BITS, valueFunction);
+        dimensions.add(dimension);
+        
+        // One mask per subset of the dimensions kept, the rest rolled up
+        long[] masks = new long[rollupMasks.length * 2];
+        for (int i = 0; i < rollupMasks.length; i++) {
+            masks[i] = rollupMasks[i];
+            masks[rollupMasks.length + i] = rollupMasks[i] | ((long) MAX_COORDINATE << dimension.shift);
+        }
+        rollupMasks = masks;
+    }
+    
+    @Override
+    void put(String id, T entity) {
+        long cell = 0;
+        for (Dimension<T> dimension : dimensions) {
+            cell |= (long) dimension.coordinateFor(dimension.valueFunction.apply(entity)) << dimension.shift;
+        }
+        Long previous = cellsById.put(id, cell);
+        if (previous == null) {
+            for (long mask : rollupMasks) {
+                adder(cell & mask).increment();
+            }
+        } else if (previous != cell) {
+            for (long mask : rollupMasks) {
+                // Rollups over every dimension that changed hold the entity either way
+                if ((previous & mask) != (cell & mask)) {
+                    adder(previous & mask).decrement();
+                    adder(cell & mask).increment();
+                }
+            }
+        }
+    }
+    
+    @Override
+    void remove(String id) {
+        Long previous = cellsById.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (long mask : rollupMasks) {
+            adder(previous & mask).decrement();
+        }
+    }
+    
+    @Override
+    void clear() {
+        counts.clear();
+        cellsById.clear();
+    }
+    
+    /**
+     * Counts the entities with the given values
+     * 
+     * @param values The value of each dimension, in the order the dimensions
+     *               were added, or null to count entities with any value
+     * @return The number of entities with those values
+     */
+    long count(Object... values) {
+        if (values.length != dimensions.size()) {
+            throw new IllegalArgumentException("Expected a value for each of the " + dimensions.size() + " dimensions");
+        }
+        long cell = 0;
+        for (Dimension<T> dimension : dimensions) {
+            Object value = values[dimension.shift / COORDINATE_BITS];
+            if (value != null) {
+                Integer coordinate = dimension.coordinates.get(value);
+                if (coordinate == null) {
+                    return 0;
+                }
+                cell |= (long) coordinate << dimension.shift;
+            }
+        }
+        LongAdder adder = counts.get(cell);
+        return adder == null ? 0 : adder.sum();
+    }
+    
+    private LongAdder adder(long cell) {
+        return counts.computeIfAbsent(cell, key -> new LongAdder());
+    }
+    
+    /**
+     * A counted dimension, with the coordinate given to each of its values
+     */
+    private static final class Dimension<T> {
+        private final int shift;
+        private final Function<T, ?> valueFunction;
+        private final Map<Object, Integer> coordinates = new ConcurrentHashMap<>(); // Never shrinks, so cells stay valid
+        
+        private Dimension(int shift, Function<T, ?> valueFunction) {
+            this.shift = shift;
+            this.valueFunction = valueFunction;
+        }
+        
+        private int coordinateFor(Object value) {
+            Object key = value == null ? NULL_VALUE : value;
+            Integer coordinate = coordinates.get(key);
+            if (coordinate == null) {
+                if (coordinates.size() == MAX_COORDINATE) {
+                    throw new IllegalStateException("A counter cube dimension has at most " + MAX_COORDINATE + " values");
+                }
+                coordinate = coordinates.size() + 1;
+                coordinates.put(key, coordinate);
+            }
+            return coordinate;
+        }
+    }
+} 
\ No newline at end of file
@@ -5,6 +5,7 @@ import model.Enquiry;
 import model.Project;
 import model.User;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -12,7 +13,28 @@ import java.util.stream.Collectors;
 /**
  * Repository for managing Enquiry entities
  */
-public class EnquiryRepository extends AbstractRepository<Enquiry, String> {
+public final class EnquiryRepository extends AbstractRepository<Enquiry, String> {
+    
+    private static final int MAX_SEARCH_RESULTS = 20;
+    
+    // Secondary indexes, kept current on every save and delete so the counts on enquiry screens avoid full scans
+    private final SecondaryIndex<String, Enquiry> byProject = addIndex(enquiry -> enquiry.getProject().getName());
+    private final SecondaryIndex<String, Enquiry> byApplicant = addIndex(enquiry -> enquiry.getApplicant().getNRIC());
+    private final SecondaryIndex<String, Enquiry> pendingByProject =
+            addIndex(enquiry -> enquiry.isResponded() ? null : enquiry.getProject().getName());
+    private final SecondaryIndex<ApplicantProject, Enquiry> pendingByApplicantAndProject =
+            addIndex(enquiry -> enquiry.isResponded() ? null
+                    : new ApplicantProject(enquiry.getApplicant().getNRIC(), enquiry.getProject().getName()));
+    
+    // Full-text index over each enquiry's question and replies, searched within a project
+    private final TextIndex<Enquiry> byText =
+            addTextIndex(EnquiryRepository::searchableText, enquiry -> enquiry.getProject().getName());
+    
+    /**
+     * Key of the enquiries an applicant made about a project
+     */
+    private record ApplicantProject(String applicantNric, String projectName) {
+    }
     
     /**
      * Constructor for EnquiryRepository
@@ -40,16 +62,13 @@ public class EnquiryRepository extends AbstractRepository<Enquiry, String> {
     }
     
     @Override
-    public Enquiry findById(String id) {
-        return entities.stream()
-            .filter(enquiry -> enquiry.getId().equals(id))
-            .findFirst()
-            .orElse(null);
+    protected String getEntityId(Enquiry enquiry) {
+        return enquiry.getId();
     }
     
     @Override
-    protected String getEntityId(Enquiry enquiry) {
-        return enquiry.getId();
+    protected EntityCodec<Enquiry> getCodec() {
+        return EntityCodecs.ENQUIRY;
     }
     
     /**
@@ -100,6 +119,83 @@ public class EnquiryRepository extends AbstractRepository<Enquiry, String> {
             .collect(Collectors.toList());
     }
     
+    /**
+     * Counts the enquiries about a project
+     * 
+     * @param projectName The name of the project
+     * @return The number of enquiries about the project
+     */
+    public int countByProject(String projectName) {
+        return countByIndex(byProject, projectName);
+    }
+    
+    /**
+     * Counts the pending enquiries about a project
+     * 
+     * @param projectName The name of the project
+     * @return The number of enquiries about the project awaiting a first response
+     */
+    public int countPendingByProject(String projectName) {
+        return countByIndex(pendingByProject, projectName);
+    }
+    
+    /**
+     * Counts the pending enquiries an applicant made about a project
+     * 
+     * @param applicantNric The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return The number of the applicant's enquiries about the project awaiting a first response
+     */
+    public int countPendingByApplicantAndProject(String applicantNric, String projectName) {
+        return countByIndex(pendingByApplicantAndProject, new ApplicantProject(applicantNric, projectName));
+    }
+    
+    /**
+     * Searches the questions and replies of enquiries. Words must all
+     * appear unless separated by OR; "quoted phrases" must appear as
+     * written and -words must not appear.
+     * 
+     * @param query The search query
+     * @param projectName The project whose enquiries to search, or null to search every project
+     * @return The best matching enquiries, at most 20, best match first
+     */
+    public List<Enquiry> search(String query, String projectName) {
+        return readIndexes(() -> byText.search(query, projectName, MAX_SEARCH_RESULTS));
+    }
+    
+    /**
+     * Searches the questions and replies of the enquiries an applicant made
+     * 
+     * @param query The search query
+     * @param applicantNric The NRIC of the applicant
+     * @param projectName The project whose enquiries to search, or null to search every project
+     * @return The best matching enquiries, at most 20, best match first
+     */
+    public List<Enquiry> searchByApplicant(String query, String applicantNric, String projectName) {
+        return readIndexes(() -> {
+            // An applicant has few enquiries, so check each of them rather than a whole project's
+            List<String> ids = new ArrayList<>();
+            for (Enquiry enquiry : byApplicant.get(applicantNric)) {
+                if (projectName == null || enquiry.getProject().getName().equals(projectName)) {
+                    ids.add(enquiry.getId());
+                }
+            }
+            return byText.searchAmong(query, ids, MAX_SEARCH_RESULTS);
+        });
+    }
+    
+    /**
+     * Gets the text of an enquiry that is searched: its question, then each reply
+     */
+    private static List<String> searchableText(Enquiry enquiry) {
+        List<String> fields = new ArrayList<>();
+        fields.add(enquiry.getQuestion());
+        for (Enquiry.Reply reply : enquiry.getReplies()) {
+            fields.add(reply.getContent());
+        }
+        return fields;
+    }
+    
     /**
      * Finds responded enquiries (with responses)
      * 
@@ -0,0 +1,37 @@
+package repository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface for encoding an entity into the repositories' binary format.
+ * 
+ * References to other entities are written by key (NRIC, project name,
+ * application ID) rather than as nested objects, and are resolved through
+ * a {@link ReferenceLinker} once every repository has been loaded.
+ * 
+ * @param <T> The type of entity this codec works with
+ */
+public interface EntityCodec<T> {
+    
+    /**
+     * Writes an entity
+     * 
+     * @param out The output to write to
+     * @param entity The entity to write
+     * @throws IOException If the entity could not be written
+     */
+    void write(DataOutput out, T entity) throws IOException;
+    
+    /**
+     * Reads an entity, registering its references with the linker
+     * 
+     * @param in The input to read from
+     * @param version The format version the entity was written with
+     * @param linker The linker that resolves references to other entities
+     * @return The entity read
+     * @throws IOException If the entity could not be read
+     */
+    T read(DataInput in, int version, ReferenceLinker linker) throws IOException;
+} 
\ No newline at end of file
@@ -0,0 +1,501 @@
+package repository;
+
+import model.Applicant;
+import model.Application;
+import model.Enquiry;
+import model.Flat;
+import model.HDBManager;
+import model.HDBOfficer;
+import model.Project;
+import model.User;
+import repository.BookingRequestRepository.BookingRequest;
+import repository.RegistrationRepository.Registration;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Binary codecs for the entities stored by the repositories, and the
+ * primitives they are built from.
+ * 
+ * Strings are written as a varint length followed by UTF-8 bytes, counts as
+ * varints, dates as epoch milliseconds and enums as their ordinal, each with
+ * a sentinel for null. Fields are written in a fixed order per {@link #VERSION};
+ * adding a field means bumping the version and reading older versions without it.
+ */
+public final class EntityCodecs {
+    
+    /**
+     * Current version of the binary format
+     */
+    public static final int VERSION = 3;
+    
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    
+    // Type tags for the user hierarchy, so one codec serves every user repository
+    private static final int APPLICANT = 0;
+    private static final int OFFICER = 1;
+    private static final int MANAGER = 2;
+    
+    /**
+     * Codec for projects, including their flats
+     */
+    public static final EntityCodec<Project> PROJECT = new EntityCodec<Project>() {
+        @Override
+        public void write(DataOutput out, Project project) throws IOException {
+            writeString(out, project.getName());
+            writeString(out, project.getNeighborhood());
+            writeDate(out, project.getApplicationOpenDate());
+            writeDate(out, project.getApplicationCloseDate());
+            out.writeBoolean(project.isVisible());
+            out.writeBoolean(project.isEligibleForSingles());
+            out.writeBoolean(project.isEligibleForMarried());
+            out.writeBoolean(project.isDeleted());
+            writeVarInt(out, project.getAvailableOfficerSlots());
+            
+            writeVarInt(out, project.getFlats().size());
+            for (Flat flat : project.getFlats()) {
+                writeEnum(out, flat.getFlatType());
+                writeVarInt(out, flat.getTotalUnits());
+                writeVarInt(out, flat.getAvailableUnits());
+                out.writeLong(flat.getSellingPrice());
+            }
+            
+            writeString(out, project.getManager() == null ? null : project.getManager().getNRIC());
+            
+            // Applications are keyed by applicant NRIC within the project
+            writeVarInt(out, project.getApplications().size());
+            for (Application application : project.getApplications()) {
+                writeString(out, application.getApplicant().getNRIC());
+            }
+            
+            writeVarInt(out, project.getRegisteredOfficers().size());
+            for (HDBOfficer officer : project.getRegisteredOfficers()) {
+                writeString(out, officer.getNRIC());
+            }
+        }
+        
+        @Override
+        public Project read(DataInput in, int version, ReferenceLinker linker) throws IOException {
+            String name = readString(in);
+            String neighborhood = readString(in);
+            Date openDate = readDate(in);
+            Date closeDate = readDate(in);
+            boolean visible = in.readBoolean();
+            boolean eligibleForSingles = in.readBoolean();
+            boolean eligibleForMarried = in.readBoolean();
+            boolean deleted = in.readBoolean();
+            int officerSlots = readVarInt(in);
+            
+            Project project = new Project(name, neighborhood, openDate, closeDate, officerSlots);
+            project.toggleVisibility(visible);
+            project.setEligibleForSingles(eligibleForSingles);
+            project.setEligibleForMarried(eligibleForMarried);
+            project.setDeleted(deleted);
+            
+            int flatCount = readVarInt(in);
+            for (int i = 0; i < flatCount; i++) {
+                Flat.FlatType flatType = readEnum(in, Flat.FlatType.class);
+                int totalUnits = readVarInt(in);
+                int availableUnits = readVarInt(in);
+                Flat flat = new Flat(flatType, totalUnits, in.readLong());
+                flat.setAvailableUnits(availableUnits);
+                project.addFlat(flat);
+            }
+            
+            linker.linkManager(readString(in), project::setManager);
+            
+            List<Application> applications = project.getApplications();
+            int applicationCount = readVarInt(in);
+            for (int i = 0; i < applicationCount; i++) {
+                linker.linkApplication(ApplicationRepository.applicationId(readString(in), name), applications::add);
+            }
+            
+            List<HDBOfficer> officers = project.getRegisteredOfficers();
+            int officerCount = readVarInt(in);
+            for (int i = 0; i < officerCount; i++) {
+                linker.linkOfficer(readString(in), officers::add);
+            }
+            return project;
+        }
+    };
+    
+    /**
+     * Codec for applications
+     */
+    public static final EntityCodec<Application> APPLICATION = new EntityCodec<Application>() {
+        @Override
+        public void write(DataOutput out, Application application) throws IOException {
+            writeString(out, application.getApplicant().getNRIC());
+            writeString(out, application.getProject().getName());
+            writeEnum(out, application.getFlatType());
+            writeEnum(out, application.getStatus());
+            writeDate(out, application.getApplicationDate());
+            writeEnum(out, application.getWithdrawalRequestStatus());
+            writeEnum(out, application.getBookingStatus());
+            writeDate(out, application.getBookingDate());
+            writeVarInt(out, application.getWaitlistRank()); // Since version 2
+            writeDate(out, application.getHoldExpiry()); // Since version 3
+        }
+        
+        @Override
+        public Application read(DataInput in, int version, ReferenceLinker linker) throws IOException {
+            String applicantNric = readString(in);
+            String projectName = readString(in);
+            Application application = new Application(null, null, readEnum(in, Flat.FlatType.class));
+            Application.ApplicationStatus status = readEnum(in, Application.ApplicationStatus.class);
+            application.setApplicationDate(readDate(in));
+            application.setWithdrawalRequestStatus(readEnum(in, Application.WithdrawalRequestStatus.class));
+            application.updateBookingStatus(readEnum(in, Application.BookingFlatStatus.class));
+            
+            // Restore the stored status and date over the ones set by updateBookingStatus
+            application.updateStatus(status);
+            application.setBookingDate(readDate(in));
+            if (version >= 2) {
+                application.setWaitlistRank(readVarInt(in));
+            }
+            if (version >= 3) {
+                application.setHoldExpiry(readDate(in));
+            }
+            
+            linker.linkApplicant(applicantNric, application::setApplicant);
+            linker.linkProject(projectName, application::setProject);
+            return application;
+        }
+    };
+    
+    /**
+     * Codec for enquiries, including their replies
+     */
+    public static final EntityCodec<Enquiry> ENQUIRY = new EntityCodec<Enquiry>() {
+        @Override
+        public void write(DataOutput out, Enquiry enquiry) throws IOException {
+            writeString(out, enquiry.getId());
+            writeString(out, enquiry.getApplicant().getNRIC());
+            writeString(out, enquiry.getProject().getName());
+            writeString(out, enquiry.getQuestion());
+            writeDate(out, enquiry.getDateSubmitted());
+            
+            writeVarInt(out, enquiry.getReplies().size());
+            for (Enquiry.Reply reply : enquiry.getReplies()) {
+                writeString(out, reply.getContent());
+                writeString(out, reply.getRespondedBy() == null ? null : reply.getRespondedBy().getNRIC());
+                writeDate(out, reply.getDateResponded());
+            }
+        }
+        
+        @Override
+        public Enquiry read(DataInput in, int version, ReferenceLinker linker) throws IOException {
+            String id = readString(in);
+            String applicantNric = readString(in);
+            String projectName = readString(in);
+            Enquiry enquiry = new Enquiry(id, null, null, readString(in));
+            enquiry.setDateSubmitted(readDate(in));
+            
+            int replyCount = readVarInt(in);
+            for (int i = 0; i < replyCount; i++) {
+                String content = readString(in);
+                String respondedBy = readString(in);
+                Enquiry.Reply reply = enquiry.addReply(new Enquiry.Reply(content, null, readDate(in)));
+                linker.linkUser(respondedBy, reply::setRespondedBy);
+            }
+            
+            linker.linkApplicant(applicantNric, enquiry::setApplicant);
+            linker.linkProject(projectName, enquiry::setProject);
+            return enquiry;
+        }
+    };
+    
+    /**
+     * Codec for officer registrations
+     */
+    public static final EntityCodec<Registration> REGISTRATION = new EntityCodec<Registration>() {
+        @Override
+        public void write(DataOutput out, Registration registration) throws IOException {
+            writeString(out, registration.getRegistrationId());
+            writeString(out, registration.getOfficer().getNRIC());
+            writeString(out, registration.getProject().getName());
+            writeDate(out, registration.getRegistrationDate());
+            writeEnum(out, registration.getStatus());
+        }
+        
+        @Override
+        public Registration read(DataInput in, int version, ReferenceLinker linker) throws IOException {
+            String id = readString(in);
+            String officerNric = readString(in);
+            String projectName = readString(in);
+            Date registrationDate = readDate(in);
+            Registration registration = new Registration(id, null, null, registrationDate,
+                    readEnum(in, HDBOfficer.RegistrationStatus.class));
+            
+            linker.linkOfficer(officerNric, registration::setOfficer);
+            linker.linkProject(projectName, registration::setProject);
+            return registration;
+        }
+    };
+    
+    /**
+     * Codec for the outcomes of booking requests; the applicant and project
+     * are kept as keys only, so nothing needs linking
+     */
+    public static final EntityCodec<BookingRequest> BOOKING_REQUEST = new EntityCodec<BookingRequest>() {
+        @Override
+        public void write(DataOutput out, BookingRequest request) throws IOException {
+            writeString(out, request.getRequestId());
+            writeEnum(out, request.getOperation());
+            writeString(out, request.getApplicantNRIC());
+            writeString(out, request.getProjectName());
+            writeString(out, request.getOutcome());
+            writeDate(out, request.getDateProcessed());
+        }
+        
+        @Override
+        public BookingRequest read(DataInput in, int version, ReferenceLinker linker) throws IOException {
+            return new BookingRequest(readString(in), readEnum(in, BookingRequest.Operation.class), readString(in),
+                    readString(in), readString(in), readDate(in));
+        }
+    };
+    
+    private static final EntityCodec<User> USER = new EntityCodec<User>() {
+        @Override
+        public void write(DataOutput out, User user) throws IOException {
+            if (user instanceof HDBOfficer) {
+                out.writeByte(OFFICER);
+            } else if (user instanceof HDBManager) {
+                out.writeByte(MANAGER);
+            } else {
+                out.writeByte(APPLICANT);
+            }
+            writeString(out, user.getNRIC());
+            writeString(out, user.getName());
+            writeString(out, user.getPassword());
+            writeVarInt(out, user.getAge());
+            writeEnum(out, user.getMaritalStatus());
+            
+            if (user instanceof Applicant) {
+                Application application = ((Applicant) user).getCurrentApplication();
+                writeString(out, application == null ? null : application.getProject().getName());
+            }
+            if (user instanceof HDBOfficer) {
+                HDBOfficer officer = (HDBOfficer) user;
+                writeString(out, officer.getHandlingProject() == null ? null : officer.getHandlingProject().getName());
+                writeEnum(out, officer.getRegistrationStatus());
+                writeProjectNames(out, officer.getRegisteredProjects());
+            }
+            if (user instanceof HDBManager) {
+                writeProjectNames(out, ((HDBManager) user).getCreatedProjects());
+            }
+        }
+        
+        @Override
+        public User read(DataInput in, int version, ReferenceLinker linker) throws IOException {
+            int type = in.readUnsignedByte();
+            String nric = readString(in);
+            String name = readString(in);
+            String password = readString(in);
+            int age = readVarInt(in);
+            User.MaritalStatus maritalStatus = readEnum(in, User.MaritalStatus.class);
+            
+            switch (type) {
+                case APPLICANT: {
+                    Applicant applicant = new Applicant(nric, name, password, age, maritalStatus);
+                    readCurrentApplication(in, applicant, linker);
+                    return applicant;
+                }
+                case OFFICER: {
+                    HDBOfficer officer = new HDBOfficer(nric, name, password, age, maritalStatus);
+                    readCurrentApplication(in, officer, linker);
+                    String handlingProject = readString(in);
+                    officer.setRegistrationStatus(readEnum(in, HDBOfficer.RegistrationStatus.class));
+                    
+                    // Registered projects first, so setHandlingProject does not reorder them
+                    List<Project> registeredProjects = officer.getRegisteredProjects();
+                    for (String projectName : readProjectNames(in)) {
+                        linker.linkProject(projectName, registeredProjects::add);
+                    }
+                    linker.linkProject(handlingProject, officer::setHandlingProject);
+                    return officer;
+                }
+                case MANAGER: {
+                    HDBManager manager = new HDBManager(nric, name, password, age, maritalStatus);
+                    for (String projectName : readProjectNames(in)) {
+                        linker.linkProject(projectName, manager::addCreatedProject);
+                    }
+                    return manager;
+                }
+                default:
+                    throw new IOException("Unknown user type " + type);
+            }
+        }
+    };
+    
+    private EntityCodecs() {
+    }
+    
+    /**
+     * Gets the codec for a kind of user
+     * 
+     * @param <U> The type of user
+     * @return The codec, which writes and expects a tag for the user's role
+     */
+    @SuppressWarnings("unchecked")
+    public static <U extends User> EntityCodec<U> user() {
+        return (EntityCodec<U>) USER;
+    }
+    
+    /**
+     * Reads an applicant's current application, stored as its project name
+     */
+    private static void readCurrentApplication(DataInput in, Applicant applicant, ReferenceLinker linker) throws IOException {
+        String projectName = readString(in);
+        if (projectName != null) {
+            linker.linkApplication(ApplicationRepository.applicationId(applicant.getNRIC(), projectName),
+                    applicant::setCurrentApplication);
+        }
+    }
+    
+    private static void writeProjectNames(DataOutput out, List<Project> projects) throws IOException {
+        writeVarInt(out, projects.size());
+        for (Project project : projects) {
+            writeString(out, project.getName());
+        }
+    }
+    
+    private static List<String> readProjectNames(DataInput in) throws IOException {
+        int count = readVarInt(in);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(readString(in));
+        }
+        return names;
+    }
+    
+    /**
+     * Writes a non-negative int in 7-bit groups, low group first
+     * 
+     * @param out The output to write to
+     * @param value The value to write
+     * @throws IOException If the value could not be written
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        if (value < 0) {
+            throw new IOException("Negative varint " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    
+    /**
+     * Reads an int written by writeVarInt
+     * 
+     * @param in The input to read from
+     * @return The value read
+     * @throws IOException If the value could not be read
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    /**
+     * Writes a nullable string; the length is stored plus one so zero can mean null
+     * 
+     * @param out The output to write to
+     * @param value The string to write, or null
+     * @throws IOException If the string could not be written
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+    
+    /**
+     * Reads a string written by writeString
+     * 
+     * @param in The input to read from
+     * @return The string read, or null
+     * @throws IOException If the string could not be read
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Writes a nullable date as epoch milliseconds
+     * 
+     * @param out The output to write to
+     * @param value The date to write, or null
+     * @throws IOException If the date could not be written
+     */
+    public static void writeDate(DataOutput out, Date value) throws IOException {
+        out.writeLong(value == null ? NULL_DATE : value.getTime());
+    }
+    
+    /**
+     * Reads a date written by writeDate
+     * 
+     * @param in The input to read from
+     * @return The date read, or null
+     * @throws IOException If the date could not be read
+     */
+    public static Date readDate(DataInput in) throws IOException {
+        long time = in.readLong();
+        return time == NULL_DATE ? null : new Date(time);
+    }
+    
+    /**
+     * Writes a nullable enum constant as its ordinal
+     * 
+     * @param out The output to write to
+     * @param value The constant to write, or null
+     * @throws IOException If the constant could not be written
+     */
+    public static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+    
+    /**
+     * Reads an enum constant written by writeEnum
+     * 
+     * @param in The input to read from
+     * @param type The enum class
+     * @return The constant read, or null
+     * @throws IOException If the constant could not be read
+     */
+    public static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0) {
+            return null;
+        }
+        E[] constants = type.getEnumConstants();
+        if (ordinal >= constants.length) {
+            throw new IOException("Unknown " + type.getSimpleName() + " ordinal " + ordinal);
+        }
+        return constants[ordinal];
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,223 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Class representing an index of entities by a closed date interval, such
+ * as a project's application window, answering "which intervals contain
+ * this instant" and "which intervals overlap this window" in O(log n + k).
+ * 
+ * Intervals are held in a centered interval tree. Each node keeps the
+ * intervals that contain its center point, sorted by start and by end,
+ * and the intervals wholly before or after the center go to its children.
+ * Intervals change far less often than they are queried, so the tree is
+ * rebuilt on the first query after a change. Entities with a missing
+ * start or end are not filed. Results are listed in the order entities
+ * were first filed.
+ * 
+ * @param <T> The type of entity indexed
+ */
+public class IntervalIndex<T> extends RepositoryIndex<T> {
+    
+    private final Function<T, Date> startFunction;
+    private final Function<T, Date> endFunction;
+    private final Map<String, Interval<T>> intervalsById = new HashMap<>();
+    private long nextSequence;
+    private Node<T> root;
+    private boolean treeStale;
+    
+    /**
+     * Constructor for IntervalIndex
+     * 
+     * @param startFunction Derives the start of an entity's interval
+     * @param endFunction Derives the end of an entity's interval
+     */
+    IntervalIndex(Function<T, Date> startFunction, Function<T, Date> endFunction) {
+        this.startFunction = startFunction;
+        this.endFunction = endFunction;
+    }
+    
+    @Override
+    void put(String id, T entity) {
+        Date start = startFunction.apply(entity);
+        Date end = endFunction.apply(entity);
+        Interval<T> previous = intervalsById.get(id);
+        if (start == null || end == null) {
+            if (previous != null) {
+                intervalsById.remove(id);
+                treeStale = true;
+            }
+            return;
+        }
+        
+        // Keep the first filing order, and skip the rebuild if nothing moved
+        long sequence = previous != null ? previous.sequence : nextSequence++;
+        Interval<T> interval = new Interval<>(start.getTime(), end.getTime(), entity, sequence);
+        intervalsById.put(id, interval);
+        if (previous == null || previous.start != interval.start || previous.end != interval.end
+                || previous.entity != entity) {
+            treeStale = true;
+        }
+    }
+    
+    @Override
+    void remove(String id) {
+        if (intervalsById.remove(id) != null) {
+            treeStale = true;
+        }
+    }
+    
+    @Override
+    void clear() {
+        intervalsById.clear();
+        root = null;
+        treeStale = false;
+    }
+    
+    /**
+     * Gets the entities whose interval contains an instant, ends included
+     * 
+     * @param instant The instant
+     * @return A new list of the entities
+     */
+    List<T> containing(Date instant) {
+        return overlapping(instant, instant);
+    }
+    
+    /**
+     * Gets the entities whose interval overlaps a window, ends included
+     * 
+     * @param from The start of the window
+     * @param to The end of the window
+     * @return A new list of the entities
+     */
+    List<T> overlapping(Date from, Date to) {
+        // Queries may run side by side, so only one of them rebuilds the tree
+        Node<T> tree;
+        synchronized (this) {
+            if (treeStale) {
+                root = build(new ArrayList<>(intervalsById.values()));
+                treeStale = false;
+            }
+            tree = root;
+        }
+        List<Interval<T>> matches = new ArrayList<>();
+        collect(tree, from.getTime(), to.getTime(), matches);
+        matches.sort(Comparator.comparingLong(interval -> interval.sequence));
+        
+        List<T> result = new ArrayList<>(matches.size());
+        for (Interval<T> interval : matches) {
+            result.add(interval.entity);
+        }
+        return result;
+    }
+    
+    private static <T> void collect(Node<T> node, long from, long to, List<Interval<T>> matches) {
+        while (node != null) {
+            if (to < node.center) {
+                // Every interval here ends at or after the center, so only the starts matter
+                for (Interval<T> interval : node.byStart) {
+                    if (interval.start > to) {
+                        break;
+                    }
+                    matches.add(interval);
+                }
+                node = node.left;
+            } else if (from > node.center) {
+                // Every interval here starts at or before the center, so only the ends matter
+                for (Interval<T> interval : node.byEndDescending) {
+                    if (interval.end < from) {
+                        break;
+                    }
+                    matches.add(interval);
+                }
+                node = node.right;
+            } else {
+                matches.addAll(Arrays.asList(node.byStart));
+                collect(node.left, from, to, matches);
+                node = node.right;
+            }
+        }
+    }
+    
+    private static <T> Node<T> build(List<Interval<T>> intervals) {
+        if (intervals.isEmpty()) {
+            return null;
+        }
+        
+        // Center on the median endpoint so each side gets at most half the intervals
+        long[] endpoints = new long[intervals.size() * 2];
+        for (int i = 0; i < intervals.size(); i++) {
+            endpoints[2 * i] = intervals.get(i).start;
+            endpoints[2 * i + 1] = intervals.get(i).end;
+        }
+        Arrays.sort(endpoints);
+        long center = endpoints[intervals.size()];
+        
+        List<Interval<T>> left = new ArrayList<>();
+        List<Interval<T>> right = new ArrayList<>();
+        List<Interval<T>> here = new ArrayList<>();
+        for (Interval<T> interval : intervals) {
+            if (interval.end < center) {
+                left.add(interval);
+            } else if (interval.start > center) {
+                right.add(interval);
+            } else {
+                here.add(interval);
+            }
+        }
+        
+        Node<T> node = new Node<>(center, here);
+        node.left = build(left);
+        node.right = build(right);
+        return node;
+    }
+    
+    /**
+     * An entity's interval in epoch milliseconds
+     */
+    private static final class Interval<T> {
+        final long start;
+        final long end;
+        final T entity;
+        final long sequence;
+        
+        Interval(long start, long end, T entity, long sequence) {
+            this.start = start;
+            this.end = end;
+            this.entity = entity;
+            this.sequence = sequence;
+        }
+    }
+    
+    /**
+     * A tree node holding the intervals that contain its center
+     */
+    private static final class Node<T> {
+        final long center;
+        final Interval<T>[] byStart;
+        final Interval<T>[] byEndDescending;
+        Node<T> left;
+        Node<T> right;
+        
+        Node(long center, List<Interval<T>> intervals) {
+            this.center = center;
+            this.byStart = intervals.toArray(newIntervalArray(0));
+            this.byEndDescending = intervals.toArray(newIntervalArray(0));
+            Arrays.sort(byStart, Comparator.comparingLong(interval -> interval.start));
+            Arrays.sort(byEndDescending, Comparator.comparingLong((Interval<T> interval) -> interval.end).reversed());
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static <T> Interval<T>[] newIntervalArray(int length) {
+            return (Interval<T>[]) new Interval<?>[length];
+        }
+    }
+} 
\ No newline at end of file
@@ -20,16 +20,13 @@ public class ManagerRepository extends AbstractRepository<HDBManager, String> {
     }
     
     @Override
-    public HDBManager findById(String nric) {
-        return entities.stream()
-                      .filter(manager -> manager.getNRIC().equals(nric))
-                      .findFirst()
-                      .orElse(null);
+    protected String getEntityId(HDBManager manager) {
+        return manager.getNRIC();
     }
     
     @Override
-    protected String getEntityId(HDBManager manager) {
-        return manager.getNRIC();
+    protected EntityCodec<HDBManager> getCodec() {
+        return EntityCodecs.user();
     }
     
     /**
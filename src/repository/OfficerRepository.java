@@ -8,7 +8,12 @@ import java.util.stream.Collectors;
 /**
  * Repository for managing HDBOfficer entities
  */
-public class OfficerRepository extends AbstractRepository<HDBOfficer, String> {
+public final class OfficerRepository extends AbstractRepository<HDBOfficer, String> {
+    
+    // Officers awaiting approval, by the project they registered for, kept current on every save
+    private final SecondaryIndex<String, HDBOfficer> pendingRegistrationsByProject =
+            addIndex(officer -> officer.getRegistrationStatus() == HDBOfficer.RegistrationStatus.PENDING
+                    && officer.getHandlingProject() != null ? officer.getHandlingProject().getName() : null);
     
     /**
      * Constructor for OfficerRepository
@@ -20,16 +25,13 @@ public class OfficerRepository extends AbstractRepository<HDBOfficer, String> {
     }
     
     @Override
-    public HDBOfficer findById(String nric) {
-        return entities.stream()
-                      .filter(officer -> officer.getNRIC().equals(nric))
-                      .findFirst()
-                      .orElse(null);
+    protected String getEntityId(HDBOfficer officer) {
+        return officer.getNRIC();
     }
     
     @Override
-    protected String getEntityId(HDBOfficer officer) {
-        return officer.getNRIC();
+    protected EntityCodec<HDBOfficer> getCodec() {
+        return EntityCodecs.user();
     }
     
     /**
@@ -44,6 +46,26 @@ public class OfficerRepository extends AbstractRepository<HDBOfficer, String> {
                       .collect(Collectors.toList());
     }
     
+    /**
+     * Finds officers whose registration for a project awaits approval
+     * 
+     * @param projectName The name of the project
+     * @return A list of officers with a pending registration for the project
+     */
+    public List<HDBOfficer> findPendingRegistrations(String projectName) {
+        return findByIndex(pendingRegistrationsByProject, projectName);
+    }
+    
+    /**
+     * Counts officers whose registration for a project awaits approval
+     * 
+     * @param projectName The name of the project
+     * @return The number of officers with a pending registration for the project
+     */
+    public int countPendingRegistrations(String projectName) {
+        return countByIndex(pendingRegistrationsByProject, projectName);
+    }
+    
     /**
      * Finds officers handling a specific project
      * 
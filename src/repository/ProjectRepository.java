@@ -9,7 +9,11 @@ import java.util.stream.Collectors;
 /**
  * Repository for managing Project entities
  */
-public class ProjectRepository extends AbstractRepository<Project, String> {
+public final class ProjectRepository extends AbstractRepository<Project, String> {
+    
+    // Application windows, for the open-project queries behind the browse screens
+    private final IntervalIndex<Project> byApplicationWindow =
+            addIntervalIndex(Project::getApplicationOpenDate, Project::getApplicationCloseDate);
     
     /**
      * Constructor for ProjectRepository
@@ -21,16 +25,13 @@ public class ProjectRepository extends AbstractRepository<Project, String> {
     }
     
     @Override
-    public Project findById(String name) {
-        return entities.stream()
-                      .filter(project -> project.getName().equals(name))
-                      .findFirst()
-                      .orElse(null);
+    protected String getEntityId(Project project) {
+        return project.getName();
     }
     
     @Override
-    protected String getEntityId(Project project) {
-        return project.getName();
+    protected EntityCodec<Project> getCodec() {
+        return EntityCodecs.PROJECT;
     }
     
     /**
@@ -51,14 +52,36 @@ public class ProjectRepository extends AbstractRepository<Project, String> {
      * @return A list of open projects
      */
     public List<Project> findOpenProjects() {
-        Date now = new Date();
-        return entities.stream()
-                      .filter(project -> project.isVisible() &&
-                                        now.after(project.getApplicationOpenDate()) &&
-                                        now.before(project.getApplicationCloseDate()))
+        return findOpenAt(new Date()).stream()
+                      .filter(Project::isVisible)
+                      .collect(Collectors.toList());
+    }
+    
+    /**
+     * Finds projects whose application window is open at an instant,
+     * excluding the instants the window opens and closes
+     * 
+     * @param instant The instant to check
+     * @return A list of projects open for applications at that instant
+     */
+    public List<Project> findOpenAt(Date instant) {
+        return readIndexes(() -> byApplicationWindow.containing(instant)).stream()
+                      .filter(project -> instant.after(project.getApplicationOpenDate()) &&
+                                        instant.before(project.getApplicationCloseDate()))
                       .collect(Collectors.toList());
     }
     
+    /**
+     * Finds projects whose application window overlaps a period, ends included
+     * 
+     * @param startDate The start of the period
+     * @param endDate The end of the period
+     * @return A list of projects whose application window overlaps the period
+     */
+    public List<Project> findWindowOverlapping(Date startDate, Date endDate) {
+        return readIndexes(() -> byApplicationWindow.overlapping(startDate, endDate));
+    }
+    
     /**
      * Finds projects that have a specific flat type
      * 
@@ -99,10 +122,6 @@ public class ProjectRepository extends AbstractRepository<Project, String> {
                       .collect(Collectors.toList());
     }
     public List<Project> findOpeningProjects() {
-        return entities.stream()
-                      .filter(Project::isVisible)
-                      .filter(project -> project.getApplicationOpenDate().before(new Date()) &&
-                                        project.getApplicationCloseDate().after(new Date()))
-                      .collect(Collectors.toList());
+        return findOpenProjects();
     }
 } 
\ No newline at end of file
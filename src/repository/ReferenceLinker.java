@@ -0,0 +1,185 @@
+package repository;
+
+import model.Applicant;
+import model.Application;
+import model.HDBManager;
+import model.HDBOfficer;
+import model.Project;
+import model.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Class that restores references between entities read by an {@link EntityCodec}.
+ * 
+ * Codecs only know the keys of the entities they point to, and the entity
+ * being pointed to may live in a repository that has not been loaded yet.
+ * Each reference is therefore recorded here and resolved by {@link #link()}
+ * once all repositories have loaded their data.
+ * 
+ * Since every reference resolves to the instance held by the repository
+ * that owns the entity, the repositories sharing a linker also share one
+ * in-memory instance per entity.
+ */
+public class ReferenceLinker {
+    
+    private final ProjectRepository projectRepository;
+    private final ApplicationRepository applicationRepository;
+    private final ApplicantRepository applicantRepository;
+    private final OfficerRepository officerRepository;
+    private final ManagerRepository managerRepository;
+    private final List<Runnable> pendingLinks = new ArrayList<>();
+    private final List<Runnable> applicationLinks = new ArrayList<>(); // Resolved last, as application IDs depend on other links
+    
+    /**
+     * Constructor for a linker that resolves nothing, for a repository loaded on its own
+     */
+    public ReferenceLinker() {
+        this(null, null, null, null, null);
+    }
+    
+    /**
+     * Constructor for ReferenceLinker
+     * 
+     * @param projectRepository Repository for projects
+     * @param applicationRepository Repository for applications
+     * @param applicantRepository Repository for applicants
+     * @param officerRepository Repository for HDB officers
+     * @param managerRepository Repository for HDB managers
+     */
+    public ReferenceLinker(ProjectRepository projectRepository,
+                           ApplicationRepository applicationRepository,
+                           ApplicantRepository applicantRepository,
+                           OfficerRepository officerRepository,
+                           ManagerRepository managerRepository) {
+        this.projectRepository = projectRepository;
+        this.applicationRepository = applicationRepository;
+        this.applicantRepository = applicantRepository;
+        this.officerRepository = officerRepository;
+        this.managerRepository = managerRepository;
+    }
+    
+    /**
+     * Records a reference to a project
+     * 
+     * @param name The project name
+     * @param target Receives the project once resolved
+     */
+    public synchronized void linkProject(String name, Consumer<Project> target) {
+        if (name != null) {
+            pendingLinks.add(() -> resolve(projectRepository == null ? null : projectRepository.findById(name), target));
+        }
+    }
+    
+    /**
+     * Records a reference to an application
+     * 
+     * @param id The application ID
+     * @param target Receives the application once resolved
+     */
+    public synchronized void linkApplication(String id, Consumer<Application> target) {
+        if (id != null) {
+            applicationLinks.add(() -> resolve(applicationRepository == null ? null : applicationRepository.findById(id), target));
+        }
+    }
+    
+    /**
+     * Records a reference to an applicant, who may also be an HDB officer
+     * 
+     * @param nric The applicant's NRIC
+     * @param target Receives the applicant once resolved
+     */
+    public synchronized void linkApplicant(String nric, Consumer<Applicant> target) {
+        if (nric != null) {
+            pendingLinks.add(() -> resolve(findApplicant(nric), target));
+        }
+    }
+    
+    /**
+     * Records a reference to an HDB officer
+     * 
+     * @param nric The officer's NRIC
+     * @param target Receives the officer once resolved
+     */
+    public synchronized void linkOfficer(String nric, Consumer<HDBOfficer> target) {
+        if (nric != null) {
+            pendingLinks.add(() -> resolve(officerRepository == null ? null : officerRepository.findById(nric), target));
+        }
+    }
+    
+    /**
+     * Records a reference to an HDB manager
+     * 
+     * @param nric The manager's NRIC
+     * @param target Receives the manager once resolved
+     */
+    public synchronized void linkManager(String nric, Consumer<HDBManager> target) {
+        if (nric != null) {
+            pendingLinks.add(() -> resolve(managerRepository == null ? null : managerRepository.findById(nric), target));
+        }
+    }
+    
+    /**
+     * Records a reference to a user of any role
+     * 
+     * @param nric The user's NRIC
+     * @param target Receives the user once resolved
+     */
+    public synchronized void linkUser(String nric, Consumer<User> target) {
+        if (nric != null) {
+            pendingLinks.add(() -> {
+                User user = findApplicant(nric);
+                if (user == null && managerRepository != null) {
+                    user = managerRepository.findById(nric);
+                }
+                resolve(user, target);
+            });
+        }
+    }
+    
+    /**
+     * Resolves every recorded reference, in the order recorded, except that
+     * references to applications are resolved after all others since an
+     * application is found by its applicant and project.
+     * References to entities that no longer exist are left unset.
+     */
+    public void link() {
+        List<Runnable> links;
+        synchronized (this) {
+            links = new ArrayList<>(pendingLinks);
+            links.addAll(applicationLinks);
+            pendingLinks.clear();
+            applicationLinks.clear();
+        }
+        for (Runnable link : links) {
+            link.run();
+        }
+    }
+    
+    /**
+     * Finds an applicant by NRIC, checking officers first
+     * 
+     * @param nric The NRIC to search for
+     * @return The applicant, or null if not found
+     */
+    private Applicant findApplicant(String nric) {
+        Applicant applicant = officerRepository == null ? null : officerRepository.findById(nric);
+        if (applicant == null && applicantRepository != null) {
+            applicant = applicantRepository.findById(nric);
+        }
+        return applicant;
+    }
+    
+    /**
+     * Hands a resolved entity to its target
+     * 
+     * @param entity The resolved entity, or null if not found
+     * @param target The target to receive it
+     */
+    private static <E> void resolve(E entity, Consumer<? super E> target) {
+        if (entity != null) {
+            target.accept(entity);
+        }
+    }
+} 
\ No newline at end of file
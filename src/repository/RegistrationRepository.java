@@ -50,16 +50,13 @@ public class RegistrationRepository extends AbstractRepository<RegistrationRepos
     }
     
     @Override
-    public Registration findById(String id) {
-        return entities.stream()
-                      .filter(registration -> registration.getRegistrationId().equals(id))
-                      .findFirst()
-                      .orElse(null);
+    protected String getEntityId(Registration registration) {
+        return registration.getRegistrationId();
     }
     
     @Override
-    protected String getEntityId(Registration registration) {
-        return registration.getRegistrationId();
+    protected EntityCodec<Registration> getCodec() {
+        return EntityCodecs.REGISTRATION;
     }
     
     /**
@@ -153,10 +150,18 @@ public class RegistrationRepository extends AbstractRepository<RegistrationRepos
             return officer;
         }
         
+        void setOfficer(HDBOfficer officer) {
+            this.officer = officer;
+        }
+        
         public Project getProject() {
             return project;
         }
         
+        void setProject(Project project) {
+            this.project = project;
+        }
+        
         public Date getRegistrationDate() {
             return registrationDate;
         }
@@ -1,5 +1,6 @@
 package repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -10,6 +11,15 @@ import java.util.List;
  */
 public interface Repository<T, ID> {
     
+    /**
+     * Enum representing how soon individual saves and deletes reach the disk
+     */
+    enum Durability {
+        SYNC,   // Each write is flushed and forced to disk before it returns
+        GROUP,  // Writes arriving within a short window share one flush and wait for it
+        ASYNC   // Writes are queued and flushed by a background thread and on shutdown
+    }
+    
     /**
      * Saves an entity to the repository
      * 
@@ -18,6 +28,15 @@ public interface Repository<T, ID> {
      */
     T save(T entity);
     
+    /**
+     * Saves several entities as one write, which reaches the data source
+     * whole or not at all
+     * 
+     * @param entities The entities to save
+     * @return The saved entities
+     */
+    List<T> saveAll(Collection<T> entities);
+    
     /**
      * Deletes an entity from the repository
      * 
@@ -49,4 +68,23 @@ public interface Repository<T, ID> {
      * Saves data to the data source
      */
     void saveData();
+    
+    /**
+     * Sets the durability level used for saves and deletes
+     * 
+     * @param durability The durability level
+     */
+    void setDurability(Durability durability);
+    
+    /**
+     * Gets the durability level used for saves and deletes
+     * 
+     * @return The durability level
+     */
+    Durability getDurability();
+    
+    /**
+     * Forces any buffered or queued writes to the data source
+     */
+    void flush();
 } 
\ No newline at end of file
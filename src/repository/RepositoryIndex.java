@@ -0,0 +1,43 @@
+package repository;
+
+/**
+ * Abstract class for an index that {@link AbstractRepository} keeps in step
+ * with every save, delete and load
+ * 
+ * @param <T> The type of entity indexed
+ */
+abstract class RepositoryIndex<T> {
+    
+    /**
+     * Files an entity as it currently is, replacing any earlier filing
+     * 
+     * @param id The entity's primary key
+     * @param entity The entity
+     */
+    abstract void put(String id, T entity);
+    
+    /**
+     * Files an entity that is already filed under the same primary key as
+     * the same instance, after its state may have changed. Indexes that can
+     * tell when none of the entity's keys changed override this to skip
+     * the work, since most saves change only one or two fields.
+     * 
+     * @param id The entity's primary key
+     * @param entity The entity
+     */
+    void refile(String id, T entity) {
+        put(id, entity);
+    }
+    
+    /**
+     * Removes an entity from the index
+     * 
+     * @param id The entity's primary key
+     */
+    abstract void remove(String id);
+    
+    /**
+     * Removes every entity from the index
+     */
+    abstract void clear();
+} 
\ No newline at end of file
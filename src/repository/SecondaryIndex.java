@@ -0,0 +1,140 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Class representing a secondary index of a repository, grouping entities
+ * by a key derived from their current state (e.g. status or project name).
+ * 
+ * The index is maintained by {@link AbstractRepository} on every save and
+ * delete, so it reflects each entity as it was last saved. The key each
+ * entity was filed under is remembered, so a status change moves the
+ * entity between buckets without scanning. Entities whose key is null
+ * are not filed.
+ * 
+ * @param <K> The type of the index key
+ * @param <T> The type of entity indexed
+ */
+public class SecondaryIndex<K, T> extends RepositoryIndex<T> {
+    
+    private final Function<T, K> keyFunction;
+    private final Map<String, K> keysById = new HashMap<>();
+    protected final Map<K, Map<String, T>> buckets;
+    
+    /**
+     * Constructor for SecondaryIndex
+     * 
+     * @param keyFunction Derives the index key from an entity
+     */
+    SecondaryIndex(Function<T, K> keyFunction) {
+        this(keyFunction, new HashMap<>());
+    }
+    
+    /**
+     * Constructor for an index that keeps its buckets in the given map
+     * 
+     * @param keyFunction Derives the index key from an entity
+     * @param buckets The empty map to keep buckets in
+     */
+    SecondaryIndex(Function<T, K> keyFunction, Map<K, Map<String, T>> buckets) {
+        this.keyFunction = keyFunction;
+        this.buckets = buckets;
+    }
+    
+    /**
+     * Files an entity under its current key, moving it out of its previous bucket
+     * 
+     * @param id The entity's primary key
+     * @param entity The entity
+     */
+    @Override
+    void put(String id, T entity) {
+        K key = keyFunction.apply(entity);
+        if (keysById.containsKey(id)) {
+            K previousKey = keysById.get(id);
+            if (!Objects.equals(previousKey, key)) {
+                removeFromBucket(previousKey, id);
+            }
+        }
+        if (key == null) {
+            keysById.remove(id);
+            return;
+        }
+        keysById.put(id, key);
+        buckets.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(id, entity);
+    }
+    
+    /**
+     * Files an entity already filed as the same instance, leaving the index
+     * untouched if its key has not changed
+     * 
+     * @param id The entity's primary key
+     * @param entity The entity
+     */
+    @Override
+    void refile(String id, T entity) {
+        K key = keyFunction.apply(entity);
+        if (key == null || !key.equals(keysById.get(id))) {
+            put(id, entity);
+        }
+    }
+    
+    /**
+     * Removes an entity from the index
+     * 
+     * @param id The entity's primary key
+     */
+    @Override
+    void remove(String id) {
+        if (keysById.containsKey(id)) {
+            removeFromBucket(keysById.remove(id), id);
+        }
+    }
+    
+    /**
+     * Removes every entity from the index
+     */
+    @Override
+    void clear() {
+        buckets.clear();
+        keysById.clear();
+    }
+    
+    /**
+     * Gets the entities filed under a key
+     * 
+     * @param key The key
+     * @return A new list of the entities, in the order they were filed
+     */
+    List<T> get(K key) {
+        Map<String, T> bucket = buckets.get(key);
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.values());
+    }
+    
+    /**
+     * Counts the entities filed under a key
+     * 
+     * @param key The key
+     * @return The number of entities
+     */
+    int count(K key) {
+        Map<String, T> bucket = buckets.get(key);
+        return bucket == null ? 0 : bucket.size();
+    }
+    
+    private void removeFromBucket(K key, String id) {
+        Map<String, T> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,117 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Class representing a secondary index whose keys are kept in order, so
+ * entities can be found by key range (e.g. a date window) in O(log n + k)
+ * and iterated in either direction.
+ * 
+ * @param <K> The type of the index key
+ * @param <T> The type of entity indexed
+ */
+public class SortedIndex<K extends Comparable<? super K>, T> extends SecondaryIndex<K, T> {
+    
+    /**
+     * Constructor for SortedIndex
+     * 
+     * @param keyFunction Derives the index key from an entity
+     */
+    SortedIndex(Function<T, K> keyFunction) {
+        super(keyFunction, new TreeMap<>());
+    }
+    
+    /**
+     * Gets the entities whose keys fall in a range
+     * 
+     * @param from The lower bound, or null for no lower bound
+     * @param fromInclusive Whether the lower bound itself is included
+     * @param to The upper bound, or null for no upper bound
+     * @param toInclusive Whether the upper bound itself is included
+     * @param descending Whether to list the highest keys first
+     * @return A new list of the entities in key order
+     */
+    List<T> range(K from, boolean fromInclusive, K to, boolean toInclusive, boolean descending) {
+        List<T> result = new ArrayList<>();
+        for (Map<String, T> bucket : subMap(from, fromInclusive, to, toInclusive, descending).values()) {
+            result.addAll(bucket.values());
+        }
+        return result;
+    }
+    
+    /**
+     * Gets the first entities in key order
+     * 
+     * @param limit The maximum number of entities
+     * @param descending Whether to start from the highest key
+     * @return A new list of at most limit entities
+     */
+    List<T> first(int limit, boolean descending) {
+        List<T> result = new ArrayList<>();
+        for (Map<String, T> bucket : subMap(null, true, null, true, descending).values()) {
+            for (T entity : bucket.values()) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Gets the first entity in key order within a range that passes a
+     * filter. The start of the range is found in O(log n); entities are
+     * then tested in order until one passes.
+     * 
+     * @param from The lower bound, inclusive
+     * @param to The upper bound, inclusive
+     * @param filter The test the entity must pass
+     * @return The first passing entity, or null if there is none
+     */
+    T firstMatching(K from, K to, Predicate<T> filter) {
+        for (Map<String, T> bucket : subMap(from, true, to, true, false).values()) {
+            for (T entity : bucket.values()) {
+                if (filter.test(entity)) {
+                    return entity;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Counts the entities under each key in a range
+     * 
+     * @param from The lower bound, or null for no lower bound
+     * @param fromInclusive Whether the lower bound itself is included
+     * @param to The upper bound, or null for no upper bound
+     * @param toInclusive Whether the upper bound itself is included
+     * @return A new map from each key in the range to its number of entities, in key order
+     */
+    NavigableMap<K, Integer> countsInRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        NavigableMap<K, Integer> counts = new TreeMap<>();
+        for (Map.Entry<K, Map<String, T>> entry : subMap(from, fromInclusive, to, toInclusive, false).entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().size());
+        }
+        return counts;
+    }
+    
+    private NavigableMap<K, Map<String, T>> subMap(K from, boolean fromInclusive, K to, boolean toInclusive,
+                                                   boolean descending) {
+        NavigableMap<K, Map<String, T>> view = (NavigableMap<K, Map<String, T>>) buckets;
+        if (from != null) {
+            view = view.tailMap(from, fromInclusive);
+        }
+        if (to != null) {
+            view = view.headMap(to, toInclusive);
+        }
+        return descending ? view.descendingMap() : view;
+    }
+} 
\ No newline at end of file
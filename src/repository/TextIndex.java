@@ -0,0 +1,1026 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Class representing an inverted full-text index over some text fields of
+ * an entity (e.g. an enquiry's question and replies), with the entities
+ * optionally divided into scopes (e.g. by project) that searches can be
+ * limited to.
+ * 
+ * Text is split into lowercase words with common suffixes stripped, so
+ * "Flats" finds "flat" and "applying" finds "applied". Each entity is given
+ * a row number, and each word keeps a posting list of the rows containing
+ * it in each scope, so a search within a scope reads only that scope's
+ * rows. Posting lists are delta-encoded as variable-length integers with a
+ * skip entry every {@value #BLOCK_SIZE} rows, which also keeps the most
+ * the block's rows can add to a BM25 score; once a search has a full page
+ * of results it skips whole blocks of rows that could not score high
+ * enough to join it. Searches intersect the posting lists of the words
+ * they require, rarest first, and rank what remains by BM25. Very common
+ * words are not posted, but still count towards phrases.
+ * 
+ * Like the other indexes, it reflects each entity as it was last saved.
+ * Posting lists are only ever appended to: an entity whose words changed
+ * is filed under a new row and its old row left dead, and the index is
+ * renumbered once dead rows outnumber live ones.
+ * 
+ * A query is one or more clauses separated by OR; a result must match
+ * every part of at least one clause. A clause is made of words, which
+ * must all appear, "quoted phrases", whose words must appear in order in
+ * the same field, and -words, which must not appear.
+ * 
+ * @param <T> The type of entity indexed
+ */
+public class TextIndex<T> extends RepositoryIndex<T> {
+    
+    static final int BLOCK_SIZE = 128;
+    
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    
+    private static final int FIELD_BREAK = -1; // Separates fields in a row's words, so phrases do not span them
+    private static final int COMPACT_MIN_DEAD_ROWS = 1024;
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "for", "from", "have", "i", "if",
+            "in", "is", "it", "my", "of", "on", "or", "the", "this", "to", "was", "what", "when", "will", "with");
+    
+    private final Function<T, List<String>> fieldsFunction;
+    private final Function<T, String> scopeFunction;
+    
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final BitSet stopTerms = new BitSet(); // Term IDs of stop words, which are never posted
+    private int[] documentFrequencies = new int[64]; // Live rows containing each term, by term ID
+    private final Map<String, Partition> partitions = new HashMap<>(); // Posting lists by scope, null if entities have none
+    
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final List<T> entitiesByRow = new ArrayList<>(); // null for dead rows
+    private final List<int[]> termsByRow = new ArrayList<>(); // Term IDs in text order, fields separated by FIELD_BREAK
+    private final List<String> scopesByRow = new ArrayList<>();
+    private final BitSet deadRowSet = new BitSet(); // Small enough to stay in cache, unlike the rows themselves
+    private int deadRows;
+    private long liveTermCount;
+    
+    /**
+     * Constructor for TextIndex
+     * 
+     * @param fieldsFunction Derives the text fields to index from an entity
+     * @param scopeFunction Derives the scope an entity is searched in, or null if entities have no scopes
+     */
+    TextIndex(Function<T, List<String>> fieldsFunction, Function<T, String> scopeFunction) {
+        this.fieldsFunction = fieldsFunction;
+        this.scopeFunction = scopeFunction;
+    }
+    
+    @Override
+    void put(String id, T entity) {
+        int[] terms = termsOf(fieldsFunction.apply(entity));
+        String scope = scopeFunction == null ? null : scopeFunction.apply(entity);
+        
+        Integer row = rowsById.get(id);
+        if (row != null) {
+            if (Arrays.equals(termsByRow.get(row), terms) && Objects.equals(scopesByRow.get(row), scope)) {
+                entitiesByRow.set(row, entity);
+                return;
+            }
+            retire(row);
+        }
+        
+        row = entitiesByRow.size();
+        rowsById.put(id, row);
+        entitiesByRow.add(entity);
+        termsByRow.add(terms);
+        scopesByRow.add(scope);
+        post(row, terms, scope);
+        compactIfMostlyDead();
+    }
+    
+    @Override
+    void remove(String id) {
+        Integer row = rowsById.remove(id);
+        if (row != null) {
+            retire(row);
+            compactIfMostlyDead();
+        }
+    }
+    
+    @Override
+    void clear() {
+        termIds.clear();
+        stopTerms.clear();
+        documentFrequencies = new int[64];
+        partitions.clear();
+        rowsById.clear();
+        entitiesByRow.clear();
+        termsByRow.clear();
+        scopesByRow.clear();
+        deadRowSet.clear();
+        deadRows = 0;
+        liveTermCount = 0;
+    }
+    
+    /**
+     * Finds the entities best matching a query
+     * 
+     * @param query The query
+     * @param scope The scope to search in, or null to search every scope
+     * @param limit The maximum number of entities to return
+     * @return A new list of at most limit matching entities, best match first
+     */
+    List<T> search(String query, String scope, int limit) {
+        Collection<Partition> searched;
+        if (scope == null) {
+            searched = partitions.values();
+        } else {
+            Partition partition = partitions.get(scope);
+            if (partition == null) {
+                return new ArrayList<>();
+            }
+            searched = List.of(partition);
+        }
+        
+        TopRows best = new TopRows(limit);
+        List<Clause> clauses = parse(query);
+        Set<Integer> seen = clauses.size() > 1 ? new HashSet<>() : null; // Rows already offered by an earlier clause
+        for (Clause clause : clauses) {
+            Matcher matcher = matcher(clause);
+            if (matcher != null) {
+                for (Partition partition : searched) {
+                    searchPartition(matcher, partition, best, seen);
+                }
+            }
+        }
+        return best.entities();
+    }
+    
+    /**
+     * Finds the entities best matching a query among a few given ones, by
+     * reading their words rather than the posting lists, for searches
+     * limited to far fewer entities than a scope holds (e.g. one
+     * applicant's enquiries)
+     * 
+     * @param query The query
+     * @param ids The primary keys of the entities to search
+     * @param limit The maximum number of entities to return
+     * @return A new list of at most limit matching entities, best match first
+     */
+    List<T> searchAmong(String query, Collection<String> ids, int limit) {
+        TopRows best = new TopRows(limit);
+        List<Clause> clauses = parse(query);
+        Set<Integer> seen = clauses.size() > 1 ? new HashSet<>() : null;
+        for (Clause clause : clauses) {
+            Matcher matcher = matcher(clause);
+            if (matcher == null) {
+                continue;
+            }
+            for (String id : ids) {
+                Integer row = rowsById.get(id);
+                if (row != null && (seen == null || !seen.contains(row))) {
+                    int[] terms = termsByRow.get(row);
+                    if (matcher.containsAll(terms) && matcher.accepts(terms)) {
+                        if (seen != null) {
+                            seen.add(row);
+                        }
+                        best.offer(matcher.score(terms), row);
+                    }
+                }
+            }
+        }
+        return best.entities();
+    }
+    
+    /**
+     * Splits text into the words it is indexed under
+     * 
+     * @param text The text
+     * @return The words, lowercased and with common suffixes stripped, in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(stem(text.substring(start, i).toLowerCase()));
+                start = -1;
+            }
+        }
+        return words;
+    }
+    
+    /**
+     * Strips the commonest English suffixes, so a word's inflections are
+     * indexed together; words left shorter than three letters are kept whole
+     */
+    private static String stem(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.length() > 5 && word.endsWith("ing")) {
+            return word.substring(0, word.length() - 3);
+        }
+        if (word.length() > 4 && word.endsWith("ed")) {
+            return word.endsWith("ied") ? word.substring(0, word.length() - 3) + "y" : word.substring(0, word.length() - 2);
+        }
+        if (word.length() > 4 && word.endsWith("ly")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us")) {
+            return word.endsWith("es") && (word.endsWith("ches") || word.endsWith("shes") || word.endsWith("xes"))
+                    ? word.substring(0, word.length() - 2)
+                    : word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+    
+    /**
+     * Converts an entity's text fields to term IDs, adding new terms to the dictionary
+     */
+    private int[] termsOf(List<String> fields) {
+        List<Integer> terms = new ArrayList<>();
+        for (String field : fields) {
+            if (!terms.isEmpty()) {
+                terms.add(FIELD_BREAK);
+            }
+            for (String word : tokenize(field)) {
+                Integer termId = termIds.get(word);
+                if (termId == null) {
+                    termId = termIds.size();
+                    termIds.put(word, termId);
+                    if (STOP_WORDS.contains(word)) {
+                        stopTerms.set(termId);
+                    }
+                    if (termId == documentFrequencies.length) {
+                        documentFrequencies = Arrays.copyOf(documentFrequencies, termId * 2);
+                    }
+                }
+                terms.add(termId);
+            }
+        }
+        int[] result = new int[terms.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = terms.get(i);
+        }
+        return result;
+    }
+    
+    /**
+     * Appends a new row to its scope's posting lists of its distinct terms
+     */
+    private void post(int row, int[] terms, String scope) {
+        int length = length(terms);
+        liveTermCount += length;
+        double average = averageLength();
+        Partition partition = partitions.computeIfAbsent(scope, key -> new Partition());
+        for (int termId : distinct(terms)) {
+            if (!stopTerms.get(termId)) {
+                int[] positions = positions(terms, termId);
+                partition.postingsFor(termId).append(row, positions, length, impact(positions.length, length, average), average);
+            }
+            documentFrequencies[termId]++;
+        }
+    }
+    
+    /**
+     * Marks a row dead; it stays in its posting lists until the next compaction
+     */
+    private void retire(int row) {
+        int[] terms = termsByRow.get(row);
+        for (int termId : distinct(terms)) {
+            documentFrequencies[termId]--;
+        }
+        liveTermCount -= length(terms);
+        entitiesByRow.set(row, null);
+        termsByRow.set(row, null);
+        scopesByRow.set(row, null);
+        deadRowSet.set(row);
+        deadRows++;
+    }
+    
+    /**
+     * Renumbers the live rows and rebuilds the posting lists without the
+     * dead ones, once they are the majority, so the work is paid for by
+     * the saves that made them
+     */
+    private void compactIfMostlyDead() {
+        if (deadRows < COMPACT_MIN_DEAD_ROWS || deadRows * 2 < entitiesByRow.size()) {
+            return;
+        }
+        List<T> entities = new ArrayList<>(entitiesByRow);
+        List<int[]> terms = new ArrayList<>(termsByRow);
+        List<String> entityScopes = new ArrayList<>(scopesByRow);
+        Map<Integer, String> idsByRow = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : rowsById.entrySet()) {
+            idsByRow.put(entry.getValue(), entry.getKey());
+        }
+        
+        Arrays.fill(documentFrequencies, 0);
+        partitions.clear();
+        rowsById.clear();
+        entitiesByRow.clear();
+        termsByRow.clear();
+        scopesByRow.clear();
+        deadRowSet.clear();
+        deadRows = 0;
+        liveTermCount = 0;
+        
+        for (int oldRow = 0; oldRow < entities.size(); oldRow++) {
+            if (entities.get(oldRow) != null) {
+                int row = entitiesByRow.size();
+                rowsById.put(idsByRow.get(oldRow), row);
+                entitiesByRow.add(entities.get(oldRow));
+                termsByRow.add(terms.get(oldRow));
+                scopesByRow.add(entityScopes.get(oldRow));
+                post(row, terms.get(oldRow), entityScopes.get(oldRow));
+            }
+        }
+    }
+    
+    /**
+     * Looks up the words of a clause, or returns null if no row can match it
+     */
+    private Matcher matcher(Clause clause) {
+        // Every posted word the clause requires, including those of its phrases; stop words only count in phrases
+        List<Integer> required = new ArrayList<>();
+        List<int[]> phrases = new ArrayList<>();
+        for (List<String> phrase : clause.phrases) {
+            if (phrase.size() == 1 && STOP_WORDS.contains(phrase.get(0))) {
+                continue;
+            }
+            int[] phraseTerms = new int[phrase.size()];
+            for (int i = 0; i < phraseTerms.length; i++) {
+                Integer termId = termIds.get(phrase.get(i));
+                if (termId == null) {
+                    return null;
+                }
+                phraseTerms[i] = termId;
+                if (!stopTerms.get(termId) && !required.contains(termId)) {
+                    required.add(termId);
+                }
+            }
+            if (phraseTerms.length > 1) {
+                phrases.add(phraseTerms);
+            }
+        }
+        if (required.isEmpty()) {
+            return null;
+        }
+        List<Integer> excluded = new ArrayList<>();
+        for (String word : clause.excluded) {
+            Integer termId = termIds.get(word);
+            if (termId != null) {
+                excluded.add(termId);
+            }
+        }
+        
+        // Each required word adds its IDF times its impact on a row to the row's score
+        int liveRows = entitiesByRow.size() - deadRows;
+        int[] queryTerms = new int[required.size()];
+        double[] weights = new double[queryTerms.length];
+        for (int i = 0; i < queryTerms.length; i++) {
+            queryTerms[i] = required.get(i);
+            int documents = documentFrequencies[queryTerms[i]];
+            weights[i] = Math.log(1 + (liveRows - documents + 0.5) / (documents + 0.5)) * (K1 + 1);
+        }
+        
+        // Phrases are checked against the positions in the posting lists, and only against the row
+        // itself for the stop words that have no posting lists
+        int[][] phraseSlots = new int[phrases.size()][];
+        boolean readsRows = false;
+        for (int p = 0; p < phraseSlots.length; p++) {
+            int[] phraseTerms = phrases.get(p);
+            phraseSlots[p] = new int[phraseTerms.length];
+            for (int i = 0; i < phraseTerms.length; i++) {
+                phraseSlots[p][i] = required.indexOf(phraseTerms[i]);
+                readsRows |= phraseSlots[p][i] < 0;
+            }
+        }
+        for (int termId : excluded) {
+            readsRows |= stopTerms.get(termId);
+        }
+        return new Matcher(queryTerms, weights, phrases, phraseSlots, excluded, readsRows, averageLength());
+    }
+    
+    /**
+     * Finds the rows of a scope matching a clause and offers them to the best matches
+     */
+    private void searchPartition(Matcher matcher, Partition partition, TopRows best, Set<Integer> seen) {
+        PostingList.Cursor[] cursorsByTerm = new PostingList.Cursor[matcher.queryTerms.length];
+        for (int i = 0; i < cursorsByTerm.length; i++) {
+            PostingList list = partition.postings(matcher.queryTerms[i]);
+            if (list == null) {
+                return;
+            }
+            cursorsByTerm[i] = list.cursor(matcher.weights[i]);
+        }
+        List<PostingList.Cursor> excludedCursors = new ArrayList<>();
+        for (int termId : matcher.excluded) {
+            PostingList list = partition.postings(termId);
+            if (list != null) {
+                excludedCursors.add(list.cursor(0));
+            }
+        }
+        
+        // Walk the rarest posting lists first
+        List<PostingList.Cursor> cursors = new ArrayList<>(Arrays.asList(cursorsByTerm));
+        cursors.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        
+        int candidate = 0;
+        int boundedUntil = -1; // Last row of the blocks last found able to beat the worst match
+        while (true) {
+            // Once the page is full, skip past the blocks whose rows could not beat its worst match
+            if (candidate > boundedUntil && best.isFull()) {
+                double bound = 0;
+                int blockEnd = Integer.MAX_VALUE;
+                for (PostingList.Cursor cursor : cursors) {
+                    // Before a list's first block, the rows up to it are left to the leapfrog to skip
+                    int block = cursor.blockAt(candidate);
+                    if (block >= 0 && cursor.blockEnd(block) < candidate) {
+                        return; // Past the end of the list
+                    }
+                    bound += block < 0 ? Double.POSITIVE_INFINITY : cursor.maxScore(block, matcher.average);
+                    blockEnd = Math.min(blockEnd, cursor.blockEnd(block));
+                }
+                if (!best.admits(bound)) {
+                    candidate = blockEnd + 1;
+                    continue;
+                }
+                boundedUntil = blockEnd;
+            }
+            
+            // Leapfrog: move every cursor up to the candidate until they all agree
+            boolean agreed = true;
+            for (PostingList.Cursor cursor : cursors) {
+                if (!cursor.advanceTo(candidate)) {
+                    return;
+                }
+                if (cursor.row() != candidate) {
+                    candidate = cursor.row();
+                    agreed = false;
+                    break;
+                }
+            }
+            if (!agreed) {
+                continue;
+            }
+            
+            if (!deadRowSet.get(candidate) && (seen == null || !seen.contains(candidate))) {
+                double score = 0;
+                for (PostingList.Cursor cursor : cursors) {
+                    score += cursor.weight * impact(cursor.frequency(), cursor.length(), matcher.average);
+                }
+                // Unless a later clause could still take the row, only check it if it would be kept
+                boolean wanted = seen != null || !best.isFull() || best.admits(score);
+                if (wanted && accepts(matcher, cursorsByTerm, excludedCursors, candidate)) {
+                    if (seen != null) {
+                        seen.add(candidate);
+                    }
+                    best.offer(score, candidate);
+                }
+            }
+            candidate++;
+        }
+    }
+    
+    /**
+     * Checks a row found in every required posting list for the clause's
+     * excluded words and phrases, reading the row only if the clause has
+     * stop words to check
+     */
+    private boolean accepts(Matcher matcher, PostingList.Cursor[] cursorsByTerm,
+                            List<PostingList.Cursor> excludedCursors, int row) {
+        for (PostingList.Cursor cursor : excludedCursors) {
+            if (cursor.advanceTo(row) && cursor.row() == row) {
+                return false;
+            }
+        }
+        for (int[] slots : matcher.phraseSlots) {
+            if (!Matcher.occurs(slots, cursorsByTerm)) {
+                return false;
+            }
+        }
+        return !matcher.readsRows || matcher.accepts(termsByRow.get(row));
+    }
+    
+    /**
+     * Gets the part of a term's BM25 score that depends on the row, which
+     * only grows as the average row length does
+     */
+    private static double impact(int frequency, int length, double average) {
+        return frequency / (frequency + K1 * (1 - B + B * length / average));
+    }
+    
+    private double averageLength() {
+        int liveRows = entitiesByRow.size() - deadRows;
+        return liveRows == 0 ? 1 : Math.max(1.0, (double) liveTermCount / liveRows);
+    }
+    
+    private static int frequency(int[] terms, int termId) {
+        int frequency = 0;
+        for (int term : terms) {
+            if (term == termId) {
+                frequency++;
+            }
+        }
+        return frequency;
+    }
+    
+    private static int[] positions(int[] terms, int termId) {
+        int[] positions = new int[frequency(terms, termId)];
+        int found = 0;
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i] == termId) {
+                positions[found++] = i;
+            }
+        }
+        return positions;
+    }
+    
+    private static int indexOf(int[] terms, int termId, int from) {
+        for (int i = from; i < terms.length; i++) {
+            if (terms[i] == termId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int[] distinct(int[] terms) {
+        return Arrays.stream(terms).filter(term -> term != FIELD_BREAK).distinct().toArray();
+    }
+    
+    private static int length(int[] terms) {
+        int length = 0;
+        for (int term : terms) {
+            if (term != FIELD_BREAK) {
+                length++;
+            }
+        }
+        return length;
+    }
+    
+    /**
+     * Splits a query into its OR-separated clauses
+     */
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        Clause clause = new Clause();
+        int i = 0;
+        while (query != null && i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                end = end < 0 ? query.length() : end;
+                List<String> words = tokenize(query.substring(i + 1, end));
+                if (!words.isEmpty()) {
+                    clause.phrases.add(words);
+                }
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                String token = query.substring(i, end);
+                if (token.equals("OR")) {
+                    clauses.add(clause);
+                    clause = new Clause();
+                } else if (token.startsWith("-")) {
+                    clause.excluded.addAll(tokenize(token.substring(1)));
+                } else {
+                    for (String word : tokenize(token)) {
+                        clause.phrases.add(List.of(word));
+                    }
+                }
+                i = end;
+            }
+        }
+        clauses.add(clause);
+        return clauses;
+    }
+    
+    /**
+     * One OR-separated part of a query: single words are phrases of one word
+     */
+    private static final class Clause {
+        private final List<List<String>> phrases = new ArrayList<>();
+        private final List<String> excluded = new ArrayList<>();
+    }
+    
+    /**
+     * A clause with its words looked up, for checking and scoring rows
+     */
+    private static final class Matcher {
+        private final int[] queryTerms; // The posted words a row must contain, which are the ones scored
+        private final double[] weights;
+        private final List<int[]> phrases;
+        private final int[][] phraseSlots; // For each word of each phrase, its index in queryTerms, or -1 for a stop word
+        private final List<Integer> excluded;
+        private final boolean readsRows; // Whether stop words in phrases or excluded words must be checked in the row
+        private final double average; // Average row length when the search began
+        
+        private Matcher(int[] queryTerms, double[] weights, List<int[]> phrases, int[][] phraseSlots,
+                        List<Integer> excluded, boolean readsRows, double average) {
+            this.queryTerms = queryTerms;
+            this.weights = weights;
+            this.phrases = phrases;
+            this.phraseSlots = phraseSlots;
+            this.excluded = excluded;
+            this.readsRows = readsRows;
+            this.average = average;
+        }
+        
+        /**
+         * Checks whether the posted words of a phrase appear in order at the
+         * cursors' current row, allowing for its stop words between them
+         */
+        private static boolean occurs(int[] slots, PostingList.Cursor[] cursorsByTerm) {
+            int first = 0;
+            while (first < slots.length && slots[first] < 0) {
+                first++;
+            }
+            if (first == slots.length) {
+                return true; // Only stop words, left to the row
+            }
+            PostingList.Cursor lead = cursorsByTerm[slots[first]];
+            for (int k = 0; k < lead.frequency(); k++) {
+                int start = lead.occurrence(k) - first;
+                boolean found = true;
+                for (int i = first + 1; i < slots.length && found; i++) {
+                    found = slots[i] < 0 || cursorsByTerm[slots[i]].occursAt(start + i);
+                }
+                if (found) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private boolean containsAll(int[] terms) {
+            for (int termId : queryTerms) {
+                if (indexOf(terms, termId, 0) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Checks a row containing every query word for the clause's excluded words and phrases
+         */
+        private boolean accepts(int[] terms) {
+            for (int termId : excluded) {
+                if (indexOf(terms, termId, 0) >= 0) {
+                    return false;
+                }
+            }
+            for (int[] phrase : phrases) {
+                boolean found = false;
+                for (int start = indexOf(terms, phrase[0], 0); start >= 0 && !found; start = indexOf(terms, phrase[0], start + 1)) {
+                    found = start + phrase.length <= terms.length
+                            && Arrays.equals(terms, start, start + phrase.length, phrase, 0, phrase.length);
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Scores a row by BM25 over the query words
+         */
+        private double score(int[] terms) {
+            int length = length(terms);
+            double score = 0;
+            for (int i = 0; i < queryTerms.length; i++) {
+                score += weights[i] * impact(frequency(terms, queryTerms[i]), length, average);
+            }
+            return score;
+        }
+    }
+    
+    /**
+     * The best rows found so far, up to a limit
+     */
+    private final class TopRows {
+        private final int limit;
+        // Worst at the head; ties go to the more recently filed row
+        private final PriorityQueue<long[]> rows = new PriorityQueue<>(
+                (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        
+        private TopRows(int limit) {
+            this.limit = limit;
+        }
+        
+        private boolean isFull() {
+            return limit > 0 && rows.size() == limit;
+        }
+        
+        /**
+         * Checks whether a row scoring up to a bound could still be kept,
+         * allowing for rounding, as a row scoring the same as the worst
+         * kept would still replace it
+         */
+        private boolean admits(double bound) {
+            return bound * 1_000_000 + 1 >= rows.peek()[0];
+        }
+        
+        private void offer(double score, int row) {
+            long rounded = Math.round(score * 1_000_000);
+            if (rows.size() < limit) {
+                rows.add(new long[] {rounded, row});
+            } else if (limit > 0 && (rounded > rows.peek()[0] || rounded == rows.peek()[0] && row > rows.peek()[1])) {
+                rows.poll();
+                rows.add(new long[] {rounded, row});
+            }
+        }
+        
+        private List<T> entities() {
+            List<T> result = new ArrayList<>(rows.size());
+            while (!rows.isEmpty()) {
+                result.add(entitiesByRow.get((int) rows.poll()[1]));
+            }
+            Collections.reverse(result);
+            return result;
+        }
+    }
+    
+    /**
+     * One scope's posting lists, by term ID
+     */
+    private static final class Partition {
+        private PostingList[] postings = new PostingList[16];
+        
+        PostingList postings(int termId) {
+            return termId < postings.length ? postings[termId] : null;
+        }
+        
+        PostingList postingsFor(int termId) {
+            if (termId >= postings.length) {
+                postings = Arrays.copyOf(postings, Math.max(termId + 1, postings.length * 2));
+            }
+            if (postings[termId] == null) {
+                postings[termId] = new PostingList();
+            }
+            return postings[termId];
+        }
+    }
+    
+    /**
+     * Ascending row numbers, each with the number of times the word appears
+     * in the row, the row's length and the word's positions in it, so rows
+     * can be scored and their phrases checked without being read, all
+     * delta-encoded as variable-length integers. The first row and byte
+     * offset of every block are kept aside for skipping, along with the
+     * highest impact of the block's rows.
+     */
+    private static final class PostingList {
+        private byte[] data = new byte[8];
+        private int length;
+        private int size;
+        private int lastRow;
+        private int[] blockFirstRows = new int[1];
+        private int[] blockOffsets = new int[1]; // Offset just past each block's first row
+        private float[] blockMaxImpacts = new float[1];
+        private float[] blockMinAverages = new float[1]; // Lowest average row length the block's impacts were taken at
+        
+        void append(int row, int[] positions, int rowLength, double impact, double average) {
+            int delta = row - lastRow;
+            int block = size / BLOCK_SIZE;
+            // Rounded outwards, so the block's maximum stays an upper bound
+            float maxImpact = Math.nextUp((float) impact);
+            float minAverage = Math.nextDown((float) average);
+            if (size % BLOCK_SIZE == 0) {
+                if (block == blockFirstRows.length) {
+                    blockFirstRows = Arrays.copyOf(blockFirstRows, block * 2);
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                    blockMaxImpacts = Arrays.copyOf(blockMaxImpacts, block * 2);
+                    blockMinAverages = Arrays.copyOf(blockMinAverages, block * 2);
+                }
+                blockFirstRows[block] = row;
+                blockMaxImpacts[block] = maxImpact;
+                blockMinAverages[block] = minAverage;
+            } else {
+                blockMaxImpacts[block] = Math.max(blockMaxImpacts[block], maxImpact);
+                blockMinAverages[block] = Math.min(blockMinAverages[block], minAverage);
+            }
+            int needed = length + 5 * (3 + positions.length);
+            if (needed > data.length) {
+                data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+            }
+            write(delta);
+            if (size % BLOCK_SIZE == 0) {
+                blockOffsets[block] = length;
+            }
+            write(positions.length);
+            write(rowLength);
+            for (int i = 0; i < positions.length; i++) {
+                write(i == 0 ? positions[0] : positions[i] - positions[i - 1]);
+            }
+            lastRow = row;
+            size++;
+        }
+        
+        private void write(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+        
+        Cursor cursor(double weight) {
+            return new Cursor(weight);
+        }
+        
+        private int blockCount() {
+            return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
+        
+        /**
+         * A position in the list, moved forward only, which decodes a whole
+         * block at a time
+         */
+        final class Cursor {
+            private final double weight; // What the list's word adds to a score per unit of impact
+            private final int[] rows = new int[BLOCK_SIZE];
+            private final int[] frequencies = new int[BLOCK_SIZE];
+            private final int[] lengths = new int[BLOCK_SIZE];
+            private final int[] occurrenceStarts = new int[BLOCK_SIZE]; // Where each entry's positions start in occurrences
+            private int[] occurrences = new int[BLOCK_SIZE * 2];
+            private int block = -1; // The block decoded into rows and frequencies
+            private int count; // Entries in the decoded block
+            private int position; // Entry of the current row in the decoded block
+            private int offset; // Where decoding has reached in the list's bytes
+            private int shallowBlock = -1; // The block last looked up without decoding
+            
+            private Cursor(double weight) {
+                this.weight = weight;
+            }
+            
+            int size() {
+                return size;
+            }
+            
+            int row() {
+                return rows[position];
+            }
+            
+            int frequency() {
+                return frequencies[position];
+            }
+            
+            int length() {
+                return lengths[position];
+            }
+            
+            /**
+             * Gets the position in its row of one of the word's occurrences
+             */
+            int occurrence(int k) {
+                return occurrences[occurrenceStarts[position] + k];
+            }
+            
+            boolean occursAt(int wordPosition) {
+                int start = occurrenceStarts[position];
+                for (int k = start; k < start + frequencies[position]; k++) {
+                    if (occurrences[k] == wordPosition) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            
+            /**
+             * Finds the block whose rows would include a target, without decoding it
+             * 
+             * @return The last block starting at or before the target, or -1 if the list starts after it
+             */
+            int blockAt(int target) {
+                shallowBlock = findBlock(Math.max(shallowBlock, block), target);
+                return shallowBlock;
+            }
+            
+            /**
+             * Gets the last row a block could include, just before the next
+             * block starts; block -1 ends just before the list starts
+             */
+            int blockEnd(int block) {
+                return block + 1 < blockCount() ? blockFirstRows[block + 1] - 1 : lastRow;
+            }
+            
+            /**
+             * Gets the most any row of a block can add to a score, given the
+             * current average row length
+             */
+            double maxScore(int block, double average) {
+                return weight * blockMaxImpacts[block] * Math.max(1.0, average / blockMinAverages[block]);
+            }
+            
+            /**
+             * Moves to the first row at or after a target
+             * 
+             * @return false if the list has no such row
+             */
+            boolean advanceTo(int target) {
+                if (block < 0 || target > rows[count - 1]) {
+                    // Decode the block holding the target, or the next one if the target falls between them
+                    int next = Math.max(findBlock(block, target), block + 1);
+                    if (next >= blockCount()) {
+                        return false;
+                    }
+                    decode(next);
+                    if (target > rows[count - 1]) {
+                        return advanceTo(target);
+                    }
+                }
+                while (rows[position] < target) {
+                    position++;
+                }
+                return true;
+            }
+            
+            private void decode(int next) {
+                offset = blockOffsets[next];
+                count = Math.min(BLOCK_SIZE, size - next * BLOCK_SIZE);
+                int used = 0;
+                for (int i = 0; i < count; i++) {
+                    rows[i] = i == 0 ? blockFirstRows[next] : rows[i - 1] + read();
+                    frequencies[i] = read();
+                    lengths[i] = read();
+                    occurrenceStarts[i] = used;
+                    if (used + frequencies[i] > occurrences.length) {
+                        occurrences = Arrays.copyOf(occurrences, Math.max(used + frequencies[i], occurrences.length * 2));
+                    }
+                    int wordPosition = 0;
+                    for (int k = 0; k < frequencies[i]; k++) {
+                        wordPosition += read();
+                        occurrences[used++] = wordPosition;
+                    }
+                }
+                block = next;
+                position = 0;
+            }
+            
+            private int read() {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                return value;
+            }
+            
+            /**
+             * Gallops forward from a block to the last block starting at or
+             * before a target, as targets tend to be close to the last one
+             */
+            private int findBlock(int from, int target) {
+                int blocks = blockCount();
+                int low = from;
+                int high = from + 1;
+                int step = 1;
+                while (high < blocks && blockFirstRows[high] <= target) {
+                    low = high;
+                    high += step;
+                    step <<= 1;
+                }
+                high = Math.min(high, blocks) - 1;
+                while (low < high) {
+                    int middle = (low + high + 1) >>> 1;
+                    if (blockFirstRows[middle] <= target) {
+                        low = middle;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                return low;
+            }
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,585 @@
+package repository;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of repository mutations.
+ * Each record is written as: operation (1 byte), payload length (4 bytes),
+ * CRC32 of the payload (8 bytes) and the payload itself, so a record torn
+ * by a crash can be detected and discarded on replay.
+ * 
+ * The log is split into numbered segment files next to the snapshot
+ * (e.g. applications.ser.log.3). Rolling seals the active segment so that
+ * everything before it can be folded into a snapshot and deleted while new
+ * records keep going to a fresh segment.
+ * 
+ * How soon an appended record reaches the disk depends on the
+ * {@link Repository.Durability} level of the log.
+ */
+class WriteAheadLog {
+    
+    /**
+     * Record operation for an inserted or updated entity
+     */
+    static final byte PUT = 1;
+    
+    /**
+     * Record operation for a deleted entity
+     */
+    static final byte DELETE = 2;
+    
+    /**
+     * Record operation for a batch of PUT and DELETE records that is
+     * replayed whole or not at all, since one checksum covers the batch
+     */
+    static final byte BATCH = 3;
+    
+    /**
+     * Default time window in milliseconds over which GROUP writes are coalesced
+     */
+    static final long DEFAULT_GROUP_WINDOW_MILLIS = 5;
+    
+    private static final int HEADER_SIZE = 1 + 4 + 8;
+    
+    private final File directory;
+    private final String segmentPrefix;
+    
+    // Guarded by io: the active segment, its stream and the GROUP commit bookkeeping
+    private final Object io = new Object();
+    private long segment;        // Sequence number of the active segment, -1 until known
+    private FileOutputStream file;
+    private DataOutputStream out;
+    private long recordCount;    // Records in the log since the last roll
+    private long byteCount;      // Bytes in the log since the last roll
+    private long appendedRecords;
+    private long durableRecords;
+    private boolean groupFlushInProgress;
+    
+    // Guarded by pending: records queued for the ASYNC writer thread
+    private final Deque<PendingRecord> pending = new ArrayDeque<>();
+    private Thread asyncWriter;
+    
+    private volatile Repository.Durability durability = Repository.Durability.SYNC;
+    private volatile long groupWindowMillis = DEFAULT_GROUP_WINDOW_MILLIS;
+    
+    /**
+     * Callback invoked for every intact record found during replay
+     */
+    interface RecordHandler {
+        void onRecord(byte operation, byte[] payload) throws IOException;
+    }
+    
+    /**
+     * A record waiting for the ASYNC writer thread
+     */
+    private static class PendingRecord {
+        private final byte operation;
+        private final byte[] payload;
+        
+        PendingRecord(byte operation, byte[] payload) {
+            this.operation = operation;
+            this.payload = payload;
+        }
+    }
+    
+    /**
+     * Constructor for WriteAheadLog
+     * 
+     * @param baseFile The file whose name prefixes every segment file
+     */
+    WriteAheadLog(File baseFile) {
+        this.directory = baseFile.getAbsoluteFile().getParentFile();
+        this.segmentPrefix = baseFile.getName() + ".";
+        this.segment = -1;
+    }
+    
+    /**
+     * Sets the durability level, first forcing any buffered or queued records to disk
+     * 
+     * @param durability The new durability level
+     * @throws IOException If buffered records could not be written
+     */
+    void setDurability(Repository.Durability durability) throws IOException {
+        flush();
+        this.durability = durability;
+    }
+    
+    /**
+     * Gets the durability level
+     * 
+     * @return The durability level
+     */
+    Repository.Durability getDurability() {
+        return durability;
+    }
+    
+    /**
+     * Sets the time window over which GROUP writes are coalesced
+     * 
+     * @param groupWindowMillis The window in milliseconds
+     */
+    void setGroupWindowMillis(long groupWindowMillis) {
+        this.groupWindowMillis = groupWindowMillis;
+    }
+    
+    /**
+     * Appends a single record to the log.
+     * With SYNC durability the record is on disk when this returns; with GROUP
+     * durability the caller must pass the returned ticket to awaitDurable;
+     * with ASYNC durability the record is queued for the background writer.
+     * 
+     * @param operation The record operation (PUT or DELETE)
+     * @param payload The encoded record payload
+     * @return A ticket identifying the record for awaitDurable
+     * @throws IOException If the record could not be written
+     */
+    long append(byte operation, byte[] payload) throws IOException {
+        if (durability == Repository.Durability.ASYNC) {
+            synchronized (pending) {
+                pending.add(new PendingRecord(operation, payload));
+                pending.notifyAll();
+            }
+            startAsyncWriter();
+            return 0;
+        }
+        
+        synchronized (io) {
+            writeRecord(operation, payload);
+            if (durability == Repository.Durability.SYNC) {
+                forceToDisk();
+            }
+            return appendedRecords;
+        }
+    }
+    
+    /**
+     * Appends several records to the log as one BATCH record, so they reach
+     * the disk together and a crash can never leave only some of them.
+     * Durability is as for {@link #append}.
+     * 
+     * @param operations The operation of each record (PUT or DELETE)
+     * @param payloads The encoded payload of each record
+     * @return A ticket identifying the batch for awaitDurable
+     * @throws IOException If the batch could not be written
+     */
+    long appendBatch(byte[] operations, List<byte[]> payloads) throws IOException {
+        int size = 4;
+        for (byte[] payload : payloads) {
+            size += 1 + 4 + payload.length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        DataOutputStream batch = new DataOutputStream(bytes);
+        batch.writeInt(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            batch.writeByte(operations[i]);
+            batch.writeInt(payloads.get(i).length);
+            batch.write(payloads.get(i));
+        }
+        return append(BATCH, bytes.toByteArray());
+    }
+    
+    /**
+     * Waits until the record identified by the ticket is on disk.
+     * Under GROUP durability the first waiter of a window sleeps for the
+     * window and then forces every record appended so far in one write;
+     * the other waiters simply wait for that force.
+     * 
+     * An interrupt cuts the leader's window short but never skips the force,
+     * nor lets a waiter return before its record is on disk; the interrupt
+     * is restored once the record is durable. The force itself runs with
+     * the flag clear, since an interrupted force would close the channel.
+     * 
+     * @param ticket The ticket returned by append
+     * @throws IOException If the records could not be forced to disk
+     */
+    void awaitDurable(long ticket) throws IOException {
+        if (durability != Repository.Durability.GROUP) {
+            return;
+        }
+        
+        boolean interrupted = false;
+        try {
+            synchronized (io) {
+                while (durableRecords < ticket) {
+                    if (!groupFlushInProgress) {
+                        groupFlushInProgress = true;
+                        break;
+                    }
+                    try {
+                        io.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (durableRecords >= ticket) {
+                    return;
+                }
+            }
+            
+            // This thread leads the group: let other writers join before forcing
+            try {
+                Thread.sleep(groupWindowMillis);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        
+            synchronized (io) {
+                try {
+                    forceToDisk();
+                } finally {
+                    groupFlushInProgress = false;
+                    io.notifyAll();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Forces every buffered and queued record to disk
+     * 
+     * @throws IOException If the records could not be written
+     */
+    void flush() throws IOException {
+        synchronized (io) {
+            drainPending();
+            forceToDisk();
+        }
+    }
+    
+    /**
+     * Replays every intact record in the segments numbered fromSegment or
+     * above, oldest first. A torn or corrupt record ends its segment, which is
+     * truncated there so later appends start from a clean boundary.
+     * Afterwards new records are appended to the newest replayed segment.
+     * 
+     * @param fromSegment The first segment not covered by the snapshot
+     * @param handler The handler receiving each record
+     * @throws IOException If the log could not be read
+     */
+    void replay(long fromSegment, RecordHandler handler) throws IOException {
+        synchronized (io) {
+            close();
+            recordCount = 0;
+            byteCount = 0;
+            segment = fromSegment;
+            
+            for (long sequence : listSegments()) {
+                if (sequence < fromSegment) {
+                    continue;
+                }
+                replaySegment(segmentFile(sequence), handler);
+                segment = sequence;
+            }
+        }
+    }
+    
+    /**
+     * Replays a single segment file
+     * 
+     * @param file The segment file
+     * @param handler The handler receiving each record
+     * @throws IOException If the segment could not be read
+     */
+    private void replaySegment(File file, RecordHandler handler) throws IOException {
+        long validLength = 0;
+        long fileLength = file.length();
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (validLength + HEADER_SIZE <= fileLength) {
+                byte operation = in.readByte();
+                int length = in.readInt();
+                long checksum = in.readLong();
+                
+                if (length < 0 || validLength + HEADER_SIZE + length > fileLength) {
+                    break;
+                }
+                
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                
+                if (operation == BATCH) {
+                    replayBatch(payload, handler);
+                } else {
+                    handler.onRecord(operation, payload);
+                }
+                validLength += HEADER_SIZE + length;
+                recordCount++;
+            }
+        }
+        byteCount += validLength;
+        
+        if (validLength < fileLength) {
+            System.err.println("Discarding " + (fileLength - validLength) + " trailing bytes of " + file.getPath());
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+    
+    /**
+     * Passes each record of an intact BATCH record to the handler
+     * 
+     * @param payload The batch payload
+     * @param handler The handler receiving each record
+     * @throws IOException If the batch could not be read
+     */
+    private static void replayBatch(byte[] payload, RecordHandler handler) throws IOException {
+        DataInputStream batch = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = batch.readInt();
+        for (int i = 0; i < count; i++) {
+            byte operation = batch.readByte();
+            byte[] record = new byte[batch.readInt()];
+            batch.readFully(record);
+            handler.onRecord(operation, record);
+        }
+    }
+    
+    /**
+     * Seals the active segment and starts a new one
+     * 
+     * @return The sequence number of the new segment; every record appended
+     *         before this call lives in a lower-numbered segment
+     * @throws IOException If the active segment could not be closed
+     */
+    long roll() throws IOException {
+        synchronized (io) {
+            close();
+            segment = currentSegment() + 1;
+            recordCount = 0;
+            byteCount = 0;
+            return segment;
+        }
+    }
+    
+    /**
+     * Deletes every segment numbered below the given sequence, once a
+     * snapshot has captured their effects
+     * 
+     * @param sequence The first segment to keep
+     */
+    void deleteSegmentsBefore(long sequence) {
+        synchronized (io) {
+            for (long existing : listSegments()) {
+                if (existing < sequence && existing != segment) {
+                    File file = segmentFile(existing);
+                    if (!file.delete()) {
+                        System.err.println("Unable to delete log segment " + file.getPath());
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of records logged since the last roll
+     * 
+     * @return The record count
+     */
+    long getRecordCount() {
+        synchronized (io) {
+            return recordCount;
+        }
+    }
+    
+    /**
+     * Gets the number of bytes logged since the last roll
+     * 
+     * @return The byte count
+     */
+    long getByteCount() {
+        synchronized (io) {
+            return byteCount;
+        }
+    }
+    
+    /**
+     * Writes every queued record, forces the active segment to disk and closes it
+     * 
+     * @throws IOException If the segment could not be closed
+     */
+    void close() throws IOException {
+        synchronized (io) {
+            drainPending();
+            forceToDisk();
+            if (out != null) {
+                out.close();
+                out = null;
+                file = null;
+            }
+        }
+    }
+    
+    /**
+     * Writes a record to the active segment's buffer. Caller must hold io.
+     * 
+     * @param operation The record operation
+     * @param payload The record payload
+     * @throws IOException If the record could not be written
+     */
+    private void writeRecord(byte operation, byte[] payload) throws IOException {
+        if (out == null) {
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            file = new FileOutputStream(segmentFile(currentSegment()), true);
+            out = new DataOutputStream(new BufferedOutputStream(file));
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeByte(operation);
+        out.writeInt(payload.length);
+        out.writeLong(crc.getValue());
+        out.write(payload);
+        
+        appendedRecords++;
+        recordCount++;
+        byteCount += HEADER_SIZE + payload.length;
+    }
+    
+    /**
+     * Flushes the active segment's buffer and forces it to disk. Caller must hold io.
+     * 
+     * @throws IOException If the segment could not be forced
+     */
+    private void forceToDisk() throws IOException {
+        if (out != null && durableRecords < appendedRecords) {
+            out.flush();
+            file.getChannel().force(false);
+        }
+        durableRecords = appendedRecords;
+    }
+    
+    /**
+     * Writes every record queued for the ASYNC writer. Caller must hold io,
+     * which keeps queued records in order with rolls and other drains.
+     * 
+     * @throws IOException If a record could not be written
+     */
+    private void drainPending() throws IOException {
+        List<PendingRecord> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        
+        for (PendingRecord record : batch) {
+            writeRecord(record.operation, record.payload);
+        }
+    }
+    
+    /**
+     * Starts the ASYNC writer thread, and the shutdown hook that flushes
+     * whatever it has not written yet, the first time they are needed
+     */
+    private void startAsyncWriter() {
+        synchronized (pending) {
+            if (asyncWriter != null) {
+                return;
+            }
+            asyncWriter = new Thread(this::runAsyncWriter, "log-writer-" + segmentPrefix);
+            asyncWriter.setDaemon(true);
+            asyncWriter.start();
+        }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                System.err.println("Error flushing log " + segmentPrefix + " on shutdown: " + e.getMessage());
+            }
+        }, "log-flush-" + segmentPrefix));
+    }
+    
+    /**
+     * Body of the ASYNC writer thread: waits for queued records and writes
+     * them in batches, forcing each batch to disk once
+     */
+    private void runAsyncWriter() {
+        while (true) {
+            synchronized (pending) {
+                while (pending.isEmpty()) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            
+            try {
+                flush();
+            } catch (IOException e) {
+                System.err.println("Error writing log " + segmentPrefix + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Gets the active segment, discovering it from the files on disk the
+     * first time it is needed
+     * 
+     * @return The active segment sequence number
+     */
+    private long currentSegment() {
+        if (segment < 0) {
+            List<Long> existing = listSegments();
+            segment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+        }
+        return segment;
+    }
+    
+    /**
+     * Lists the sequence numbers of the segment files on disk
+     * 
+     * @return The sorted sequence numbers
+     */
+    private List<Long> listSegments() {
+        List<Long> sequences = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return sequences;
+        }
+        
+        for (String name : names) {
+            if (name.startsWith(segmentPrefix)) {
+                try {
+                    sequences.add(Long.parseLong(name.substring(segmentPrefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment file
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+    
+    /**
+     * Gets the file of a segment
+     * 
+     * @param sequence The segment sequence number
+     * @return The segment file
+     */
+    private File segmentFile(long sequence) {
+        return new File(directory, segmentPrefix + sequence);
+    }
+} 
\ No newline at end of file
@@ -49,6 +49,22 @@ public class ApplicantEnquiryService {
         return applicantEnquiries;
     }
     
+    /**
+     * Searches the questions and replies of an applicant's own enquiries
+     * 
+     * @param applicant The applicant
+     * @param projectName The project whose enquiries to search, or null to search every project
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    public List<Enquiry> searchEnquiries(Applicant applicant, String projectName, String query) {
+        if (applicant == null || query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        return enquiryRepository.searchByApplicant(query, applicant.getNRIC(), projectName);
+    }
+    
     /**
      * Gets an enquiry by its ID, if it belongs to the specified applicant
      * 
@@ -241,6 +257,10 @@ public class ApplicantEnquiryService {
      * @return The number of pending enquiries submitted by the applicant for the specified project
      */
     public int getPendingEnquiryCountByApplicantAndProject(Applicant applicant, String projectName) {
-        return getPendingEnquiriesByApplicantAndProject(applicant, projectName).size();
+        if (applicant == null || projectName == null) {
+            return 0;
+        }
+        
+        return enquiryRepository.countPendingByApplicantAndProject(applicant.getNRIC(), projectName);
     }
 } 
\ No newline at end of file
@@ -1,14 +1,16 @@
 package service;
 
+import exception.HDBException;
 import model.Applicant;
 import model.Application;
 import model.Flat;
 import model.Project;
-import model.User;
 import repository.ApplicationRepository;
+import repository.BookingRequestRepository.BookingRequest;
 import repository.ProjectRepository;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -18,6 +20,10 @@ public class ApplicantProjectService {
     
     private final ProjectRepository projectRepository;
     private final ApplicationRepository applicationRepository;
+    private final ProjectExecutor projectExecutor;
+    private final UnitHoldService unitHoldService;
+    private final BookingDedupeService bookingDedupeService;
+    private final ApplicationValidator applicationValidator;
     
     /**
      * Constructor for ApplicantProjectService
@@ -26,8 +32,27 @@ public class ApplicantProjectService {
      * @param applicationRepository The application repository
      */
     public ApplicantProjectService(ProjectRepository projectRepository, ApplicationRepository applicationRepository) {
+        this(projectRepository, applicationRepository, null, null, null);
+    }
+    
+    /**
+     * Constructor for ApplicantProjectService
+     * 
+     * @param projectRepository The project repository
+     * @param applicationRepository The application repository
+     * @param projectExecutor Executor that runs each project's bookings one at a time, or null to run them directly
+     * @param unitHoldService Service holding units for pending bookings, or null if units are only taken on completion
+     * @param bookingDedupeService Service returning the first outcome for repeated request IDs, or null to run every request
+     */
+    public ApplicantProjectService(ProjectRepository projectRepository, ApplicationRepository applicationRepository,
+            ProjectExecutor projectExecutor, UnitHoldService unitHoldService,
+            BookingDedupeService bookingDedupeService) {
         this.projectRepository = projectRepository;
         this.applicationRepository = applicationRepository;
+        this.projectExecutor = projectExecutor;
+        this.unitHoldService = unitHoldService;
+        this.bookingDedupeService = bookingDedupeService;
+        this.applicationValidator = new ApplicationValidator(applicationRepository);
     }
     
     /**
@@ -78,13 +103,7 @@ public class ApplicantProjectService {
         }
         
         // Check marital status eligibility
-        if (applicant.getMaritalStatus() == User.MaritalStatus.SINGLE) {
-            return project.isEligibleForSingles();
-        } else if (applicant.getMaritalStatus() == User.MaritalStatus.MARRIED) {
-            return project.isEligibleForMarried();
-        }
-        
-        return false;
+        return ApplicationValidator.isOfferedTo(project, applicant);
     }
     
     /**
@@ -106,24 +125,39 @@ public class ApplicantProjectService {
      * @return true if successful, false otherwise
      */
     public boolean createApplication(Applicant applicant, String projectName, Flat.FlatType flatType) {
-        // Get the project
-        Project project = projectRepository.findById(projectName);
-        if (project == null) {
+        try {
+            submitApplication(applicant, projectName, flatType);
+            return true;
+        } catch (HDBException e) {
             return false;
         }
-        
-        // Check if there are available units of this flat type
-        if (!hasAvailableUnits(project, flatType)) {
-            return false;
+    }
+    
+    /**
+     * Create a new application if the applicant may apply, as checked by
+     * {@link ApplicationValidator#validateApplication}
+     * 
+     * @param applicant The applicant
+     * @param projectName The name of the project
+     * @param flatType The flat type
+     * @return The new application
+     * @throws HDBException If the applicant may not apply
+     */
+    public Application submitApplication(Applicant applicant, String projectName, Flat.FlatType flatType)
+            throws HDBException {
+        // Two applications by one applicant, even to different projects, must not both pass the checks
+        synchronized (applicant) {
+            Project project = projectRepository.findById(projectName);
+            applicationValidator.validateApplication(applicant, project, flatType);
+            
+            // Create a new application
+            Application application = new Application(applicant, project, flatType);
+            project.addApplication(application);
+            // Save the application
+            applicationRepository.save(application);
+            
+            return application;
         }
-        
-        // Create a new application
-        Application application = new Application(applicant, project, flatType);
-        project.addApplication(application);
-        // Save the application
-        applicationRepository.save(application);
-        
-        return true;
     }
     
     /**
@@ -133,11 +167,26 @@ public class ApplicantProjectService {
      * @return true if successful, false otherwise
      */
     public boolean requestWithdrawal(Applicant applicant) {
-        // Get the application
-        Application application = getApplicantApplication(applicant);
-        if (application == null) {
+        try {
+            submitWithdrawal(applicant);
+            return true;
+        } catch (HDBException e) {
             return false;
         }
+    }
+    
+    /**
+     * Request withdrawal of an application if it may be withdrawn, as
+     * checked by {@link ApplicationValidator#validateWithdrawal}
+     * 
+     * @param applicant The applicant
+     * @return The application whose withdrawal was requested
+     * @throws HDBException If the applicant has no application or it may not be withdrawn
+     */
+    public Application submitWithdrawal(Applicant applicant) throws HDBException {
+        // Get the application
+        Application application = getApplicantApplication(applicant);
+        applicationValidator.validateWithdrawal(application);
         
         // Request withdrawal
         application.requestWithdrawal();
@@ -145,7 +194,7 @@ public class ApplicantProjectService {
         // Save the updated application
         applicationRepository.save(application);
         
-        return true;
+        return application;
     }
     
     /**
@@ -180,8 +229,7 @@ public class ApplicantProjectService {
      * @return true if an application exists, false otherwise
      */
     public boolean hasExistingApplication(Applicant applicant) {
-        return applicationRepository.findAll().stream()
-            .anyMatch(app -> app.getApplicant().getNRIC().equals(applicant.getNRIC()));
+        return !applicationRepository.findByApplicant(applicant).isEmpty();
     }
     
     /**
@@ -191,8 +239,7 @@ public class ApplicantProjectService {
      * @return The application, or null if not found
      */
     public Application getApplicantApplication(Applicant applicant) {
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.getApplicant().getNRIC().equals(applicant.getNRIC()))
+        return applicationRepository.findByApplicant(applicant).stream()
             .findFirst()
             .orElse(null);
     }
@@ -205,30 +252,69 @@ public class ApplicantProjectService {
      * @return A message indicating the result of the operation
      */
     public String initiateBooking(String applicantNRIC, String projectName) {
-        // Find the application
-        Application application = findApplication(applicantNRIC, projectName);
-        
-        if (application == null) {
-            return "No application found for this applicant and project.";
-        }
-        
-        // Check if the application is successful
-        if (application.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
-            return "Only successful applications can initiate a booking.";
-        }
-        
-        // Check if the application already has a booking
-        if (application.getBookingStatus() != Application.BookingFlatStatus.NONE) {
-            return "This application already has a booking request.";
-        }
-        
-        // Update the booking status to pending
-        application.updateBookingStatus(Application.BookingFlatStatus.PENDING);
-        
-        // Save the application
-        applicationRepository.save(application);
-        
-        return "Booking request initiated successfully. Please contact an HDB Officer to complete the booking process.";
+        return ProjectExecutor.await(initiateBookingAsync(applicantNRIC, projectName));
+    }
+    
+    /**
+     * Initiates a booking request once per request ID, so a retried or
+     * repeated request gets the first attempt's outcome instead of being
+     * carried out again
+     * 
+     * @param requestId The caller's ID for the request, or null to carry it out regardless
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A message indicating the result of the operation
+     */
+    public String initiateBooking(String requestId, String applicantNRIC, String projectName) {
+        return ProjectExecutor.await(BookingDedupeService.once(bookingDedupeService, requestId,
+                BookingRequest.Operation.INITIATE, applicantNRIC, projectName,
+                () -> initiateBookingAsync(applicantNRIC, projectName)));
+    }
+    
+    /**
+     * Initiates a booking request on its project's executor, holding a
+     * unit for the applicant if units are held for pending bookings
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A future completed with a message indicating the result of the operation
+     */
+    public CompletableFuture<String> initiateBookingAsync(String applicantNRIC, String projectName) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            // Find the application
+            Application application = findApplication(applicantNRIC, projectName);
+            
+            if (application == null) {
+                return "No application found for this applicant and project.";
+            }
+            
+            // Check if the application is successful
+            if (application.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
+                return "Only successful applications can initiate a booking.";
+            }
+            
+            // Check if the application already has a booking
+            if (application.getBookingStatus() != Application.BookingFlatStatus.NONE) {
+                return "This application already has a booking request.";
+            }
+            
+            // Hold a unit so the applicant is not turned away at the counter
+            if (unitHoldService != null) {
+                if (!unitHoldService.hold(application)) {
+                    return "No units of this flat type are currently available.";
+                }
+                projectRepository.save(application.getProject());
+            }
+            
+            // Update the booking status to pending
+            application.updateBookingStatus(Application.BookingFlatStatus.PENDING);
+            
+            // Save the application
+            applicationRepository.save(application);
+            
+            return "Booking request initiated successfully. Please contact an HDB Officer to complete the booking process."
+                    + UnitHoldService.describeHold(application);
+        });
     }
     
     /**
@@ -239,10 +325,6 @@ public class ApplicantProjectService {
      * @return The application or null if not found
      */
     private Application findApplication(String applicantNRIC, String projectName) {
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.getApplicant().getNRIC().equals(applicantNRIC) &&
-                   app.getProject().getName().equals(projectName))
-            .findFirst()
-            .orElse(null);
+        return applicationRepository.findByApplicantAndProject(applicantNRIC, projectName);
     }
 } 
\ No newline at end of file
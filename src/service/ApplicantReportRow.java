@@ -0,0 +1,63 @@
+package service;
+
+import model.Applicant;
+import model.Application;
+import model.Flat;
+import model.User;
+
+import java.util.Date;
+
+/**
+ * One row of an applicants report, holding the applicant's age and the
+ * application date as primitives and its categories as enums, so rows are
+ * cheap to build and read without casts or key lookups.
+ * 
+ * @param applicantName The applicant's name
+ * @param age The applicant's age
+ * @param maritalStatus The applicant's marital status
+ * @param projectName The name of the project applied for
+ * @param flatType The flat type applied for
+ * @param applicationDateMillis When the application was made, in epoch milliseconds, or {@link #NO_DATE}
+ * @param status The status of the application
+ */
+public record ApplicantReportRow(String applicantName, int age, User.MaritalStatus maritalStatus,
+                                 String projectName, Flat.FlatType flatType, long applicationDateMillis,
+                                 Application.ApplicationStatus status) {
+    
+    /**
+     * Value of applicationDateMillis when the application has no date
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+    
+    /**
+     * Creates the report row of an application
+     * 
+     * @param application The application
+     * @return The row
+     */
+    public static ApplicantReportRow of(Application application) {
+        Applicant applicant = application.getApplicant();
+        Date applicationDate = application.getApplicationDate();
+        return new ApplicantReportRow(applicant.getName(), applicant.getAge(), applicant.getMaritalStatus(),
+                application.getProject().getName(), application.getFlatType(),
+                applicationDate == null ? NO_DATE : applicationDate.getTime(), application.getStatus());
+    }
+    
+    /**
+     * Checks whether the applicant is married
+     * 
+     * @return true if the applicant is married
+     */
+    public boolean isMarried() {
+        return maritalStatus == User.MaritalStatus.MARRIED;
+    }
+    
+    /**
+     * Gets the application date
+     * 
+     * @return A new date, or null if the application has no date
+     */
+    public Date getApplicationDate() {
+        return applicationDateMillis == NO_DATE ? null : new Date(applicationDateMillis);
+    }
+} 
\ No newline at end of file
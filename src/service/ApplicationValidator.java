@@ -0,0 +1,146 @@
+package service;
+
+import exception.HDBException;
+import model.Applicant;
+import model.Application;
+import model.Flat;
+import model.Project;
+import model.User;
+import repository.ApplicationRepository;
+
+import java.util.Date;
+
+/**
+ * Service class holding the rules an applicant must meet to apply for a
+ * project or withdraw an application, so the console and the HTTP API
+ * refuse the same requests with the same reasons.
+ * 
+ * A failed check throws an {@link HDBException} whose type says why:
+ * {@link HDBException.ErrorType#NOT_FOUND_ERROR} for a missing project or
+ * application, {@link HDBException.ErrorType#VALIDATION_ERROR} for a
+ * request the applicant can never make, such as a flat type they are not
+ * eligible for, and {@link HDBException.ErrorType#BUSINESS_RULE_ERROR}
+ * for one refused by the current state, such as an existing application.
+ */
+public class ApplicationValidator {
+    
+    private final ApplicationRepository applicationRepository;
+    
+    /**
+     * Constructor for ApplicationValidator
+     * 
+     * @param applicationRepository The application repository
+     */
+    public ApplicationValidator(ApplicationRepository applicationRepository) {
+        this.applicationRepository = applicationRepository;
+    }
+    
+    /**
+     * Checks that an applicant may apply for a flat type of a project
+     * 
+     * @param applicant The applicant
+     * @param project The project, or null if none has the requested name
+     * @param flatType The flat type
+     * @throws HDBException If the applicant may not apply
+     */
+    public void validateApplication(Applicant applicant, Project project, Flat.FlatType flatType) throws HDBException {
+        // Check if applicant already has an application
+        if (!applicationRepository.findByApplicant(applicant).isEmpty()) {
+            throw HDBException.businessRuleError(
+                    "You already have an existing application. You cannot apply for multiple projects.");
+        }
+        
+        // Validate eligibility based on age and marital status
+        if (!isEligibleForFlatType(applicant, flatType)) {
+            if (applicant.getMaritalStatus() == User.MaritalStatus.SINGLE) {
+                throw HDBException.validationError("Singles, 35 years old and above, can ONLY apply for 2-Room flats");
+            } else {
+                throw HDBException.validationError("Married applicants must be 21 years old or above to apply");
+            }
+        }
+        
+        // Check if project exists, is visible to the applicant and open for applications
+        if (project == null) {
+            throw HDBException.notFoundError("Project not found");
+        }
+        
+        if (!project.isVisible() || !isOfferedTo(project, applicant)) {
+            throw HDBException.validationError("This project is not available for your application type");
+        }
+        
+        Date now = new Date();
+        if (!now.after(project.getApplicationOpenDate()) || !now.before(project.getApplicationCloseDate())) {
+            throw HDBException.businessRuleError("This project is not open for applications");
+        }
+        
+        // Check if flat type is available in the project
+        Flat flat = project.getFlatByType(flatType);
+        if (flat == null) {
+            throw HDBException.validationError("This flat type is not available in the selected project");
+        }
+        
+        // Check if units of this flat type are available
+        if (flat.getAvailableUnits() <= 0) {
+            throw HDBException.businessRuleError("No available units for this flat type");
+        }
+    }
+    
+    /**
+     * Checks that an applicant may request the withdrawal of an application
+     * 
+     * @param application The applicant's application, or null if they have none
+     * @throws HDBException If the application may not be withdrawn
+     */
+    public void validateWithdrawal(Application application) throws HDBException {
+        if (application == null) {
+            throw HDBException.notFoundError("You don't have any active applications to withdraw");
+        }
+        
+        if (application.getStatus() == Application.ApplicationStatus.BOOKED) {
+            throw HDBException.businessRuleError("Cannot withdraw an application that has already been booked");
+        }
+    }
+    
+    /**
+     * Checks if a project offers flats to applicants of an applicant's marital status
+     * 
+     * @param project The project
+     * @param applicant The applicant
+     * @return true if the project is open to the applicant's marital status, false otherwise
+     */
+    public static boolean isOfferedTo(Project project, Applicant applicant) {
+        if (applicant.getMaritalStatus() == User.MaritalStatus.SINGLE) {
+            return project.isEligibleForSingles();
+        } else if (applicant.getMaritalStatus() == User.MaritalStatus.MARRIED) {
+            return project.isEligibleForMarried();
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Checks if an applicant is eligible for a flat type based on age and marital status
+     * 
+     * @param applicant The applicant
+     * @param flatType The flat type
+     * @return true if eligible, false otherwise
+     */
+    public static boolean isEligibleForFlatType(Applicant applicant, Flat.FlatType flatType) {
+        // Singles, 35 years old and above, can ONLY apply for 2-Room
+        if (applicant.getMaritalStatus() == User.MaritalStatus.SINGLE) {
+            if (applicant.getAge() < 35) {
+                return false; // Singles must be 35 or above
+            }
+            return flatType == Flat.FlatType.TWO_ROOM; // Singles can only apply for 2-Room
+        }
+        // Married, 21 years old and above, can apply for any flat types (2-Room or 3-Room)
+        else if (applicant.getMaritalStatus() == User.MaritalStatus.MARRIED) {
+            if (applicant.getAge() < 21) {
+                return false; // Married must be 21 or above
+            }
+            return true; // Married can apply for any flat type
+        }
+        
+        return false; // Other marital statuses are not eligible (if any)
+    }
+} 
\ No newline at end of file
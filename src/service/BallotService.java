@@ -0,0 +1,333 @@
+package service;
+
+import model.Application;
+import model.Flat;
+import model.Project;
+import repository.ApplicationRepository;
+import repository.ProjectRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Service class that decides the pending applications of oversubscribed
+ * projects by ballot instead of one at a time.
+ * 
+ * For each project and flat type, the pending applications are shuffled
+ * and the first ones, up to the units still unallocated plus a reserve
+ * for applicants who later drop out, are marked SUCCESSFUL; the rest are
+ * marked UNSUCCESSFUL and placed on the flat type's waitlist in the order
+ * drawn, behind the entrants of earlier ballots, to be promoted as units
+ * are returned. The shuffle is seeded from the ballot's seed, the
+ * project name and the flat type, so rerunning a ballot with the same
+ * seed over the same applications gives the same outcome, whichever
+ * projects are balloted alongside it. Projects are balloted in parallel.
+ * 
+ * Given a {@link ProjectExecutor}, each project's draw runs and is saved
+ * in one batch on that project's executor, so it does not interleave
+ * with the approvals and withdrawals changing the same applications, and
+ * each project's draw is stored whole or not at all. Otherwise the draws
+ * are forked on the fork/join common pool and every decided application
+ * is saved in a single batch, so the whole ballot is stored or none of it.
+ */
+public class BallotService {
+    
+    private final ApplicationRepository applicationRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectExecutor projectExecutor;
+    
+    /**
+     * Result of balloting one flat type of one project
+     */
+    public static final class Draw {
+        private final String projectName;
+        private final Flat.FlatType flatType;
+        private final int entrants;
+        private final int successful;
+        
+        Draw(String projectName, Flat.FlatType flatType, int entrants, int successful) {
+            this.projectName = projectName;
+            this.flatType = flatType;
+            this.entrants = entrants;
+            this.successful = successful;
+        }
+        
+        /**
+         * Gets the name of the balloted project
+         * 
+         * @return The project name
+         */
+        public String getProjectName() {
+            return projectName;
+        }
+        
+        /**
+         * Gets the balloted flat type
+         * 
+         * @return The flat type
+         */
+        public Flat.FlatType getFlatType() {
+            return flatType;
+        }
+        
+        /**
+         * Gets the number of pending applications balloted
+         * 
+         * @return The number of entrants
+         */
+        public int getEntrants() {
+            return entrants;
+        }
+        
+        /**
+         * Gets the number of applications marked SUCCESSFUL
+         * 
+         * @return The number of successful applications
+         */
+        public int getSuccessful() {
+            return successful;
+        }
+        
+        /**
+         * Gets the number of applications marked UNSUCCESSFUL
+         * 
+         * @return The number of unsuccessful applications
+         */
+        public int getUnsuccessful() {
+            return entrants - successful;
+        }
+    }
+    
+    /**
+     * Constructor for BallotService
+     * 
+     * @param applicationRepository Repository for application data
+     * @param projectRepository Repository for project data
+     */
+    public BallotService(ApplicationRepository applicationRepository, ProjectRepository projectRepository) {
+        this(applicationRepository, projectRepository, null);
+    }
+    
+    /**
+     * Constructor for BallotService
+     * 
+     * @param applicationRepository Repository for application data
+     * @param projectRepository Repository for project data
+     * @param projectExecutor Executor that runs each project's draw with its other decisions, or null to fork the draws
+     */
+    public BallotService(ApplicationRepository applicationRepository, ProjectRepository projectRepository,
+            ProjectExecutor projectExecutor) {
+        this.applicationRepository = applicationRepository;
+        this.projectRepository = projectRepository;
+        this.projectExecutor = projectExecutor;
+    }
+    
+    /**
+     * Ballots the pending applications of several projects
+     * 
+     * @param projectNames The projects to ballot; unknown names are skipped
+     * @param seed The seed of the ballot
+     * @param reservePercent How many applicants beyond the unallocated units to
+     *        mark SUCCESSFUL, as a percentage of those units, to cover
+     *        applicants who withdraw or do not book
+     * @return One draw per project and flat type with pending applications
+     */
+    public List<Draw> ballot(List<String> projectNames, long seed, int reservePercent) {
+        if (reservePercent < 0) {
+            throw new IllegalArgumentException("Reserve cannot be negative");
+        }
+        List<Project> projects = new ArrayList<>();
+        for (String projectName : projectNames) {
+            Project project = projectRepository.findById(projectName);
+            if (project != null) {
+                projects.add(project);
+            }
+        }
+        
+        if (projectExecutor == null) {
+            Outcome outcome = new BallotTask(projects, 0, projects.size(), seed, reservePercent).invoke();
+            applicationRepository.saveAll(outcome.decided);
+            return outcome.draws;
+        }
+        
+        // Each project's executor draws and saves in turn with its other commands, so no decision on
+        // the project lands between its draw and its save; different projects draw in parallel
+        List<CompletableFuture<Outcome>> draws = new ArrayList<>();
+        for (Project project : projects) {
+            draws.add(ProjectExecutor.onProject(projectExecutor, project.getName(), () -> {
+                Outcome drawn = new Outcome();
+                ballotProject(project, seed, reservePercent, drawn);
+                applicationRepository.saveAll(drawn.decided);
+                return drawn;
+            }));
+        }
+        Outcome outcome = new Outcome();
+        for (CompletableFuture<Outcome> draw : draws) {
+            outcome.merge(ProjectExecutor.await(draw));
+        }
+        return outcome.draws;
+    }
+    
+    /**
+     * Ballots the pending applications of one project
+     * 
+     * @param projectName The project to ballot
+     * @param seed The seed of the ballot
+     * @param reservePercent The reserve, as for the multi-project ballot
+     * @return One draw per flat type with pending applications
+     */
+    public List<Draw> ballot(String projectName, long seed, int reservePercent) {
+        return ballot(List.of(projectName), seed, reservePercent);
+    }
+    
+    /**
+     * Draws and decided applications of the projects balloted so far
+     */
+    private static final class Outcome {
+        private final List<Draw> draws = new ArrayList<>();
+        private final List<Application> decided = new ArrayList<>();
+        
+        Outcome merge(Outcome other) {
+            draws.addAll(other.draws);
+            decided.addAll(other.decided);
+            return this;
+        }
+    }
+    
+    /**
+     * Fork/join task balloting a range of projects, splitting it in halves
+     * down to single projects
+     */
+    private final class BallotTask extends RecursiveTask<Outcome> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        @SuppressWarnings("serial") // Tasks are never serialized
+        private final List<Project> projects;
+        private final int from;
+        private final int to;
+        private final long seed;
+        private final int reservePercent;
+        
+        BallotTask(List<Project> projects, int from, int to, long seed, int reservePercent) {
+            this.projects = projects;
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+            this.reservePercent = reservePercent;
+        }
+        
+        @Override
+        protected Outcome compute() {
+            if (to - from <= 1) {
+                Outcome outcome = new Outcome();
+                if (from < to) {
+                    ballotProject(projects.get(from), seed, reservePercent, outcome);
+                }
+                return outcome;
+            }
+            
+            int middle = (from + to) >>> 1;
+            BallotTask right = new BallotTask(projects, middle, to, seed, reservePercent);
+            right.fork();
+            Outcome left = new BallotTask(projects, from, middle, seed, reservePercent).compute();
+            return left.merge(right.join());
+        }
+    }
+    
+    /**
+     * Counts how many more applicants of each flat type of a project can be
+     * marked SUCCESSFUL: the unallocated units plus the reserve, less the
+     * applicants already invited to book. Approvals are capped by the same
+     * count as ballots, so neither invites more applicants than the other.
+     * 
+     * @param project The project
+     * @param reservePercent The reserve, as a percentage of the unallocated units
+     * @return The places left for each flat type, never negative
+     */
+    public Map<Flat.FlatType, Integer> countPlaces(Project project, int reservePercent) {
+        // Applicants invited to book still hold a claim on a unit, unless they have requested the
+        // booking, whose unit is already held and so no longer among the available ones
+        Map<Flat.FlatType, Integer> invited = new EnumMap<>(Flat.FlatType.class);
+        for (Application application : applicationRepository.findByProjectAndStatus(project.getName(),
+                Application.ApplicationStatus.SUCCESSFUL)) {
+            if (application.getBookingStatus() == Application.BookingFlatStatus.NONE
+                    && application.getWithdrawalRequestStatus() != Application.WithdrawalRequestStatus.APPROVED) {
+                invited.merge(application.getFlatType(), 1, Integer::sum);
+            }
+        }
+        
+        Map<Flat.FlatType, Integer> places = new EnumMap<>(Flat.FlatType.class);
+        for (Flat.FlatType flatType : Flat.FlatType.values()) {
+            Flat flat = project.getFlatByType(flatType);
+            int available = flat == null ? 0 : flat.getAvailableUnits();
+            int reserve = (int) Math.ceil(available * reservePercent / 100.0);
+            places.put(flatType, Math.max(0, available + reserve - invited.getOrDefault(flatType, 0)));
+        }
+        return places;
+    }
+    
+    /**
+     * Ballots each flat type of a project
+     * 
+     * @param project The project
+     * @param seed The seed of the ballot
+     * @param reservePercent The reserve, as a percentage of the unallocated units
+     * @param outcome Receives the draws and decided applications
+     */
+    private void ballotProject(Project project, long seed, int reservePercent, Outcome outcome) {
+        String projectName = project.getName();
+        Map<Flat.FlatType, List<Application>> entrants = new EnumMap<>(Flat.FlatType.class);
+        for (Application application : applicationRepository.findByProjectAndStatus(projectName,
+                Application.ApplicationStatus.PENDING)) {
+            if (!application.isWithdrawalRequested()) {
+                entrants.computeIfAbsent(application.getFlatType(), type -> new ArrayList<>()).add(application);
+            }
+        }
+        if (entrants.isEmpty()) {
+            return;
+        }
+        
+        Map<Flat.FlatType, Integer> places = countPlaces(project, reservePercent);
+        
+        // Entrants of earlier ballots stay ahead on the waitlist
+        Map<Flat.FlatType, Integer> waitlisted = new EnumMap<>(Flat.FlatType.class);
+        for (Application application : applicationRepository.findByProjectAndStatus(projectName,
+                Application.ApplicationStatus.UNSUCCESSFUL)) {
+            waitlisted.merge(application.getFlatType(), application.getWaitlistRank(), Math::max);
+        }
+        
+        for (Map.Entry<Flat.FlatType, List<Application>> entry : entrants.entrySet()) {
+            Flat.FlatType flatType = entry.getKey();
+            List<Application> applications = entry.getValue();
+            
+            // Start from an order that does not depend on how the applications were stored
+            applications.sort(Comparator.comparing(application -> application.getApplicant().getNRIC()));
+            SplittableRandom random = new SplittableRandom(seed ^ (31L * projectName.hashCode() + flatType.ordinal()));
+            for (int i = applications.size() - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Application swapped = applications.get(i);
+                applications.set(i, applications.get(j));
+                applications.set(j, swapped);
+            }
+            
+            int successful = Math.min(places.getOrDefault(flatType, 0), applications.size());
+            int lastRank = waitlisted.getOrDefault(flatType, 0);
+            for (int i = 0; i < applications.size(); i++) {
+                Application application = applications.get(i);
+                application.updateStatus(i < successful
+                        ? Application.ApplicationStatus.SUCCESSFUL
+                        : Application.ApplicationStatus.UNSUCCESSFUL);
+                application.setWaitlistRank(i < successful ? 0 : lastRank + i - successful + 1);
+            }
+            outcome.decided.addAll(applications);
+            outcome.draws.add(new Draw(projectName, flatType, applications.size(), successful));
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,221 @@
+package service;
+
+import repository.BookingRequestRepository;
+import repository.BookingRequestRepository.BookingRequest;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Service class that makes booking requests idempotent, so a request
+ * retried by a client, or submitted twice by a double click, is only
+ * carried out once and every repeat gets the first attempt's outcome.
+ * 
+ * Callers give each request an ID. The outcome of every request with an
+ * ID is recorded in a {@link BookingRequestRepository}, so repeats are
+ * recognised after a restart, and the most recently used outcomes are
+ * kept in a bounded LRU cache in front of it. Outcomes are forgotten once
+ * older than the time-to-live, after which the ID may be used again.
+ * A repeat that arrives while the first attempt is still running waits
+ * for that attempt rather than starting its own.
+ * 
+ * The outcome is recorded after the booking is saved, so a crash between
+ * the two lets a repeat run again; the booking's own checks then refuse
+ * it as already requested or completed rather than booking twice.
+ */
+public class BookingDedupeService {
+    
+    // Expired outcomes are purged from the repository once per this many recorded requests
+    private static final int PURGE_INTERVAL = 1000;
+    
+    private final BookingRequestRepository requestRepository;
+    private final long ttlMillis;
+    private final Map<String, BookingRequest> recent; // Guarded by itself
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong recorded = new AtomicLong();
+    
+    /**
+     * A request whose first attempt is still running
+     */
+    private record InFlight(BookingRequest.Operation operation, String applicantNRIC, String projectName,
+                            CompletableFuture<String> outcome) {
+    }
+    
+    /**
+     * Constructor for BookingDedupeService
+     * 
+     * @param requestRepository Repository recording the outcome of each request
+     * @param cacheCapacity The number of outcomes kept in memory
+     * @param ttlMillis How long an outcome is returned for repeats of its request
+     */
+    public BookingDedupeService(BookingRequestRepository requestRepository, int cacheCapacity, long ttlMillis) {
+        if (cacheCapacity <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache capacity and time-to-live must be positive");
+        }
+        this.requestRepository = requestRepository;
+        this.ttlMillis = ttlMillis;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookingRequest> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+    
+    /**
+     * Carries out a booking request unless a request with the same ID
+     * already was, in which case its outcome is returned instead
+     * 
+     * @param requestId The caller's ID for the request
+     * @param operation The booking operation requested
+     * @param applicantNRIC The NRIC of the applicant whose booking it is
+     * @param projectName The name of the project
+     * @param booking Starts the booking and returns its outcome
+     * @return A future completed with the outcome of the request, or of the first request with its ID
+     */
+    public CompletableFuture<String> execute(String requestId, BookingRequest.Operation operation,
+            String applicantNRIC, String projectName, Supplier<CompletableFuture<String>> booking) {
+        BookingRequest previous = findOutcome(requestId);
+        if (previous != null) {
+            return CompletableFuture.completedFuture(replay(previous, operation, applicantNRIC, projectName));
+        }
+        
+        CompletableFuture<String> outcome = new CompletableFuture<>();
+        InFlight running = inFlight.putIfAbsent(requestId, new InFlight(operation, applicantNRIC, projectName, outcome));
+        if (running != null) {
+            if (running.operation() != operation || !running.applicantNRIC().equals(applicantNRIC)
+                    || !running.projectName().equals(projectName)) {
+                return CompletableFuture.completedFuture(mismatch());
+            }
+            return running.outcome();
+        }
+        
+        // The first attempt may have finished between the lookup and claiming the ID
+        previous = findOutcome(requestId);
+        if (previous != null) {
+            inFlight.remove(requestId);
+            outcome.complete(replay(previous, operation, applicantNRIC, projectName));
+            return outcome;
+        }
+        
+        CompletableFuture<String> attempt;
+        try {
+            attempt = booking.get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempt.whenComplete((message, error) -> {
+            // A booking that failed with an exception was not carried out, so it is not recorded and may be retried
+            if (error == null) {
+                record(new BookingRequest(requestId, operation, applicantNRIC, projectName, message, new Date()));
+            }
+            inFlight.remove(requestId);
+            if (error == null) {
+                outcome.complete(message);
+            } else {
+                outcome.completeExceptionally(error);
+            }
+        });
+        return outcome;
+    }
+    
+    /**
+     * Runs a booking request through a dedupe service, or straight away if
+     * there is no service or the request has no ID
+     * 
+     * @param service The dedupe service, or null
+     * @param requestId The caller's ID for the request, or null
+     * @param operation The booking operation requested
+     * @param applicantNRIC The NRIC of the applicant whose booking it is
+     * @param projectName The name of the project
+     * @param booking Starts the booking and returns its outcome
+     * @return A future completed with the outcome of the request
+     */
+    static CompletableFuture<String> once(BookingDedupeService service, String requestId,
+            BookingRequest.Operation operation, String applicantNRIC, String projectName,
+            Supplier<CompletableFuture<String>> booking) {
+        if (service == null || requestId == null || applicantNRIC == null || projectName == null) {
+            return booking.get();
+        }
+        return service.execute(requestId, operation, applicantNRIC, projectName, booking);
+    }
+    
+    /**
+     * Deletes the recorded outcomes older than the time-to-live
+     * 
+     * @return The number of outcomes deleted
+     */
+    public int purgeExpired() {
+        int purged = 0;
+        for (BookingRequest request : requestRepository.findProcessedBefore(new Date(System.currentTimeMillis() - ttlMillis))) {
+            requestRepository.delete(request);
+            purged++;
+        }
+        synchronized (recent) {
+            recent.values().removeIf(this::isExpired);
+        }
+        return purged;
+    }
+    
+    /**
+     * Gets the number of outcomes currently cached in memory
+     * 
+     * @return The number of cached outcomes
+     */
+    public int getCachedCount() {
+        synchronized (recent) {
+            return recent.size();
+        }
+    }
+    
+    /**
+     * Finds the unexpired outcome of a request, from the cache or else the repository
+     * 
+     * @param requestId The request ID
+     * @return The recorded request, or null if there is none or it has expired
+     */
+    private BookingRequest findOutcome(String requestId) {
+        BookingRequest request;
+        synchronized (recent) {
+            request = recent.get(requestId);
+        }
+        if (request == null) {
+            request = requestRepository.findById(requestId);
+            if (request == null) {
+                return null;
+            }
+            synchronized (recent) {
+                recent.put(requestId, request);
+            }
+        }
+        return isExpired(request) ? null : request;
+    }
+    
+    private void record(BookingRequest request) {
+        requestRepository.save(request);
+        synchronized (recent) {
+            recent.put(request.getRequestId(), request);
+        }
+        if (recorded.incrementAndGet() % PURGE_INTERVAL == 0) {
+            purgeExpired();
+        }
+    }
+    
+    private boolean isExpired(BookingRequest request) {
+        return request.getDateProcessed().getTime() + ttlMillis <= System.currentTimeMillis();
+    }
+    
+    private String replay(BookingRequest previous, BookingRequest.Operation operation, String applicantNRIC,
+                          String projectName) {
+        return previous.matches(operation, applicantNRIC, projectName) ? previous.getOutcome() : mismatch();
+    }
+    
+    private String mismatch() {
+        return "This request ID was already used for a different booking request.";
+    }
+} 
\ No newline at end of file
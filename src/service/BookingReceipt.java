@@ -0,0 +1,73 @@
+package service;
+
+import model.Applicant;
+import model.Application;
+import model.Flat;
+import model.Project;
+import model.User;
+
+import java.util.Date;
+
+/**
+ * Receipt for a completed booking, holding the applicant's age, the price
+ * and the booking date as primitives and the categories as enums.
+ * 
+ * @param applicantName The applicant's name
+ * @param nric The applicant's NRIC
+ * @param age The applicant's age
+ * @param maritalStatus The applicant's marital status
+ * @param flatType The flat type booked
+ * @param projectName The name of the project
+ * @param neighborhood The project's neighborhood
+ * @param bookingDateMillis When the booking was completed, in epoch milliseconds, or {@link #NO_DATE}
+ * @param price The selling price of the flat type, or {@link #UNKNOWN_PRICE} if the project no longer has it
+ */
+public record BookingReceipt(String applicantName, String nric, int age, User.MaritalStatus maritalStatus,
+                             Flat.FlatType flatType, String projectName, String neighborhood,
+                             long bookingDateMillis, long price) {
+    
+    /**
+     * Value of bookingDateMillis when the booking has no date
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+    
+    /**
+     * Value of price when the project no longer has the flat type booked
+     */
+    public static final long UNKNOWN_PRICE = -1;
+    
+    /**
+     * Creates the receipt of a completed booking
+     * 
+     * @param application The application whose booking was completed
+     * @return The receipt
+     */
+    public static BookingReceipt of(Application application) {
+        Applicant applicant = application.getApplicant();
+        Project project = application.getProject();
+        Flat flat = project.getFlatByType(application.getFlatType());
+        Date bookingDate = application.getBookingDate();
+        return new BookingReceipt(applicant.getName(), applicant.getNRIC(), applicant.getAge(),
+                applicant.getMaritalStatus(), application.getFlatType(), project.getName(), project.getNeighborhood(),
+                bookingDate == null ? NO_DATE : bookingDate.getTime(),
+                flat != null ? flat.getSellingPrice() : UNKNOWN_PRICE);
+    }
+    
+    /**
+     * Checks whether the price is known
+     * 
+     * @return true if the project still has the flat type booked
+     */
+    public boolean hasPrice() {
+        return price != UNKNOWN_PRICE;
+    }
+    
+    /**
+     * Gets the booking date
+     * 
+     * @return A new date, or null if the booking has no date
+     */
+    public Date getBookingDate() {
+        return bookingDateMillis == NO_DATE ? null : new Date(bookingDateMillis);
+    }
+} 
\ No newline at end of file
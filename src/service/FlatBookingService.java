@@ -1,24 +1,28 @@
 package service;
 
-import model.Applicant;
 import model.Application;
 import model.Flat;
 import model.Project;
 import model.HDBOfficer;
 import repository.ApplicationRepository;
+import repository.BookingRequestRepository.BookingRequest;
 import repository.ProjectRepository;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Service class for handling flat booking operations
+ * Service class for handling flat booking operations.
+ * 
+ * Given a {@link ProjectExecutor}, bookings run on their project's
+ * executor, one at a time; otherwise they run on the calling thread.
  */
 public class FlatBookingService {
     
     private final ApplicationRepository applicationRepository;
     private final ProjectRepository projectRepository;
+    private final ProjectExecutor projectExecutor;
+    private final UnitHoldService unitHoldService;
+    private final BookingDedupeService bookingDedupeService;
     
     /**
      * Constructor for FlatBookingService
@@ -27,8 +31,26 @@ public class FlatBookingService {
      * @param projectRepository The project repository
      */
     public FlatBookingService(ApplicationRepository applicationRepository, ProjectRepository projectRepository) {
+        this(applicationRepository, projectRepository, null, null, null);
+    }
+    
+    /**
+     * Constructor for FlatBookingService
+     * 
+     * @param applicationRepository The application repository
+     * @param projectRepository The project repository
+     * @param projectExecutor Executor that runs each project's bookings one at a time, or null to run them directly
+     * @param unitHoldService Service holding units for pending bookings, or null if units are only taken on completion
+     * @param bookingDedupeService Service returning the first outcome for repeated request IDs, or null to run every request
+     */
+    public FlatBookingService(ApplicationRepository applicationRepository, ProjectRepository projectRepository,
+            ProjectExecutor projectExecutor, UnitHoldService unitHoldService,
+            BookingDedupeService bookingDedupeService) {
         this.applicationRepository = applicationRepository;
         this.projectRepository = projectRepository;
+        this.projectExecutor = projectExecutor;
+        this.unitHoldService = unitHoldService;
+        this.bookingDedupeService = bookingDedupeService;
     }
     
     /**
@@ -39,30 +61,68 @@ public class FlatBookingService {
      * @return A message indicating the result of the operation
      */
     public String initiateBooking(String applicantNRIC, String projectName) {
-        // Find the application
-        Application application = findApplication(applicantNRIC, projectName);
-        
-        if (application == null) {
-            return "No application found for this applicant and project.";
-        }
-        
-        // Check if the application is successful
-        if (application.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
-            return "Only successful applications can initiate a booking.";
-        }
-        
-        // Check if the application already has a booking
-        if (application.getBookingStatus() != Application.BookingFlatStatus.NONE) {
-            return "This application already has a booking request.";
-        }
-        
-        // Update the booking status to pending
-        application.updateBookingStatus(Application.BookingFlatStatus.PENDING);
-        
-        // Save the application
-        applicationRepository.save(application);
-        
-        return "Booking request initiated successfully. Please contact an HDB Officer to complete the booking process.";
+        return ProjectExecutor.await(initiateBookingAsync(applicantNRIC, projectName));
+    }
+    
+    /**
+     * Initiates a booking request once per request ID, so a retried or
+     * repeated request gets the first attempt's outcome instead of being
+     * carried out again
+     * 
+     * @param requestId The caller's ID for the request, or null to carry it out regardless
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A message indicating the result of the operation
+     */
+    public String initiateBooking(String requestId, String applicantNRIC, String projectName) {
+        return ProjectExecutor.await(BookingDedupeService.once(bookingDedupeService, requestId,
+                BookingRequest.Operation.INITIATE, applicantNRIC, projectName,
+                () -> initiateBookingAsync(applicantNRIC, projectName)));
+    }
+    
+    /**
+     * Initiates a booking request on its project's executor
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A future completed with a message indicating the result of the operation
+     */
+    public CompletableFuture<String> initiateBookingAsync(String applicantNRIC, String projectName) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            // Find the application
+            Application application = findApplication(applicantNRIC, projectName);
+        
+            if (application == null) {
+                return "No application found for this applicant and project.";
+            }
+        
+            // Check if the application is successful
+            if (application.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
+                return "Only successful applications can initiate a booking.";
+            }
+        
+            // Check if the application already has a booking
+            if (application.getBookingStatus() != Application.BookingFlatStatus.NONE) {
+                return "This application already has a booking request.";
+            }
+        
+            // Hold a unit so the applicant is not turned away at the counter
+            if (unitHoldService != null) {
+                if (!unitHoldService.hold(application)) {
+                    return "No units of this flat type are currently available.";
+                }
+                projectRepository.save(application.getProject());
+            }
+            
+            // Update the booking status to pending
+            application.updateBookingStatus(Application.BookingFlatStatus.PENDING);
+        
+            // Save the application
+            applicationRepository.save(application);
+            
+            return "Booking request initiated successfully. Please contact an HDB Officer to complete the booking process."
+                    + UnitHoldService.describeHold(application);
+        });
     }
     
     /**
@@ -74,56 +134,88 @@ public class FlatBookingService {
      * @return A message indicating the result of the operation
      */
     public String completeBooking(String applicantNRIC, String projectName, HDBOfficer officer) {
-        // Find the application
-        Application application = findApplication(applicantNRIC, projectName);
-        
-        if (application == null) {
-            return "No application found for this applicant and project.";
-        }
-        
-        // Check if the application has a pending booking
-        if (application.getBookingStatus() != Application.BookingFlatStatus.PENDING) {
-            return "This application does not have a pending booking request.";
-        }
-        
-        // Check if the application is successful
-        if (application.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
-            return "Only successful applications can complete a booking.";
-        }
-        
-        // Get the project
-        Project project = application.getProject();
-        
-        // Check if the officer is handling this project
-        if (officer.getHandlingProject() == null || 
-            !officer.getHandlingProject().getName().equals(project.getName())) {
-            return "You are not authorized to handle bookings for this project.";
-        }
-        
-        // Check if the flat type is available
-        Flat.FlatType flatType = application.getFlatType();
-        Flat flat = project.getFlatByType(flatType);
-        
-        if (flat == null) {
-            return "The requested flat type does not exist in this project.";
-        }
-        
-        if (flat.getAvailableUnits() <= 0) {
-            return "No units of this flat type are currently available.";
-        }
-        
-        // Reduce the available units
-        flat.reduceAvailableUnits();
-        
-        // Update the application status
-        application.updateBookingStatus(Application.BookingFlatStatus.COMPLETED);
-        
-        // Save the changes
-        applicationRepository.save(application);
-        projectRepository.save(project);
-        
-        return "Booking completed successfully for " + application.getApplicant().getName() +
-               " for a " + flatType.getDisplayName() + " flat in " + project.getName() + ".";
+        return ProjectExecutor.await(completeBookingAsync(applicantNRIC, projectName, officer));
+    }
+    
+    /**
+     * Completes a booking once per request ID, so a retried or repeated
+     * request gets the first attempt's outcome instead of being carried
+     * out again
+     * 
+     * @param requestId The caller's ID for the request, or null to carry it out regardless
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @param officer The officer handling the booking
+     * @return A message indicating the result of the operation
+     */
+    public String completeBooking(String requestId, String applicantNRIC, String projectName, HDBOfficer officer) {
+        return ProjectExecutor.await(BookingDedupeService.once(bookingDedupeService, requestId,
+                BookingRequest.Operation.COMPLETE, applicantNRIC, projectName,
+                () -> completeBookingAsync(applicantNRIC, projectName, officer)));
+    }
+    
+    /**
+     * Completes a booking on its project's executor, so no other booking or
+     * withdrawal for the project changes its flats at the same time
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @param officer The officer handling the booking
+     * @return A future completed with a message indicating the result of the operation
+     */
+    public CompletableFuture<String> completeBookingAsync(String applicantNRIC, String projectName, HDBOfficer officer) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            // Find the application
+            Application application = findApplication(applicantNRIC, projectName);
+        
+            if (application == null) {
+                return "No application found for this applicant and project.";
+            }
+        
+            // Check if the application has a pending booking
+            if (application.getBookingStatus() != Application.BookingFlatStatus.PENDING) {
+                return "This application does not have a pending booking request.";
+            }
+        
+            // Check if the application is successful
+            if (application.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
+                return "Only successful applications can complete a booking.";
+            }
+        
+            // Get the project
+            Project project = application.getProject();
+        
+            // Check if the officer is handling this project
+            if (officer.getHandlingProject() == null ||
+                !officer.getHandlingProject().getName().equals(project.getName())) {
+                return "You are not authorized to handle bookings for this project.";
+            }
+        
+            // Check if the flat type is available
+            Flat.FlatType flatType = application.getFlatType();
+            Flat flat = project.getFlatByType(flatType);
+        
+            if (flat == null) {
+                return "The requested flat type does not exist in this project.";
+            }
+        
+            // Take over the unit held since the booking was requested, or reserve one if the hold lapsed;
+            // reserving fails rather than overbooks if another officer took the last one
+            boolean held = unitHoldService != null && unitHoldService.take(application);
+            if (!held && !flat.tryReserve()) {
+                return "No units of this flat type are currently available.";
+            }
+        
+            // Update the application status
+            application.updateBookingStatus(Application.BookingFlatStatus.COMPLETED);
+        
+            // Save the changes
+            applicationRepository.save(application);
+            projectRepository.save(project);
+            
+            return "Booking completed successfully for " + application.getApplicant().getName() +
+                   " for a " + flatType.getDisplayName() + " flat in " + project.getName() + ".";
+        });
     }
     
     /**
@@ -131,9 +223,9 @@ public class FlatBookingService {
      * 
      * @param applicantNRIC The NRIC of the applicant
      * @param projectName The name of the project
-     * @return A map containing the receipt details or null if not found
+     * @return The receipt, or null if there is no completed booking
      */
-    public Map<String, Object> generateBookingReceipt(String applicantNRIC, String projectName) {
+    public BookingReceipt generateBookingReceipt(String applicantNRIC, String projectName) {
         // Find the application
         Application application = findApplication(applicantNRIC, projectName);
         
@@ -141,27 +233,7 @@ public class FlatBookingService {
             return null;
         }
         
-        Map<String, Object> receipt = new HashMap<>();
-        Applicant applicant = application.getApplicant();
-        Project project = application.getProject();
-        
-        // Applicant details
-        receipt.put("applicantName", applicant.getName());
-        receipt.put("nric", applicant.getNRIC());
-        receipt.put("age", applicant.getAge());
-        receipt.put("maritalStatus", applicant.getMaritalStatus().toString());
-        
-        // Booking details
-        receipt.put("flatType", application.getFlatType().getDisplayName());
-        receipt.put("projectName", project.getName());
-        receipt.put("neighborhood", project.getNeighborhood());
-        receipt.put("bookingDate", application.getBookingDate());
-        
-        // Get the price of the flat
-        Flat flat = project.getFlatByType(application.getFlatType());
-        receipt.put("price", flat != null ? flat.getSellingPrice() : "Unknown");
-        
-        return receipt;
+        return BookingReceipt.of(application);
     }
     
     /**
@@ -172,10 +244,6 @@ public class FlatBookingService {
      * @return The application or null if not found
      */
     private Application findApplication(String applicantNRIC, String projectName) {
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.getApplicant().getNRIC().equals(applicantNRIC) &&
-                   app.getProject().getName().equals(projectName))
-            .findFirst()
-            .orElse(null);
+        return applicationRepository.findByApplicantAndProject(applicantNRIC, projectName);
     }
 } 
\ No newline at end of file
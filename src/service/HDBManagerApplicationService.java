@@ -6,20 +6,36 @@ import model.Application.ApplicationStatus;
 import model.Flat;
 import model.HDBManager;
 import model.Project;
+import model.User;
 import repository.ApplicationRepository;
 import repository.ProjectRepository;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * Service class handling business logic for HDB Manager's application management
+ * Service class handling business logic for HDB Manager's application management.
+ * 
+ * Given a {@link ProjectExecutor}, decisions that change a project's
+ * applications or flats run on that project's executor, one at a time;
+ * otherwise they run on the calling thread.
  */
 public class HDBManagerApplicationService {
     
     private final ApplicationRepository applicationRepository;
     private final ProjectRepository projectRepository;
+    private final BallotService ballotService;
+    private final ProjectExecutor projectExecutor;
+    private final UnitHoldService unitHoldService;
     
     /**
      * Constructor for HDBManagerApplicationService
@@ -28,8 +44,24 @@ public class HDBManagerApplicationService {
      * @param projectRepository Repository for managing projects
      */
     public HDBManagerApplicationService(ApplicationRepository applicationRepository, ProjectRepository projectRepository) {
+        this(applicationRepository, projectRepository, null, null);
+    }
+    
+    /**
+     * Constructor for HDBManagerApplicationService
+     * 
+     * @param applicationRepository Repository for managing applications
+     * @param projectRepository Repository for managing projects
+     * @param projectExecutor Executor that runs each project's decisions one at a time, or null to run them directly
+     * @param unitHoldService Service holding units for pending bookings, or null if units are only taken on completion
+     */
+    public HDBManagerApplicationService(ApplicationRepository applicationRepository, ProjectRepository projectRepository,
+            ProjectExecutor projectExecutor, UnitHoldService unitHoldService) {
         this.applicationRepository = applicationRepository;
         this.projectRepository = projectRepository;
+        this.ballotService = new BallotService(applicationRepository, projectRepository, projectExecutor);
+        this.projectExecutor = projectExecutor;
+        this.unitHoldService = unitHoldService;
     }
     
     /**
@@ -44,10 +76,8 @@ public class HDBManagerApplicationService {
             return new ArrayList<>();
         }
         
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.getStatus() == Application.ApplicationStatus.PENDING)
+        return applicationRepository.findByProjectAndStatus(projectName, Application.ApplicationStatus.PENDING).stream()
             .filter(app -> !app.isWithdrawalRequested()) // Exclude applications with withdrawal requests
-            .filter(app -> app.getProject().getName().equals(projectName))
             .collect(Collectors.toList());
     }
     
@@ -64,10 +94,8 @@ public class HDBManagerApplicationService {
             return new ArrayList<>();
         }
         
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.getStatus() == status)
+        return applicationRepository.findByProjectAndStatus(projectName, status).stream()
             .filter(app -> !app.isWithdrawalRequested()) // Exclude applications with withdrawal requests
-            .filter(app -> app.getProject().getName().equals(projectName))
             .collect(Collectors.toList());
     }
     
@@ -83,11 +111,8 @@ public class HDBManagerApplicationService {
             return new ArrayList<>();
         }
         
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.isWithdrawalRequested())
-            .filter(app -> app.getWithdrawalRequestStatus() == Application.WithdrawalRequestStatus.PENDING)
-            .filter(app -> app.getProject().getName().equals(projectName))
-            .collect(Collectors.toList());
+        return applicationRepository.findByProjectAndWithdrawalStatus(projectName,
+                Application.WithdrawalRequestStatus.PENDING);
     }
     
     /**
@@ -98,131 +123,394 @@ public class HDBManagerApplicationService {
      * @return true if successful, false otherwise
      */
     public boolean approveApplication(String applicantNRIC, String projectName) {
-        Application application = findApplication(applicantNRIC, projectName);
-        if (application == null) {
-            return false;
-        }
+        return ProjectExecutor.await(approveApplicationAsync(applicantNRIC, projectName));
+    }
+    
+    /**
+     * Approves an application on its project's executor
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A future completed with true if successful, false otherwise
+     */
+    public CompletableFuture<Boolean> approveApplicationAsync(String applicantNRIC, String projectName) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Application application = findApplication(applicantNRIC, projectName);
+            if (!approve(application, countPlaces(projectName))) {
+                return false;
+            }
+            
+            applicationRepository.save(application);
+            return true;
+        });
+    }
+    
+    /**
+     * Approves several applications to a project, saving them in one batch
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @return For each distinct NRIC, in the order given, whether its application was approved
+     */
+    public Map<String, Boolean> approveApplications(List<String> applicantNRICs, String projectName) {
+        return decideApplications(applicantNRICs, projectName, () -> {
+            Map<Flat.FlatType, Integer> places = countPlaces(projectName);
+            return application -> approve(application, places);
+        });
+    }
+    
+    /**
+     * Rejects several applications to a project, saving them in one batch
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @return For each distinct NRIC, in the order given, whether its application was rejected
+     */
+    public Map<String, Boolean> rejectApplications(List<String> applicantNRICs, String projectName) {
+        return decideApplications(applicantNRICs, projectName, () -> this::reject);
+    }
+    
+    /**
+     * Approves every pending application to a project that matches the
+     * given filters, saving them in one batch. Null filters match anything.
+     * 
+     * @param projectName The name of the project
+     * @param flatType The flat type applied for
+     * @param maritalStatus The applicant's marital status
+     * @param minAge The minimum applicant age, inclusive
+     * @param maxAge The maximum applicant age, inclusive
+     * @return For each matching application's NRIC, whether it was approved
+     */
+    public Map<String, Boolean> approveMatchingApplications(String projectName, Flat.FlatType flatType,
+            User.MaritalStatus maritalStatus, Integer minAge, Integer maxAge) {
+        return ProjectExecutor.await(ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Map<String, Boolean> results = new LinkedHashMap<>();
+            List<Application> approved = new ArrayList<>();
+            Map<Flat.FlatType, Integer> places = countPlaces(projectName);
+            for (Application application : applicationRepository.findByAttributes(projectName, flatType,
+                    maritalStatus, Application.ApplicationStatus.PENDING, minAge, maxAge)) {
+                boolean done = approve(application, places);
+                results.put(application.getApplicant().getNRIC(), done);
+                if (done) {
+                    approved.add(application);
+                }
+            }
         
-        // Check if application is pending
-        if (application.getStatus() != Application.ApplicationStatus.PENDING) {
-            return false;
-        }
+            applicationRepository.saveAll(approved);
+            return results;
+        }));
+    }
+    
+    /**
+     * Decides every pending application of the given projects by a seeded
+     * ballot, in one batch
+     * 
+     * @param projectNames The names of the projects to ballot
+     * @param seed The seed of the ballot; the same seed gives the same outcome
+     * @param reservePercent Extra applicants to mark successful, as a percentage of the unallocated units
+     * @return One draw per project and flat type with pending applications
+     */
+    public List<BallotService.Draw> runBallot(List<String> projectNames, long seed, int reservePercent) {
+        return ballotService.ballot(projectNames, seed, reservePercent);
+    }
+    
+    /**
+     * Rejects an application
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return true if successful, false otherwise
+     */
+    public boolean rejectApplication(String applicantNRIC, String projectName) {
+        return ProjectExecutor.await(rejectApplicationAsync(applicantNRIC, projectName));
+    }
+    
+    /**
+     * Rejects an application on its project's executor
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A future completed with true if successful, false otherwise
+     */
+    public CompletableFuture<Boolean> rejectApplicationAsync(String applicantNRIC, String projectName) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Application application = findApplication(applicantNRIC, projectName);
+            if (!reject(application)) {
+                return false;
+            }
+            
+            applicationRepository.save(application);
+            return true;
+        });
+    }
+    
+    /**
+     * Approves a withdrawal request (changes application status to UNSUCCESSFUL)
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return true if successful, false otherwise
+     */
+    public boolean approveWithdrawal(String applicantNRIC, String projectName) {
+        return ProjectExecutor.await(approveWithdrawalAsync(applicantNRIC, projectName));
+    }
+    
+    /**
+     * Approves a withdrawal request on its project's executor
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A future completed with true if successful, false otherwise
+     */
+    public CompletableFuture<Boolean> approveWithdrawalAsync(String applicantNRIC, String projectName) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Application application = findApplication(applicantNRIC, projectName);
+            Set<Project> releasedProjects = new LinkedHashSet<>();
+            List<Application> decided = new ArrayList<>();
+            if (!decideWithdrawal(application, true, releasedProjects, decided)) {
+                return false;
+            }
+            
+            // The withdrawal and any promotion it caused are saved in one batch
+            decided.add(0, application);
+            projectRepository.saveAll(releasedProjects);
+            applicationRepository.saveAll(decided);
+            return true;
+        });
+    }
+    
+    /**
+     * Rejects a withdrawal request
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return true if successful, false otherwise
+     */
+    public boolean rejectWithdrawal(String applicantNRIC, String projectName) {
+        return ProjectExecutor.await(rejectWithdrawalAsync(applicantNRIC, projectName));
+    }
+    
+    /**
+     * Rejects a withdrawal request on its project's executor
+     * 
+     * @param applicantNRIC The NRIC of the applicant
+     * @param projectName The name of the project
+     * @return A future completed with true if successful, false otherwise
+     */
+    public CompletableFuture<Boolean> rejectWithdrawalAsync(String applicantNRIC, String projectName) {
+        return ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Application application = findApplication(applicantNRIC, projectName);
+            if (!decideWithdrawal(application, false, new LinkedHashSet<>(), new ArrayList<>())) {
+                return false;
+            }
+            
+            applicationRepository.save(application);
+            return true;
+        });
+    }
+    
+    /**
+     * Approves or rejects several withdrawal requests for a project, saving
+     * the applications, including any promoted from the waitlist, and any
+     * projects whose units were returned, in one batch each
+     * 
+     * @param decisions For each applicant NRIC, true to approve the withdrawal or false to reject it
+     * @param projectName The name of the project
+     * @return For each NRIC, in the order given, whether the decision was applied
+     */
+    public Map<String, Boolean> decideWithdrawals(Map<String, Boolean> decisions, String projectName) {
+        return ProjectExecutor.await(ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Map<String, Boolean> results = new LinkedHashMap<>();
+            List<Application> decided = new ArrayList<>();
+            List<Application> promoted = new ArrayList<>();
+            Set<Project> releasedProjects = new LinkedHashSet<>();
+            for (Map.Entry<String, Boolean> decision : decisions.entrySet()) {
+                Application application = findApplication(decision.getKey(), projectName);
+                boolean done = decideWithdrawal(application, decision.getValue(), releasedProjects, promoted);
+                results.put(decision.getKey(), done);
+                if (done) {
+                    decided.add(application);
+                }
+            }
         
-        // Check if withdrawal is requested
-        if (application.isWithdrawalRequested()) {
+            decided.addAll(promoted);
+            projectRepository.saveAll(releasedProjects);
+            applicationRepository.saveAll(decided);
+            return results;
+        }));
+    }
+    
+    /**
+     * Applies one decision to each of several applications, saving the
+     * decided ones in one batch. Repeated NRICs are decided once.
+     * 
+     * @param applicantNRICs The NRICs of the applicants
+     * @param projectName The name of the project
+     * @param decisions Creates, on the project's executor, the decision for the batch, which decides an
+     *        application without saving it and returns whether it could
+     * @return For each distinct NRIC, in the order given, whether its application was decided
+     */
+    private Map<String, Boolean> decideApplications(List<String> applicantNRICs, String projectName,
+            Supplier<Predicate<Application>> decisions) {
+        return ProjectExecutor.await(ProjectExecutor.onProject(projectExecutor, projectName, () -> {
+            Predicate<Application> decision = decisions.get();
+            Map<String, Boolean> results = new LinkedHashMap<>();
+            List<Application> decided = new ArrayList<>();
+            for (String applicantNRIC : applicantNRICs) {
+                if (results.containsKey(applicantNRIC)) {
+                    continue;
+                }
+                Application application = findApplication(applicantNRIC, projectName);
+                boolean done = decision.test(application);
+                results.put(applicantNRIC, done);
+                if (done) {
+                    decided.add(application);
+                }
+            }
+        
+            applicationRepository.saveAll(decided);
+            return results;
+        }));
+    }
+    
+    /**
+     * Marks an application SUCCESSFUL if it is pending, has no withdrawal
+     * request and its flat type has a place left, taking the place. Does
+     * not save it.
+     * 
+     * @param application The application, or null
+     * @param places The places left for each flat type of the project, as counted by {@link #countPlaces}
+     * @return true if the application was approved, false otherwise
+     */
+    private boolean approve(Application application, Map<Flat.FlatType, Integer> places) {
+        if (!isUndecided(application)) {
             return false;
         }
         
-        // Check if the project has available units of the requested flat type
-        Project project = application.getProject();
+        // Check if a unit of the requested flat type is left for another invitee
         Flat.FlatType flatType = application.getFlatType();
-        
-        boolean hasAvailableUnits = false;
-        for (Flat flat : project.getFlats()) {
-            if (flat.getFlatType() == flatType && flat.getAvailableUnits() > 0) {
-                hasAvailableUnits = true;
-                break;
-            }
-        }
-        
-        if (!hasAvailableUnits) {
+        int left = places.getOrDefault(flatType, 0);
+        if (left <= 0) {
             return false;
         }
+        places.put(flatType, left - 1);
         
         // Update application status to SUCCESSFUL
         application.updateStatus(Application.ApplicationStatus.SUCCESSFUL);
-        applicationRepository.save(application);
-        
         return true;
     }
     
     /**
-     * Rejects an application
+     * Counts the places left for each flat type of a project as a ballot
+     * with no reserve would: the unallocated units, less the applicants
+     * already invited to book them
      * 
-     * @param applicantNRIC The NRIC of the applicant
      * @param projectName The name of the project
-     * @return true if successful, false otherwise
+     * @return The places left for each flat type, none if the project does not exist
      */
-    public boolean rejectApplication(String applicantNRIC, String projectName) {
-        Application application = findApplication(applicantNRIC, projectName);
-        if (application == null) {
-            return false;
-        }
-        
-        // Check if application is pending
-        if (application.getStatus() != Application.ApplicationStatus.PENDING) {
-            return false;
+    private Map<Flat.FlatType, Integer> countPlaces(String projectName) {
+        Project project = projectRepository.findById(projectName);
+        if (project == null) {
+            return new EnumMap<>(Flat.FlatType.class);
         }
-        
-        // Check if withdrawal is requested
-        if (application.isWithdrawalRequested()) {
+        return ballotService.countPlaces(project, 0);
+    }
+    
+    /**
+     * Marks an application UNSUCCESSFUL if it is pending and has no
+     * withdrawal request. Does not save it.
+     * 
+     * @param application The application, or null
+     * @return true if the application was rejected, false otherwise
+     */
+    private boolean reject(Application application) {
+        if (!isUndecided(application)) {
             return false;
         }
         
         // Update application status to UNSUCCESSFUL
         application.updateStatus(Application.ApplicationStatus.UNSUCCESSFUL);
-        applicationRepository.save(application);
-        
         return true;
     }
     
     /**
-     * Approves a withdrawal request (changes application status to UNSUCCESSFUL)
+     * Marks the next application on a flat type's waitlist SUCCESSFUL, so
+     * its applicant is invited to book the unit just returned. Applicants
+     * with another live application are passed over. Does not save the
+     * promoted application.
      * 
-     * @param applicantNRIC The NRIC of the applicant
      * @param projectName The name of the project
-     * @return true if successful, false otherwise
+     * @param flatType The flat type whose unit was returned
+     * @param promoted The applications already promoted in this batch; receives the new one
      */
-    public boolean approveWithdrawal(String applicantNRIC, String projectName) {
-        Application application = findApplication(applicantNRIC, projectName);
-        if (application == null) {
-            return false;
+    private void promoteFromWaitlist(String projectName, Flat.FlatType flatType, List<Application> promoted) {
+        // Until the batch is saved the index still lists earlier promotions, so check the live state too
+        Application next = applicationRepository.findNextWaitlisted(projectName, flatType, candidate ->
+            !candidate.isWithdrawalRequested()
+                && (candidate.getStatus() == Application.ApplicationStatus.PENDING
+                    || candidate.getStatus() == Application.ApplicationStatus.UNSUCCESSFUL)
+                && !hasOtherLiveApplication(candidate));
+        if (next != null) {
+            next.updateStatus(Application.ApplicationStatus.SUCCESSFUL);
+            next.setWaitlistRank(0);
+            promoted.add(next);
         }
-        
-        // Check if withdrawal is requested
-        if (!application.isWithdrawalRequested()) {
-            return false;
+    }
+    
+    /**
+     * Checks whether an applicant has an application other than the given
+     * one that is still pending, successful or booked
+     * 
+     * @param application The application
+     * @return true if another of the applicant's applications is live
+     */
+    private boolean hasOtherLiveApplication(Application application) {
+        for (Application other : applicationRepository.findByApplicant(application.getApplicant())) {
+            if (other != application && (other.getStatus() == Application.ApplicationStatus.PENDING
+                    || other.getStatus() == Application.ApplicationStatus.SUCCESSFUL
+                    || other.getStatus() == Application.ApplicationStatus.BOOKED)) {
+                return true;
+            }
         }
-        
-        // Check if withdrawal request is pending
-        if (application.getWithdrawalRequestStatus() != Application.WithdrawalRequestStatus.PENDING) {
+        return false;
+    }
+    
+    /**
+     * Checks whether an application is pending with no withdrawal request
+     * 
+     * @param application The application, or null
+     * @return true if the application can be approved or rejected
+     */
+    private boolean isUndecided(Application application) {
+        if (application == null) {
             return false;
         }
         
-        // If the application was approved, increase available units
-        if (application.getStatus() == Application.ApplicationStatus.SUCCESSFUL) {
-            Project project = application.getProject();
-            Flat.FlatType flatType = application.getFlatType();
-            
-            for (Flat flat : project.getFlats()) {
-                if (flat.getFlatType() == flatType) {
-                    flat.setAvailableUnits(flat.getAvailableUnits() + 1);
-                    break;
-                }
-            }
-            
-            projectRepository.save(project);
+        // Check if application is pending
+        if (application.getStatus() != Application.ApplicationStatus.PENDING) {
+            return false;
         }
         
-        // Update withdrawal request status
-        application.setWithdrawalRequestStatus(Application.WithdrawalRequestStatus.APPROVED);
-        
-        // Mark application as unsuccessful
-        application.processWithdrawal();
-        applicationRepository.save(application);
-        
-        return true;
+        // Check if withdrawal is requested
+        return !application.isWithdrawalRequested();
     }
     
     /**
-     * Rejects a withdrawal request
+     * Approves or rejects a pending withdrawal request. An approval returns
+     * any unit held for the application's pending booking to its flat,
+     * offers a successful application's place to the next applicant on the
+     * waitlist and marks the application unsuccessful. Booked applications
+     * cannot be withdrawn.
+     * Does not save the application, the promoted application or the project.
      * 
-     * @param applicantNRIC The NRIC of the applicant
-     * @param projectName The name of the project
-     * @return true if successful, false otherwise
+     * @param application The application, or null
+     * @param approve true to approve the withdrawal, false to reject it
+     * @param releasedProjects Receives the project if a unit was returned to it
+     * @param promoted Receives the application promoted to the freed place, if any
+     * @return true if the decision was applied, false otherwise
      */
-    public boolean rejectWithdrawal(String applicantNRIC, String projectName) {
-        Application application = findApplication(applicantNRIC, projectName);
+    private boolean decideWithdrawal(Application application, boolean approve, Set<Project> releasedProjects,
+            List<Application> promoted) {
         if (application == null) {
             return false;
         }
@@ -237,10 +525,38 @@ public class HDBManagerApplicationService {
             return false;
         }
         
+        if (!approve) {
+            application.setWithdrawalRequestStatus(Application.WithdrawalRequestStatus.REJECTED);
+            return true;
+        }
+        
+        // A successful application that has not completed a booking holds an
+        // invited place, whether or not a unit is held for it
+        boolean freesInvitedPlace = application.getStatus() == Application.ApplicationStatus.SUCCESSFUL
+                && application.getBookingStatus() != Application.BookingFlatStatus.COMPLETED;
+        Project project = application.getProject();
+        
+        // If a unit is held for a pending booking, return it
+        if (unitHoldService != null && unitHoldService.take(application)) {
+            Flat flat = project.getFlatByType(application.getFlatType());
+            if (flat != null && flat.release()) {
+                releasedProjects.add(project);
+            }
+        }
+        if (application.getBookingStatus() == Application.BookingFlatStatus.PENDING) {
+            application.updateBookingStatus(Application.BookingFlatStatus.NONE);
+        }
+        
+        // Give the freed place to the first applicant on the waitlist
+        if (freesInvitedPlace) {
+            promoteFromWaitlist(project.getName(), application.getFlatType(), promoted);
+        }
+        
         // Update withdrawal request status
-        application.setWithdrawalRequestStatus(Application.WithdrawalRequestStatus.REJECTED);
-        applicationRepository.save(application);
+        application.setWithdrawalRequestStatus(Application.WithdrawalRequestStatus.APPROVED);
         
+        // Mark application as unsuccessful
+        application.processWithdrawal();
         return true;
     }
     
@@ -252,10 +568,6 @@ public class HDBManagerApplicationService {
      * @return The application, or null if not found
      */
     private Application findApplication(String applicantNRIC, String projectName) {
-        return applicationRepository.findAll().stream()
-            .filter(app -> app.getApplicant().getNRIC().equals(applicantNRIC))
-            .filter(app -> app.getProject().getName().equals(projectName))
-            .findFirst()
-            .orElse(null);
+        return applicationRepository.findByApplicantAndProject(applicantNRIC, projectName);
     }
 } 
\ No newline at end of file
@@ -5,6 +5,7 @@ import model.HDBManager;
 import model.Project;
 import repository.EnquiryRepository;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -99,7 +100,7 @@ public class HDBManagerEnquiryService {
      * @return The total number of enquiries
      */
     public int getEnquiryCount(String projectName) {
-        return getEnquiriesByProject(projectName).size();
+        return enquiryRepository.countByProject(projectName);
     }
     
     /**
@@ -109,6 +110,21 @@ public class HDBManagerEnquiryService {
      * @return The number of pending enquiries
      */
     public int getPendingEnquiryCount(String projectName) {
-        return getPendingEnquiries(projectName).size();
+        return enquiryRepository.countPendingByProject(projectName);
+    }
+    
+    /**
+     * Searches the questions and replies of a project's enquiries
+     * 
+     * @param projectName The name of the project
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    public List<Enquiry> searchEnquiries(String projectName, String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        return enquiryRepository.search(query, projectName);
     }
 } 
\ No newline at end of file
@@ -9,9 +9,11 @@ import model.User;
 import repository.ApplicationRepository;
 import repository.ProjectRepository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -21,6 +23,12 @@ import java.util.stream.Collectors;
  */
 public class HDBManagerProjectService {
     
+    // Columns of an exported applicants report, and their widths in the fixed-width layout
+    private static final String[] REPORT_COLUMNS = {
+        "Project", "Applicant Name", "Age", "Marital Status", "Flat Type", "Application Date", "Status"
+    };
+    private static final int[] REPORT_COLUMN_WIDTHS = {20, 20, 4, 14, 9, 16, 12};
+    
     private final ProjectRepository projectRepository;
     private final ApplicationRepository applicationRepository;
     
@@ -192,17 +200,15 @@ public class HDBManagerProjectService {
      * Generates a report of applicants for a specific project
      * 
      * @param projectName The name of the project
-     * @return A list of applicant reports
+     * @return A list of applicant report rows
      */
-    public List<Map<String, Object>> generateProjectApplicantsReport(String projectName) {
+    public List<ApplicantReportRow> generateProjectApplicantsReport(String projectName) {
         Project project = projectRepository.findById(projectName);
         if (project == null) {
             return new ArrayList<>();
         }
         
-        List<Application> applications = applicationRepository.findAll().stream()
-            .filter(app -> app.getProject().getName().equals(projectName))
-            .collect(Collectors.toList());
+        List<Application> applications = applicationRepository.findByProject(projectName);
         
         return createApplicantReportEntries(applications);
     }
@@ -211,79 +217,139 @@ public class HDBManagerProjectService {
      * Generates a filtered report of applicants
      * 
      * @param filters Map of filters to apply (e.g., "flatType", "maritalStatus", "ageRange")
-     * @return A list of applicant reports matching the filters
+     * @return A list of applicant report rows matching the filters
      */
-    public List<Map<String, Object>> generateFilteredApplicantsReport(Map<String, String> filters) {
-        List<Application> allApplications = applicationRepository.findAll();
-        List<Application> filteredApplications = allApplications;
-        
-        // Apply filters
-        if (filters.containsKey("projectName")) {
-            String projectName = filters.get("projectName");
-            filteredApplications = filteredApplications.stream()
-                .filter(app -> app.getProject().getName().equals(projectName))
-                .collect(Collectors.toList());
-        }
-        
-        if (filters.containsKey("flatType")) {
-            final String flatTypeStr = filters.get("flatType");
-            Flat.FlatType flatType = Flat.FlatType.fromDisplayName(flatTypeStr);
-            if (flatType != null) {
-                filteredApplications = filteredApplications.stream()
-                    .filter(app -> app.getFlatType() == flatType)
-                    .collect(Collectors.toList());
-            }
+    public List<ApplicantReportRow> generateFilteredApplicantsReport(Map<String, String> filters) {
+        ApplicantFilter filter = ApplicantFilter.from(filters);
+        List<Application> filteredApplications = applicationRepository.findByAttributes(
+            filter.projectName(), filter.flatType(), filter.maritalStatus(), null, filter.minAge(), filter.maxAge());
+        return createApplicantReportEntries(filteredApplications);
+    }
+    
+    /**
+     * Exports a filtered report of applicants to a file. Rows are written
+     * straight from the application index as they are found, so memory use
+     * does not grow with the number of applicants.
+     * 
+     * @param filters Map of filters to apply, as for {@link #generateFilteredApplicantsReport(Map)}
+     * @param file The file to write, replaced if it exists
+     * @param format The layout to write the report in
+     * @return The number of applicants exported
+     * @throws IOException If the file could not be written
+     */
+    public long exportApplicantsReport(Map<String, String> filters, Path file, ReportWriter.Format format)
+            throws IOException {
+        try (ReportWriter report = ReportWriter.open(file, format, REPORT_COLUMN_WIDTHS)) {
+            return writeApplicantsReport(filters, report);
         }
-        
-        if (filters.containsKey("maritalStatus")) {
-            String maritalStatus = filters.get("maritalStatus");
-            User.MaritalStatus maritalStatusEnum = maritalStatus == "married" ? User.MaritalStatus.MARRIED : User.MaritalStatus.SINGLE;
-            filteredApplications = filteredApplications.stream()
-                .filter(app -> app.getApplicant().getMaritalStatus() == maritalStatusEnum)
-                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Writes a filtered report of applicants, header first, one row per
+     * application as it is found
+     * 
+     * @param filters Map of filters to apply, as for {@link #generateFilteredApplicantsReport(Map)}
+     * @param report The writer to write the rows to; it is left open
+     * @return The number of applicants written
+     * @throws IOException If the rows could not be written
+     */
+    public long writeApplicantsReport(Map<String, String> filters, ReportWriter report) throws IOException {
+        ApplicantFilter filter = ApplicantFilter.from(filters);
+        report.header(REPORT_COLUMNS);
+        try {
+            return applicationRepository.forEachByAttributes(filter.projectName(), filter.flatType(),
+                    filter.maritalStatus(), null, filter.minAge(), filter.maxAge(), application -> {
+                        try {
+                            writeApplicantRow(report, application);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
+    
+    /**
+     * Writes one application as a report row
+     */
+    private void writeApplicantRow(ReportWriter report, Application application) throws IOException {
+        Applicant applicant = application.getApplicant();
+        report.cell(application.getProject().getName())
+              .cell(applicant.getName())
+              .cell(applicant.getAge())
+              .cell(applicant.getMaritalStatus() == User.MaritalStatus.MARRIED ? "Married" : "Single")
+              .cell(application.getFlatType().getDisplayName())
+              .cell(application.getApplicationDate())
+              .cell(application.getStatus().name())
+              .endRow();
+    }
+    
+    /**
+     * The filters of an applicants report, parsed from their string form
+     */
+    private record ApplicantFilter(String projectName, Flat.FlatType flatType, User.MaritalStatus maritalStatus,
+                                   Integer minAge, Integer maxAge) {
         
-        if (filters.containsKey("minAge") && filters.containsKey("maxAge")) {
-            int minAge = Integer.parseInt(filters.get("minAge"));
-            int maxAge = Integer.parseInt(filters.get("maxAge"));
+        static ApplicantFilter from(Map<String, String> filters) {
+            String projectName = filters.get("projectName");
+            
+            // An unrecognised flat type does not filter, as before
+            Flat.FlatType flatType = filters.containsKey("flatType")
+                ? Flat.FlatType.fromDisplayName(filters.get("flatType"))
+                : null;
+            
+            // The controller passes "true" for married applicants
+            User.MaritalStatus maritalStatus = null;
+            if (filters.containsKey("maritalStatus")) {
+                String value = filters.get("maritalStatus");
+                maritalStatus = value.equalsIgnoreCase("true") || value.equalsIgnoreCase("married")
+                    ? User.MaritalStatus.MARRIED
+                    : User.MaritalStatus.SINGLE;
+            }
             
-            filteredApplications = filteredApplications.stream()
-                .filter(app -> {
-                    int age = app.getApplicant().getAge();
-                    return age >= minAge && age <= maxAge;
-                })
-                .collect(Collectors.toList());
+            Integer minAge = null;
+            Integer maxAge = null;
+            if (filters.containsKey("minAge") && filters.containsKey("maxAge")) {
+                minAge = Integer.parseInt(filters.get("minAge"));
+                maxAge = Integer.parseInt(filters.get("maxAge"));
+            }
+            return new ApplicantFilter(projectName, flatType, maritalStatus, minAge, maxAge);
         }
-        
-        return createApplicantReportEntries(filteredApplications);
     }
     
     /**
-     * Helper method to create report entries from applications
+     * Helper method to create report rows from applications
      * 
      * @param applications List of applications
-     * @return List of report entries
+     * @return List of report rows
      */
-    private List<Map<String, Object>> createApplicantReportEntries(List<Application> applications) {
-        List<Map<String, Object>> reportEntries = new ArrayList<>();
+    private List<ApplicantReportRow> createApplicantReportEntries(List<Application> applications) {
+        List<ApplicantReportRow> reportEntries = new ArrayList<>(applications.size());
         
         for (Application app : applications) {
-            Map<String, Object> entry = new HashMap<>();
-            Applicant applicant = app.getApplicant();
-            
-            entry.put("applicantName", applicant.getName());
-            entry.put("age", applicant.getAge());
-            entry.put("married", applicant.getMaritalStatus() == User.MaritalStatus.MARRIED);
-            entry.put("projectName", app.getProject().getName());
-            entry.put("flatType", app.getFlatType().getDisplayName());
-            entry.put("applicationDate", app.getApplicationDate());
-            entry.put("status", app.getStatus());
-            reportEntries.add(entry);
+            reportEntries.add(ApplicantReportRow.of(app));
         }
         
         return reportEntries;
     }
     
+    /**
+     * Counts applications with a combination of attributes, for the
+     * statistics screens, in constant time
+     * 
+     * @param projectName The project name, or null for any project
+     * @param flatType The flat type, or null for any flat type
+     * @param maritalStatus The applicant's marital status, or null for any
+     * @param status The application status, or null for any status
+     * @param ageBand The applicant's age band, or null for any age
+     * @return The number of applications with those attributes
+     */
+    public long countApplications(String projectName, Flat.FlatType flatType, User.MaritalStatus maritalStatus,
+                                  Application.ApplicationStatus status, ApplicationRepository.AgeBand ageBand) {
+        return applicationRepository.countByAttributes(projectName, flatType, maritalStatus, status, ageBand);
+    }
+    
     /**
      * Gets all deleted projects created by a manager
      * 
@@ -41,15 +41,17 @@ public class HDBManagerRegistrationService {
             return new ArrayList<>();
         }
         
-        return officerRepository.findAll().stream()
-            .filter(officer -> officer.getRegistrationStatus() == HDBOfficer.RegistrationStatus.PENDING)
-            .filter(officer -> {
-                if (officer.getHandlingProject() == null) {
-                    return false;
-                }
-                return officer.getHandlingProject().getName().equals(projectName);
-            })
-            .collect(Collectors.toList());
+        return officerRepository.findPendingRegistrations(projectName);
+    }
+    
+    /**
+     * Gets the number of pending officer registrations for a specific project
+     * 
+     * @param projectName The name of the project
+     * @return The number of pending officer registrations
+     */
+    public int getPendingOfficerRegistrationCount(String projectName) {
+        return officerRepository.countPendingRegistrations(projectName);
     }
     
     /**
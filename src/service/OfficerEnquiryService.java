@@ -122,7 +122,7 @@ public class OfficerEnquiryService {
             return 0;
         }
         
-        return getEnquiriesByOfficerProject(officer).size();
+        return enquiryRepository.countByProject(officer.getHandlingProject().getName());
     }
     
     /**
@@ -136,6 +136,21 @@ public class OfficerEnquiryService {
             return 0;
         }
         
-        return getPendingEnquiriesByOfficerProject(officer).size();
+        return enquiryRepository.countPendingByProject(officer.getHandlingProject().getName());
+    }
+    
+    /**
+     * Searches the questions and replies of enquiries for the officer's handling project
+     * 
+     * @param officer The HDB officer
+     * @param query The search query
+     * @return The best matching enquiries, best match first
+     */
+    public List<Enquiry> searchEnquiries(HDBOfficer officer, String query) {
+        if (officer == null || officer.getHandlingProject() == null || query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        return enquiryRepository.search(query, officer.getHandlingProject().getName());
     }
 } 
\ No newline at end of file
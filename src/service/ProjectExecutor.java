@@ -0,0 +1,159 @@
+package service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Class that runs the commands for each project one at a time, in the
+ * order they were submitted, so a project's flats and applications are
+ * only ever changed by one thread at a time without the callers locking.
+ * 
+ * Each project has a mailbox of commands. A mailbox with work is drained
+ * by one task on the shared workers, which runs a bounded number of
+ * commands before giving the worker up, so a busy project cannot starve
+ * the others. Commands for different projects run in parallel.
+ * 
+ * A command must not wait on another command for the same project, since
+ * that command cannot start until the waiting one finishes.
+ */
+public class ProjectExecutor implements AutoCloseable {
+    
+    private static final int COMMANDS_PER_TURN = 64;
+    
+    private final ExecutorService workers;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor for ProjectExecutor, draining mailboxes on virtual threads
+     */
+    public ProjectExecutor() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+    
+    /**
+     * Constructor for ProjectExecutor
+     * 
+     * @param workers The executor that drains the mailboxes; it is shut down when this executor is closed
+     */
+    public ProjectExecutor(ExecutorService workers) {
+        this.workers = workers;
+    }
+    
+    /**
+     * Queues a command for a project
+     * 
+     * @param projectName The name of the project the command changes
+     * @param command The command
+     * @return A future completed with the command's result, or exceptionally if it threw
+     */
+    public <R> CompletableFuture<R> submit(String projectName, Supplier<R> command) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        mailboxes.computeIfAbsent(projectName, name -> new Mailbox()).post(() -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Runs a command for a project on an executor, or straight away on the
+     * calling thread if the service was given none or the command names no
+     * single project
+     * 
+     * @param executor The executor, or null
+     * @param projectName The name of the project the command changes, or null
+     * @param command The command
+     * @return A future completed with the command's result, or exceptionally if it threw
+     */
+    static <R> CompletableFuture<R> onProject(ProjectExecutor executor, String projectName, Supplier<R> command) {
+        if (executor != null && projectName != null) {
+            return executor.submit(projectName, command);
+        }
+        try {
+            return CompletableFuture.completedFuture(command.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Waits for a command's result, rethrowing what the command threw
+     * 
+     * @param future The command's future
+     * @return The command's result
+     */
+    static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Stops the workers; commands already queued are left to finish
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+    
+    /**
+     * Queue of one project's commands, drained by at most one task at a time
+     */
+    private final class Mailbox implements Runnable {
+        
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        /**
+         * Adds a command, scheduling a drain if none is pending
+         * 
+         * @param command The command
+         */
+        void post(Runnable command) {
+            commands.add(command);
+            schedule();
+        }
+        
+        @Override
+        public void run() {
+            for (int i = 0; i < COMMANDS_PER_TURN; i++) {
+                Runnable command = commands.poll();
+                if (command == null) {
+                    break;
+                }
+                command.run();
+            }
+            scheduled.set(false);
+            
+            // A command posted after the last poll saw the flag still set and left the drain to us
+            if (!commands.isEmpty()) {
+                schedule();
+            }
+        }
+        
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                workers.execute(this);
+            }
+        }
+    }
+} 
\ No newline at end of file
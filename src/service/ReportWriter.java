@@ -0,0 +1,272 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Class that writes a report one row at a time to a character stream, as
+ * CSV, TSV or fixed-width columns, so a report of any size is written in
+ * constant memory instead of being collected first.
+ * 
+ * Rows are written cell by cell and go straight to a buffered writer; no
+ * row object is built, and numbers are written without boxing. CSV cells
+ * are quoted when they contain a separator, quote or line break. TSV and
+ * fixed-width cells have tabs and line breaks replaced by spaces, and
+ * fixed-width cells are padded or cut to their column's width.
+ */
+public class ReportWriter implements Closeable {
+    
+    // Large enough that a file report reaches the disk in few writes
+    private static final int BUFFER_CHARS = 1 << 16;
+    
+    /**
+     * Enum representing the layouts a report can be written in
+     */
+    public enum Format {
+        CSV("csv"),
+        TSV("tsv"),
+        FIXED_WIDTH("txt");
+        
+        private final String extension;
+        
+        Format(String extension) {
+            this.extension = extension;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        /**
+         * Finds a format by name or file extension, ignoring case
+         * 
+         * @param name e.g. "csv", "tsv", "fixed" or "txt"
+         * @return The format, or null if none matches
+         */
+        public static Format fromName(String name) {
+            if (name == null) {
+                return null;
+            }
+            String value = name.trim();
+            if (value.equalsIgnoreCase("fixed") || value.equalsIgnoreCase("fixed-width")) {
+                return FIXED_WIDTH;
+            }
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value) || format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private final Writer out;
+    private final Format format;
+    private final int[] widths;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+    private final Calendar calendar = Calendar.getInstance();
+    
+    // The last day formatted; reports list many dates from the same day, which are formatted once
+    private long dayStart = Long.MAX_VALUE;
+    private long dayEnd = Long.MIN_VALUE;
+    private String day;
+    private int column;
+    private long rows;
+    
+    /**
+     * Constructor for ReportWriter
+     * 
+     * @param out The stream to write to; it is buffered here and closed with the report
+     * @param format The layout to write
+     * @param widths The width of each column, used by the fixed-width layout
+     */
+    public ReportWriter(Writer out, Format format, int... widths) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_CHARS);
+        this.format = format;
+        this.widths = widths;
+    }
+    
+    /**
+     * Opens a report file through a file channel, replacing any file already there
+     * 
+     * @param file The file to write
+     * @param format The layout to write
+     * @param widths The width of each column, used by the fixed-width layout
+     * @return The report writer
+     * @throws IOException If the file could not be opened
+     */
+    public static ReportWriter open(Path file, Format format, int... widths) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new ReportWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_CHARS),
+                format, widths);
+    }
+    
+    /**
+     * Writes a text cell
+     * 
+     * @param value The text, or null for an empty cell
+     * @return This writer
+     * @throws IOException If the cell could not be written
+     */
+    public ReportWriter cell(String value) throws IOException {
+        separate();
+        String text = value == null ? "" : value;
+        switch (format) {
+            case CSV -> writeCsv(text);
+            case TSV -> writeTsv(text);
+            case FIXED_WIDTH -> writeFixed(text);
+        }
+        column++;
+        return this;
+    }
+    
+    /**
+     * Writes a whole-number cell
+     * 
+     * @param value The number
+     * @return This writer
+     * @throws IOException If the cell could not be written
+     */
+    public ReportWriter cell(long value) throws IOException {
+        if (format == Format.FIXED_WIDTH) {
+            return cell(Long.toString(value));
+        }
+        separate();
+        out.write(Long.toString(value));
+        column++;
+        return this;
+    }
+    
+    /**
+     * Writes a date cell as dd/MM/yyyy
+     * 
+     * @param value The date, or null for an empty cell
+     * @return This writer
+     * @throws IOException If the cell could not be written
+     */
+    public ReportWriter cell(Date value) throws IOException {
+        if (value == null) {
+            return cell((String) null);
+        }
+        long time = value.getTime();
+        if (time < dayStart || time >= dayEnd) {
+            calendar.setTime(value);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            dayStart = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            dayEnd = calendar.getTimeInMillis();
+            day = dateFormat.format(value);
+        }
+        return cell(day);
+    }
+    
+    /**
+     * Ends the current row
+     * 
+     * @throws IOException If the line break could not be written
+     */
+    public void endRow() throws IOException {
+        out.write(format == Format.CSV ? "\r\n" : "\n");
+        column = 0;
+        rows++;
+    }
+    
+    /**
+     * Writes a header row
+     * 
+     * @param names The column names
+     * @throws IOException If the row could not be written
+     */
+    public void header(String... names) throws IOException {
+        for (String name : names) {
+            cell(name);
+        }
+        endRow();
+        rows--;
+    }
+    
+    /**
+     * Gets the number of rows written, not counting the header
+     * 
+     * @return The number of rows
+     */
+    public long getRowCount() {
+        return rows;
+    }
+    
+    /**
+     * Flushes the buffered rows and closes the stream
+     * 
+     * @throws IOException If the rows could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    private void separate() throws IOException {
+        if (column == 0) {
+            return;
+        }
+        switch (format) {
+            case CSV -> out.write(',');
+            case TSV -> out.write('\t');
+            case FIXED_WIDTH -> out.write(' ');
+        }
+    }
+    
+    private void writeCsv(String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+    
+    private void writeTsv(String text) throws IOException {
+        out.write(flatten(text));
+    }
+    
+    private void writeFixed(String value) throws IOException {
+        String text = flatten(value);
+        int width = column < widths.length ? widths[column] : text.length();
+        if (text.length() >= width) {
+            out.write(text, 0, width);
+            return;
+        }
+        out.write(text);
+        for (int i = text.length(); i < width; i++) {
+            out.write(' ');
+        }
+    }
+    
+    private static String flatten(String text) {
+        return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+} 
\ No newline at end of file
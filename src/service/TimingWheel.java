@@ -0,0 +1,203 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Class that expires many timeouts cheaply with a hashed timing wheel.
+ * 
+ * Time is cut into ticks, and the wheel is a ring of slots, one per tick;
+ * a timeout goes in the slot of the tick it is due, wrapping around the
+ * ring for deadlines further out. Scheduling and cancelling are O(1), and
+ * each tick only looks at its own slot, so the cost of waiting timeouts
+ * does not grow with how many are outstanding. Deadlines are rounded up
+ * to the next tick.
+ * 
+ * New timeouts are queued and filed by the wheel's own thread, which also
+ * hands each tick's expired items to the callback as one list.
+ * 
+ * @param <T> The type of item a timeout carries
+ */
+public class TimingWheel<T> implements AutoCloseable {
+    
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    
+    private final long tickNanos;
+    private final List<Timeout>[] slots;
+    private final int mask;
+    private final Consumer<List<T>> onExpiry;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final ScheduledExecutorService ticker;
+    private final long startNanos = System.nanoTime();
+    private long tick; // Next tick to process; only touched by the ticker thread
+    
+    /**
+     * A scheduled timeout, which either expires or is cancelled, never both
+     */
+    public final class Timeout {
+        private final T item;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        /**
+         * Gets the item this timeout carries
+         * 
+         * @return The item
+         */
+        public T getItem() {
+            return item;
+        }
+        
+        /**
+         * Cancels this timeout unless it has already expired
+         * 
+         * @return true if the timeout was cancelled and will not expire, false if it had already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                outstanding.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Constructor for TimingWheel. The wheel starts turning straight away.
+     * 
+     * @param tickMillis The length of a tick, and so the precision of deadlines
+     * @param ticksPerWheel The number of slots, rounded up to a power of two
+     * @param onExpiry Receives the items that expired on each tick, on the wheel's thread
+     */
+    public TimingWheel(long tickMillis, int ticksPerWheel, Consumer<List<T>> onExpiry) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Tick length and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.slots = newSlots(Math.max(size, 1));
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.mask = slots.length - 1;
+        this.onExpiry = onExpiry;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timing-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Schedules an item to expire after a delay
+     * 
+     * @param item The item
+     * @param delayMillis The delay; zero or less expires the item on the next tick
+     * @return The timeout, which can be cancelled
+     */
+    public Timeout schedule(T item, long delayMillis) {
+        long deadlineNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(item, (deadlineNanos + tickNanos - 1) / tickNanos);
+        outstanding.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+    
+    /**
+     * Gets the number of timeouts that have neither expired nor been cancelled
+     * 
+     * @return The number of outstanding timeouts
+     */
+    public int size() {
+        return outstanding.get();
+    }
+    
+    /**
+     * Stops the wheel; outstanding timeouts never expire
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+    
+    /**
+     * Creates the ring of slots
+     * 
+     * @param size The number of slots
+     * @return The slots, all null
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> List<E>[] newSlots(int size) {
+        return (List<E>[]) new List<?>[size];
+    }
+    
+    /**
+     * Processes every tick that has elapsed, catching up if the thread was delayed
+     */
+    private void advance() {
+        long now = (System.nanoTime() - startNanos) / tickNanos;
+        List<T> expired = new ArrayList<>();
+        while (tick <= now) {
+            fileAdded();
+            expireSlot(slots[(int) (tick & mask)], expired);
+            tick++;
+        }
+        if (!expired.isEmpty()) {
+            try {
+                onExpiry.accept(expired);
+            } catch (RuntimeException e) {
+                System.err.println("Error expiring timeouts: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Moves newly scheduled timeouts into their slots; ones already due go in the current slot
+     */
+    private void fileAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() == PENDING) {
+                slots[(int) (Math.max(timeout.deadlineTick, tick) & mask)].add(timeout);
+            }
+        }
+    }
+    
+    /**
+     * Expires the due timeouts in a slot and drops the cancelled ones,
+     * keeping those due on a later turn of the wheel
+     */
+    private void expireSlot(List<Timeout> slot, List<T> expired) {
+        int kept = 0;
+        for (Timeout timeout : slot) {
+            if (timeout.state.get() != PENDING) {
+                continue;
+            }
+            if (timeout.deadlineTick <= tick) {
+                if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                    outstanding.decrementAndGet();
+                    expired.add(timeout.item);
+                }
+                continue;
+            }
+            slot.set(kept++, timeout);
+        }
+        slot.subList(kept, slot.size()).clear();
+    }
+} 
\ No newline at end of file
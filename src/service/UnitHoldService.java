@@ -0,0 +1,211 @@
+package service;
+
+import model.Application;
+import model.Flat;
+import model.Project;
+import repository.ApplicationRepository;
+import repository.ProjectRepository;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class that holds a unit for each pending booking, so an
+ * applicant who asks to book is not turned away at the counter because
+ * the last unit went while they waited.
+ * 
+ * A hold takes one unit of the application's flat type when the booking is
+ * requested. Completing the booking takes over the held unit; if the
+ * booking is not completed within the hold time, the unit is returned and
+ * the applicant has to request the booking again. Holds are timed on a
+ * hashed timing wheel, so tens of thousands can be outstanding at little
+ * cost, and the ones expiring on the same tick are released together,
+ * one batch per project. The expiry is stored with the application, so
+ * holds survive a restart once {@link #recover()} re-arms them.
+ * 
+ * Expired holds are released on their project's {@link ProjectExecutor},
+ * which must be the one the bookings and withdrawals taking over holds
+ * run on, so a hold is never released while its booking is completed.
+ */
+public class UnitHoldService implements AutoCloseable {
+    
+    private static final long TICK_MILLIS = 1000;
+    private static final int TICKS_PER_WHEEL = 512;
+    
+    private final ApplicationRepository applicationRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectExecutor projectExecutor;
+    private final long holdMillis;
+    private final TimingWheel<Application> wheel;
+    private final Map<Application, TimingWheel<Application>.Timeout> holds = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor for UnitHoldService
+     * 
+     * @param applicationRepository Repository for application data
+     * @param projectRepository Repository for project data
+     * @param projectExecutor Executor on which expired holds are released, shared with the booking services
+     * @param holdMillis How long a unit is held before it is returned
+     */
+    public UnitHoldService(ApplicationRepository applicationRepository, ProjectRepository projectRepository,
+            ProjectExecutor projectExecutor, long holdMillis) {
+        if (projectExecutor == null) {
+            throw new IllegalArgumentException("Holds must be released on the bookings' project executor");
+        }
+        if (holdMillis <= 0) {
+            throw new IllegalArgumentException("Hold time must be positive");
+        }
+        this.applicationRepository = applicationRepository;
+        this.projectRepository = projectRepository;
+        this.projectExecutor = projectExecutor;
+        this.holdMillis = holdMillis;
+        this.wheel = new TimingWheel<>(Math.min(TICK_MILLIS, holdMillis), TICKS_PER_WHEEL, this::expire);
+    }
+    
+    /**
+     * Holds a unit of an application's flat type. Neither the application
+     * nor the project is saved.
+     * 
+     * @param application The application whose booking is being requested
+     * @return true if a unit is now held, false if none was available
+     */
+    public boolean hold(Application application) {
+        Flat flat = application.getProject().getFlatByType(application.getFlatType());
+        if (flat == null || !flat.tryReserve()) {
+            return false;
+        }
+        application.setHoldExpiry(new Date(System.currentTimeMillis() + holdMillis));
+        holds.put(application, wheel.schedule(application, holdMillis));
+        return true;
+    }
+    
+    /**
+     * Takes over the unit held for an application, e.g. to complete its
+     * booking, so the hold no longer expires. Neither the application
+     * nor the project is saved.
+     * 
+     * @param application The application
+     * @return true if the application held a unit, which is now the caller's; false if it held none or the hold expired
+     */
+    public boolean take(Application application) {
+        TimingWheel<Application>.Timeout timeout = holds.remove(application);
+        if (timeout == null || !timeout.cancel()) {
+            return false;
+        }
+        application.setHoldExpiry(null);
+        return true;
+    }
+    
+    /**
+     * Describes the unit held for an application, for booking messages
+     * 
+     * @param application The application
+     * @return A sentence saying until when the unit is held, after a space, or an empty string if none is held
+     */
+    public static String describeHold(Application application) {
+        Date expiry = application.getHoldExpiry();
+        if (expiry == null) {
+            return "";
+        }
+        return " A unit is held for you until " + new SimpleDateFormat("dd/MM/yyyy HH:mm").format(expiry) + ".";
+    }
+    
+    /**
+     * Re-arms the holds stored with applications, after the repositories
+     * are loaded. Holds that expired while the system was down are
+     * released on the next tick.
+     * 
+     * @return The number of holds re-armed
+     */
+    public int recover() {
+        long now = System.currentTimeMillis();
+        int recovered = 0;
+        for (Application application : applicationRepository.findByBookingStatus(Application.BookingFlatStatus.PENDING)) {
+            Date expiry = application.getHoldExpiry();
+            if (expiry != null && !holds.containsKey(application)) {
+                holds.put(application, wheel.schedule(application, expiry.getTime() - now));
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+    
+    /**
+     * Gets the number of units currently held
+     * 
+     * @return The number of outstanding holds
+     */
+    public int getHoldCount() {
+        return wheel.size();
+    }
+    
+    /**
+     * Stops timing holds; outstanding holds are re-armed by {@link #recover()} on the next start
+     */
+    @Override
+    public void close() {
+        wheel.close();
+    }
+    
+    /**
+     * Releases the holds that expired on one tick, one batch per project
+     * 
+     * @param expired The applications whose holds expired
+     */
+    private void expire(List<Application> expired) {
+        Map<String, List<Application>> byProject = new LinkedHashMap<>();
+        for (Application application : expired) {
+            holds.remove(application);
+            byProject.computeIfAbsent(application.getProject().getName(), name -> new ArrayList<>()).add(application);
+        }
+        for (Map.Entry<String, List<Application>> entry : byProject.entrySet()) {
+            ProjectExecutor.onProject(projectExecutor, entry.getKey(), () -> release(entry.getValue()))
+                .exceptionally(e -> {
+                    System.err.println("Error releasing expired holds in " + entry.getKey() + ": " + e.getMessage());
+                    return null;
+                });
+        }
+    }
+    
+    /**
+     * Returns the units of expired holds and cancels the bookings still
+     * waiting for them, saving the changes in one batch per repository.
+     * Runs on the project's executor, so no booking or withdrawal of the
+     * project takes over a hold or changes its application meanwhile.
+     * 
+     * @param applications The applications whose holds expired, all of one project
+     * @return Nothing
+     */
+    private Void release(List<Application> applications) {
+        Set<Project> projects = new LinkedHashSet<>();
+        for (Application application : applications) {
+            // The expired timeout could no longer be taken over, so its unit is still held and is returned
+            Project project = application.getProject();
+            Flat flat = project.getFlatByType(application.getFlatType());
+            if (flat != null && flat.release()) {
+                projects.add(project);
+            }
+            
+            // A hold armed since the expiry belongs to a new booking request, which is left waiting
+            if (holds.containsKey(application)) {
+                continue;
+            }
+            
+            // A booking completed as the hold expired took a unit of its own, so only a waiting one is cancelled
+            application.setHoldExpiry(null);
+            if (application.getBookingStatus() == Application.BookingFlatStatus.PENDING) {
+                application.updateBookingStatus(Application.BookingFlatStatus.NONE);
+            }
+        }
+        projectRepository.saveAll(projects);
+        applicationRepository.saveAll(applications);
+        return null;
+    }
+} 
\ No newline at end of file
@@ -27,7 +27,7 @@ public class AccountManagementView {
     public AccountManagementView(AccountManagementController accountController, User currentUser) {
         this.accountController = accountController;
         this.currentUser = currentUser;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
     }
     
     /**
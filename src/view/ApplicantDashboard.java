@@ -34,7 +34,7 @@ public class ApplicantDashboard extends Dashboard {
             AccountManagementController accountController) {
         super(applicant);
         this.currentApplicant = applicant;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.projectView = new ApplicantProjectView(projectController);
         this.enquiryView = new ApplicantEnquiryView(enquiryController, projectController);
         
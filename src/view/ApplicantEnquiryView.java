@@ -27,7 +27,7 @@ public class ApplicantEnquiryView {
     public ApplicantEnquiryView(ApplicantEnquiryController enquiryController, ApplicantProjectController projectController) {
         this.enquiryController = enquiryController;
         this.projectController = projectController;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
     }
     
     /**
@@ -55,6 +55,7 @@ public class ApplicantEnquiryView {
             System.out.println("2. View my enquiries");
             System.out.println("3. Update an enquiry");
             System.out.println("4. Delete an enquiry");
+            System.out.println("5. Search my enquiries");
             System.out.println("0. Return to main menu");
             System.out.print("Enter your choice: ");
             
@@ -73,6 +74,9 @@ public class ApplicantEnquiryView {
                 case 4:
                     deleteEnquiry();
                     break;
+                case 5:
+                    searchEnquiries();
+                    break;
                 case 0:
                     System.out.println("Returning to main menu...");
                     break;
@@ -145,8 +149,42 @@ public class ApplicantEnquiryView {
             return;
         }
         
-        for (int i = 0; i < myEnquiries.size(); i++) {
-            Enquiry enquiry = myEnquiries.get(i);
+        displayEnquiries(myEnquiries);
+    }
+    
+    /**
+     * Searches the questions and replies of the current applicant's enquiries
+     */
+    private void searchEnquiries() {
+        System.out.println("\n==== Search My Enquiries ====");
+        System.out.println("Words must all appear unless separated by OR; use \"quotes\" for a phrase and -word to exclude a word.");
+        System.out.print("Enter search query: ");
+        String query = scanner.nextLine().trim();
+        System.out.print("Enter project name (leave blank for all projects): ");
+        String projectName = scanner.nextLine().trim();
+        
+        try {
+            List<Enquiry> enquiries = enquiryController.searchEnquiries(projectName, query);
+            
+            if (enquiries.isEmpty()) {
+                System.out.println("None of your enquiries match your search.");
+                return;
+            }
+            
+            displayEnquiries(enquiries);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Displays a list of the applicant's enquiries with their replies
+     * 
+     * @param enquiries The list of enquiries to display
+     */
+    private void displayEnquiries(List<Enquiry> enquiries) {
+        for (int i = 0; i < enquiries.size(); i++) {
+            Enquiry enquiry = enquiries.get(i);
             System.out.println("\nEnquiry #" + (i + 1));
             System.out.println("ID: " + enquiry.getId());
             System.out.println("Project: " + enquiry.getProject().getName());
@@ -26,7 +26,7 @@ public class ApplicantProjectView {
      * @param projectController The project controller
      */
     public ApplicantProjectView(ApplicantProjectController projectController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.projectController = projectController;
     }
     
@@ -22,6 +22,8 @@ import repository.ApplicantRepository;
 import repository.ManagerRepository;
 import controller.AccountManagementController;
 import service.AccountManagementService;
+import service.ProjectExecutor;
+import service.UnitHoldService;
 
 import java.util.Scanner;
 
@@ -63,8 +65,33 @@ public class DashboardFactory {
             ApplicantRepository applicantRepository,
             OfficerRepository officerRepository,
             ManagerRepository managerRepository) {
+        this(projectRepository, applicationRepository, enquiryRepository,
+                applicantRepository, officerRepository, managerRepository, null, null);
+    }
+    
+    /**
+     * Constructor for DashboardFactory whose bookings and application
+     * decisions run on each project's executor, and which holds units for
+     * pending bookings
+     * 
+     * @param projectRepository Project repository
+     * @param applicationRepository Application repository
+     * @param officerRepository Officer repository
+     * @param enquiryRepository Enquiry repository
+     * @param projectExecutor Executor shared by every session, or null to run on the session's thread
+     * @param unitHoldService Service holding units for pending bookings, or null to take units only on completion
+     */
+    public DashboardFactory(
+            ProjectRepository projectRepository,
+            ApplicationRepository applicationRepository,
+            EnquiryRepository enquiryRepository,
+            ApplicantRepository applicantRepository,
+            OfficerRepository officerRepository,
+            ManagerRepository managerRepository,
+            ProjectExecutor projectExecutor,
+            UnitHoldService unitHoldService) {
         
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         
         // Store repositories
         this.projectRepository = projectRepository;
@@ -78,7 +105,8 @@ public class DashboardFactory {
                 new service.HDBManagerProjectService(projectRepository, applicationRepository));
         
         this.managerApplicationController = new HDBManagerApplicationController(
-                new service.HDBManagerApplicationService(applicationRepository, projectRepository));
+                new service.HDBManagerApplicationService(applicationRepository, projectRepository,
+                        projectExecutor, unitHoldService));
         
         this.managerRegistrationController = new HDBManagerRegistrationController(
                 new service.HDBManagerRegistrationService(officerRepository, projectRepository),
@@ -87,9 +115,10 @@ public class DashboardFactory {
         this.managerEnquiryController = new HDBManagerEnquiryController(
                 new service.HDBManagerEnquiryService(enquiryRepository));
         
-        // For Applicant
+        // For Applicant; terminal sessions wait for each booking's outcome, so send no request IDs to dedupe
         this.applicantProjectController = new ApplicantProjectController(
-                new service.ApplicantProjectService(projectRepository, applicationRepository));
+                new service.ApplicantProjectService(projectRepository, applicationRepository,
+                        projectExecutor, unitHoldService, null));
         
         this.applicantEnquiryController = new ApplicantEnquiryController(
                 new service.ApplicantEnquiryService(enquiryRepository, projectRepository), null); // Will set applicant later
@@ -99,7 +128,8 @@ public class DashboardFactory {
                 new service.OfficerRegistrationService(officerRepository, projectRepository, applicationRepository));
         
         this.officerFlatBookingController = new OfficerFlatBookingController(
-                new service.OfficerFlatBookingService(applicationRepository, projectRepository));
+                new service.OfficerFlatBookingService(applicationRepository, projectRepository,
+                        projectExecutor, unitHoldService, null));
         this.accountManagementController = new AccountManagementController(
                 new AccountManagementService(applicantRepository, officerRepository, managerRepository), null);
     }
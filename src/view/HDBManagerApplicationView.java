@@ -7,7 +7,10 @@ import model.HDBManager;
 import model.Project;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -29,7 +32,7 @@ public class HDBManagerApplicationView {
      */
     public HDBManagerApplicationView(HDBManagerApplicationController applicationController, 
                                HDBManagerProjectController projectController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.applicationController = applicationController;
         this.projectController = projectController;
     }
@@ -62,7 +65,8 @@ public class HDBManagerApplicationView {
             System.out.println("1. Manage Pending Applications");
             System.out.println("2. Manage Withdrawal Requests");
             System.out.println("3. View Applications by Status");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. Run Ballot for Pending Applications");
+            System.out.println("5. Back to Main Menu");
             System.out.print("Enter your choice: ");
             
             int choice = readIntInput();
@@ -78,6 +82,9 @@ public class HDBManagerApplicationView {
                     viewApplicationStatus();
                     break;
                 case 4:
+                    runBallot();
+                    break;
+                case 5:
                     exit = true;
                     break;
                 default:
@@ -121,12 +128,34 @@ public class HDBManagerApplicationView {
             return;
         }
         
-        System.out.print("Enter the NRIC of the applicant: ");
-        String applicantNRIC = scanner.nextLine().trim();
+        System.out.print("Enter the NRIC of the applicant (separate several with commas, or ALL): ");
+        String nricInput = scanner.nextLine().trim();
+        List<String> applicantNRICs = readNRICs(nricInput, pendingApplications);
         
-        System.out.print("Do you want to (A)pprove or (R)eject this application? ");
+        System.out.print("Do you want to (A)pprove or (R)eject "
+            + (applicantNRICs.size() > 1 ? "these " + applicantNRICs.size() + " applications" : "this application") + "? ");
         String action = scanner.nextLine().trim().toUpperCase();
         
+        if (applicantNRICs.size() > 1) {
+            if (action.equals("A") && nricInput.equalsIgnoreCase("ALL")) {
+                System.out.println(applicationController.approveMatchingApplications(
+                    projectName, null, null, null, null, currentManager
+                ));
+            } else if (action.equals("A")) {
+                System.out.println(applicationController.approveApplications(
+                    applicantNRICs, projectName, currentManager
+                ));
+            } else if (action.equals("R")) {
+                System.out.println(applicationController.rejectApplications(
+                    applicantNRICs, projectName, currentManager
+                ));
+            } else {
+                System.out.println("Invalid action. Operation cancelled.");
+            }
+            return;
+        }
+        String applicantNRIC = applicantNRICs.isEmpty() ? "" : applicantNRICs.get(0);
+        
         if (action.equals("A")) {
             String result = applicationController.approveApplication(
                 applicantNRIC, projectName, currentManager
@@ -171,12 +200,29 @@ public class HDBManagerApplicationView {
             return;
         }
         
-        System.out.print("Enter the NRIC of the applicant: ");
-        String applicantNRIC = scanner.nextLine().trim();
+        System.out.print("Enter the NRIC of the applicant (separate several with commas, or ALL): ");
+        List<String> applicantNRICs = readNRICs(scanner.nextLine().trim(), applications);
         
-        System.out.print("Do you want to (A)pprove or (R)eject this withdrawal? ");
+        System.out.print("Do you want to (A)pprove or (R)eject "
+            + (applicantNRICs.size() > 1 ? "these " + applicantNRICs.size() + " withdrawals" : "this withdrawal") + "? ");
         String action = scanner.nextLine().trim().toUpperCase();
         
+        if (applicantNRICs.size() > 1) {
+            if (!action.equals("A") && !action.equals("R")) {
+                System.out.println("Invalid action. Operation cancelled.");
+                return;
+            }
+            Map<String, Boolean> decisions = new LinkedHashMap<>();
+            for (String nric : applicantNRICs) {
+                decisions.put(nric, action.equals("A"));
+            }
+            System.out.println(applicationController.decideWithdrawals(
+                decisions, project.getName(), currentManager
+            ));
+            return;
+        }
+        String applicantNRIC = applicantNRICs.isEmpty() ? "" : applicantNRICs.get(0);
+        
         if (action.equals("A")) {
             String result = applicationController.approveWithdrawal(
                 applicantNRIC, project.getName(), currentManager
@@ -192,6 +238,84 @@ public class HDBManagerApplicationView {
         }
     }
     
+    /**
+     * Runs a ballot over the pending applications of one or all of the manager's projects
+     */
+    private void runBallot() {
+        System.out.println("\n===== Run Ballot =====");
+        System.out.println("1. Ballot One Project");
+        System.out.println("2. Ballot All My Projects");
+        System.out.print("Enter your choice: ");
+        
+        List<String> projectNames = new ArrayList<>();
+        int choice = readIntInput();
+        if (choice == 1) {
+            Project project = selectProject();
+            if (project == null) {
+                return;
+            }
+            projectNames.add(project.getName());
+        } else if (choice == 2) {
+            for (Project project : projectController.getProjectsByManager(currentManager)) {
+                projectNames.add(project.getName());
+            }
+        } else {
+            System.out.println("Invalid choice.");
+            return;
+        }
+        
+        System.out.print("Enter the ballot seed (leave blank for a new one): ");
+        String seedInput = scanner.nextLine().trim();
+        long seed;
+        try {
+            seed = seedInput.isEmpty() ? System.currentTimeMillis() : Long.parseLong(seedInput);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid seed. Operation cancelled.");
+            return;
+        }
+        
+        System.out.print("Enter the reserve as a percentage of available units (leave blank for 0): ");
+        String reserveInput = scanner.nextLine().trim();
+        int reservePercent = reserveInput.isEmpty() ? 0 : readInt(reserveInput);
+        if (reservePercent < 0) {
+            System.out.println("Invalid reserve. Operation cancelled.");
+            return;
+        }
+        
+        System.out.print("This decides every pending application of " + projectNames.size()
+                + " project(s). Continue? (Y/N): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("Y")) {
+            System.out.println("Ballot cancelled.");
+            return;
+        }
+        
+        System.out.println(applicationController.runBallot(projectNames, seed, reservePercent, currentManager));
+    }
+    
+    /**
+     * Reads the NRICs entered for a decision
+     * 
+     * @param input Comma-separated NRICs, or ALL for every listed application
+     * @param listed The applications shown to the manager
+     * @return The NRICs, without blanks or repeats
+     */
+    private List<String> readNRICs(String input, List<Application> listed) {
+        List<String> nrics = new ArrayList<>();
+        if (input.equalsIgnoreCase("ALL")) {
+            for (Application application : listed) {
+                nrics.add(application.getApplicant().getNRIC());
+            }
+            return nrics;
+        }
+        for (String nric : input.split(",")) {
+            nric = nric.trim();
+            if (!nric.isEmpty() && !nrics.contains(nric)) {
+                nrics.add(nric);
+            }
+        }
+        return nrics;
+    }
+    
     /**
      * Views application status
      */
@@ -305,8 +429,18 @@ public class HDBManagerApplicationView {
      * @return The integer input
      */
     private int readIntInput() {
+        return readInt(scanner.nextLine().trim());
+    }
+    
+    /**
+     * Parses an integer entered by the user
+     * 
+     * @param input The text entered
+     * @return The integer, or -1 if the text is not one
+     */
+    private int readInt(String input) {
         try {
-            return Integer.parseInt(scanner.nextLine().trim());
+            return Integer.parseInt(input);
         } catch (NumberFormatException e) {
             return -1;
         }
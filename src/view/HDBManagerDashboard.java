@@ -20,6 +20,7 @@ public class HDBManagerDashboard extends Dashboard {
     private final HDBManagerApplicationView applicationView;
     private final HDBManagerRegistrationView registrationView;
     private final HDBManagerEnquiryView enquiryView;
+    private final HDBManagerStatisticsView statisticsView;
     private final HDBManager currentManager;
     private final AccountManagementView accountManagementView;
     
@@ -41,11 +42,12 @@ public class HDBManagerDashboard extends Dashboard {
             AccountManagementController accountController) {
         super(manager);
         this.currentManager = manager;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.projectView = new HDBManagerProjectView(projectController);
         this.applicationView = new HDBManagerApplicationView(applicationController, projectController);
         this.registrationView = new HDBManagerRegistrationView(registrationController, projectController);
         this.enquiryView = new HDBManagerEnquiryView(enquiryController, projectController);
+        this.statisticsView = new HDBManagerStatisticsView(projectController);
         
         // Initialize views with manager
         this.projectView.setCurrentManager(manager);
@@ -138,10 +140,10 @@ public class HDBManagerDashboard extends Dashboard {
             
             switch (choice) {
                 case 1:
-                    System.out.println("Project Statistics - Not implemented yet");
+                    statisticsView.displayProjectStatistics();
                     break;
                 case 2:
-                    System.out.println("Application Statistics - Not implemented yet");
+                    statisticsView.displayApplicationStatistics();
                     break;
                 case 3:
                     back = true;
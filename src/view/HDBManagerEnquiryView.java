@@ -28,7 +28,7 @@ public class HDBManagerEnquiryView {
                                  HDBManagerProjectController projectController) {
         this.enquiryController = enquiryController;
         this.projectController = projectController;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
     }
     
     /**
@@ -60,7 +60,8 @@ public class HDBManagerEnquiryView {
             System.out.println("2. View Pending Enquiries");
             System.out.println("3. Reply to an Enquiry");
             System.out.println("4. View Enquiry Statistics");
-            System.out.println("5. Back to Dashboard");
+            System.out.println("5. Search Enquiries");
+            System.out.println("6. Back to Dashboard");
             System.out.print("Enter your choice: ");
             
             int choice = readIntInput();
@@ -79,6 +80,9 @@ public class HDBManagerEnquiryView {
                     viewEnquiryStatistics();
                     break;
                 case 5:
+                    searchEnquiries();
+                    break;
+                case 6:
                     back = true;
                     break;
                 default:
@@ -131,6 +135,34 @@ public class HDBManagerEnquiryView {
         displayEnquiries(pendingEnquiries);
     }
     
+    /**
+     * Searches the questions and replies of enquiries for the manager's project
+     */
+    private void searchEnquiries() {
+        if (currentManager.getHandlingProject() == null) {
+            System.out.println("You are not currently assigned to any project.");
+            return;
+        }
+        
+        System.out.println("\nWords must all appear unless separated by OR; use \"quotes\" for a phrase and -word to exclude a word.");
+        System.out.print("Enter search query: ");
+        String query = scanner.nextLine().trim();
+        
+        if (query.isEmpty()) {
+            System.out.println("Error: Search query cannot be empty.");
+            return;
+        }
+        
+        List<Enquiry> enquiries = enquiryController.searchEnquiries(currentManager.getHandlingProject().getName(), query);
+        
+        if (enquiries.isEmpty()) {
+            System.out.println("No enquiries match your search.");
+            return;
+        }
+        
+        displayEnquiries(enquiries);
+    }
+    
     /**
      * Displays a list of enquiries
      * 
@@ -5,11 +5,12 @@ import exception.HDBException;
 import model.Flat;
 import model.HDBManager;
 import model.Project;
+import service.ApplicantReportRow;
+import service.ReportWriter;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -28,7 +29,7 @@ public class HDBManagerProjectView {
      * @param projectController Controller for project management
      */
     public HDBManagerProjectView(HDBManagerProjectController projectController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.projectController = projectController;
     }
     
@@ -60,7 +61,8 @@ public class HDBManagerProjectView {
             System.out.println("7. Delete/Archive project");
             System.out.println("8. Generate project applicants report");
             System.out.println("9. Generate filtered applicants report");
-            System.out.println("10. Back to main menu");
+            System.out.println("10. Export applicants report to file");
+            System.out.println("11. Back to main menu");
             System.out.print("Enter your choice: ");
             
             int choice = readIntInput();
@@ -94,6 +96,9 @@ public class HDBManagerProjectView {
                     generateFilteredReport();
                     break;
                 case 10:
+                    exportReport();
+                    break;
+                case 11:
                     exit = true;
                     break;
                 default:
@@ -310,7 +315,7 @@ public class HDBManagerProjectView {
         System.out.print("Enter project name: ");
         String projectName = scanner.nextLine();
         
-        List<Map<String, Object>> report = projectController.generateProjectApplicantsReport(projectName);
+        List<ApplicantReportRow> report = projectController.generateProjectApplicantsReport(projectName);
         
         if (report.isEmpty()) {
             System.out.println("No applicants found for project: " + projectName);
@@ -355,7 +360,7 @@ public class HDBManagerProjectView {
         String maxAgeStr = scanner.nextLine().trim();
         if (maxAgeStr.isEmpty()) maxAgeStr = null;
         
-        List<Map<String, Object>> report = projectController.generateFilteredApplicantsReport(
+        List<ApplicantReportRow> report = projectController.generateFilteredApplicantsReport(
                 projectName, flatType, maritalStatus, minAgeStr, maxAgeStr);
         
         if (report.isEmpty()) {
@@ -366,24 +371,66 @@ public class HDBManagerProjectView {
         displayApplicantsReport(report);
     }
     
+    /**
+     * Export a filtered report of applicants to a CSV, TSV or fixed-width file
+     */
+    private void exportReport() {
+        System.out.println("\n===== Export Applicants Report =====");
+        
+        System.out.print("Project name (leave empty for all): ");
+        String projectName = scanner.nextLine().trim();
+        
+        System.out.println("\nAvailable flat types: 2-Room, 3-Room");
+        System.out.print("Flat type (leave empty for all): ");
+        String flatType = scanner.nextLine().trim();
+        
+        System.out.print("Marital status (married/single, leave empty for all): ");
+        String maritalStatus = scanner.nextLine().trim();
+        
+        System.out.print("Minimum age (leave empty for no minimum): ");
+        String minAgeStr = scanner.nextLine().trim();
+        
+        System.out.print("Maximum age (leave empty for no maximum): ");
+        String maxAgeStr = scanner.nextLine().trim();
+        
+        System.out.print("Format (csv/tsv/fixed, leave empty for csv): ");
+        String format = scanner.nextLine().trim();
+        if (format.isEmpty()) format = "csv";
+        
+        ReportWriter.Format reportFormat = ReportWriter.Format.fromName(format);
+        String defaultPath = "reports/applicants." + (reportFormat == null ? "csv" : reportFormat.getExtension());
+        System.out.print("File to write (leave empty for " + defaultPath + "): ");
+        String filePath = scanner.nextLine().trim();
+        if (filePath.isEmpty()) filePath = defaultPath;
+        
+        String result = projectController.exportApplicantsReport(
+                projectName, flatType, maritalStatus, minAgeStr, maxAgeStr, format, filePath);
+        
+        if (result.startsWith("Error")) {
+            displayError(result);
+        } else {
+            displaySuccess(result);
+        }
+    }
+    
     /**
      * Display the applicants report
      * 
-     * @param report List of applicant report entries
+     * @param report List of applicant report rows
      */
-    private void displayApplicantsReport(List<Map<String, Object>> report) {
+    private void displayApplicantsReport(List<ApplicantReportRow> report) {
         System.out.printf("%-20s %-20s %-10s %-15s %-15s %-10s\n", 
-                "Project", "Applicant Name", "Age", "Marital Status", "Flat Type", "Income");
+                "Project", "Applicant Name", "Age", "Marital Status", "Flat Type", "Status");
         System.out.println("---------------------------------------------------------------------------------");
         
-        for (Map<String, Object> entry : report) {
-            System.out.printf("%-20s %-20s %-10s %-15s %-15s $%-10s\n",
-                    entry.get("projectName"),
-                    entry.get("applicantName"),
-                    entry.get("age"),
-                    (Boolean) entry.get("married") ? "Married" : "Single",
-                    entry.get("flatType"),
-                    String.format("%.2f", (double) entry.get("income")));
+        for (ApplicantReportRow row : report) {
+            System.out.printf("%-20s %-20s %-10d %-15s %-15s %-10s\n",
+                    row.projectName(),
+                    row.applicantName(),
+                    row.age(),
+                    row.isMarried() ? "Married" : "Single",
+                    row.flatType().getDisplayName(),
+                    row.status());
         }
     }
     
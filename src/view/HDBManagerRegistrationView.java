@@ -27,7 +27,7 @@ public class HDBManagerRegistrationView {
      */
     public HDBManagerRegistrationView(HDBManagerRegistrationController registrationController, 
                                HDBManagerProjectController projectController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.registrationController = registrationController;
         this.projectController = projectController;
     }
@@ -89,7 +89,8 @@ public class HDBManagerRegistrationView {
         boolean exit = false;
         while (!exit) {
             System.out.println("\n===== Officer Registrations for " + project.getName() + " =====");
-            System.out.println("1. View Pending Registrations");
+            System.out.println("1. View Pending Registrations ("
+                    + registrationController.getPendingOfficerRegistrationCount(project.getName()) + ")");
             System.out.println("2. View Approved Registrations");
             System.out.println("3. Back to Previous Menu");
             System.out.print("Enter your choice: ");
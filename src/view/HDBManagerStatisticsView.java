@@ -0,0 +1,125 @@
+package view;
+
+import controller.HDBManagerProjectController;
+import model.Application;
+import model.Flat;
+import model.Project;
+import model.User;
+import repository.ApplicationRepository;
+
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * View class for HDB Manager's application statistics. Every figure is
+ * read from a counter kept up to date as applications change, so the
+ * screens can be refreshed as often as needed during a launch.
+ */
+public class HDBManagerStatisticsView {
+    
+    private final Scanner scanner;
+    private final HDBManagerProjectController projectController;
+    
+    /**
+     * Constructor for HDBManagerStatisticsView
+     * 
+     * @param projectController Controller for project management
+     */
+    public HDBManagerStatisticsView(HDBManagerProjectController projectController) {
+        this.scanner = Terminal.scanner();
+        this.projectController = projectController;
+    }
+    
+    /**
+     * Displays the number of applications in each status for every project
+     */
+    public void displayProjectStatistics() {
+        List<Project> projects = projectController.getAllProjects();
+        
+        System.out.println("\n===== PROJECT STATISTICS =====");
+        if (projects.isEmpty()) {
+            System.out.println("No projects found.");
+            return;
+        }
+        
+        printStatusHeader("Project");
+        for (Project project : projects) {
+            printStatusRow(project.getName(), project.getName(), null, null, null);
+        }
+        printStatusRow("All projects", null, null, null, null);
+        
+        System.out.print("\nPress Enter to continue...");
+        scanner.nextLine();
+    }
+    
+    /**
+     * Displays the number of applications in each status by flat type,
+     * marital status and age band, for one project or all of them
+     */
+    public void displayApplicationStatistics() {
+        System.out.print("Enter project name (leave blank for all projects): ");
+        String projectName = scanner.nextLine().trim();
+        if (projectName.isEmpty()) {
+            projectName = null;
+        } else if (projectController.getProjectByName(projectName) == null) {
+            System.out.println("Error: Project not found.");
+            return;
+        }
+        
+        System.out.println("\n===== APPLICATION STATISTICS: " + (projectName == null ? "ALL PROJECTS" : projectName) + " =====");
+        
+        System.out.println("\nBy flat type:");
+        printStatusHeader("Flat Type");
+        for (Flat.FlatType flatType : Flat.FlatType.values()) {
+            printStatusRow(flatType.getDisplayName(), projectName, flatType, null, null);
+        }
+        
+        System.out.println("\nBy marital status:");
+        printStatusHeader("Marital Status");
+        for (User.MaritalStatus maritalStatus : User.MaritalStatus.values()) {
+            printStatusRow(maritalStatus.toString(), projectName, null, maritalStatus, null);
+        }
+        
+        System.out.println("\nBy age:");
+        printStatusHeader("Age");
+        for (ApplicationRepository.AgeBand ageBand : ApplicationRepository.AgeBand.values()) {
+            printStatusRow(ageBand.getDisplayName(), projectName, null, null, ageBand);
+        }
+        
+        printStatusRow("Total", projectName, null, null, null);
+        
+        System.out.print("\nPress Enter to continue...");
+        scanner.nextLine();
+    }
+    
+    /**
+     * Prints the header of a table with a column per application status
+     * 
+     * @param label The heading of the first column
+     */
+    private void printStatusHeader(String label) {
+        System.out.printf("%-20s", label);
+        for (Application.ApplicationStatus status : Application.ApplicationStatus.values()) {
+            System.out.printf(" %-13s", status);
+        }
+        System.out.printf(" %-8s\n", "TOTAL");
+    }
+    
+    /**
+     * Prints a row of a table with a column per application status
+     * 
+     * @param label The row's label
+     * @param projectName The project to count, or null for all
+     * @param flatType The flat type to count, or null for all
+     * @param maritalStatus The marital status to count, or null for all
+     * @param ageBand The age band to count, or null for all
+     */
+    private void printStatusRow(String label, String projectName, Flat.FlatType flatType,
+                                User.MaritalStatus maritalStatus, ApplicationRepository.AgeBand ageBand) {
+        System.out.printf("%-20s", label);
+        for (Application.ApplicationStatus status : Application.ApplicationStatus.values()) {
+            System.out.printf(" %-13d", projectController.countApplications(projectName, flatType, maritalStatus, status, ageBand));
+        }
+        System.out.printf(" %-8d\n", projectController.countApplications(projectName, flatType, maritalStatus, null, ageBand));
+    }
+} 
\ No newline at end of file
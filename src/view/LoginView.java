@@ -23,7 +23,7 @@ public class LoginView {
      * @param authController Authentication controller for validating credentials
      */
     public LoginView(AuthenticationController authController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.authController = authController;
     }
     
@@ -26,7 +26,7 @@ public class OfficerApplicationView extends ApplicantProjectView {
     public OfficerApplicationView(ApplicantProjectController projectController) {
         super(projectController);
         this.projectController = projectController;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
     }
     
     /**
@@ -26,7 +26,7 @@ public class OfficerEnquiryView {
      */
     public OfficerEnquiryView(OfficerEnquiryController enquiryController) {
         this.enquiryController = enquiryController;
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
     }
     
     /**
@@ -61,7 +61,8 @@ public class OfficerEnquiryView {
             System.out.println("2. View Pending Enquiries");
             System.out.println("3. Reply to an Enquiry");
             System.out.println("4. View Enquiry Statistics");
-            System.out.println("5. Back to Dashboard");
+            System.out.println("5. Search Enquiries");
+            System.out.println("6. Back to Dashboard");
             System.out.print("Enter your choice: ");
             
             int choice = readIntInput();
@@ -80,6 +81,9 @@ public class OfficerEnquiryView {
                     viewEnquiryStatistics();
                     break;
                 case 5:
+                    searchEnquiries();
+                    break;
+                case 6:
                     back = true;
                     break;
                 default:
@@ -130,6 +134,33 @@ public class OfficerEnquiryView {
         }
     }
     
+    /**
+     * Searches the questions and replies of enquiries for the officer's handling project
+     */
+    private void searchEnquiries() {
+        System.out.println("\nWords must all appear unless separated by OR; use \"quotes\" for a phrase and -word to exclude a word.");
+        System.out.print("Enter search query: ");
+        String query = scanner.nextLine().trim();
+        
+        if (query.isEmpty()) {
+            System.out.println("Error: Search query cannot be empty.");
+            return;
+        }
+        
+        try {
+            List<Enquiry> enquiries = enquiryController.searchEnquiriesForHandlingProject(currentOfficer, query);
+            
+            if (enquiries.isEmpty()) {
+                System.out.println("No enquiries match your search.");
+                return;
+            }
+            
+            displayEnquiries(enquiries);
+        } catch (IllegalStateException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
     /**
      * Displays a list of enquiries
      * 
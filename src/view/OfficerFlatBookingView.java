@@ -4,10 +4,11 @@ import controller.OfficerFlatBookingController;
 import model.Application;
 import model.HDBOfficer;
 import model.Project;
+import service.BookingReceipt;
 
 import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -26,7 +27,7 @@ public class OfficerFlatBookingView {
      * @param bookingController The booking controller
      */
     public OfficerFlatBookingView(OfficerFlatBookingController bookingController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.bookingController = bookingController;
     }
     
@@ -179,10 +180,10 @@ public class OfficerFlatBookingView {
         }
         
         // Get the receipt
-        Map<String, Object> receipt = bookingController.generateBookingReceipt(nric, projectName);
+        BookingReceipt receipt = bookingController.generateBookingReceipt(nric, projectName);
         
-        if (receipt.containsKey("error")) {
-            System.out.println("Error: " + receipt.get("error"));
+        if (receipt == null) {
+            System.out.println("Error: No completed booking found for this applicant and project.");
             System.out.println("Press Enter to continue...");
             scanner.nextLine();
             return;
@@ -190,16 +191,17 @@ public class OfficerFlatBookingView {
         
         // Display the receipt
         System.out.println("\n========== BOOKING RECEIPT ==========");
-        System.out.println("Applicant Name: " + receipt.get("applicantName"));
-        System.out.println("NRIC: " + receipt.get("nric"));
-        System.out.println("Age: " + receipt.get("age"));
-        System.out.println("Marital Status: " + receipt.get("maritalStatus"));
+        System.out.println("Applicant Name: " + receipt.applicantName());
+        System.out.println("NRIC: " + receipt.nric());
+        System.out.println("Age: " + receipt.age());
+        System.out.println("Marital Status: " + receipt.maritalStatus());
         System.out.println("-------------------------------------");
-        System.out.println("Project: " + receipt.get("projectName"));
-        System.out.println("Neighborhood: " + receipt.get("neighborhood"));
-        System.out.println("Flat Type: " + receipt.get("flatType"));
-        System.out.println("Price: $" + receipt.get("price"));
-        System.out.println("Booking Date: " + dateFormat.format(receipt.get("bookingDate")));
+        System.out.println("Project: " + receipt.projectName());
+        System.out.println("Neighborhood: " + receipt.neighborhood());
+        System.out.println("Flat Type: " + receipt.flatType().getDisplayName());
+        System.out.println("Price: " + (receipt.hasPrice() ? "$" + receipt.price() : "Unknown"));
+        Date bookingDate = receipt.getBookingDate();
+        System.out.println("Booking Date: " + (bookingDate == null ? "-" : dateFormat.format(bookingDate)));
         System.out.println("======================================");
         
         System.out.println("\nPress Enter to continue...");
@@ -23,7 +23,7 @@ public class OfficerRegistrationView {
      * @param registrationController Controller for registration operations
      */
     public OfficerRegistrationView(OfficerRegistrationController registrationController) {
-        this.scanner = new Scanner(System.in);
+        this.scanner = Terminal.scanner();
         this.registrationController = registrationController;
     }
     
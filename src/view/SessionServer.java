@@ -0,0 +1,88 @@
+package view;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class that serves many terminal sessions at once over a local TCP socket,
+ * e.g. one per service counter.
+ * 
+ * Each connection runs the given session on its own virtual thread, with
+ * the connection as its {@link Terminal}. A session blocked waiting for
+ * its user holds no platform thread, so idle counters cost almost nothing.
+ * Only connections from the local machine are accepted.
+ */
+public class SessionServer implements Closeable {
+    
+    private final ServerSocket serverSocket;
+    private final Runnable session;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    
+    /**
+     * Constructor for SessionServer
+     * 
+     * @param port The local port to listen on, or 0 for any free port
+     * @param session The session to run for each connection, on the connection's thread
+     * @throws IOException If the port could not be opened
+     */
+    public SessionServer(int port, Runnable session) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.session = session;
+        Terminal.routeSystemOut();
+    }
+    
+    /**
+     * Gets the port the server listens on
+     * 
+     * @return The port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Accepts connections until the server is closed
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> runSession(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Error accepting session: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stops accepting connections; sessions already running are left to finish
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdown();
+    }
+    
+    /**
+     * Runs the session for one connection and closes the connection afterwards
+     * 
+     * @param socket The connection
+     */
+    private void runSession(Socket socket) {
+        try (socket) {
+            Terminal.runSession(socket.getInputStream(), socket.getOutputStream(), session);
+        } catch (NoSuchElementException e) {
+            // The user disconnected while a view was waiting for input
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error in session from " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,266 @@
+package view;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Scanner;
+
+/**
+ * Class giving each user session its own terminal: the Scanner its views
+ * read from and the stream that System.out writes to on its thread.
+ * 
+ * Views read input through {@link #scanner()}, which returns the scanner
+ * of the session running on the calling thread, or one scanner shared
+ * over System.in when the system runs on the console. Once
+ * {@link #routeSystemOut()} has been called, System.out likewise writes
+ * to the calling thread's session, so the views can keep printing to
+ * System.out while several sessions run at once.
+ */
+public final class Terminal {
+    
+    private static final ThreadLocal<Terminal> CURRENT = new ThreadLocal<>();
+    private static Scanner consoleScanner;
+    private static PrintStream consoleOut = System.out;
+    
+    private final Scanner scanner;
+    private final PrintStream out;
+    
+    private Terminal(InputStream in, OutputStream out) {
+        this.scanner = new Scanner(in, StandardCharsets.UTF_8);
+        this.out = new PrintStream(out, true, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Gets the scanner to read user input from
+     * 
+     * @return The current session's scanner, or the console's scanner outside a session
+     */
+    public static Scanner scanner() {
+        Terminal terminal = CURRENT.get();
+        if (terminal != null) {
+            return terminal.scanner;
+        }
+        synchronized (Terminal.class) {
+            if (consoleScanner == null) {
+                consoleScanner = new Scanner(System.in);
+            }
+            return consoleScanner;
+        }
+    }
+    
+    /**
+     * Runs a user session on the calling thread with its own input and output.
+     * The session ends when it returns or its input is closed.
+     * 
+     * @param in The session's input
+     * @param out The session's output
+     * @param session The session to run
+     */
+    public static void runSession(InputStream in, OutputStream out, Runnable session) {
+        Terminal terminal = new Terminal(in, out);
+        CURRENT.set(terminal);
+        try {
+            session.run();
+        } finally {
+            CURRENT.remove();
+            terminal.out.flush();
+        }
+    }
+    
+    /**
+     * Makes System.out write to the session running on the calling thread,
+     * and to the console on any other thread
+     */
+    public static synchronized void routeSystemOut() {
+        if (System.out instanceof SessionPrintStream) {
+            return;
+        }
+        consoleOut = System.out;
+        System.setOut(new SessionPrintStream());
+    }
+    
+    /**
+     * Gets the stream the calling thread should write to
+     * 
+     * @return The session's output, or the console
+     */
+    private static PrintStream currentOut() {
+        Terminal terminal = CURRENT.get();
+        return terminal != null ? terminal.out : consoleOut;
+    }
+    
+    /**
+     * A PrintStream that forwards every call to the calling thread's
+     * stream, so sessions never wait on each other's output
+     */
+    private static final class SessionPrintStream extends PrintStream {
+        
+        SessionPrintStream() {
+            super(OutputStream.nullOutputStream());
+        }
+        
+        @Override
+        public void write(int b) {
+            currentOut().write(b);
+        }
+        
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            currentOut().write(buf, off, len);
+        }
+        
+        @Override
+        public void flush() {
+            currentOut().flush();
+        }
+        
+        @Override
+        public void close() {
+            currentOut().flush();
+        }
+        
+        @Override
+        public boolean checkError() {
+            return currentOut().checkError();
+        }
+        
+        @Override
+        public void print(boolean b) {
+            currentOut().print(b);
+        }
+        
+        @Override
+        public void print(char c) {
+            currentOut().print(c);
+        }
+        
+        @Override
+        public void print(int i) {
+            currentOut().print(i);
+        }
+        
+        @Override
+        public void print(long l) {
+            currentOut().print(l);
+        }
+        
+        @Override
+        public void print(float f) {
+            currentOut().print(f);
+        }
+        
+        @Override
+        public void print(double d) {
+            currentOut().print(d);
+        }
+        
+        @Override
+        public void print(char[] s) {
+            currentOut().print(s);
+        }
+        
+        @Override
+        public void print(String s) {
+            currentOut().print(s);
+        }
+        
+        @Override
+        public void print(Object obj) {
+            currentOut().print(obj);
+        }
+        
+        @Override
+        public void println() {
+            currentOut().println();
+        }
+        
+        @Override
+        public void println(boolean x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(char x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(int x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(long x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(float x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(double x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(char[] x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(String x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public void println(Object x) {
+            currentOut().println(x);
+        }
+        
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            currentOut().printf(format, args);
+            return this;
+        }
+        
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            currentOut().printf(l, format, args);
+            return this;
+        }
+        
+        @Override
+        public PrintStream format(String format, Object... args) {
+            currentOut().format(format, args);
+            return this;
+        }
+        
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            currentOut().format(l, format, args);
+            return this;
+        }
+        
+        @Override
+        public PrintStream append(CharSequence csq) {
+            currentOut().append(csq);
+            return this;
+        }
+        
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            currentOut().append(csq, start, end);
+            return this;
+        }
+        
+        @Override
+        public PrintStream append(char c) {
+            currentOut().append(c);
+            return this;
+        }
+    }
+} 
\ No newline at end of file
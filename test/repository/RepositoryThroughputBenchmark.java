@@ -0,0 +1,242 @@
+package repository;
+
+import model.Applicant;
+import model.Application;
+import model.Enquiry;
+import model.Flat;
+import model.Project;
+import model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Measures how fast concurrent writers can save to the repositories, and
+ * checks that readers can query them while they do.
+ *
+ * The throughput runs save applications and enquiries, one of each per
+ * step, split evenly across 1, 8 and 32 writer threads: 40k of each with
+ * ASYNC durability and 3k of each with GROUP durability, which waits for
+ * fsync. Each configuration is run twice to warm up, then three times
+ * timed, and the timed runs are printed in saves per second.
+ *
+ * The mixed run has 8 writers saving 20k applications while 4 readers
+ * loop over findAll, findByProject and findById, counting the reads that
+ * complete and any exceptions they throw. The saved applications are then
+ * reloaded and counted.
+ *
+ * Not part of the test run, since the timings depend on the machine:
+ *
+ *   javac -d out $(find src -name '*.java')
+ *   javac -cp out -d test-out $(find test -name '*.java')
+ *   java -cp out:test-out repository.RepositoryThroughputBenchmark
+ */
+public class RepositoryThroughputBenchmark {
+
+    private static final int[] WRITERS = {1, 8, 32};
+    private static final int ASYNC_ENTITIES = 40_000;
+    private static final int GROUP_ENTITIES = 3_000;
+    private static final int WARM_UP_RUNS = 2;
+    private static final int TIMED_RUNS = 3;
+    private static final int MIXED_WRITERS = 8;
+    private static final int MIXED_READERS = 4;
+    private static final int MIXED_APPLICATIONS = 20_000;
+    private static final int PROJECTS = 20;
+
+    public static void main(String[] args) throws Exception {
+        File dataDirectory = Files.createTempDirectory("throughput-benchmark").toFile();
+        try {
+            AtomicInteger run = new AtomicInteger();
+            for (Repository.Durability durability : List.of(Repository.Durability.ASYNC, Repository.Durability.GROUP)) {
+                int entities = durability == Repository.Durability.ASYNC ? ASYNC_ENTITIES : GROUP_ENTITIES;
+                System.out.printf("%s durability, %d applications and %d enquiries, saves/s:%n",
+                        durability, entities, entities);
+                for (int writers : WRITERS) {
+                    StringBuilder timed = new StringBuilder();
+                    for (int i = 0; i < WARM_UP_RUNS + TIMED_RUNS; i++) {
+                        double savesPerSecond = runWriters(new File(dataDirectory, "run" + run.incrementAndGet()),
+                                durability, entities, writers);
+                        if (i >= WARM_UP_RUNS) {
+                            timed.append(timed.length() == 0 ? "" : " / ");
+                            timed.append(String.format("%.0f", savesPerSecond));
+                        }
+                    }
+                    System.out.printf("  %2d writers: %s%n", writers, timed);
+                }
+            }
+            runMixed(new File(dataDirectory, "mixed"));
+        } finally {
+            try (Stream<Path> paths = Files.walk(dataDirectory.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Saves the entities from several writers at once
+     *
+     * @return The saves per second
+     */
+    private static double runWriters(File directory, Repository.Durability durability, int entities, int writers)
+            throws InterruptedException, IOException {
+        createDirectory(directory);
+        ApplicationRepository applications =
+                new ApplicationRepository(new File(directory, "applications.dat").getPath());
+        EnquiryRepository enquiries = new EnquiryRepository(new File(directory, "enquiries.dat").getPath());
+        applications.loadData();
+        enquiries.loadData();
+        applications.setDurability(durability);
+        enquiries.setDurability(durability);
+
+        List<Project> projects = createProjects();
+        List<Application> applicationsToSave = new ArrayList<>();
+        List<Enquiry> enquiriesToSave = new ArrayList<>();
+        for (int i = 0; i < entities; i++) {
+            Application application = createApplication(i, projects);
+            applicationsToSave.add(application);
+            enquiriesToSave.add(new Enquiry("E" + i, application.getApplicant(), application.getProject(),
+                    "Is a 2-room flat available?"));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int first = writer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                awaitQuietly(start);
+                for (int i = first; i < entities; i += writers) {
+                    applications.save(applicationsToSave.get(i));
+                    enquiries.save(enquiriesToSave.get(i));
+                }
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        applications.flush();
+        enquiries.flush();
+        long elapsed = System.nanoTime() - started;
+
+        check(applications.findAll().size() == entities && enquiries.findAll().size() == entities,
+                "every entity is saved");
+        applications.compact();
+        enquiries.compact();
+        return 2.0 * entities / (elapsed / 1e9);
+    }
+
+    /**
+     * Saves applications from several writers while readers query them
+     */
+    private static void runMixed(File directory) throws InterruptedException {
+        createDirectory(directory);
+        String filePath = new File(directory, "applications.dat").getPath();
+        ApplicationRepository applications = new ApplicationRepository(filePath);
+        applications.loadData();
+        applications.setDurability(Repository.Durability.ASYNC);
+
+        List<Project> projects = createProjects();
+        List<Application> toSave = new ArrayList<>();
+        for (int i = 0; i < MIXED_APPLICATIONS; i++) {
+            toSave.add(createApplication(i, projects));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int writer = 0; writer < MIXED_WRITERS; writer++) {
+            int first = writer;
+            writers.add(Thread.ofPlatform().start(() -> {
+                awaitQuietly(start);
+                for (int i = first; i < MIXED_APPLICATIONS; i += MIXED_WRITERS) {
+                    applications.save(toSave.get(i));
+                }
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int reader = 0; reader < MIXED_READERS; reader++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                awaitQuietly(start);
+                int i = 0;
+                while (writing.get()) {
+                    try {
+                        Application sample = toSave.get(i++ % MIXED_APPLICATIONS);
+                        applications.findAll();
+                        applications.findByProject(sample.getProject().getName());
+                        applications.findById(ApplicationRepository.applicationId(sample.getApplicant().getNRIC(),
+                                sample.getProject().getName()));
+                        reads.addAndGet(3);
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        applications.saveData();
+
+        ApplicationRepository reloaded = new ApplicationRepository(filePath);
+        reloaded.loadData();
+        System.out.printf("Mixed run, %d writers saving %d applications, %d readers:%n",
+                MIXED_WRITERS, MIXED_APPLICATIONS, MIXED_READERS);
+        System.out.printf("  %d reads completed, %d errors, %d applications reloaded%n",
+                reads.get(), errors.get(), reloaded.findAll().size());
+    }
+
+    private static List<Project> createProjects() {
+        Date now = new Date();
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            Project project = new Project("Project " + i, "Bedok", now, new Date(now.getTime() + 86_400_000L), 10);
+            project.addFlat(new Flat(Flat.FlatType.TWO_ROOM, 100, 250_000));
+            projects.add(project);
+        }
+        return projects;
+    }
+
+    private static Application createApplication(int i, List<Project> projects) {
+        Applicant applicant = new Applicant(String.format("S%07dA", i), "Applicant " + i, "password", 40,
+                User.MaritalStatus.MARRIED);
+        return new Application(applicant, projects.get(i % projects.size()), Flat.FlatType.TWO_ROOM);
+    }
+
+    private static void createDirectory(File directory) {
+        if (!directory.mkdirs()) {
+            throw new IllegalStateException("Could not create " + directory);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(boolean condition, String expectation) {
+        if (!condition) {
+            throw new AssertionError("Expected: " + expectation);
+        }
+    }
+}
\ No newline at end of file
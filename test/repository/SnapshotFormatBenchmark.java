@@ -0,0 +1,257 @@
+package repository;
+
+import model.Applicant;
+import model.Application;
+import model.Enquiry;
+import model.Flat;
+import model.HDBManager;
+import model.Project;
+import model.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the size and speed of repository snapshots written with java.io
+ * serialization, as every repository file was before the binary format,
+ * against the binary snapshots the repositories write now.
+ *
+ * The data set has 50 projects and N applicants, each with one application
+ * and one enquiry with a reply. The java.io side writes each repository's
+ * entities as one list, as the old snapshots did; the binary side times
+ * compact() and loadData() on the repositories themselves. Binary reads
+ * do not include reference linking. Each size is timed over several runs
+ * after warm-up runs, and the last run is reported.
+ *
+ * Not part of the test run, since the timings depend on the machine:
+ *
+ *   javac -d out $(find src -name '*.java')
+ *   javac -cp out -d test-out $(find test -name '*.java')
+ *   java -cp out:test-out repository.SnapshotFormatBenchmark [N ...]
+ */
+public class SnapshotFormatBenchmark {
+
+    private static final int PROJECTS = 50;
+    private static final int WARM_UP_RUNS = 3;
+    private static final int TIMED_RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length == 0 ? new int[] {10_000, 100_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        for (int applicants : sizes) {
+            File dataDirectory = Files.createTempDirectory("snapshot-benchmark").toFile();
+            try {
+                DataSet data = new DataSet(applicants);
+                Result legacy = null;
+                Result binary = null;
+                for (int run = 0; run < WARM_UP_RUNS + TIMED_RUNS; run++) {
+                    legacy = runLegacy(data, new File(dataDirectory, "legacy" + run));
+                    binary = runBinary(data, new File(dataDirectory, "binary" + run));
+                }
+                System.out.printf("N=%d:%n", applicants);
+                System.out.printf("  java.io %6.1f MB, write %7.1f ms, read %7.1f ms%n",
+                        legacy.bytes / 1e6, legacy.writeNanos / 1e6, legacy.readNanos / 1e6);
+                System.out.printf("  binary  %6.1f MB, write %7.1f ms, read %7.1f ms%n",
+                        binary.bytes / 1e6, binary.writeNanos / 1e6, binary.readNanos / 1e6);
+            } finally {
+                try (Stream<Path> paths = Files.walk(dataDirectory.toPath())) {
+                    paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes and reads each repository's entities as one serialized list
+     */
+    private static Result runLegacy(DataSet data, File directory) throws IOException, ClassNotFoundException {
+        createDirectory(directory);
+        List<List<?>> stores = List.of(data.projects, data.applicants, data.applications, data.enquiries);
+
+        long started = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < stores.size(); i++) {
+            File file = new File(directory, i + ".ser");
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeObject(new ArrayList<>(stores.get(i)));
+            }
+            bytes += file.length();
+        }
+        long written = System.nanoTime();
+
+        int read = 0;
+        for (int i = 0; i < stores.size(); i++) {
+            File file = new File(directory, i + ".ser");
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                read += ((List<?>) in.readObject()).size();
+            }
+        }
+        long finished = System.nanoTime();
+
+        check(read == data.size(), "every serialized entity is read back");
+        return new Result(bytes, written - started, finished - written);
+    }
+
+    /**
+     * Fills the repositories outside the timing, then times their snapshot
+     * and a fresh load of it
+     */
+    private static Result runBinary(DataSet data, File directory) {
+        createDirectory(directory);
+        Repositories filled = new Repositories(directory);
+        filled.load();
+        for (Project project : data.projects) {
+            filled.projects.save(project);
+        }
+        filled.applicants.saveAll(data.applicants);
+        filled.applications.saveAll(data.applications);
+        filled.enquiries.saveAll(data.enquiries);
+        filled.flush();
+
+        long started = System.nanoTime();
+        filled.saveData();
+        long written = System.nanoTime();
+
+        Repositories loaded = new Repositories(directory);
+        loaded.load();
+        long finished = System.nanoTime();
+
+        check(loaded.size() == data.size(), "every stored entity is loaded back");
+        return new Result(filled.bytes(), written - started, finished - written);
+    }
+
+    private static void createDirectory(File directory) {
+        if (!directory.mkdirs()) {
+            throw new IllegalStateException("Could not create " + directory);
+        }
+    }
+
+    private static void check(boolean condition, String expectation) {
+        if (!condition) {
+            throw new AssertionError("Expected: " + expectation);
+        }
+    }
+
+    /**
+     * The size of one format's files and the time taken to write and read them
+     */
+    private record Result(long bytes, long writeNanos, long readNanos) {
+    }
+
+    /**
+     * The entities stored by both formats
+     */
+    private static final class DataSet {
+        final List<Project> projects = new ArrayList<>();
+        final List<Applicant> applicants = new ArrayList<>();
+        final List<Application> applications = new ArrayList<>();
+        final List<Enquiry> enquiries = new ArrayList<>();
+
+        DataSet(int applicantCount) {
+            Date now = new Date();
+            HDBManager manager = new HDBManager("S9999999M", "Manager", "password", 45, User.MaritalStatus.MARRIED);
+            for (int i = 0; i < PROJECTS; i++) {
+                Project project = new Project("Project " + i, "Neighbourhood " + i % 7, now,
+                        new Date(now.getTime() + 86_400_000L), 10);
+                project.addFlat(new Flat(Flat.FlatType.TWO_ROOM, 100, 250_000));
+                project.addFlat(new Flat(Flat.FlatType.THREE_ROOM, 100, 400_000));
+                projects.add(project);
+            }
+            for (int i = 0; i < applicantCount; i++) {
+                Applicant applicant = new Applicant(String.format("S%07dA", i), "Applicant " + i, "password",
+                        21 + i % 50, i % 3 == 0 ? User.MaritalStatus.SINGLE : User.MaritalStatus.MARRIED);
+                Project project = projects.get(i % PROJECTS);
+                Application application = new Application(applicant, project, Flat.FlatType.TWO_ROOM);
+                project.addApplication(application);
+                Enquiry enquiry = new Enquiry("E" + i, applicant, project,
+                        "When does the ballot close for " + project.getName() + "?");
+                enquiry.addReply("The ballot closes at the end of the application window.", manager);
+                applicants.add(applicant);
+                applications.add(application);
+                enquiries.add(enquiry);
+            }
+        }
+
+        int size() {
+            return projects.size() + applicants.size() + applications.size() + enquiries.size();
+        }
+    }
+
+    /**
+     * The four repositories of a data set, sharing one reference linker
+     */
+    private static final class Repositories {
+        final ProjectRepository projects;
+        final ApplicantRepository applicants;
+        final ApplicationRepository applications;
+        final EnquiryRepository enquiries;
+
+        Repositories(File directory) {
+            projects = new ProjectRepository(new File(directory, "projects.dat").getPath());
+            applicants = new ApplicantRepository(new File(directory, "applicants.dat").getPath());
+            applications = new ApplicationRepository(new File(directory, "applications.dat").getPath());
+            enquiries = new EnquiryRepository(new File(directory, "enquiries.dat").getPath());
+            ReferenceLinker linker = new ReferenceLinker(projects, applications, applicants,
+                    new OfficerRepository(new File(directory, "officers.dat").getPath()),
+                    new ManagerRepository(new File(directory, "managers.dat").getPath()));
+            for (AbstractRepository<?, ?> repository : all()) {
+                repository.setReferenceLinker(linker);
+            }
+        }
+
+        List<AbstractRepository<?, ?>> all() {
+            return List.of(projects, applicants, applications, enquiries);
+        }
+
+        void load() {
+            for (AbstractRepository<?, ?> repository : all()) {
+                repository.loadData();
+                repository.setDurability(Repository.Durability.ASYNC);
+            }
+        }
+
+        void flush() {
+            for (AbstractRepository<?, ?> repository : all()) {
+                repository.flush();
+            }
+        }
+
+        void saveData() {
+            for (AbstractRepository<?, ?> repository : all()) {
+                repository.saveData();
+            }
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (AbstractRepository<?, ?> repository : all()) {
+                bytes += new File(repository.filePath).length();
+            }
+            return bytes;
+        }
+
+        int size() {
+            int size = 0;
+            for (AbstractRepository<?, ?> repository : all()) {
+                size += repository.findAll().size();
+            }
+            return size;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package service;
+
+import model.Applicant;
+import model.Application;
+import model.Flat;
+import model.HDBOfficer;
+import model.Project;
+import model.User;
+import repository.ApplicationRepository;
+import repository.ProjectRepository;
+import repository.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Checks that concurrent bookings never take more units than a flat has,
+ * in the manner of a jcstress harness: many threads are released at once
+ * against a small inventory, over many rounds, and every outcome is
+ * checked against the invariants rather than a fixed interleaving.
+ * 
+ * Runs as a plain program, like {@link WaitlistPromotionTest}:
+ * 
+ *   java -cp out:test-out service.OverbookingStressTest [rounds]
+ */
+public class OverbookingStressTest {
+    
+    private static final int BOOKERS = 64;
+    private static final int BOOKINGS_PER_BOOKER = 20;
+    private static final int UNITS = 50;
+    private static final int DEFAULT_ROUNDS = 20;
+    private static final int RESERVE_RELEASE_UNITS = 8;
+    private static final int RESERVE_RELEASE_OPERATIONS = 20_000;
+    
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        File dataDirectory = Files.createTempDirectory("overbooking-test").toFile();
+        try {
+            for (int round = 0; round < rounds; round++) {
+                concurrentCompletionsNeverOverbook(new File(dataDirectory, "round" + round), round);
+            }
+            concurrentReservesAndReleasesKeepInventoryConsistent();
+        } finally {
+            try (Stream<Path> paths = Files.walk(dataDirectory.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        System.out.println("OverbookingStressTest passed (" + rounds + " rounds of " + BOOKERS + " bookers)");
+    }
+    
+    /**
+     * 64 officers complete 1,280 pending bookings at once against 50 units,
+     * calling the service directly so only the flat's compare-and-set
+     * stands between them
+     */
+    private static void concurrentCompletionsNeverOverbook(File dataDirectory, int round) throws Exception {
+        if (!dataDirectory.mkdirs()) {
+            throw new IOException("Could not create " + dataDirectory);
+        }
+        ProjectRepository projectRepository = new ProjectRepository(new File(dataDirectory, "projects.dat").getPath());
+        ApplicationRepository applicationRepository =
+                new ApplicationRepository(new File(dataDirectory, "applications.dat").getPath());
+        projectRepository.loadData();
+        applicationRepository.loadData();
+        projectRepository.setDurability(Repository.Durability.ASYNC);
+        applicationRepository.setDurability(Repository.Durability.ASYNC);
+        OfficerFlatBookingService bookingService = new OfficerFlatBookingService(applicationRepository, projectRepository);
+        
+        Date now = new Date();
+        Project project = new Project("Round " + round, "Tampines", now, now, BOOKERS);
+        Flat flat = new Flat(Flat.FlatType.THREE_ROOM, UNITS, 450000);
+        project.addFlat(flat);
+        projectRepository.save(project);
+        
+        List<HDBOfficer> officers = new ArrayList<>();
+        List<List<Application>> bookingsByOfficer = new ArrayList<>();
+        for (int booker = 0; booker < BOOKERS; booker++) {
+            HDBOfficer officer = new HDBOfficer(String.format("T%07dZ", booker), "Officer " + booker, "password", 30,
+                    User.MaritalStatus.SINGLE);
+            officer.setHandlingProject(project);
+            officers.add(officer);
+            List<Application> bookings = new ArrayList<>();
+            for (int i = 0; i < BOOKINGS_PER_BOOKER; i++) {
+                Applicant applicant = new Applicant(String.format("S%07dA", booker * BOOKINGS_PER_BOOKER + i),
+                        "Applicant", "password", 40, User.MaritalStatus.MARRIED);
+                Application application = new Application(applicant, project, Flat.FlatType.THREE_ROOM);
+                application.updateStatus(Application.ApplicationStatus.SUCCESSFUL);
+                application.updateBookingStatus(Application.BookingFlatStatus.PENDING);
+                project.addApplication(application);
+                applicationRepository.save(application);
+                bookings.add(application);
+            }
+            bookingsByOfficer.add(bookings);
+        }
+        
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicBoolean overbooked = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int booker = 0; booker < BOOKERS; booker++) {
+            HDBOfficer officer = officers.get(booker);
+            List<Application> bookings = bookingsByOfficer.get(booker);
+            threads.add(Thread.ofPlatform().start(() -> {
+                awaitQuietly(start);
+                for (Application application : bookings) {
+                    String result = bookingService.completeBooking(application.getApplicant().getNRIC(),
+                            project.getName(), officer);
+                    if (result.startsWith("Booking completed")) {
+                        completed.incrementAndGet();
+                    }
+                    Flat.Inventory inventory = flat.getInventory();
+                    if (inventory.getAvailableUnits() < 0 || inventory.getBookedUnits() > inventory.getTotalUnits()) {
+                        overbooked.set(true);
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        int booked = 0;
+        for (List<Application> bookings : bookingsByOfficer) {
+            for (Application application : bookings) {
+                if (application.getBookingStatus() == Application.BookingFlatStatus.COMPLETED) {
+                    booked++;
+                }
+            }
+        }
+        Flat.Inventory inventory = flat.getInventory();
+        check(!overbooked.get(), "no booker ever saw more units booked than the flat has");
+        check(completed.get() <= UNITS, "no more bookings complete than there are units (" + completed.get() + ")");
+        check(completed.get() == UNITS, "every unit is booked when bookings outnumber units");
+        check(booked == completed.get(), "completed applications match the successful calls");
+        check(inventory.getTotalUnits() == UNITS, "the total is unchanged");
+        check(inventory.getBookedUnits() == completed.get(), "the inventory counts every completed booking once");
+        applicationRepository.saveData();
+        projectRepository.saveData();
+    }
+    
+    /**
+     * 64 threads reserve and release units of a small flat at random while
+     * an observer reads the inventory; every snapshot must be within bounds
+     * and the final count must match the net reservations
+     */
+    private static void concurrentReservesAndReleasesKeepInventoryConsistent() throws Exception {
+        Flat flat = new Flat(Flat.FlatType.TWO_ROOM, RESERVE_RELEASE_UNITS, 250000);
+        AtomicLong netReserved = new AtomicLong();
+        AtomicBoolean outOfBounds = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        
+        Thread observer = Thread.ofPlatform().start(() -> {
+            awaitQuietly(start);
+            while (running.get()) {
+                Flat.Inventory inventory = flat.getInventory();
+                if (inventory.getAvailableUnits() < 0 || inventory.getAvailableUnits() > inventory.getTotalUnits()) {
+                    outOfBounds.set(true);
+                }
+            }
+        });
+        List<Thread> threads = new ArrayList<>();
+        for (int booker = 0; booker < BOOKERS; booker++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                awaitQuietly(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < RESERVE_RELEASE_OPERATIONS; i++) {
+                    if (random.nextBoolean()) {
+                        if (flat.tryReserve()) {
+                            netReserved.incrementAndGet();
+                        }
+                    } else if (flat.release()) {
+                        netReserved.decrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        running.set(false);
+        observer.join();
+        
+        Flat.Inventory inventory = flat.getInventory();
+        check(!outOfBounds.get(), "every inventory snapshot stays between 0 and the total");
+        check(inventory.getBookedUnits() == netReserved.get(), "the final count matches the net reservations");
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void check(boolean condition, String expectation) {
+        if (!condition) {
+            throw new AssertionError("Expected: " + expectation);
+        }
+    }
+} 
\ No newline at end of file
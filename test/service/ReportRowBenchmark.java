@@ -0,0 +1,171 @@
+package service;
+
+import model.Applicant;
+import model.Application;
+import model.Flat;
+import model.Project;
+import model.User;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compares the applicant report's old rows, one HashMap of boxed values
+ * per applicant, with the {@link ApplicantReportRow} records that replaced
+ * them.
+ *
+ * Each variant reads every field a report prints. "Build then read" makes
+ * every row first and reads them after, as the report does; "fused" makes
+ * and reads one row at a time, which lets the JIT scalar-replace a record
+ * row that never escapes. Each variant runs over 500k applications, 5
+ * times to warm up and 10 times timed, and prints the mean time and the
+ * bytes allocated per row, as counted by the thread's allocation counter.
+ *
+ * Not part of the test run, since the timings depend on the machine:
+ *
+ *   javac -d out $(find src -name '*.java')
+ *   javac -cp out -d test-out $(find test -name '*.java')
+ *   java -cp out:test-out service.ReportRowBenchmark
+ */
+public class ReportRowBenchmark {
+
+    private static final int APPLICATIONS = 500_000;
+    private static final int WARM_UP_RUNS = 5;
+    private static final int TIMED_RUNS = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        List<Application> applications = createApplications();
+        measure("map rows, build then read:   ", applications, ReportRowBenchmark::mapRowsBuildThenRead);
+        measure("record rows, build then read:", applications, ReportRowBenchmark::recordRowsBuildThenRead);
+        measure("map row per applicant, fused:", applications, ReportRowBenchmark::mapRowsFused);
+        measure("record row, fused:           ", applications, ReportRowBenchmark::recordRowsFused);
+    }
+
+    private static void measure(String name, List<Application> applications,
+            ToLongFunction<List<Application>> variant) {
+        long checksum = 0;
+        for (int run = 0; run < WARM_UP_RUNS; run++) {
+            checksum += variant.applyAsLong(applications);
+        }
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        for (int run = 0; run < TIMED_RUNS; run++) {
+            checksum += variant.applyAsLong(applications);
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double rows = (double) TIMED_RUNS * applications.size();
+        System.out.printf("%s %6.1f ns/row, %4.0f B/row (checksum %d)%n", name, elapsed / rows, allocated / rows,
+                checksum);
+    }
+
+    /**
+     * The row the report built before the records, one map per applicant
+     */
+    private static Map<String, Object> mapRow(Application application) {
+        Applicant applicant = application.getApplicant();
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("applicantName", applicant.getName());
+        entry.put("age", applicant.getAge());
+        entry.put("married", applicant.getMaritalStatus() == User.MaritalStatus.MARRIED);
+        entry.put("projectName", application.getProject().getName());
+        entry.put("flatType", application.getFlatType().getDisplayName());
+        entry.put("applicationDate", application.getApplicationDate());
+        entry.put("status", application.getStatus());
+        return entry;
+    }
+
+    private static long readMapRow(Map<String, Object> row) {
+        long sum = ((String) row.get("applicantName")).length();
+        sum += (Integer) row.get("age");
+        sum += (Boolean) row.get("married") ? 1 : 0;
+        sum += ((String) row.get("projectName")).length();
+        sum += ((String) row.get("flatType")).length();
+        Date applicationDate = (Date) row.get("applicationDate");
+        sum += applicationDate == null ? 0 : applicationDate.getTime();
+        sum += ((Application.ApplicationStatus) row.get("status")).ordinal();
+        return sum;
+    }
+
+    private static long readRecordRow(ApplicantReportRow row) {
+        long sum = row.applicantName().length();
+        sum += row.age();
+        sum += row.isMarried() ? 1 : 0;
+        sum += row.projectName().length();
+        sum += row.flatType().getDisplayName().length();
+        sum += row.applicationDateMillis() == ApplicantReportRow.NO_DATE ? 0 : row.applicationDateMillis();
+        sum += row.status().ordinal();
+        return sum;
+    }
+
+    private static long mapRowsBuildThenRead(List<Application> applications) {
+        List<Map<String, Object>> rows = new ArrayList<>(applications.size());
+        for (Application application : applications) {
+            rows.add(mapRow(application));
+        }
+        long sum = 0;
+        for (Map<String, Object> row : rows) {
+            sum += readMapRow(row);
+        }
+        return sum;
+    }
+
+    private static long recordRowsBuildThenRead(List<Application> applications) {
+        List<ApplicantReportRow> rows = new ArrayList<>(applications.size());
+        for (Application application : applications) {
+            rows.add(ApplicantReportRow.of(application));
+        }
+        long sum = 0;
+        for (ApplicantReportRow row : rows) {
+            sum += readRecordRow(row);
+        }
+        return sum;
+    }
+
+    private static long mapRowsFused(List<Application> applications) {
+        long sum = 0;
+        for (Application application : applications) {
+            sum += readMapRow(mapRow(application));
+        }
+        return sum;
+    }
+
+    private static long recordRowsFused(List<Application> applications) {
+        long sum = 0;
+        for (Application application : applications) {
+            sum += readRecordRow(ApplicantReportRow.of(application));
+        }
+        return sum;
+    }
+
+    private static List<Application> createApplications() {
+        Date now = new Date();
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Project project = new Project("Project " + i, "Punggol", now, new Date(now.getTime() + 86_400_000L), 10);
+            project.addFlat(new Flat(Flat.FlatType.TWO_ROOM, 100, 250_000));
+            project.addFlat(new Flat(Flat.FlatType.THREE_ROOM, 100, 400_000));
+            projects.add(project);
+        }
+        List<Application> applications = new ArrayList<>(APPLICATIONS);
+        for (int i = 0; i < APPLICATIONS; i++) {
+            boolean married = i % 3 != 0;
+            User.MaritalStatus maritalStatus = married ? User.MaritalStatus.MARRIED : User.MaritalStatus.SINGLE;
+            Applicant applicant = new Applicant(String.format("S%07dA", i), "Applicant " + i, "password",
+                    married ? 21 + i % 40 : 35 + i % 30, maritalStatus);
+            applications.add(new Application(applicant, projects.get(i % projects.size()),
+                    married && i % 2 == 0 ? Flat.FlatType.THREE_ROOM : Flat.FlatType.TWO_ROOM));
+        }
+        return applications;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package service;
+
+import model.Applicant;
+import model.Application;
+import model.Flat;
+import model.Project;
+import model.User;
+import repository.ApplicationRepository;
+import repository.ProjectRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that approving a withdrawal promotes the first applicant on the
+ * waitlist to the unit it returns.
+ * 
+ * The project has no build tool, so this runs as a plain program against
+ * the compiled sources and exits with an error if a check fails:
+ * 
+ *   javac -d out $(find src -name '*.java')
+ *   javac -cp out -d test-out $(find test -name '*.java')
+ *   java -cp out:test-out service.WaitlistPromotionTest
+ */
+public class WaitlistPromotionTest {
+    
+    private static final String PROJECT_NAME = "Acacia Breeze";
+    private static final long HOLD_MILLIS = 60 * 60 * 1000;
+    
+    public static void main(String[] args) throws IOException {
+        File dataDirectory = Files.createTempDirectory("waitlist-test").toFile();
+        try {
+            withdrawingHeldBookingPromotesFirstOnWaitlist(new File(dataDirectory, "held"));
+            withdrawingUnbookedInvitationPromotesFirstOnWaitlist(new File(dataDirectory, "unbooked"));
+        } finally {
+            try (Stream<Path> paths = Files.walk(dataDirectory.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        System.out.println("WaitlistPromotionTest passed");
+    }
+    
+    /**
+     * Two applicants ballot for one unit; the winner books, withdraws and
+     * has the withdrawal approved, and the unit goes to the other
+     */
+    private static void withdrawingHeldBookingPromotesFirstOnWaitlist(File dataDirectory) throws IOException {
+        Files.createDirectories(dataDirectory.toPath());
+        ProjectRepository projectRepository = new ProjectRepository(new File(dataDirectory, "projects.dat").getPath());
+        ApplicationRepository applicationRepository =
+                new ApplicationRepository(new File(dataDirectory, "applications.dat").getPath());
+        projectRepository.loadData();
+        applicationRepository.loadData();
+        
+        try (ProjectExecutor projectExecutor = new ProjectExecutor();
+             UnitHoldService unitHoldService = new UnitHoldService(applicationRepository, projectRepository,
+                     projectExecutor, HOLD_MILLIS)) {
+            HDBManagerApplicationService managerService = new HDBManagerApplicationService(applicationRepository,
+                    projectRepository, projectExecutor, unitHoldService);
+            ApplicantProjectService applicantService = new ApplicantProjectService(projectRepository,
+                    applicationRepository, projectExecutor, unitHoldService, null);
+            
+            Date now = new Date();
+            Project project = new Project(PROJECT_NAME, "Yishun", now, new Date(now.getTime() + HOLD_MILLIS), 2);
+            Flat flat = new Flat(Flat.FlatType.TWO_ROOM, 1, 350000);
+            project.addFlat(flat);
+            projectRepository.save(project);
+            
+            Applicant first = new Applicant("S1234567A", "John", "password", 35, User.MaritalStatus.SINGLE);
+            Applicant second = new Applicant("T7654321B", "Sarah", "password", 40, User.MaritalStatus.MARRIED);
+            for (Applicant applicant : List.of(first, second)) {
+                Application application = new Application(applicant, project, Flat.FlatType.TWO_ROOM);
+                project.addApplication(application);
+                applicationRepository.save(application);
+            }
+            
+            // One unit for two entrants: one wins, the other is first on the waitlist
+            managerService.runBallot(List.of(PROJECT_NAME), 42, 0);
+            Application winner = applicantService.getApplicantApplication(first);
+            Application waitlisted = applicantService.getApplicantApplication(second);
+            if (winner.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
+                Application swapped = winner;
+                winner = waitlisted;
+                waitlisted = swapped;
+            }
+            check(winner.getStatus() == Application.ApplicationStatus.SUCCESSFUL, "one entrant wins the ballot");
+            check(waitlisted.getStatus() == Application.ApplicationStatus.UNSUCCESSFUL
+                    && waitlisted.getWaitlistRank() == 1, "the other entrant is first on the waitlist");
+            
+            String winnerNric = winner.getApplicant().getNRIC();
+            applicantService.initiateBooking(winnerNric, PROJECT_NAME);
+            check(winner.getBookingStatus() == Application.BookingFlatStatus.PENDING, "the winner's booking is pending");
+            check(flat.getAvailableUnits() == 0, "the unit is held for the winner");
+            
+            check(applicantService.requestWithdrawal(winner.getApplicant()), "the winner can request a withdrawal");
+            check(managerService.approveWithdrawal(winnerNric, PROJECT_NAME), "the withdrawal is approved");
+            
+            check(winner.getStatus() == Application.ApplicationStatus.UNSUCCESSFUL, "the withdrawn application is unsuccessful");
+            check(winner.getBookingStatus() == Application.BookingFlatStatus.NONE, "the withdrawn booking is cancelled");
+            check(waitlisted.getStatus() == Application.ApplicationStatus.SUCCESSFUL, "the waitlisted applicant is promoted");
+            check(waitlisted.getWaitlistRank() == 0, "the promoted applicant leaves the waitlist");
+            check(flat.getAvailableUnits() == 1, "the returned unit is available for the promoted applicant to book");
+        }
+    }
+    
+    /**
+     * Two applicants ballot for one unit; the winner withdraws before
+     * booking, so no unit is held, and the invitation still goes to the
+     * other. Runs without a hold service, as the console did before holds.
+     */
+    private static void withdrawingUnbookedInvitationPromotesFirstOnWaitlist(File dataDirectory) throws IOException {
+        Files.createDirectories(dataDirectory.toPath());
+        ProjectRepository projectRepository = new ProjectRepository(new File(dataDirectory, "projects.dat").getPath());
+        ApplicationRepository applicationRepository =
+                new ApplicationRepository(new File(dataDirectory, "applications.dat").getPath());
+        projectRepository.loadData();
+        applicationRepository.loadData();
+        
+        HDBManagerApplicationService managerService =
+                new HDBManagerApplicationService(applicationRepository, projectRepository);
+        ApplicantProjectService applicantService = new ApplicantProjectService(projectRepository, applicationRepository);
+        
+        Date now = new Date();
+        Project project = new Project(PROJECT_NAME, "Yishun", now, new Date(now.getTime() + HOLD_MILLIS), 2);
+        Flat flat = new Flat(Flat.FlatType.TWO_ROOM, 1, 350000);
+        project.addFlat(flat);
+        projectRepository.save(project);
+        
+        Applicant first = new Applicant("S1234567A", "John", "password", 35, User.MaritalStatus.SINGLE);
+        Applicant second = new Applicant("T7654321B", "Sarah", "password", 40, User.MaritalStatus.MARRIED);
+        for (Applicant applicant : List.of(first, second)) {
+            Application application = new Application(applicant, project, Flat.FlatType.TWO_ROOM);
+            project.addApplication(application);
+            applicationRepository.save(application);
+        }
+        
+        managerService.runBallot(List.of(PROJECT_NAME), 42, 0);
+        Application winner = applicantService.getApplicantApplication(first);
+        Application waitlisted = applicantService.getApplicantApplication(second);
+        if (winner.getStatus() != Application.ApplicationStatus.SUCCESSFUL) {
+            Application swapped = winner;
+            winner = waitlisted;
+            waitlisted = swapped;
+        }
+        check(winner.getStatus() == Application.ApplicationStatus.SUCCESSFUL, "one entrant wins the ballot");
+        check(winner.getBookingStatus() == Application.BookingFlatStatus.NONE, "the winner has not booked");
+        check(waitlisted.getWaitlistRank() == 1, "the other entrant is first on the waitlist");
+        
+        String winnerNric = winner.getApplicant().getNRIC();
+        check(applicantService.requestWithdrawal(winner.getApplicant()), "the winner can request a withdrawal");
+        check(managerService.approveWithdrawal(winnerNric, PROJECT_NAME), "the withdrawal is approved");
+        
+        check(winner.getStatus() == Application.ApplicationStatus.UNSUCCESSFUL, "the withdrawn application is unsuccessful");
+        check(waitlisted.getStatus() == Application.ApplicationStatus.SUCCESSFUL, "the waitlisted applicant is promoted");
+        check(waitlisted.getWaitlistRank() == 0, "the promoted applicant leaves the waitlist");
+        check(flat.getAvailableUnits() == 1, "the unit stays available for the promoted applicant to book");
+    }
+    
+    private static void check(boolean condition, String expectation) {
+        if (!condition) {
+            throw new AssertionError("Expected: " + expectation);
+        }
+    }
+} 
\ No newline at end of file